@@ -0,0 +1,99 @@
+package com.red5pro.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks once per configured thread count, in both throughput and sample time modes, and prints the
+ * throughput and p99 latency of each benchmark. Raw results for each thread count are written as JSON into the results
+ * directory.
+ * <br>
+ * System properties:
+ * <ul>
+ * <li>bench.threads - comma separated thread counts, default 1,2,4,8,16,32,64</li>
+ * <li>bench.include - benchmark include regex, default .*Benchmark.*</li>
+ * <li>bench.results - results directory, default target/jmh</li>
+ * <li>bench.gc - when true, runs with the GC profiler and adds the bytes allocated per operation to the summary</li>
+ * </ul>
+ *
+ * @author Paul Gregoire
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("bench.include", ".*Benchmark.*");
+        String resultDir = System.getProperty("bench.results", "target/jmh");
+        new File(resultDir).mkdirs();
+        boolean gc = Boolean.getBoolean("bench.gc");
+        List<String> summary = new ArrayList<>();
+        summary.add(String.format("%-72s %8s %16s %16s %14s", "Benchmark", "Threads", "Throughput", "p99", gc ? "alloc/op" : ""));
+        for (String threads : System.getProperty("bench.threads", "1,2,4,8,16,32,64").split(",")) {
+            int threadCount = Integer.parseInt(threads.trim());
+            ChainedOptionsBuilder builder = new OptionsBuilder().include(include).threads(threadCount).mode(Mode.Throughput).mode(Mode.SampleTime).timeUnit(TimeUnit.MICROSECONDS).jvmArgsAppend("-Dred5.config_root=" + System.getProperty("red5.config_root", "target/test-classes/conf")).resultFormat(ResultFormatType.JSON).result(resultDir + File.separatorChar + "jmh-t" + threadCount + ".json");
+            if (gc) {
+                builder.addProfiler(GCProfiler.class);
+            }
+            Options opts = builder.build();
+            Collection<RunResult> results = new Runner(opts).run();
+            for (RunResult result : results) {
+                if (result.getParams().getMode() != Mode.Throughput) {
+                    continue;
+                }
+                String benchmark = result.getParams().getBenchmark();
+                Result<?> throughput = result.getPrimaryResult();
+                // find the sample time run of the same benchmark for its percentiles
+                String p99 = "-";
+                for (RunResult sample : results) {
+                    if (sample.getParams().getMode() == Mode.SampleTime && benchmark.equals(sample.getParams().getBenchmark()) && paramsMatch(sample, result)) {
+                        p99 = String.format("%.3f %s", sample.getPrimaryResult().getStatistics().getPercentile(99.0d), sample.getPrimaryResult().getScoreUnit());
+                        break;
+                    }
+                }
+                summary.add(String.format("%-72s %8d %16s %16s %14s", benchmark + params(result), threadCount, String.format("%.3f %s", throughput.getScore(), throughput.getScoreUnit()), p99, gc ? allocated(result) : ""));
+            }
+        }
+        summary.forEach(System.out::println);
+    }
+
+    private static boolean paramsMatch(RunResult a, RunResult b) {
+        for (String key : a.getParams().getParamsKeys()) {
+            if (!a.getParams().getParam(key).equals(b.getParams().getParam(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String allocated(RunResult result) {
+        // looked up by key, since the secondary results are declared with the raw Result type
+        for (String key : result.getSecondaryResults().keySet()) {
+            if (key.endsWith("gc.alloc.rate.norm")) {
+                return String.format("%.1f B", result.getSecondaryResults().get(key).getScore());
+            }
+        }
+        return "-";
+    }
+
+    private static String params(RunResult result) {
+        StringBuilder sb = new StringBuilder();
+        for (String key : result.getParams().getParamsKeys()) {
+            sb.append(sb.length() == 0 ? " [" : ", ").append(key).append('=').append(result.getParams().getParam(key));
+        }
+        return sb.length() == 0 ? "" : sb.append(']').toString();
+    }
+
+}
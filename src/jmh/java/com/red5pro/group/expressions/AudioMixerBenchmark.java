@@ -0,0 +1,96 @@
+package com.red5pro.group.expressions;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.red5pro.group.ConferenceParticipant;
+import com.red5pro.group.GroupEvent;
+import com.red5pro.media.IMediaSample;
+import com.red5pro.media.MediaSample;
+import com.red5pro.media.MediaType;
+import com.red5pro.media.PCMUtils;
+
+/**
+ * Benchmarks one tick of the audio mixer, 20 ms of 48 kHz mono from every participant mixed N-1 for each of them. A
+ * tick has to stay well under 20 ms for the participant count to fit on one core.
+ *
+ * @author Paul Gregoire
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AudioMixerBenchmark {
+
+    @Param({ "10", "100", "500" })
+    public int participants;
+
+    private AudioMixer mixer;
+
+    private String[] ids;
+
+    private IMediaSample[] frames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mixer = new AudioMixer(48000, 1, 20, 1, null);
+        ids = new String[participants];
+        frames = new IMediaSample[participants];
+        Random random = new Random(participants);
+        for (int i = 0; i < participants; i++) {
+            BenchmarkParticipant participant = new BenchmarkParticipant();
+            mixer.add(participant);
+            ids[i] = participant.getId();
+            short[] pcm = new short[mixer.getFrameSize()];
+            for (int s = 0; s < pcm.length; s++) {
+                pcm[s] = (short) (random.nextInt() >> 18);
+            }
+            frames[i] = MediaSample.build(0L, PCMUtils.toBytes(pcm, 0, pcm.length), MediaType.AUDIO);
+        }
+    }
+
+    @Benchmark
+    public void offerAndMix() {
+        for (int i = 0; i < participants; i++) {
+            mixer.offer(ids[i], frames[i]);
+        }
+        mixer.mix();
+    }
+
+    private static class BenchmarkParticipant extends ConferenceParticipant {
+
+        BenchmarkParticipant() {
+            subscriber = true;
+        }
+
+        @Override
+        public String getContextPath() {
+            return "/live";
+        }
+
+        @Override
+        public void consumeMediaSample(IMediaSample sample) {
+        }
+
+        @Override
+        public void doExpressionEvent(GroupEvent event) {
+        }
+
+    }
+
+}
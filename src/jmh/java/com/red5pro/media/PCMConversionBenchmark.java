@@ -0,0 +1,97 @@
+package com.red5pro.media;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks 16 bit PCM conversion for 48 kHz stereo frames, comparing the former per sample loop with the bulk view
+ * conversions, conversion into a caller supplied array and the conversion cached on a sample.
+ *
+ * @author Paul Gregoire
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class PCMConversionBenchmark {
+
+    @Param({ "10", "20", "60" })
+    public int frameMillis;
+
+    private byte[] bytes;
+
+    private short[] shorts;
+
+    private short[] shortsOut;
+
+    private byte[] bytesOut;
+
+    private MediaSample sample;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 48 samples per millisecond, two channels
+        shorts = new short[48 * frameMillis * 2];
+        Random random = new Random(frameMillis);
+        for (int i = 0; i < shorts.length; i++) {
+            shorts[i] = (short) random.nextInt();
+        }
+        bytes = PCMUtils.toBytes(shorts, 0, shorts.length);
+        shortsOut = new short[shorts.length];
+        bytesOut = new byte[bytes.length];
+        sample = MediaSample.build(0L, bytes, MediaType.AUDIO);
+    }
+
+    @Benchmark
+    public short[] toShortsLoop() {
+        short[] array = new short[bytes.length / 2];
+        for (int i = 0, o = 0; o < array.length; o++) {
+            array[o] = (short) (((bytes[i++] & 0xff) | (bytes[i++] & 0xff) << 8));
+        }
+        return array;
+    }
+
+    @Benchmark
+    public short[] toShorts() {
+        return PCMUtils.toShorts(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public short[] toShortsInto() {
+        PCMUtils.toShorts(bytes, 0, bytes.length, shortsOut, 0);
+        return shortsOut;
+    }
+
+    @Benchmark
+    public short[] bufferAsShortsCached() {
+        return sample.bufferAsShorts();
+    }
+
+    @Benchmark
+    public byte[] toBytesLoop() {
+        byte[] array = new byte[shorts.length * 2];
+        for (int i = 0, o = 0; i < shorts.length; i++) {
+            short s = shorts[i];
+            array[o++] = (byte) (s & 0x00ff);
+            array[o++] = (byte) ((s & 0xff00) >>> 8);
+        }
+        return array;
+    }
+
+    @Benchmark
+    public byte[] toBytesInto() {
+        PCMUtils.toBytes(shorts, 0, shorts.length, bytesOut, 0);
+        return bytesOut;
+    }
+
+}
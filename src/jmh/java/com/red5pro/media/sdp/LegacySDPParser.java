@@ -0,0 +1,376 @@
+package com.red5pro.media.sdp;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.media.VideoConstants;
+import com.red5pro.media.sdp.model.AttributeField;
+import com.red5pro.media.sdp.model.AttributeKey;
+import com.red5pro.media.sdp.model.BandwidthField;
+import com.red5pro.media.sdp.model.ConnectionField;
+import com.red5pro.media.sdp.model.MediaField;
+import com.red5pro.media.sdp.model.OriginField;
+import com.red5pro.media.sdp.model.SDPMediaType;
+import com.red5pro.media.sdp.model.SessionField;
+import com.red5pro.server.util.NetworkManager;
+
+/**
+ * The regex based SDP parser which SDPParser replaced, kept as the baseline for the parser benchmarks.
+ *
+ * @author Paul Gregoire
+ */
+final class LegacySDPParser {
+
+    private static Logger log = LoggerFactory.getLogger(LegacySDPParser.class);
+
+    /**
+     * Creates and returns an origin field given a raw session string from an sdp.
+     *
+     * @param origin
+     * @return OriginField
+     */
+    static OriginField createOriginField(String origin) {
+        Matcher matcher = OriginField.PATTERN.matcher(origin);
+        if (matcher.find()) {
+            String userName = matcher.group(1);
+            String sessionId = matcher.group(2);
+            long sessionVersion = Long.valueOf(matcher.group(3));
+            String address = matcher.group(4);
+            // log.debug("Address: {}", address);
+            OriginField field = new OriginField(userName, sessionId, sessionVersion, address);
+            log.debug("Created origin: {}", field);
+            return field;
+        }
+        return null;
+    }
+
+    /**
+     * Creates and returns a session field given a raw session string from an sdp.
+     *
+     * @param session
+     * @return SessionField
+     */
+    static SessionField createSessionField(String session) {
+        Matcher matcher = SessionField.PATTERN.matcher(session);
+        if (matcher.find()) {
+            String value = matcher.group(1);
+            SessionField field = new SessionField(value);
+            log.debug("Created session: {}", field);
+            return field;
+        }
+        return null;
+    }
+
+    /**
+     * Creates and returns a connection field given a raw bandwidth string from an
+     * sdp.
+     *
+     * @param connection
+     * @return ConnectionField
+     */
+    static ConnectionField createConnectionField(String connection) {
+        String[] parts = connection.split("\\s");
+        if (parts.length == 3) {
+            ConnectionField field = new ConnectionField(parts[2], NetworkManager.NetworkType.valueOf(parts[0]), NetworkManager.AddressType.valueOf(parts[1]));
+            log.debug("Created connection: {}", field);
+            return field;
+        }
+        return null;
+    }
+
+    /**
+     * Creates and returns a bandwidth field given a raw bandwidth string from an
+     * sdp.
+     *
+     * @param bandwidth
+     * @return BandwidthField
+     */
+    static BandwidthField createBandwidthField(String bandwidth) {
+        Matcher matcher = BandwidthField.PATTERN.matcher(bandwidth);
+        if (matcher.find()) {
+            String type = matcher.group(1);
+            int value = Integer.valueOf(matcher.group(2));
+            BandwidthField field = new BandwidthField(type, value);
+            log.debug("Created bandwidth: {}", field);
+            return field;
+        }
+        return null;
+    }
+
+    /**
+     * Creates and returns a attribute field given a raw attribute string from an
+     * sdp.
+     *
+     * @param attribute
+     * @return AttributeField
+     */
+    static AttributeField createAttributeField(String attribute) {
+        Matcher matcher = AttributeField.PATTERN.matcher(attribute);
+        if (matcher.find()) {
+            // strip any dashes in the key name so our enums will work
+            String keyStr = matcher.group(1).replace("-", "");
+            try {
+                AttributeKey key = AttributeKey.valueOf(keyStr);
+                String value = null;
+                if (matcher.groupCount() > 1) {
+                    value = matcher.group(3);
+                }
+                // construct the field
+                AttributeField field = new AttributeField(key, value);
+                log.debug("Created attribute: {}", field);
+                return field;
+            } catch (IllegalArgumentException iae) {
+                log.info("Unsupported attribute type: {}", iae.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates and returns a media field given a raw media string from an sdp.
+     *
+     * @param media
+     * @return MediaField
+     */
+    static MediaField createMediaField(String media) {
+        log.debug("createMediaField: {}", media);
+        // have to handle the case of newer datachannel sdp entries
+        // normal "chrome" style: m=application 9 DTLS/SCTP 5000
+        // newer style: m=application 9 UDP/DTLS/SCTP webrtc-datachannel
+        // seen from Firefox: m=application 5000 UDP/DTLS/SCTP 5000
+        // IPCam metadata: m=application 0 RTP/AVP 107
+        Matcher matcher = MediaField.PATTERN.matcher(media);
+        if (log.isDebugEnabled()) {
+            log.debug("matcher matches: {} groups: {}", matcher.matches(), matcher.groupCount());
+            log.debug("type: {} port: {} protocol: {} format(s): {}", matcher.group(1), matcher.group(2), matcher.group(3), matcher.group(4));
+        }
+        if (matcher.matches()) {
+            MediaField field;
+            SDPMediaType type = SDPMediaType.valueOf(matcher.group(1));
+            switch (type) {
+                case application:
+                    // get the applications protocol
+                    String proto = matcher.group(3);
+                    // handle webrtc datachannel
+                    if (proto.contains("SCTP")) {
+                        // next up are the individual codec format / payload ids
+                        field = new MediaField(SDPMediaType.application, 9, proto, new int[] { 5000 });
+                        // older style DC config uses port (5000) instead of webrtc-datachannel string
+                        if (!media.contains("webrtc-datachannel")) {
+                            // add attributes for older type request
+                            field.addAttributeField(new AttributeField(AttributeKey.sctpport, "5000"));
+                            field.addAttributeField(new AttributeField(AttributeKey.maxmessagesize, "262144"));
+                        }
+                    } else {
+                        // handle non-datachannel
+                        field = new MediaField(SDPMediaType.application, Integer.valueOf(matcher.group(2)), proto, new int[] { Integer.valueOf(matcher.group(4).trim()) });
+                    }
+                    break;
+                case audio:
+                case video:
+                default:
+                    int port = Integer.valueOf(matcher.group(2));
+                    String protocol = matcher.group(3);
+                    // next up are the individual codec format / payload ids
+                    String[] payloadIds = matcher.group(4).trim().split("\\s");
+                    log.debug("Payload ids: {}", Arrays.toString(payloadIds));
+                    int[] formats = new int[payloadIds.length];
+                    // add the codec format / payload ids
+                    for (int p = 0; p < payloadIds.length; p++) {
+                        formats[p] = Integer.valueOf(payloadIds[p]);
+                    }
+                    // construct the field
+                    field = new MediaField(type, port, protocol, formats.length);
+                    // set the formats
+                    field.setFormats(formats);
+                    break;
+            }
+            log.debug("Created media: {}", field);
+            return field;
+        }
+        return null;
+    }
+
+    /**
+     * Parse raw sdp content into the supplied SessionDescription instance.
+     *
+     * @param sdp
+     * @param rawSdp
+     */
+    static void parse(SessionDescription sdp, String rawSdp) {
+        // holder for current media field / media description
+        MediaField mediaField = null;
+        // spilt on cr/crlf
+        String[] parts = rawSdp.split("[\n[\r\n]]");
+        for (String part : parts) {
+            if (log.isDebugEnabled()) {
+                log.debug("{}", part);
+            }
+            if (StringUtils.isEmpty(part)) {
+                continue;
+            }
+            // spilt on equals
+            String[] line = part.split("=", 2);
+            if (log.isDebugEnabled()) {
+                log.debug("Line - {}", Arrays.toString(line));
+            }
+            char entry = line[0].charAt(0);
+            // trim trailing spaces to prevent parser issues
+            String fieldStr = line[1].trim();
+            switch (entry) {
+                case 'a':
+                    AttributeField attr = createAttributeField(fieldStr);
+                    if (attr != null) {
+                        AttributeKey key = attr.getAttribute();
+                        if (mediaField == null) {
+                            // check for plan-b, but make sure we're not FireFox
+                            if (AttributeKey.msidsemantic.equals(key)) {
+                                // ff uses unified / plan-a
+                                if (sdp.isFirefox()) {
+                                    log.debug("Plan-B indicated, but ignoring due to our being firefox");
+                                } else {
+                                    log.debug("Plan-B indicated"); // default
+                                }
+                            } else if (AttributeKey.group.equals(key)) {
+                                log.debug("Group / bundle indicated");
+                                sdp.setBundle(true);
+                            } else if (AttributeKey.crypto.equals(key)) {
+                                // parses and adds the crypto param to the sdp instance but doesnt add an 'a'
+                                // field
+                                sdp.addCrypto(attr.getValue(), false);
+                            }
+                            // we're at session level
+                            sdp.addAttributeField(attr);
+                        } else {
+                            // media level attribute
+                            // log.debug("Media attribute: {}", attr);
+                            mediaField.addAttributeField(attr);
+                            // red5 pro sdk requries special handling that webrtc does not
+                            if (sdp.isRed5ProSDK()) {
+                                // look up the track matching our media field
+                                SDPTrack track = SDPMediaType.audio.equals(mediaField.getMediaType()) ? sdp.getAudioTrack() : sdp.getVideoTrack();
+                                // if the attribute is control, create a track with the first payload id
+                                if (AttributeKey.control.equals(key)) {
+                                    if (track == null) {
+                                        track = new SDPTrack(sdp, mediaField.getMediaType(), mediaField.getFormats()[0]);
+                                    }
+                                    track.setControl(attr.getValue());
+                                    log.debug("Created new track for control: {}", track);
+                                } else if (AttributeKey.fmtp.equals(key)) {
+                                    // if the user agent is red5 pro sdk get the track and apply these incoming parameters
+                                    // if the track is null, control doesnt exist in the parse yet or fmtp came before it
+                                    if (track == null) {
+                                        track = new SDPTrack(sdp, mediaField.getMediaType(), mediaField.getFormats()[0]);
+                                    }
+                                    // a=fmtp:96 packetization-mode=1;sprop-parameter-sets=Z0LAINkAoD2hAAADAAEAAAMAMA8YMkg=,aMuDyyA=;profile-level-id=42C020
+                                    // a=fmtp:97 profile-level-id=1;mode=AAC-hbr;sizelength=13;indexlength=3;indexdeltalength=3;config=119056E500
+                                    String[] fmtParams = attr.getValue().split("\\s|;");
+                                    log.debug("Format params array: {}", Arrays.toString(fmtParams));
+                                    for (String fmtParam : fmtParams) {
+                                        if (StringUtils.isNotBlank(fmtParam)) {
+                                            if (fmtParam.contains("=")) {
+                                                // sprop-parameter-sets may and usually does have multiple `=` chars
+                                                if (fmtParam.startsWith(VideoConstants.H264_SPROP_PARAMETER_SETS_FMTP)) {
+                                                    track.addParameter(VideoConstants.H264_SPROP_PARAMETER_SETS_FMTP, fmtParam.substring(fmtParam.indexOf('=') + 1));
+                                                } else {
+                                                    String[] param = fmtParam.split("=");
+                                                    track.addParameter(param[0], param[1]);
+                                                }
+                                            } else {
+                                                track.setPayloadId(Integer.valueOf(fmtParam));
+                                            }
+                                        }
+                                    }
+                                } else if (AttributeKey.rtpmap.equals(key)) {
+                                    // if the user agent is red5 pro sdk get the track and apply these incoming parameters
+                                    // if the track is null there may be on control or fmtp lines
+                                    if (track == null) {
+                                        track = new SDPTrack(sdp, mediaField.getMediaType(), mediaField.getFormats()[0]);
+                                    }
+                                }
+                            }
+                        }
+                    }
+                    break;
+                case 'm':
+                    mediaField = createMediaField(fieldStr);
+                    // log.debug("Media: {}", mediaField);
+                    sdp.addMediaDescription(mediaField);
+                    break;
+                case 'c':
+                    ConnectionField cn = createConnectionField(fieldStr);
+                    if (mediaField != null) {
+                        // media level attribute
+                        mediaField.setConnection(cn);
+                    }
+                    break;
+                case 'b':
+                    BandwidthField bw = createBandwidthField(fieldStr);
+                    if (mediaField == null) {
+                        // we're at session level
+                        sdp.setBandwidth(bw);
+                    } else {
+                        // media level attribute
+                        mediaField.setBandwidth(bw);
+                    }
+                    break;
+                case 's': // session
+                    sdp.setSession(createSessionField(fieldStr));
+                    break;
+                case 'o': // origin
+                    if (fieldStr.toLowerCase().contains("mozilla")) {
+                        sdp.setUA(SDPUserAgent.mozilla);
+                        sdp.setUnified(true);
+                    } else if (fieldStr.contains("ortc")) {
+                        sdp.setUA(SDPUserAgent.edge);
+                        // XXX edge doesnt signal plan-b, but wants it
+                    }
+                    sdp.setOrigin(createOriginField(fieldStr));
+                    break;
+                case 't':
+                    // time offsets
+                    // create the timing field since it may not be 0 0 at some point
+                    break;
+                case 'v':
+                    // version is always 0 for the foreseeable future
+                    break;
+                default:
+                    log.warn("Unhandled line type: {}", entry);
+                    if (log.isDebugEnabled()) {
+                        log.debug("Unhandled line: {}", Arrays.toString(line));
+                    }
+            }
+        }
+        // handle firefox not including rtpmap for opus
+        if (sdp.isFirefox()) {
+            // look for audio media line
+            MediaField audio = sdp.getMediaDescription(SDPMediaType.audio);
+            if (audio != null) {
+                // get default audio codec, it comes first 109, 111, etc; will not be 0, 8, 9
+                int audioCodecId = audio.getFormats()[0];
+                AttributeField opusAttr = new AttributeField(AttributeKey.rtpmap, String.format("%d opus/48000/2", audioCodecId));
+                // no rtpmap attributes at all
+                if (!audio.hasAttribute(AttributeKey.rtpmap)) {
+                    audio.addAttributeField(opusAttr);
+                } else {
+                    boolean hasOpus = false;
+                    AttributeField[] audioAttrs = audio.getAttributes(AttributeKey.rtpmap);
+                    for (AttributeField audioAttr : audioAttrs) {
+                        if (audioAttr.getValue().contains("opus")) {
+                            hasOpus = true;
+                            break;
+                        }
+                    }
+                    if (!hasOpus) {
+                        audio.addAttributeField(opusAttr);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.red5pro.media.sdp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.red5pro.media.sdp.model.AttributeField;
+import com.red5pro.media.sdp.model.AttributeKey;
+import com.red5pro.media.sdp.model.BandwidthField;
+import com.red5pro.media.sdp.model.ConnectionField;
+import com.red5pro.media.sdp.model.MediaField;
+import com.red5pro.media.sdp.model.OriginField;
+import com.red5pro.media.sdp.model.SDPMediaType;
+import com.red5pro.media.sdp.model.SessionField;
+import com.red5pro.media.sdp.model.TimingField;
+import com.red5pro.util.IdGenerator;
+
+/**
+ * The String.format based toString serialization which SDPWriter replaced, kept as the baseline for the writer
+ * benchmarks.
+ *
+ * @author Paul Gregoire
+ */
+final class LegacySDPWriter {
+
+    static String write(SessionDescription sdp) {
+        StringBuilder sb = new StringBuilder(SessionDescription.getVersion());
+        // ensure there's no "null" origin
+        if (sdp.getOrigin() == null) {
+            // use the "name" from the session, default to unknown / undefined == r5p
+            String name = sdp.getSession() != null ? sdp.getSession().getName() : "r5p";
+            // ensure there's an origin
+            sdp.setOrigin(new OriginField(name, IdGenerator.generateNumericStringId(13), 1L, "0.0.0.0"));
+        }
+        sb.append(toString(sdp.getOrigin()));
+        sb.append(sdp.getSession() != null ? toString(sdp.getSession()) : "null");
+        sb.append(sdp.getTiming() != null ? toString(sdp.getTiming()) : "null");
+        // skip webrtc stuff for pro sdk UA
+        if (!sdp.isRed5ProSDK()) {
+            if (!sdp.isUnified()) {
+                String msid = sdp.getMsid();
+                if (msid == null) {
+                    sb.append("a=msid-semantic:");
+                    if (sdp.isChrome()) {
+                        sb.append(' ');
+                    }
+                    sb.append("WMS *\n");
+                } else if ("-".equals(msid)) {
+                    sb.append("a=msid-semantic: WMS\n");
+                } else {
+                    sb.append("a=msid-semantic:WMS ");
+                    sb.append(msid);
+                    sb.append('\n');
+                }
+            }
+        }
+        // create a list ordered by mid if it uses digits
+        final List<MediaField> ordered = new ArrayList<>();
+        for (MediaField media : sdp.getMediaDescriptions()) {
+            // if its video and the format is 0 skip it
+            if (SDPMediaType.video == media.getMediaType() && media.getFormats()[0] == 0) {
+                continue;
+            }
+            ordered.add(media);
+        }
+        // sort by mid
+        Collections.sort(ordered);
+        if (sdp.isBundle()) {
+            if (ordered.size() > 0) {
+                sb.append("a=group:BUNDLE ");
+                ordered.forEach(media -> {
+                    sb.append(media.getMediaId());
+                    sb.append(' ');
+                });
+                // trim-off trailing space
+                sb.deleteCharAt(sb.lastIndexOf(" "));
+                sb.append('\n');
+            }
+        }
+        AttributeField[] attributes = sdp.getAttributes();
+        if (attributes != null) {
+            for (AttributeField attribute : attributes) {
+                AttributeKey key = attribute.getAttribute();
+                // prevent adding these attributes twice to the string
+                if (!AttributeKey.msidsemantic.equals(key) && !AttributeKey.group.equals(key)) {
+                    sb.append(toString(attribute));
+                }
+            }
+        }
+        // next line, bandwidth
+        if (sdp.getBandwidth() != null) {
+            sb.append(toString(sdp.getBandwidth()));
+        }
+        ordered.forEach(media -> {
+            sb.append(toString(media));
+        });
+        // finalize the sdp content
+        String content = sb.toString();
+        if (sdp.isRed5ProSDK()) {
+            return content.replaceAll("\n", "\r\n");
+        }
+        return content;
+    }
+
+    static String toString(MediaField media) {
+        int[] formats = media.getFormats();
+        StringBuilder sb = new StringBuilder("m=");
+        sb.append(media.getMediaType());
+        sb.append(' ');
+        sb.append(media.getPort());
+        sb.append(' ');
+        // if its application (datachannel) type, we'll have special handling
+        if (media.getMediaType() == SDPMediaType.application) {
+            if (media.hasAttribute(AttributeKey.sctpport)) {
+                sb.append(MediaField.PROTOCOL_UDP_SCTP);
+                sb.append(' ');
+                sb.append("webrtc-datachannel");
+            } else {
+                sb.append(media.getProtocol());
+                sb.append(' ');
+                sb.append(formats[0]);
+            }
+        } else {
+            sb.append(media.getProtocol());
+            if (formats != null) {
+                for (int format : formats) {
+                    sb.append(' ');
+                    sb.append(format);
+                }
+            }
+        }
+        sb.append('\n');
+        if (media.getConnection() != null) {
+            sb.append(toString(media.getConnection()));
+        }
+        if (media.getBandwidth() != null) {
+            sb.append(toString(media.getBandwidth()));
+        }
+        AttributeField[] attributes = media.getAttributes();
+        if (attributes != null) {
+            for (AttributeField attribute : attributes) {
+                switch (attribute.getAttribute()) {
+                    case fmtp:
+                    case rtpmap:
+                    case rtcpfb:
+                        if (Arrays.binarySearch(formats, Integer.valueOf(attribute.getValue().split("\\s")[0])) == -1) {
+                            break;
+                        }
+                    default:
+                        sb.append(toString(attribute));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    static String toString(AttributeField attribute) {
+        if (!attribute.isBinary()) {
+            return String.format("a=%s:%s\n", attribute.getAttribute(), attribute.getValue());
+        }
+        return String.format("a=%s\n", attribute.getAttribute());
+    }
+
+    static String toString(OriginField origin) {
+        return String.format("o=%s %s %d %s %s %s\n", origin.getUserName(), origin.getSessionId(), origin.getSessionVersion(), origin.getNetworkType(), origin.getAddressType(), origin.getAddress());
+    }
+
+    static String toString(SessionField session) {
+        return String.format("s=%s\n", session.getName());
+    }
+
+    static String toString(TimingField timing) {
+        return String.format("t=%d %d\n", timing.getStart(), timing.getStop());
+    }
+
+    static String toString(ConnectionField connection) {
+        return String.format("c=%s %s %s\n", connection.getNetworkType(), connection.getAddressType(), connection.getAddress());
+    }
+
+    static String toString(BandwidthField bandwidth) {
+        return String.format("b=%s:%d\n", bandwidth.getType(), bandwidth.getBandwidth());
+    }
+
+}
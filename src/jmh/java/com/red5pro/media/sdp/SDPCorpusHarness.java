@@ -0,0 +1,350 @@
+package com.red5pro.media.sdp;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.red5pro.media.sdp.model.MediaField;
+
+/**
+ * Runs the SDP parser and writer over a corpus of captured offers and answers. Each entry is checked for drift by a
+ * parse, write, parse, write round trip through both SDPFactory and SDPSingleLineDecoder, then measured for parses per
+ * second and bytes allocated per parse. Lastly each entry is mutated at random, by flipping characters, dropping,
+ * repeating and reordering lines, truncating, padding tokens and changing line endings, and any mutant which takes
+ * disproportionately longer to parse than its entry is reported as a slow path.
+ * <br>
+ * The run fails on drift, on an entry which doesn't parse, on a slow path, when an entry allocates more per parse than
+ * its committed baseline allows, or when it parses slower than in the last passing run on the same machine, which is
+ * kept in the results directory since throughput depends on the machine. Mutants which throw are only reported, as
+ * malformed input may be rejected.
+ * <br>
+ * System properties:
+ * <ul>
+ * <li>bench.sdp.corpus - directory of .sdp files, default src/jmh/resources/sdp</li>
+ * <li>bench.sdp.baseline - bytes per parse baseline, default baseline.properties in the corpus directory</li>
+ * <li>bench.sdp.update - when true, writes the measured results as the new baselines instead of checking them</li>
+ * <li>bench.sdp.tolerance - allowed fraction below the previous parses per second or above the baseline bytes per parse, default 0.25</li>
+ * <li>bench.results - results directory holding sdp-throughput.properties, default target/jmh</li>
+ * <li>bench.sdp.time - milliseconds to warm up and then measure each entry for, default 1000</li>
+ * <li>bench.sdp.mutations - mutants per entry, default 500</li>
+ * <li>bench.sdp.seed - mutation seed, default 5</li>
+ * <li>bench.sdp.slow - how many times the per character parse time of its entry a mutant may take, default 10</li>
+ * </ul>
+ *
+ * @author Paul Gregoire
+ */
+public class SDPCorpusHarness {
+
+    private static final String[] MARKERS = { "v=", "o=", "s=", "c=", "b=", "t=", "m=", "a=" };
+
+    // how often a mutant is parsed, the fastest time being the one compared
+    private static final int MUTANT_RUNS = 8;
+
+    private static final int MAX_REPORTED = 10;
+
+    private final double tolerance = Double.parseDouble(System.getProperty("bench.sdp.tolerance", "0.25"));
+
+    private final long measureNanos = Long.getLong("bench.sdp.time", 1000L) * 1000000L;
+
+    private final int mutations = Integer.getInteger("bench.sdp.mutations", 500);
+
+    private final double slowFactor = Double.parseDouble(System.getProperty("bench.sdp.slow", "10"));
+
+    private final Random random = new Random(Long.getLong("bench.sdp.seed", 5L));
+
+    private final com.sun.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() : null;
+
+    private final List<String> failures = new ArrayList<>();
+
+    private final List<String> summary = new ArrayList<>();
+
+    private final Map<String, Long> allocations = new TreeMap<>();
+
+    private final Map<String, Long> throughputs = new TreeMap<>();
+
+    // keeps results reachable so the parses aren't optimized away
+    private int sink;
+
+    public static void main(String[] args) throws IOException {
+        Path corpus = Paths.get(System.getProperty("bench.sdp.corpus", "src/jmh/resources/sdp"));
+        Path baselineFile = Paths.get(System.getProperty("bench.sdp.baseline", corpus.resolve("baseline.properties").toString()));
+        Path throughputFile = Paths.get(System.getProperty("bench.results", "target/jmh"), "sdp-throughput.properties");
+        boolean update = Boolean.getBoolean("bench.sdp.update");
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (Stream<Path> files = Files.list(corpus)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".sdp")).sorted().collect(Collectors.toList())) {
+                String name = file.getFileName().toString();
+                entries.put(name.substring(0, name.length() - 4), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+        }
+        if (entries.isEmpty()) {
+            System.err.println("No .sdp files in " + corpus.toAbsolutePath());
+            System.exit(1);
+        }
+        SDPCorpusHarness harness = new SDPCorpusHarness();
+        Properties baseline = update ? new Properties() : load(baselineFile);
+        Properties throughput = update ? new Properties() : load(throughputFile);
+        harness.summary.add(String.format("%-36s %8s %14s %14s %10s %8s %8s", "Entry", "Bytes", "Parses/s", "Bytes/parse", "Mutants", "Threw", "Slow"));
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            harness.run(entry.getKey(), entry.getValue(), baseline, throughput);
+        }
+        harness.summary.forEach(System.out::println);
+        if (update) {
+            store(baselineFile, harness.allocations);
+            System.out.println("Baseline written to " + baselineFile.toAbsolutePath());
+        }
+        if (harness.failures.isEmpty() || update) {
+            // the next run on this machine is compared to this one
+            Files.createDirectories(throughputFile.toAbsolutePath().getParent());
+            store(throughputFile, harness.throughputs);
+        }
+        if (!harness.failures.isEmpty()) {
+            System.out.println();
+            System.out.println(harness.failures.size() + " failure(s):");
+            harness.failures.forEach(failure -> System.out.println("  " + failure));
+            System.exit(1);
+        }
+    }
+
+    private static Properties load(Path file) throws IOException {
+        Properties properties = new Properties();
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        }
+        return properties;
+    }
+
+    private static void store(Path file, Map<String, Long> results) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.println("# Written by SDPCorpusHarness");
+            results.forEach((key, value) -> writer.println(key + '=' + value));
+        }
+    }
+
+    private void run(String name, String content, Properties baseline, Properties throughput) {
+        try {
+            checkDrift(name, content);
+        } catch (RuntimeException e) {
+            failures.add(name + " doesn't parse: " + e);
+            summary.add(String.format("%-36s %8d %14s", name, content.length(), "failed"));
+            return;
+        }
+        // warm up, then measure
+        long deadline = System.nanoTime() + measureNanos;
+        while (System.nanoTime() < deadline) {
+            sink += mediaCount(parse(content));
+        }
+        long parses = 0;
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 100; i++) {
+                sink += mediaCount(parse(content));
+            }
+            parses += 100;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < measureNanos);
+        long bytesPerParse = allocated < 0 ? -1L : (allocatedBytes() - allocated) / parses;
+        long parsesPerSecond = parses * 1000000000L / elapsed;
+        throughputs.put(name + ".parsesPerSecond", parsesPerSecond);
+        if (bytesPerParse >= 0) {
+            allocations.put(name + ".bytesPerParse", bytesPerParse);
+        }
+        String expected = throughput.getProperty(name + ".parsesPerSecond");
+        if (expected != null && parsesPerSecond < Long.parseLong(expected) * (1d - tolerance)) {
+            failures.add(String.format("%s parses/s regressed: %d, previous run %s", name, parsesPerSecond, expected));
+        }
+        expected = baseline.getProperty(name + ".bytesPerParse");
+        if (expected != null && bytesPerParse >= 0 && bytesPerParse > Long.parseLong(expected) * (1d + tolerance)) {
+            failures.add(String.format("%s bytes/parse regressed: %d, baseline %s", name, bytesPerParse, expected));
+        }
+        // time allowed per character of a mutant
+        double nanosPerChar = 1000000000d / parsesPerSecond / content.length();
+        int threw = 0;
+        int slow = 0;
+        for (int m = 0; m < mutations; m++) {
+            String mutant = mutate(content);
+            // shorter mutants are allowed the time of their entry, as fixed costs dominate them
+            double allowed = nanosPerChar * Math.max(mutant.length(), content.length()) * slowFactor;
+            long best;
+            try {
+                best = time(mutant, MUTANT_RUNS);
+                if (best > allowed) {
+                    // give the jit a chance to settle on the new input before calling it slow
+                    best = Math.min(best, time(mutant, MUTANT_RUNS * 8));
+                }
+            } catch (RuntimeException e) {
+                if (threw++ < MAX_REPORTED) {
+                    StackTraceElement[] trace = e.getStackTrace();
+                    System.out.println(name + " mutant threw " + e + (trace.length > 0 ? " at " + trace[0] : ""));
+                }
+                continue;
+            }
+            if (best > allowed) {
+                slow++;
+                if (slow <= MAX_REPORTED) {
+                    failures.add(String.format("%s mutant parsed in %.1f us, allowed %.1f us: %s", name, best / 1000d, allowed / 1000d, abbreviate(mutant)));
+                }
+            }
+        }
+        if (slow > MAX_REPORTED) {
+            failures.add(String.format("%s had %d more slow mutants", name, slow - MAX_REPORTED));
+        }
+        summary.add(String.format("%-36s %8d %14d %14s %10d %8d %8d", name, content.length(), parsesPerSecond, bytesPerParse < 0 ? "-" : Long.toString(bytesPerParse), mutations, threw, slow));
+    }
+
+    /**
+     * Returns the fastest of the given number of parses of the content, in nanoseconds.
+     */
+    private long time(String content, int runs) {
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < runs; r++) {
+            long start = System.nanoTime();
+            sink += mediaCount(parse(content));
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /**
+     * Checks that writing a parsed entry and parsing it again gives the same description, through both the factory and
+     * the single line decoder.
+     */
+    private void checkDrift(String name, String content) {
+        // the written description is parsed as the user agent and plan detected in the original, since the writer
+        // applies fixups for them which aren't signaled in what it writes
+        SessionDescription sdp = parse(content);
+        String first = sdp.toString();
+        SessionDescription reparsed = new SessionDescription(sdp.getUA());
+        reparsed.setUnified(sdp.isUnified());
+        SDPParser.parse(reparsed, first);
+        String second = reparsed.toString();
+        if (!first.equals(second)) {
+            failures.add(name + " drifts on round trip through SDPFactory: " + firstDifference(first, second));
+        }
+        sdp = decode(content);
+        first = sdp.toString();
+        SDPSingleLineDecoder decoder = SDPFactory.createSessionDescriptionDecoder();
+        decoder.doFinal().setUA(sdp.getUA());
+        decoder.doFinal().setUnified(sdp.isUnified());
+        decode(decoder, first);
+        second = decoder.doFinal().toString();
+        if (!first.equals(second)) {
+            failures.add(name + " drifts on round trip through SDPSingleLineDecoder: " + firstDifference(first, second));
+        }
+    }
+
+    private static SessionDescription parse(String content) {
+        return SDPFactory.createSessionDescription(content);
+    }
+
+    // consumes a parse result, which has no media descriptions when the content has no m= lines
+    private static int mediaCount(SessionDescription sdp) {
+        MediaField[] media = sdp.getMediaDescriptions();
+        return media == null ? 0 : media.length;
+    }
+
+    private static SessionDescription decode(String content) {
+        SDPSingleLineDecoder decoder = SDPFactory.createSessionDescriptionDecoder();
+        decode(decoder, content);
+        return decoder.doFinal();
+    }
+
+    /**
+     * Feeds the content to the decoder a line at a time, as a signaling channel would.
+     */
+    private static void decode(SDPSingleLineDecoder decoder, String content) {
+        int start = 0;
+        while (start < content.length()) {
+            int end = content.indexOf('\n', start);
+            end = end == -1 ? content.length() : end + 1;
+            decoder.readLine(content, start, end);
+            start = end;
+        }
+    }
+
+    private String mutate(String content) {
+        List<String> lines = new ArrayList<>(List.of(content.split("\r?\n")));
+        int line = random.nextInt(lines.size());
+        switch (random.nextInt(8)) {
+            case 0: // flip characters
+                char[] chars = content.toCharArray();
+                for (int i = 1 + random.nextInt(8); i > 0; i--) {
+                    chars[random.nextInt(chars.length)] = (char) (' ' + random.nextInt(95));
+                }
+                return new String(chars);
+            case 1: // drop a line
+                lines.remove(line);
+                break;
+            case 2: // repeat a line, such as a codec attribute, many times
+                for (int i = 1 + random.nextInt(500); i > 0; i--) {
+                    lines.add(line, lines.get(line));
+                }
+                break;
+            case 3: // truncate
+                return content.substring(0, random.nextInt(content.length()));
+            case 4: // swap two lines
+                int other = random.nextInt(lines.size());
+                String swapped = lines.get(line);
+                lines.set(line, lines.get(other));
+                lines.set(other, swapped);
+                break;
+            case 5: // pad a line with a long token
+                StringBuilder token = new StringBuilder();
+                char pad = " 0:;/=-a".charAt(random.nextInt(8));
+                for (int i = 256 + random.nextInt(8192); i > 0; i--) {
+                    token.append(pad);
+                }
+                String value = lines.get(line);
+                int at = random.nextInt(value.length() + 1);
+                lines.set(line, value.substring(0, at) + token + value.substring(at));
+                break;
+            case 6: // change line endings
+                String[] endings = { "\n", "\r", "\r\r\n", "\n\n" };
+                return String.join(endings[random.nextInt(endings.length)], lines);
+            default: // insert a line of a random type
+                String copied = lines.get(random.nextInt(lines.size()));
+                lines.add(line, MARKERS[random.nextInt(MARKERS.length)] + copied.substring(Math.min(2, copied.length())));
+                break;
+        }
+        return String.join("\r\n", lines) + "\r\n";
+    }
+
+    private long allocatedBytes() {
+        if (threads != null && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+
+    private static String firstDifference(String a, String b) {
+        int i = 0;
+        while (i < a.length() && i < b.length() && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return "at " + i + " [" + abbreviate(a.substring(Math.max(0, i - 20))) + "] vs [" + abbreviate(b.substring(Math.max(0, i - 20))) + ']';
+    }
+
+    private static String abbreviate(String s) {
+        String escaped = s.replace("\r", "\\r").replace("\n", "\\n");
+        return escaped.length() > 120 ? escaped.substring(0, 120) + "..." : escaped;
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.red5pro.media.sdp;
+
+/**
+ * Publish offers captured from current browsers, used as input by the SDP benchmarks.
+ *
+ * @author Paul Gregoire
+ */
+final class SDPOffers {
+
+    static final String CHROME = "v=0\r\n" + "o=- 4611731400430051336 2 IN IP4 127.0.0.1\r\n" + "s=-\r\n" + "t=0 0\r\n" + "a=group:BUNDLE 0 1\r\n" + "a=extmap-allow-mixed\r\n" + "a=msid-semantic: WMS 9a1e4b3c-5d2f-4c7e-8f0a-2b6d9e1c3f47\r\n"
+            + "m=audio 9 UDP/TLS/RTP/SAVPF 111 63 9 0 8 13 110 126\r\n" + "c=IN IP4 0.0.0.0\r\n" + "a=rtcp:9 IN IP4 0.0.0.0\r\n" + "a=ice-ufrag:Jq8v\r\n" + "a=ice-pwd:3kYb0xHc8mV9nWq2rT5sU7yZ\r\n" + "a=ice-options:trickle\r\n"
+            + "a=fingerprint:sha-256 5C:1E:9B:7A:2D:44:3F:80:C6:A9:0E:61:B2:D8:47:93:FA:0C:1D:E5:36:7B:92:4F:AE:58:C3:10:6D:E2:B7:49\r\n" + "a=setup:actpass\r\n" + "a=mid:0\r\n" + "a=extmap:1 urn:ietf:params:rtp-hdrext:ssrc-audio-level\r\n"
+            + "a=extmap:2 http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time\r\n" + "a=extmap:3 http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01\r\n" + "a=extmap:4 urn:ietf:params:rtp-hdrext:sdes:mid\r\n" + "a=sendonly\r\n"
+            + "a=msid:9a1e4b3c-5d2f-4c7e-8f0a-2b6d9e1c3f47 0f4c2a8e-7b13-4d59-a6e2-c8b1f3d59a70\r\n" + "a=rtcp-mux\r\n" + "a=rtpmap:111 opus/48000/2\r\n" + "a=rtcp-fb:111 transport-cc\r\n" + "a=fmtp:111 minptime=10;useinbandfec=1\r\n" + "a=rtpmap:63 red/48000/2\r\n"
+            + "a=fmtp:63 111/111\r\n" + "a=rtpmap:9 G722/8000\r\n" + "a=rtpmap:0 PCMU/8000\r\n" + "a=rtpmap:8 PCMA/8000\r\n" + "a=rtpmap:13 CN/8000\r\n" + "a=rtpmap:110 telephone-event/48000\r\n" + "a=rtpmap:126 telephone-event/8000\r\n"
+            + "a=ssrc:2964125874 cname:w7Gk2Vn0qP3xR8tL\r\n" + "a=ssrc:2964125874 msid:9a1e4b3c-5d2f-4c7e-8f0a-2b6d9e1c3f47 0f4c2a8e-7b13-4d59-a6e2-c8b1f3d59a70\r\n"
+            + "m=video 9 UDP/TLS/RTP/SAVPF 96 97 102 103 104 105 106 107 108 109 127 125 39 40 45 46 98 99 100 101 112 113 116 117 118\r\n" + "c=IN IP4 0.0.0.0\r\n" + "a=rtcp:9 IN IP4 0.0.0.0\r\n" + "a=ice-ufrag:Jq8v\r\n"
+            + "a=ice-pwd:3kYb0xHc8mV9nWq2rT5sU7yZ\r\n" + "a=ice-options:trickle\r\n" + "a=fingerprint:sha-256 5C:1E:9B:7A:2D:44:3F:80:C6:A9:0E:61:B2:D8:47:93:FA:0C:1D:E5:36:7B:92:4F:AE:58:C3:10:6D:E2:B7:49\r\n" + "a=setup:actpass\r\n" + "a=mid:1\r\n"
+            + "a=extmap:14 urn:ietf:params:rtp-hdrext:toffset\r\n" + "a=extmap:2 http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time\r\n" + "a=extmap:13 urn:3gpp:video-orientation\r\n" + "a=extmap:3 http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01\r\n"
+            + "a=extmap:5 http://www.webrtc.org/experiments/rtp-hdrext/playout-delay\r\n" + "a=extmap:6 http://www.webrtc.org/experiments/rtp-hdrext/video-content-type\r\n" + "a=extmap:7 http://www.webrtc.org/experiments/rtp-hdrext/video-timing\r\n"
+            + "a=extmap:8 http://www.webrtc.org/experiments/rtp-hdrext/color-space\r\n" + "a=extmap:4 urn:ietf:params:rtp-hdrext:sdes:mid\r\n" + "a=extmap:10 urn:ietf:params:rtp-hdrext:sdes:rtp-stream-id\r\n" + "a=extmap:11 urn:ietf:params:rtp-hdrext:sdes:repaired-rtp-stream-id\r\n"
+            + "a=sendonly\r\n" + "a=msid:9a1e4b3c-5d2f-4c7e-8f0a-2b6d9e1c3f47 6e3d1b9a-2c48-4f7d-b5a0-e9c2d4f1a836\r\n" + "a=rtcp-mux\r\n" + "a=rtcp-rsize\r\n" + "a=rtpmap:96 VP8/90000\r\n" + "a=rtcp-fb:96 goog-remb\r\n" + "a=rtcp-fb:96 transport-cc\r\n"
+            + "a=rtcp-fb:96 ccm fir\r\n" + "a=rtcp-fb:96 nack\r\n" + "a=rtcp-fb:96 nack pli\r\n" + "a=rtpmap:97 rtx/90000\r\n" + "a=fmtp:97 apt=96\r\n" + "a=rtpmap:102 H264/90000\r\n" + "a=rtcp-fb:102 goog-remb\r\n" + "a=rtcp-fb:102 transport-cc\r\n" + "a=rtcp-fb:102 ccm fir\r\n"
+            + "a=rtcp-fb:102 nack\r\n" + "a=rtcp-fb:102 nack pli\r\n" + "a=fmtp:102 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=42001f\r\n" + "a=rtpmap:103 rtx/90000\r\n" + "a=fmtp:103 apt=102\r\n" + "a=rtpmap:104 H264/90000\r\n" + "a=rtcp-fb:104 goog-remb\r\n"
+            + "a=rtcp-fb:104 transport-cc\r\n" + "a=rtcp-fb:104 ccm fir\r\n" + "a=rtcp-fb:104 nack\r\n" + "a=rtcp-fb:104 nack pli\r\n" + "a=fmtp:104 level-asymmetry-allowed=1;packetization-mode=0;profile-level-id=42001f\r\n" + "a=rtpmap:105 rtx/90000\r\n" + "a=fmtp:105 apt=104\r\n"
+            + "a=rtpmap:106 H264/90000\r\n" + "a=rtcp-fb:106 goog-remb\r\n" + "a=rtcp-fb:106 transport-cc\r\n" + "a=rtcp-fb:106 ccm fir\r\n" + "a=rtcp-fb:106 nack\r\n" + "a=rtcp-fb:106 nack pli\r\n" + "a=fmtp:106 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=42e01f\r\n"
+            + "a=rtpmap:107 rtx/90000\r\n" + "a=fmtp:107 apt=106\r\n" + "a=rtpmap:108 H264/90000\r\n" + "a=rtcp-fb:108 goog-remb\r\n" + "a=rtcp-fb:108 transport-cc\r\n" + "a=rtcp-fb:108 ccm fir\r\n" + "a=rtcp-fb:108 nack\r\n" + "a=rtcp-fb:108 nack pli\r\n"
+            + "a=fmtp:108 level-asymmetry-allowed=1;packetization-mode=0;profile-level-id=42e01f\r\n" + "a=rtpmap:109 rtx/90000\r\n" + "a=fmtp:109 apt=108\r\n" + "a=rtpmap:127 H264/90000\r\n" + "a=rtcp-fb:127 goog-remb\r\n" + "a=rtcp-fb:127 transport-cc\r\n" + "a=rtcp-fb:127 ccm fir\r\n"
+            + "a=rtcp-fb:127 nack\r\n" + "a=rtcp-fb:127 nack pli\r\n" + "a=fmtp:127 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=4d001f\r\n" + "a=rtpmap:125 rtx/90000\r\n" + "a=fmtp:125 apt=127\r\n" + "a=rtpmap:39 H264/90000\r\n" + "a=rtcp-fb:39 goog-remb\r\n"
+            + "a=rtcp-fb:39 transport-cc\r\n" + "a=rtcp-fb:39 ccm fir\r\n" + "a=rtcp-fb:39 nack\r\n" + "a=rtcp-fb:39 nack pli\r\n" + "a=fmtp:39 level-asymmetry-allowed=1;packetization-mode=0;profile-level-id=4d001f\r\n" + "a=rtpmap:40 rtx/90000\r\n" + "a=fmtp:40 apt=39\r\n"
+            + "a=rtpmap:45 AV1/90000\r\n" + "a=rtcp-fb:45 goog-remb\r\n" + "a=rtcp-fb:45 transport-cc\r\n" + "a=rtcp-fb:45 ccm fir\r\n" + "a=rtcp-fb:45 nack\r\n" + "a=rtcp-fb:45 nack pli\r\n" + "a=rtpmap:46 rtx/90000\r\n" + "a=fmtp:46 apt=45\r\n" + "a=rtpmap:98 VP9/90000\r\n"
+            + "a=rtcp-fb:98 goog-remb\r\n" + "a=rtcp-fb:98 transport-cc\r\n" + "a=rtcp-fb:98 ccm fir\r\n" + "a=rtcp-fb:98 nack\r\n" + "a=rtcp-fb:98 nack pli\r\n" + "a=fmtp:98 profile-id=0\r\n" + "a=rtpmap:99 rtx/90000\r\n" + "a=fmtp:99 apt=98\r\n" + "a=rtpmap:100 VP9/90000\r\n"
+            + "a=rtcp-fb:100 goog-remb\r\n" + "a=rtcp-fb:100 transport-cc\r\n" + "a=rtcp-fb:100 ccm fir\r\n" + "a=rtcp-fb:100 nack\r\n" + "a=rtcp-fb:100 nack pli\r\n" + "a=fmtp:100 profile-id=2\r\n" + "a=rtpmap:101 rtx/90000\r\n" + "a=fmtp:101 apt=100\r\n"
+            + "a=rtpmap:112 H264/90000\r\n" + "a=rtcp-fb:112 goog-remb\r\n" + "a=rtcp-fb:112 transport-cc\r\n" + "a=rtcp-fb:112 ccm fir\r\n" + "a=rtcp-fb:112 nack\r\n" + "a=rtcp-fb:112 nack pli\r\n" + "a=fmtp:112 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=64001f\r\n"
+            + "a=rtpmap:113 rtx/90000\r\n" + "a=fmtp:113 apt=112\r\n" + "a=rtpmap:116 red/90000\r\n" + "a=rtpmap:117 rtx/90000\r\n" + "a=fmtp:117 apt=116\r\n" + "a=rtpmap:118 ulpfec/90000\r\n" + "a=ssrc-group:FID 1742986301 3380672915\r\n"
+            + "a=ssrc:1742986301 cname:w7Gk2Vn0qP3xR8tL\r\n" + "a=ssrc:1742986301 msid:9a1e4b3c-5d2f-4c7e-8f0a-2b6d9e1c3f47 6e3d1b9a-2c48-4f7d-b5a0-e9c2d4f1a836\r\n" + "a=ssrc:3380672915 cname:w7Gk2Vn0qP3xR8tL\r\n"
+            + "a=ssrc:3380672915 msid:9a1e4b3c-5d2f-4c7e-8f0a-2b6d9e1c3f47 6e3d1b9a-2c48-4f7d-b5a0-e9c2d4f1a836\r\n";
+
+    static final String FIREFOX = "v=0\r\n" + "o=mozilla...THIS_IS_SDPARTA-99.0 7316245913375880281 0 IN IP4 0.0.0.0\r\n" + "s=-\r\n" + "t=0 0\r\n"
+            + "a=fingerprint:sha-256 2A:9F:51:0C:E7:83:D4:6B:19:A2:F0:3E:8C:75:B1:D9:64:0E:C3:27:A8:5F:91:D4:3B:E6:0A:72:CF:18:9D:B5\r\n" + "a=group:BUNDLE 0 1\r\n" + "a=ice-options:trickle\r\n" + "a=msid-semantic:WMS *\r\n"
+            + "m=audio 9 UDP/TLS/RTP/SAVPF 109 9 0 8 101\r\n" + "c=IN IP4 0.0.0.0\r\n" + "a=sendonly\r\n" + "a=extmap:1 urn:ietf:params:rtp-hdrext:ssrc-audio-level\r\n" + "a=extmap:2/recvonly urn:ietf:params:rtp-hdrext:csrc-audio-level\r\n"
+            + "a=extmap:3 urn:ietf:params:rtp-hdrext:sdes:mid\r\n" + "a=fmtp:109 maxplaybackrate=48000;stereo=1;useinbandfec=1\r\n" + "a=fmtp:101 0-15\r\n" + "a=ice-pwd:5a8d1e3f7c9b2046e1d3f5a7c9b0e2d4\r\n" + "a=ice-ufrag:8c3e1f6a\r\n" + "a=mid:0\r\n"
+            + "a=msid:{4b1f8a2c-9d3e-4f6a-b7c0-1e2d3f4a5b6c} {7c8d9e0f-1a2b-4c3d-8e4f-5a6b7c8d9e0f}\r\n" + "a=rtcp-mux\r\n" + "a=rtpmap:109 opus/48000/2\r\n" + "a=rtpmap:9 G722/8000/1\r\n" + "a=rtpmap:0 PCMU/8000\r\n" + "a=rtpmap:8 PCMA/8000\r\n"
+            + "a=rtpmap:101 telephone-event/8000/1\r\n" + "a=setup:actpass\r\n" + "a=ssrc:1623498752 cname:{0e1f2a3b-4c5d-4e6f-8a7b-9c0d1e2f3a4b}\r\n" + "m=video 9 UDP/TLS/RTP/SAVPF 120 124 121 125 126 127 97 98 123 122 119\r\n" + "c=IN IP4 0.0.0.0\r\n"
+            + "a=sendonly\r\n" + "a=extmap:3 urn:ietf:params:rtp-hdrext:sdes:mid\r\n" + "a=extmap:4 http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time\r\n" + "a=extmap:5 urn:ietf:params:rtp-hdrext:toffset\r\n"
+            + "a=extmap:6/recvonly http://www.webrtc.org/experiments/rtp-hdrext/playout-delay\r\n" + "a=extmap:7 http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01\r\n" + "a=fmtp:126 profile-level-id=42e01f;level-asymmetry-allowed=1;packetization-mode=1\r\n"
+            + "a=fmtp:97 profile-level-id=42e01f;level-asymmetry-allowed=1\r\n" + "a=fmtp:120 max-fs=12288;max-fr=60\r\n" + "a=fmtp:124 apt=120\r\n" + "a=fmtp:121 max-fs=12288;max-fr=60\r\n" + "a=fmtp:125 apt=121\r\n" + "a=fmtp:127 apt=126\r\n" + "a=fmtp:98 apt=97\r\n"
+            + "a=fmtp:119 apt=122\r\n" + "a=ice-pwd:5a8d1e3f7c9b2046e1d3f5a7c9b0e2d4\r\n" + "a=ice-ufrag:8c3e1f6a\r\n" + "a=mid:1\r\n" + "a=msid:{4b1f8a2c-9d3e-4f6a-b7c0-1e2d3f4a5b6c} {2d3e4f5a-6b7c-4d8e-9f0a-1b2c3d4e5f6a}\r\n" + "a=rtcp-fb:120 nack\r\n"
+            + "a=rtcp-fb:120 nack pli\r\n" + "a=rtcp-fb:120 ccm fir\r\n" + "a=rtcp-fb:120 goog-remb\r\n" + "a=rtcp-fb:120 transport-cc\r\n" + "a=rtcp-fb:121 nack\r\n" + "a=rtcp-fb:121 nack pli\r\n" + "a=rtcp-fb:121 ccm fir\r\n" + "a=rtcp-fb:121 goog-remb\r\n"
+            + "a=rtcp-fb:121 transport-cc\r\n" + "a=rtcp-fb:126 nack\r\n" + "a=rtcp-fb:126 nack pli\r\n" + "a=rtcp-fb:126 ccm fir\r\n" + "a=rtcp-fb:126 goog-remb\r\n" + "a=rtcp-fb:126 transport-cc\r\n" + "a=rtcp-fb:97 nack\r\n" + "a=rtcp-fb:97 nack pli\r\n"
+            + "a=rtcp-fb:97 ccm fir\r\n" + "a=rtcp-fb:97 goog-remb\r\n" + "a=rtcp-fb:97 transport-cc\r\n" + "a=rtcp-fb:123 nack\r\n" + "a=rtcp-fb:123 nack pli\r\n" + "a=rtcp-fb:123 ccm fir\r\n" + "a=rtcp-fb:123 goog-remb\r\n" + "a=rtcp-fb:123 transport-cc\r\n"
+            + "a=rtcp-fb:122 nack\r\n" + "a=rtcp-fb:122 nack pli\r\n" + "a=rtcp-fb:122 ccm fir\r\n" + "a=rtcp-fb:122 goog-remb\r\n" + "a=rtcp-fb:122 transport-cc\r\n" + "a=rtcp-mux\r\n" + "a=rtcp-rsize\r\n" + "a=rtpmap:120 VP8/90000\r\n" + "a=rtpmap:124 rtx/90000\r\n"
+            + "a=rtpmap:121 VP9/90000\r\n" + "a=rtpmap:125 rtx/90000\r\n" + "a=rtpmap:126 H264/90000\r\n" + "a=rtpmap:127 rtx/90000\r\n" + "a=rtpmap:97 H264/90000\r\n" + "a=rtpmap:98 rtx/90000\r\n" + "a=rtpmap:123 ulpfec/90000\r\n" + "a=rtpmap:122 red/90000\r\n"
+            + "a=rtpmap:119 rtx/90000\r\n" + "a=setup:actpass\r\n" + "a=ssrc:2873590126 cname:{0e1f2a3b-4c5d-4e6f-8a7b-9c0d1e2f3a4b}\r\n" + "a=ssrc:3468109275 cname:{0e1f2a3b-4c5d-4e6f-8a7b-9c0d1e2f3a4b}\r\n" + "a=ssrc-group:FID 2873590126 3468109275\r\n";
+
+    static final String SAFARI = "v=0\r\n" + "o=- 2390146572913864011 2 IN IP4 127.0.0.1\r\n" + "s=-\r\n" + "t=0 0\r\n" + "a=group:BUNDLE 0 1\r\n" + "a=extmap-allow-mixed\r\n" + "a=msid-semantic: WMS 5E0F2C8A-7B3D-4E19-A6C4-D82F91B07E35\r\n"
+            + "m=audio 9 UDP/TLS/RTP/SAVPF 111 63 9 0 8 13 110 126\r\n" + "c=IN IP4 0.0.0.0\r\n" + "a=rtcp:9 IN IP4 0.0.0.0\r\n" + "a=ice-ufrag:r2Xo\r\n" + "a=ice-pwd:Qm4tV7yB1nC5xZ8wK3pL6sD9\r\n" + "a=ice-options:trickle\r\n"
+            + "a=fingerprint:sha-256 B4:07:6E:C2:19:F8:3A:D5:80:4C:E1:7B:26:93:AF:58:0D:C4:71:E9:36:BA:52:8F:0C:D7:64:A3:19:EB:F2:85\r\n" + "a=setup:actpass\r\n" + "a=mid:0\r\n" + "a=extmap:1 urn:ietf:params:rtp-hdrext:ssrc-audio-level\r\n"
+            + "a=extmap:2 http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time\r\n" + "a=extmap:3 http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01\r\n" + "a=extmap:4 urn:ietf:params:rtp-hdrext:sdes:mid\r\n" + "a=sendonly\r\n"
+            + "a=msid:5E0F2C8A-7B3D-4E19-A6C4-D82F91B07E35 A71C3E94-0D2B-4F68-9E15-B4C7A2D8F063\r\n" + "a=rtcp-mux\r\n" + "a=rtpmap:111 opus/48000/2\r\n" + "a=rtcp-fb:111 transport-cc\r\n" + "a=fmtp:111 minptime=10;useinbandfec=1\r\n" + "a=rtpmap:63 red/48000/2\r\n"
+            + "a=fmtp:63 111/111\r\n" + "a=rtpmap:9 G722/8000\r\n" + "a=rtpmap:0 PCMU/8000\r\n" + "a=rtpmap:8 PCMA/8000\r\n" + "a=rtpmap:13 CN/8000\r\n" + "a=rtpmap:110 telephone-event/48000\r\n" + "a=rtpmap:126 telephone-event/8000\r\n"
+            + "a=ssrc:1408395211 cname:Hn5vY1kR7uT0wQ3s\r\n" + "a=ssrc:1408395211 msid:5E0F2C8A-7B3D-4E19-A6C4-D82F91B07E35 A71C3E94-0D2B-4F68-9E15-B4C7A2D8F063\r\n" + "m=video 9 UDP/TLS/RTP/SAVPF 96 97 98 99 100 101 127 125 104 105 106 107 108\r\n"
+            + "c=IN IP4 0.0.0.0\r\n" + "a=rtcp:9 IN IP4 0.0.0.0\r\n" + "a=ice-ufrag:r2Xo\r\n" + "a=ice-pwd:Qm4tV7yB1nC5xZ8wK3pL6sD9\r\n" + "a=ice-options:trickle\r\n"
+            + "a=fingerprint:sha-256 B4:07:6E:C2:19:F8:3A:D5:80:4C:E1:7B:26:93:AF:58:0D:C4:71:E9:36:BA:52:8F:0C:D7:64:A3:19:EB:F2:85\r\n" + "a=setup:actpass\r\n" + "a=mid:1\r\n" + "a=extmap:14 urn:ietf:params:rtp-hdrext:toffset\r\n"
+            + "a=extmap:2 http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time\r\n" + "a=extmap:13 urn:3gpp:video-orientation\r\n" + "a=extmap:3 http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01\r\n"
+            + "a=extmap:5 http://www.webrtc.org/experiments/rtp-hdrext/playout-delay\r\n" + "a=extmap:6 http://www.webrtc.org/experiments/rtp-hdrext/video-content-type\r\n" + "a=extmap:7 http://www.webrtc.org/experiments/rtp-hdrext/video-timing\r\n"
+            + "a=extmap:8 http://www.webrtc.org/experiments/rtp-hdrext/color-space\r\n" + "a=extmap:4 urn:ietf:params:rtp-hdrext:sdes:mid\r\n" + "a=extmap:10 urn:ietf:params:rtp-hdrext:sdes:rtp-stream-id\r\n" + "a=extmap:11 urn:ietf:params:rtp-hdrext:sdes:repaired-rtp-stream-id\r\n"
+            + "a=sendonly\r\n" + "a=msid:5E0F2C8A-7B3D-4E19-A6C4-D82F91B07E35 3C9E7A15-F42D-4B80-86E3-0A5D1C9B7F24\r\n" + "a=rtcp-mux\r\n" + "a=rtcp-rsize\r\n" + "a=rtpmap:96 H264/90000\r\n" + "a=rtcp-fb:96 goog-remb\r\n" + "a=rtcp-fb:96 transport-cc\r\n"
+            + "a=rtcp-fb:96 ccm fir\r\n" + "a=rtcp-fb:96 nack\r\n" + "a=rtcp-fb:96 nack pli\r\n" + "a=fmtp:96 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=640c1f\r\n" + "a=rtpmap:97 rtx/90000\r\n" + "a=fmtp:97 apt=96\r\n" + "a=rtpmap:98 H264/90000\r\n"
+            + "a=rtcp-fb:98 goog-remb\r\n" + "a=rtcp-fb:98 transport-cc\r\n" + "a=rtcp-fb:98 ccm fir\r\n" + "a=rtcp-fb:98 nack\r\n" + "a=rtcp-fb:98 nack pli\r\n" + "a=fmtp:98 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=42e01f\r\n"
+            + "a=rtpmap:99 rtx/90000\r\n" + "a=fmtp:99 apt=98\r\n" + "a=rtpmap:100 H265/90000\r\n" + "a=rtcp-fb:100 goog-remb\r\n" + "a=rtcp-fb:100 transport-cc\r\n" + "a=rtcp-fb:100 ccm fir\r\n" + "a=rtcp-fb:100 nack\r\n" + "a=rtcp-fb:100 nack pli\r\n"
+            + "a=rtpmap:101 rtx/90000\r\n" + "a=fmtp:101 apt=100\r\n" + "a=rtpmap:127 VP8/90000\r\n" + "a=rtcp-fb:127 goog-remb\r\n" + "a=rtcp-fb:127 transport-cc\r\n" + "a=rtcp-fb:127 ccm fir\r\n" + "a=rtcp-fb:127 nack\r\n" + "a=rtcp-fb:127 nack pli\r\n"
+            + "a=rtpmap:125 rtx/90000\r\n" + "a=fmtp:125 apt=127\r\n" + "a=rtpmap:104 red/90000\r\n" + "a=rtpmap:105 rtx/90000\r\n" + "a=fmtp:105 apt=104\r\n" + "a=rtpmap:106 ulpfec/90000\r\n" + "a=rtpmap:107 VP9/90000\r\n" + "a=rtcp-fb:107 goog-remb\r\n"
+            + "a=rtcp-fb:107 transport-cc\r\n" + "a=rtcp-fb:107 ccm fir\r\n" + "a=rtcp-fb:107 nack\r\n" + "a=rtcp-fb:107 nack pli\r\n" + "a=fmtp:107 profile-id=0\r\n" + "a=rtpmap:108 rtx/90000\r\n" + "a=fmtp:108 apt=107\r\n" + "a=ssrc-group:FID 2519730846 961274035\r\n"
+            + "a=ssrc:2519730846 cname:Hn5vY1kR7uT0wQ3s\r\n" + "a=ssrc:2519730846 msid:5E0F2C8A-7B3D-4E19-A6C4-D82F91B07E35 3C9E7A15-F42D-4B80-86E3-0A5D1C9B7F24\r\n" + "a=ssrc:961274035 cname:Hn5vY1kR7uT0wQ3s\r\n"
+            + "a=ssrc:961274035 msid:5E0F2C8A-7B3D-4E19-A6C4-D82F91B07E35 3C9E7A15-F42D-4B80-86E3-0A5D1C9B7F24\r\n";
+
+    /**
+     * Returns the offer for a browser name.
+     *
+     * @param browser chrome, firefox or safari
+     * @return raw offer
+     */
+    static String get(String browser) {
+        switch (browser) {
+            case "chrome":
+                return CHROME;
+            case "firefox":
+                return FIREFOX;
+            case "safari":
+                return SAFARI;
+            default:
+                throw new IllegalArgumentException("Unknown browser: " + browser);
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.red5pro.media.sdp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the single pass SDPParser against the regex based parser it replaced on browser publish offers. Add
+ * <code>-prof gc</code> to the JMH options to compare the bytes allocated per parse.
+ *
+ * @author Paul Gregoire
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class SDPParserBenchmark {
+
+    @Param({ "chrome", "firefox", "safari" })
+    public String browser;
+
+    private String offer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        offer = SDPOffers.get(browser);
+        // both parsers must agree before their speed is worth comparing
+        SessionDescription legacy = new SessionDescription();
+        LegacySDPParser.parse(legacy, offer);
+        SessionDescription current = new SessionDescription();
+        SDPParser.parse(current, offer);
+        if (!legacy.toString().equals(current.toString())) {
+            throw new IllegalStateException("Parsers disagree on the " + browser + " offer");
+        }
+    }
+
+    @Benchmark
+    public SessionDescription parse() {
+        SessionDescription sdp = new SessionDescription();
+        SDPParser.parse(sdp, offer);
+        return sdp;
+    }
+
+    @Benchmark
+    public SessionDescription parseLegacy() {
+        SessionDescription sdp = new SessionDescription();
+        LegacySDPParser.parse(sdp, offer);
+        return sdp;
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.red5pro.media.sdp;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares SDPWriter against the String.format based serialization it replaced, writing to a String as toString does
+ * and to reusable builders and direct buffers. Run with <code>-Dbench.gc=true</code> to compare the bytes allocated per
+ * answer.
+ *
+ * @author Paul Gregoire
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class SDPWriterBenchmark {
+
+    @Param({ "chrome", "firefox", "safari" })
+    public String browser;
+
+    private SessionDescription sdp;
+
+    private StringBuilder builder;
+
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sdp = new SessionDescription();
+        SDPParser.parse(sdp, SDPOffers.get(browser));
+        // both writers must agree before their speed is worth comparing
+        String legacy = LegacySDPWriter.write(sdp);
+        if (!legacy.equals(SDPWriter.write(sdp))) {
+            throw new IllegalStateException("Writers disagree on the " + browser + " offer");
+        }
+        builder = new StringBuilder(legacy.length() * 2);
+        buffer = ByteBuffer.allocateDirect(legacy.length() * 4);
+    }
+
+    @Benchmark
+    public String write() {
+        return SDPWriter.write(sdp);
+    }
+
+    @Benchmark
+    public String writeLegacy() {
+        return LegacySDPWriter.write(sdp);
+    }
+
+    @Benchmark
+    public int writeBuilder() {
+        builder.setLength(0);
+        SDPWriter.write(sdp, builder);
+        return builder.length();
+    }
+
+    @Benchmark
+    public int writeBuffer() {
+        buffer.clear();
+        return SDPWriter.write(sdp, buffer);
+    }
+
+}
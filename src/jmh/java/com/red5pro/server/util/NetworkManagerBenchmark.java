@@ -0,0 +1,113 @@
+package com.red5pro.server.util;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.red5.server.net.rtmp.RTMPConnection;
+
+import com.red5pro.media.SourceType;
+
+/**
+ * Benchmarks the NetworkManager address validation and ingest end-point lookups.
+ *
+ * @author Paul Gregoire
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class NetworkManagerBenchmark {
+
+    @Param({ "10", "1000" })
+    public int endPoints;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SourceType[] types = SourceType.values();
+        for (int i = 0; i < endPoints; i++) {
+            String id = "bench-" + i;
+            SourceType type = types[i % types.length];
+            NetworkManager.getIngestEndPoints().put(id, new BenchEndpoint(id, type));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        NetworkManager.getIngestEndPoints().keySet().removeIf(id -> id.startsWith("bench-"));
+    }
+
+    @Benchmark
+    public boolean validIPAddressAny() {
+        return NetworkManager.validIPAddress("0.0.0.0", 5000);
+    }
+
+    @Benchmark
+    public boolean validIPAddressMulticast() {
+        return NetworkManager.validIPAddress("239.0.0.1", 5000);
+    }
+
+    @Benchmark
+    public boolean validIPAddressInterface() {
+        // not bound to any interface, so every interface address is visited
+        return NetworkManager.validIPAddress("192.0.2.1", 5000);
+    }
+
+    @Benchmark
+    public Map<String, IngestEndpoint<?>> getIngestEndPointsByType() {
+        return NetworkManager.getIngestEndPointsByType(SourceType.RTSP);
+    }
+
+    private static class BenchEndpoint implements IngestEndpoint<Object> {
+
+        private final String id;
+
+        private final SourceType type;
+
+        BenchEndpoint(String id, SourceType type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        @Override
+        public SourceType getType() {
+            return type;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public boolean isUnicast() {
+            return true;
+        }
+
+        @Override
+        public boolean isMulticast() {
+            return false;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public RTMPConnection getConnection() {
+            return null;
+        }
+
+    }
+
+}
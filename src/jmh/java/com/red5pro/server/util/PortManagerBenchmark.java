@@ -0,0 +1,73 @@
+package com.red5pro.server.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the PortManager allocation hot paths. Allocations are paired with a clear so that the range is never
+ * exhausted, regardless of the thread count.
+ *
+ * @author Paul Gregoire
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class PortManagerBenchmark {
+
+    // a port in range which is never allocated
+    private static final int UNALLOCATED_PORT = 65000;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PortManager.setRtpPortBase(49152);
+        PortManager.setRtpPortCeiling(65535);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        PortManager.cleanAllocations();
+    }
+
+    @Benchmark
+    public int getRTPServerPort() {
+        int port = PortManager.getRTPServerPort();
+        PortManager.clearRTPServerPort(port);
+        return port;
+    }
+
+    @Benchmark
+    public int getRTPServerPortRandom() {
+        int port = PortManager.getRTPServerPortRandom();
+        PortManager.clearRTPServerPort(port);
+        return port;
+    }
+
+    @Benchmark
+    public int reservePortPair() {
+        int port = PortManager.reservePortPair();
+        PortManager.releasePortPair(port);
+        return port;
+    }
+
+    @Benchmark
+    public int clearRTPServerPortUnallocated() {
+        PortManager.clearRTPServerPort(UNALLOCATED_PORT);
+        return UNALLOCATED_PORT;
+    }
+
+    @Benchmark
+    public boolean checkAvailable() {
+        return PortManager.checkAvailable(UNALLOCATED_PORT);
+    }
+
+}
@@ -0,0 +1,403 @@
+package com.red5pro.group;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.red5.server.api.event.IEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.media.MediaTrackQueue.OverflowPolicy;
+
+/**
+ * Fans conference events out to participants on a fixed set of worker lanes, so the thread dispatching an event only
+ * queues it, and a participant slow to handle its events only holds up the lane it's on. Each participant is pinned to
+ * one lane by its id and has a mailbox of its own, which keeps its events in order. Mailboxes are bounded for media
+ * (stream data) events, which are subject to the overflow policy once a participant falls that far behind; other
+ * events are always queued. The blocking policy must not be used when events may be dispatched from a lane, such as by
+ * a participant's own event handling, since the lane would wait on itself. Conferences only dispatch through it when
+ * provisioned with dispatch lanes or configured with <code>-Dconference.dispatch.enabled=true</code>, since
+ * participants then see events after dispatchEvent has returned and must not rely on the caller keeping them intact.
+ *
+ * @author Paul Gregoire
+ */
+public class ConferenceDispatcher {
+
+    private static Logger log = LoggerFactory.getLogger(ConferenceDispatcher.class);
+
+    // whether conferences use the shared dispatcher without being provisioned to
+    public static final boolean DEFAULT_ENABLED = Boolean.getBoolean("conference.dispatch.enabled");
+
+    // lanes of the shared dispatcher, zero to have conferences dispatch on the calling thread
+    public static final int DEFAULT_LANES = Integer.getInteger("conference.dispatch.lanes", Runtime.getRuntime().availableProcessors());
+
+    // media events queued per participant before the overflow policy applies
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("conference.dispatch.capacity", 256);
+
+    public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.valueOf(System.getProperty("conference.dispatch.overflow", OverflowPolicy.DROP_OLDEST.name()));
+
+    // events delivered from a mailbox before moving on, so busy participants don't starve the rest of their lane
+    private static final int DRAIN_BATCH = 64;
+
+    private static volatile ConferenceDispatcher shared;
+
+    private final String name;
+
+    private final Lane[] lanes;
+
+    private final int capacity;
+
+    private final OverflowPolicy policy;
+
+    private final ConcurrentHashMap<IParticipant, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a dispatcher and starts its lanes.
+     *
+     * @param name
+     *            prefix for lane thread names
+     * @param lanes
+     *            number of lanes
+     * @param capacity
+     *            media events queued per participant
+     * @param policy
+     *            what to do with media events for a participant with a full mailbox
+     */
+    public ConferenceDispatcher(String name, int lanes, int capacity, OverflowPolicy policy) {
+        if (lanes < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Lanes and capacity must be positive: " + lanes + ", " + capacity);
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane(i);
+            this.lanes[i].start();
+        }
+    }
+
+    /**
+     * Returns the dispatcher shared by conferences, started on first use, or null when the lane count is configured as
+     * zero.
+     *
+     * @return dispatcher or null
+     */
+    public static ConferenceDispatcher getShared() {
+        if (shared == null && DEFAULT_LANES > 0) {
+            synchronized (ConferenceDispatcher.class) {
+                if (shared == null) {
+                    shared = new ConferenceDispatcher("ConferenceDispatcher", DEFAULT_LANES, DEFAULT_CAPACITY, DEFAULT_OVERFLOW_POLICY);
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Gives a participant its mailbox. Events dispatched to participants without one are skipped.
+     *
+     * @param participant
+     */
+    public void add(IParticipant participant) {
+        mailboxes.computeIfAbsent(participant, Mailbox::new);
+    }
+
+    /**
+     * Discards the mailbox of a participant, along with its undelivered events.
+     *
+     * @param participant
+     */
+    public void remove(IParticipant participant) {
+        Mailbox mailbox = mailboxes.remove(participant);
+        if (mailbox != null) {
+            mailbox.close();
+        }
+    }
+
+    /**
+     * Queues an event for each of the given participants.
+     *
+     * @param event
+     * @param participants
+     */
+    public void dispatch(IEvent event, IParticipant[] participants) {
+        long now = System.nanoTime();
+        boolean media = event.getType() == IEvent.Type.STREAM_DATA;
+        for (IParticipant participant : participants) {
+            Mailbox mailbox = mailboxes.get(participant);
+            if (mailbox != null) {
+                mailbox.offer(event, media, now);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of events queued for a participant.
+     *
+     * @param participant
+     * @return undelivered events
+     */
+    public int getBacklog(IParticipant participant) {
+        Mailbox mailbox = mailboxes.get(participant);
+        return mailbox != null ? mailbox.size() : 0;
+    }
+
+    /**
+     * Returns the lane a participant is pinned to.
+     *
+     * @param participant
+     * @return lane index
+     */
+    public int getLane(IParticipant participant) {
+        int hash = participant.getId().hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Returns the number of events queued on a lane, across its participants.
+     *
+     * @param lane
+     *            lane index
+     * @return undelivered events
+     */
+    public int getQueueDepth(int lane) {
+        return lanes[lane].depth.get();
+    }
+
+    /**
+     * Returns the histogram of time events spent queued on a lane before delivery.
+     *
+     * @param lane
+     *            lane index
+     * @return latency histogram
+     */
+    public LatencyHistogram getLatencyHistogram(int lane) {
+        return lanes[lane].latency;
+    }
+
+    public long getDeliveredCount(int lane) {
+        return lanes[lane].delivered.sum();
+    }
+
+    public long getDroppedCount(int lane) {
+        return lanes[lane].dropped.sum();
+    }
+
+    /**
+     * Returns the number of media events dropped by the overflow policy across all lanes.
+     *
+     * @return dropped events
+     */
+    public long getDroppedCount() {
+        long dropped = 0;
+        for (Lane lane : lanes) {
+            dropped += lane.dropped.sum();
+        }
+        return dropped;
+    }
+
+    /**
+     * Stops the lanes, abandoning any undelivered events.
+     */
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            lane.interrupt();
+        }
+        mailboxes.values().forEach(Mailbox::close);
+        mailboxes.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "ConferenceDispatcher [name=" + name + ", lanes=" + lanes.length + ", participants=" + mailboxes.size() + ", dropped=" + getDroppedCount() + "]";
+    }
+
+    /**
+     * Worker thread delivering the events of the mailboxes pinned to it, in the order they became ready.
+     */
+    private final class Lane extends Thread {
+
+        private final BlockingQueue<Mailbox> ready = new LinkedBlockingQueue<>();
+
+        private final AtomicInteger depth = new AtomicInteger();
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private final LongAdder delivered = new LongAdder();
+
+        private final LongAdder dropped = new LongAdder();
+
+        Lane(int index) {
+            super(name + "-" + index);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!isInterrupted()) {
+                    ready.take().drain();
+                }
+            } catch (InterruptedException e) {
+                log.debug("Lane {} stopped", getName());
+            }
+        }
+
+    }
+
+    /**
+     * Events queued for one participant. At most one drain runs at a time, since a mailbox is only ever ready on its
+     * participant's lane once.
+     */
+    private final class Mailbox {
+
+        private final IParticipant participant;
+
+        private final Lane lane;
+
+        // guarded by this
+        private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+
+        // queued media events, guarded by this
+        private int media;
+
+        // whether the mailbox is waiting on or being drained by its lane, guarded by this
+        private boolean scheduled;
+
+        private boolean closed;
+
+        Mailbox(IParticipant participant) {
+            this.participant = participant;
+            this.lane = lanes[getLane(participant)];
+        }
+
+        synchronized void offer(IEvent event, boolean isMedia, long now) {
+            if (closed) {
+                return;
+            }
+            if (isMedia && media >= capacity) {
+                switch (policy) {
+                    case DROP_NEWEST:
+                        lane.dropped.increment();
+                        return;
+                    case DROP_OLDEST:
+                        dropOldestMedia();
+                        break;
+                    case BLOCK:
+                        try {
+                            while (media >= capacity && !closed) {
+                                wait();
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            lane.dropped.increment();
+                            return;
+                        }
+                        if (closed) {
+                            return;
+                        }
+                        break;
+                }
+            }
+            queue.offer(new Pending(event, isMedia, now));
+            if (isMedia) {
+                media++;
+            }
+            lane.depth.incrementAndGet();
+            if (!scheduled) {
+                scheduled = true;
+                lane.ready.offer(this);
+            }
+        }
+
+        private void dropOldestMedia() {
+            for (Iterator<Pending> it = queue.iterator(); it.hasNext();) {
+                if (it.next().media) {
+                    it.remove();
+                    media--;
+                    lane.depth.decrementAndGet();
+                    lane.dropped.increment();
+                    return;
+                }
+            }
+        }
+
+        private synchronized Pending poll() {
+            Pending pending = closed ? null : queue.poll();
+            if (pending == null) {
+                scheduled = false;
+            } else if (pending.media) {
+                media--;
+                if (policy == OverflowPolicy.BLOCK) {
+                    notifyAll();
+                }
+            }
+            return pending;
+        }
+
+        void drain() {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                Pending pending = poll();
+                if (pending == null) {
+                    return;
+                }
+                lane.depth.decrementAndGet();
+                lane.latency.record(System.nanoTime() - pending.queued);
+                try {
+                    participant.notifyEvent(pending.event);
+                } catch (Throwable t) {
+                    log.warn("Exception notifying participant {}", participant.getId(), t);
+                }
+                lane.delivered.increment();
+            }
+            // go to the back of the lane, behind the other ready participants
+            synchronized (this) {
+                if (closed || queue.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            lane.ready.offer(this);
+        }
+
+        synchronized int size() {
+            return queue.size();
+        }
+
+        synchronized void close() {
+            closed = true;
+            lane.depth.addAndGet(-queue.size());
+            queue.clear();
+            media = 0;
+            notifyAll();
+        }
+
+    }
+
+    private static final class Pending {
+
+        final IEvent event;
+
+        final boolean media;
+
+        final long queued;
+
+        Pending(IEvent event, boolean media, long queued) {
+            this.event = event;
+            this.media = media;
+            this.queued = queued;
+        }
+
+    }
+
+}
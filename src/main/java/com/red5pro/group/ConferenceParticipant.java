@@ -1,5 +1,7 @@
 package com.red5pro.group;
 
+import java.util.Collections;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
@@ -27,8 +29,24 @@ public abstract class ConferenceParticipant implements IParticipant {
     // timestamp for when this participant was created
     protected final long created = System.currentTimeMillis();
 
-    // Publisher ids to exclude when outputting media to this participant.
-    protected Set<String> excludes = new CopyOnWriteArraySet<>();
+    // Publisher ids to exclude when outputting media to this participant; only changed through addExclude and
+    // removeExclude, so that the exclude array and publisher index follow along
+    private final Set<String> excludes = new CopyOnWriteArraySet<>();
+
+    // read-only view of the excludes
+    private final Set<String> excludesView = Collections.unmodifiableSet(excludes);
+
+    // excludes by publisher number, for those publishing in our group
+    protected final PublisherSet excludeSet = new PublisherSet();
+
+    // excludes as returned by getExcludes, replaced when they change
+    private volatile String[] excludesArray = new String[0];
+
+    // numbering of the publishers in our group, null until joined
+    volatile PublisherIndex index;
+
+    // our number in the group, or -1 if we're not publishing in one
+    volatile int publisherNumber = -1;
 
     // determination of publisher or subscriber will be false until SDP's are
     // processed
@@ -62,7 +80,9 @@ public abstract class ConferenceParticipant implements IParticipant {
      * @param exclude
      */
     public void addExclude(String exclude) {
-        excludes.add(exclude);
+        if (excludes.add(exclude)) {
+            excludesChanged(exclude);
+        }
     }
 
     /**
@@ -71,12 +91,58 @@ public abstract class ConferenceParticipant implements IParticipant {
      * @param exclude
      */
     public void removeExclude(String exclude) {
-        excludes.remove(exclude);
+        if (excludes.remove(exclude)) {
+            excludesChanged(exclude);
+        }
     }
 
+    private void excludesChanged(String exclude) {
+        synchronized (excludes) {
+            excludesArray = excludes.toArray(new String[0]);
+        }
+        PublisherIndex index = this.index;
+        if (index != null) {
+            index.excludeChanged(this, exclude);
+        }
+    }
+
+    /**
+     * Returns whether events from the given participant are excluded from this one.
+     *
+     * @param source
+     *            participant originating an event
+     * @return true if excluded and false otherwise
+     */
+    public boolean isExcluded(IParticipant source) {
+        if (source instanceof ConferenceParticipant) {
+            ConferenceParticipant publisher = (ConferenceParticipant) source;
+            // numbered in our group, so a bit test will do
+            if (publisher.index != null && publisher.index == index) {
+                int number = publisher.publisherNumber;
+                if (number >= 0) {
+                    return excludeSet.contains(number);
+                }
+            }
+        }
+        String publisherId = source.getPublisherId();
+        return publisherId != null && excludes.contains(publisherId);
+    }
+
+    /**
+     * Returns a read-only view of the excluded publisher ids; changes go through addExclude and removeExclude.
+     *
+     * @return excluded publisher ids
+     */
+    public Set<String> getExcludedIds() {
+        return excludesView;
+    }
+
+    /**
+     * Returns the excluded publisher ids. The array is shared and must not be modified.
+     */
     @Override
     public String[] getExcludes() {
-        return excludes.toArray(new String[0]);
+        return excludesArray;
     }
 
     /**
@@ -98,11 +164,9 @@ public abstract class ConferenceParticipant implements IParticipant {
         if (!this.equals(event.getSource())) {
             if (event instanceof GroupEvent) {
                 GroupEvent ge = (GroupEvent) event;
-                String eventSourceId = null;// ge.getSourceId();
                 if (event.getSource() instanceof IParticipant) {
                     // Notify from other channel?
-                    eventSourceId = ((IParticipant) event.getSource()).getPublisherId();
-                    if (excludes.contains(eventSourceId)) {
+                    if (isExcluded((IParticipant) event.getSource())) {
                         return;
                     }
                 }
@@ -124,7 +188,12 @@ public abstract class ConferenceParticipant implements IParticipant {
     @Override
     public void setPublisherId(String publisherId) {
         publisher = publisherId != null;
+        String previous = this.publisherId;
         this.publisherId = publisherId;
+        PublisherIndex index = this.index;
+        if (index != null && !Objects.equals(previous, publisherId)) {
+            index.publisherChanged(this, previous);
+        }
     }
 
     @Override
@@ -1,8 +1,9 @@
 package com.red5pro.group;
 
 import java.beans.ConstructorProperties;
-import java.util.Optional;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.red5.server.api.event.IEvent;
 import org.red5.server.api.scope.IScope;
@@ -28,10 +29,35 @@ public class ConferenceScope extends Scope implements IGroupCore {
      */
     protected Provision provision;
 
+    private static final IParticipant[] NO_PARTICIPANTS = new IParticipant[0];
+
+    /**
+     * Conference participants keyed by id. Participants are NOT in the Scope.clients collection
+     */
+    protected final ConcurrentHashMap<String, IParticipant> participants = new ConcurrentHashMap<>();
+
     /**
-     * Conference participants are NOT in the Scope.clients collection
+     * Participants keyed by publisher id, indexed on join or on first lookup since the publisher id may be set
+     * afterward.
      */
-    protected CopyOnWriteArraySet<IParticipant> participants = new CopyOnWriteArraySet<>();
+    protected final ConcurrentHashMap<String, IParticipant> publishers = new ConcurrentHashMap<>();
+
+    /**
+     * Participants in the order they joined, replaced rather than modified on membership changes so dispatch can walk
+     * it without locking or copying.
+     */
+    private volatile IParticipant[] snapshot = NO_PARTICIPANTS;
+
+    /**
+     * Numbers the publishers in this conference, for participants to filter their events by.
+     */
+    protected final PublisherIndex publisherIndex = new PublisherIndex();
+
+    /**
+     * Fans events out to participants off the dispatching thread, or null to notify them in turn on that thread. Null
+     * unless enabled by the provision or configuration, since participants then see events after dispatchEvent returns.
+     */
+    protected ConferenceDispatcher dispatcher = ConferenceDispatcher.DEFAULT_ENABLED ? ConferenceDispatcher.getShared() : null;
 
     /**
      * Expression compositor.
@@ -74,6 +100,11 @@ public class ConferenceScope extends Scope implements IGroupCore {
         if (compositor != null && !compositor.hasReferenceCount()) {
             compositor.stop();
         }
+        if (dispatcher != null) {
+            for (IParticipant participant : snapshot) {
+                dispatcher.remove(participant);
+            }
+        }
         super.stop();
     }
 
@@ -82,7 +113,14 @@ public class ConferenceScope extends Scope implements IGroupCore {
     public void dispatchEvent(IEvent event) {
         log.debug("dispatchEvent: {}", event);
         // dispatch to participants
-        participants.forEach(participant -> participant.notifyEvent(event));
+        ConferenceDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            dispatcher.dispatch(event, snapshot);
+        } else {
+            for (IParticipant participant : snapshot) {
+                participant.notifyEvent(event);
+            }
+        }
         super.dispatchEvent(event);
     }
 
@@ -111,6 +149,14 @@ public class ConferenceScope extends Scope implements IGroupCore {
 
     public void setProvision(Provision provision) {
         this.provision = provision;
+        Map<String, Object> params = provision != null ? provision.getParameters() : null;
+        if (dispatcher == null && params != null && Boolean.parseBoolean(String.valueOf(params.get(IGroupCore.PARAMS_DISPATCH_LANES)))) {
+            if (snapshot.length == 0) {
+                setDispatcher(ConferenceDispatcher.getShared());
+            } else {
+                log.warn("Dispatch lanes must be provisioned before participants join, notifying on the dispatching thread");
+            }
+        }
     }
 
     @Override
@@ -130,40 +176,123 @@ public class ConferenceScope extends Scope implements IGroupCore {
 
     @Override
     public boolean addParticipant(IParticipant participant) {
-        return participants.add(participant);
+        synchronized (participants) {
+            if (participants.putIfAbsent(participant.getId(), participant) != null) {
+                return false;
+            }
+            if (participant instanceof ConferenceParticipant) {
+                publisherIndex.join((ConferenceParticipant) participant);
+            }
+            // before joining the snapshot, so no event dispatched to it is skipped
+            if (dispatcher != null) {
+                dispatcher.add(participant);
+            }
+            IParticipant[] current = snapshot;
+            IParticipant[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = participant;
+            snapshot = next;
+        }
+        String publisherId = participant.getPublisherId();
+        if (publisherId != null) {
+            publishers.put(publisherId, participant);
+        }
+        return true;
     }
 
     @Override
     public boolean removeParticipant(String id) {
-        IParticipant participant = getParticipant(id);
-        if (participant != null) {
-            return participants.remove(participant);
+        if (id == null) {
+            return false;
+        }
+        IParticipant participant;
+        synchronized (participants) {
+            participant = participants.remove(id);
+            if (participant == null) {
+                return false;
+            }
+            IParticipant[] current = snapshot;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == participant) {
+                    IParticipant[] next = new IParticipant[current.length - 1];
+                    System.arraycopy(current, 0, next, 0, i);
+                    System.arraycopy(current, i + 1, next, i, next.length - i);
+                    snapshot = next;
+                    break;
+                }
+            }
+        }
+        if (dispatcher != null) {
+            dispatcher.remove(participant);
         }
-        return false;
+        if (participant instanceof ConferenceParticipant) {
+            publisherIndex.leave((ConferenceParticipant) participant);
+        }
+        String publisherId = participant.getPublisherId();
+        if (publisherId != null) {
+            publishers.remove(publisherId, participant);
+        }
+        return true;
     }
 
     @Override
     public IParticipant getParticipant(String id) {
-        Optional<IParticipant> opt = participants.stream().filter(participant -> participant.getId().equals(id)).findFirst();
-        if (opt.isPresent()) {
-            return opt.get();
-        }
-        return null;
+        return id != null ? participants.get(id) : null;
     }
 
     public IParticipant getParticipantByPublisherId(String publisherId) {
-        Optional<IParticipant> opt = participants.stream().filter(participant -> participant.getPublisherId().equals(publisherId)).findFirst();
-        if (opt.isPresent()) {
-            return opt.get();
+        if (publisherId == null) {
+            return null;
+        }
+        IParticipant participant = publishers.get(publisherId);
+        if (participant != null) {
+            // still a member under the same publisher id
+            if (publisherId.equals(participant.getPublisherId()) && participants.get(participant.getId()) == participant) {
+                return participant;
+            }
+            publishers.remove(publisherId, participant);
+        }
+        // publisher id set after joining, index it for the next lookup
+        for (IParticipant candidate : snapshot) {
+            if (publisherId.equals(candidate.getPublisherId())) {
+                publishers.put(publisherId, candidate);
+                return candidate;
+            }
         }
         return null;
     }
 
+    /**
+     * Returns the participants in the order they joined. The array is shared and must not be modified.
+     *
+     * @return participants
+     */
+    public IParticipant[] getParticipants() {
+        return snapshot;
+    }
+
     @Override
     public int getParticipantCount() {
         return getActiveClients();
     }
 
+    public PublisherIndex getPublisherIndex() {
+        return publisherIndex;
+    }
+
+    public ConferenceDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * Sets the dispatcher, or null to notify participants on the dispatching thread. Must be set before participants
+     * are added.
+     *
+     * @param dispatcher
+     */
+    public void setDispatcher(ConferenceDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
     @Override
     public MediaTrack[] getAudioTracks() {
         return compositor != null ? compositor.getAudioTracks() : null;
@@ -40,6 +40,22 @@ public interface IGroupCore {
      */
     public static final String PARAMS_AUDIO_TRACKS = "audiotracks";
 
+    /**
+     * Provision Parameter to mix participant audio on the server, true to enable.
+     */
+    public static final String PARAMS_AUDIO_MIXER = "audiomixer";
+
+    /**
+     * Provision Parameter to route only the loudest publishers to the audio tracks, true to enable.
+     */
+    public static final String PARAMS_ACTIVE_SPEAKERS = "activespeakers";
+
+    /**
+     * Provision Parameter to notify participants on the shared dispatcher's worker lanes instead of the dispatching
+     * thread, true to enable.
+     */
+    public static final String PARAMS_DISPATCH_LANES = "dispatchlanes";
+
     /**
      * End user handle to server core API implementation.
      */
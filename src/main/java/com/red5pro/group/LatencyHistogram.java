@@ -0,0 +1,105 @@
+package com.red5pro.group;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in power of two microsecond buckets, from under a microsecond to over a minute. Bucket zero
+ * counts latencies under one microsecond and bucket i those from 2^(i-1) up to 2^i microseconds, with the last bucket
+ * taking everything longer. Recording is lock-free and constant time.
+ *
+ * @author Paul Gregoire
+ */
+public class LatencyHistogram {
+
+    // 2^26 microseconds is just over a minute
+    public static final int BUCKETS = 28;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos
+     *            latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0L, nanos));
+        buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros))].increment();
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return count
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the counts of each bucket.
+     *
+     * @return counts indexed by bucket
+     */
+    public long[] getCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given percentile, so the percentile is at most this many
+     * microseconds, or Long.MAX_VALUE when it falls in the last bucket.
+     *
+     * @param percentile
+     *            from 0 to 100
+     * @return microseconds or zero if nothing was recorded
+     */
+    public long getPercentileMicros(double percentile) {
+        long[] counts = getCounts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(total * Math.min(100d, Math.max(0d, percentile)) / 100d);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return 1L << i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Clears the recorded latencies.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram [count=" + getCount() + ", p50=" + getPercentileMicros(50) + "us, p99=" + getPercentileMicros(99) + "us]";
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.red5pro.group;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Numbers the publishers of a group with small ints, assigned as they join and reused once they leave, so that
+ * participants can hold their excludes as a PublisherSet. Whenever a number is assigned or released, the exclude sets
+ * of the members are brought in line with their excluded publisher ids.
+ *
+ * @author Paul Gregoire
+ */
+public class PublisherIndex {
+
+    private final Set<ConferenceParticipant> members = ConcurrentHashMap.newKeySet();
+
+    // guarded by this
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    // numbers in use, guarded by this
+    private final BitSet used = new BitSet();
+
+    /**
+     * Adds a participant to the group, numbering it if it publishes.
+     *
+     * @param participant
+     */
+    public synchronized void join(ConferenceParticipant participant) {
+        if (members.add(participant)) {
+            participant.index = this;
+            for (String exclude : participant.getExcludedIds()) {
+                int number = numberOf(exclude);
+                if (number >= 0) {
+                    participant.excludeSet.add(number);
+                }
+            }
+            if (participant.publisherId != null) {
+                participant.publisherNumber = assign(participant.publisherId);
+            }
+        }
+    }
+
+    /**
+     * Removes a participant from the group, releasing its number if it publishes.
+     *
+     * @param participant
+     */
+    public synchronized void leave(ConferenceParticipant participant) {
+        if (members.remove(participant)) {
+            if (participant.publisherId != null) {
+                release(participant.publisherId);
+            }
+            participant.publisherNumber = -1;
+            participant.index = null;
+        }
+    }
+
+    /**
+     * Returns the number of a publisher.
+     *
+     * @param publisherId
+     * @return number or -1 if the publisher isn't in the group
+     */
+    public synchronized int numberOf(String publisherId) {
+        Entry entry = entries.get(publisherId);
+        return entry != null ? entry.number : -1;
+    }
+
+    /**
+     * Returns the number of publishers in the group.
+     *
+     * @return publishers
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Renumbers a member whose publisher id changed.
+     *
+     * @param participant
+     * @param previous
+     *            publisher id it had, if any
+     */
+    synchronized void publisherChanged(ConferenceParticipant participant, String previous) {
+        if (members.contains(participant)) {
+            if (previous != null) {
+                release(previous);
+            }
+            participant.publisherNumber = participant.publisherId != null ? assign(participant.publisherId) : -1;
+        }
+    }
+
+    /**
+     * Adds or removes a publisher in the exclude set of a member, matching its excluded publisher ids.
+     *
+     * @param participant
+     * @param publisherId
+     */
+    synchronized void excludeChanged(ConferenceParticipant participant, String publisherId) {
+        int number = numberOf(publisherId);
+        if (number >= 0) {
+            if (participant.getExcludedIds().contains(publisherId)) {
+                participant.excludeSet.add(number);
+            } else {
+                participant.excludeSet.remove(number);
+            }
+        }
+    }
+
+    private int assign(String publisherId) {
+        Entry entry = entries.get(publisherId);
+        if (entry == null) {
+            int number = used.nextClearBit(0);
+            used.set(number);
+            entries.put(publisherId, entry = new Entry(number));
+            for (ConferenceParticipant member : members) {
+                if (member.getExcludedIds().contains(publisherId)) {
+                    member.excludeSet.add(number);
+                }
+            }
+        }
+        entry.refs++;
+        return entry.number;
+    }
+
+    private void release(String publisherId) {
+        Entry entry = entries.get(publisherId);
+        if (entry != null && --entry.refs == 0) {
+            entries.remove(publisherId);
+            used.clear(entry.number);
+            // the number may go to another publisher next
+            for (ConferenceParticipant member : members) {
+                member.excludeSet.remove(entry.number);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final int number;
+
+        // members publishing under the id
+        int refs;
+
+        Entry(int number) {
+            this.number = number;
+        }
+
+    }
+
+}
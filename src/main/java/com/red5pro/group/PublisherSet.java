@@ -0,0 +1,77 @@
+package com.red5pro.group;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set of publisher numbers held as a bitset, for routing decisions made on every media event. Testing a number is a
+ * single lock-free bit test; numbers are set and cleared in place, growing the set only when a number beyond its
+ * current size is added.
+ *
+ * @author Paul Gregoire
+ */
+public class PublisherSet {
+
+    // words of the set, replaced only to grow
+    private volatile AtomicLongArray words = new AtomicLongArray(1);
+
+    /**
+     * Returns whether the number is in the set.
+     *
+     * @param number
+     *            publisher number
+     * @return true if present and false otherwise
+     */
+    public boolean contains(int number) {
+        AtomicLongArray words = this.words;
+        int index = number >>> 6;
+        return number >= 0 && index < words.length() && (words.get(index) & (1L << number)) != 0;
+    }
+
+    /**
+     * Adds a number to the set.
+     *
+     * @param number
+     *            publisher number
+     */
+    public synchronized void add(int number) {
+        int index = number >>> 6;
+        AtomicLongArray words = this.words;
+        if (index >= words.length()) {
+            AtomicLongArray grown = new AtomicLongArray(Math.max(index + 1, words.length() * 2));
+            for (int i = 0; i < words.length(); i++) {
+                grown.set(i, words.get(i));
+            }
+            this.words = words = grown;
+        }
+        words.set(index, words.get(index) | (1L << number));
+    }
+
+    /**
+     * Removes a number from the set.
+     *
+     * @param number
+     *            publisher number
+     */
+    public synchronized void remove(int number) {
+        int index = number >>> 6;
+        AtomicLongArray words = this.words;
+        if (index < words.length()) {
+            words.set(index, words.get(index) & ~(1L << number));
+        }
+    }
+
+    /**
+     * Returns the number of publishers in the set.
+     *
+     * @return count
+     */
+    public int size() {
+        AtomicLongArray words = this.words;
+        int size = 0;
+        for (int i = 0; i < words.length(); i++) {
+            size += Long.bitCount(words.get(i));
+        }
+        return size;
+    }
+
+}
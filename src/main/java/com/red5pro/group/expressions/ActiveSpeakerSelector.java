@@ -0,0 +1,319 @@
+package com.red5pro.group.expressions;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.media.Buffer;
+
+/**
+ * Picks the loudest few publishers of a group, so that only they are mixed or forwarded. Audio levels come either from
+ * decoded PCM or from RFC 6464 client-to-mixer audio level header extensions, and are smoothed per publisher as a
+ * loudness from 0 (silent, -127 dBov) to 127 (0 dBov). A periodic selection assigns the loudest publishers to a fixed
+ * number of slots, one per track. A selected publisher keeps its slot for as long as it's selected, and only loses it
+ * to a publisher louder by the switch margin, so that the routing doesn't flap between speakers of similar loudness.
+ * Publishers quieter than the active level aren't selected at all.
+ *
+ * @author Paul Gregoire
+ */
+public class ActiveSpeakerSelector {
+
+    // milliseconds between selections
+    public static final long DEFAULT_INTERVAL_MILLIS = Long.getLong("group.speaker.intervalMillis", 200L);
+
+    // weight of each level update in the smoothed loudness
+    public static final double DEFAULT_SMOOTHING = Double.parseDouble(System.getProperty("group.speaker.smoothing", "0.2"));
+
+    // loudness by which a publisher must beat a selected one to take its slot
+    public static final int DEFAULT_SWITCH_MARGIN = Integer.getInteger("group.speaker.switchMargin", 6);
+
+    // quietest level in -dBov at which a publisher counts as speaking
+    public static final int DEFAULT_ACTIVE_LEVEL = Integer.getInteger("group.speaker.activeLevel", 60);
+
+    // RFC 6464 level of silence, in -dBov
+    public static final int SILENCE = 127;
+
+    // selected publishers by slot, guarded by this
+    private final Speaker[] slots;
+
+    private final long intervalNanos;
+
+    private final double smoothing;
+
+    private final int switchMargin;
+
+    private final double activeLoudness;
+
+    // extension id negotiated for the audio level header extension
+    private volatile int audioLevelId = 1;
+
+    private final ConcurrentHashMap<String, Speaker> speakers = new ConcurrentHashMap<>();
+
+    private final AtomicLong nextSelection = new AtomicLong(System.nanoTime());
+
+    /**
+     * Creates a selector.
+     *
+     * @param slotCount
+     *            number of publishers selected at once
+     * @param intervalMillis
+     *            milliseconds between selections
+     * @param smoothing
+     *            weight of each level update in the smoothed loudness, from 0 to 1
+     * @param switchMargin
+     *            loudness by which a publisher must beat a selected one to take its slot
+     * @param activeLevel
+     *            quietest level in -dBov at which a publisher counts as speaking
+     */
+    public ActiveSpeakerSelector(int slotCount, long intervalMillis, double smoothing, int switchMargin, int activeLevel) {
+        if (slotCount < 1 || smoothing <= 0d || smoothing > 1d) {
+            throw new IllegalArgumentException("Invalid selector settings: " + slotCount + " slots, smoothing " + smoothing);
+        }
+        this.slots = new Speaker[slotCount];
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, intervalMillis));
+        this.smoothing = smoothing;
+        this.switchMargin = switchMargin;
+        this.activeLoudness = SILENCE - activeLevel;
+    }
+
+    public ActiveSpeakerSelector(int slotCount) {
+        this(slotCount, DEFAULT_INTERVAL_MILLIS, DEFAULT_SMOOTHING, DEFAULT_SWITCH_MARGIN, DEFAULT_ACTIVE_LEVEL);
+    }
+
+    /**
+     * Records an audio level for a publisher.
+     *
+     * @param id
+     *            publisher's participant id
+     * @param level
+     *            level in -dBov, from 0 (loudest) to 127 (silent)
+     */
+    public void updateLevel(String id, int level) {
+        Speaker speaker = speakers.computeIfAbsent(id, Speaker::new);
+        double loudness = SILENCE - Math.max(0, Math.min(SILENCE, level));
+        speaker.loudness += smoothing * (loudness - speaker.loudness);
+        speaker.updated = true;
+    }
+
+    /**
+     * Records the audio level of decoded PCM for a publisher.
+     *
+     * @param id
+     *            publisher's participant id
+     * @param pcm
+     *            16 bit samples
+     * @param offset
+     * @param length
+     */
+    public void updatePcm(String id, short[] pcm, int offset, int length) {
+        updateLevel(id, levelOf(pcm, offset, length));
+    }
+
+    /**
+     * Records the audio level carried by an RFC 6464 header extension for a publisher. Extensions with another id are
+     * ignored. The voice activity bit is ignored as well, since it's only meaningful when negotiated.
+     *
+     * @param id
+     *            publisher's participant id
+     * @param extension
+     *            header extension of a packet from the publisher
+     * @return true if the extension carried an audio level and false otherwise
+     */
+    public boolean updateExtension(String id, Buffer.RTPHeaderExtension extension) {
+        if (extension != null && extension.id == audioLevelId && extension.value.length > 0) {
+            updateLevel(id, extension.value[0] & 0x7f);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forgets a publisher, freeing its slot at the next selection.
+     *
+     * @param id
+     *            publisher's participant id
+     */
+    public void remove(String id) {
+        speakers.remove(id);
+    }
+
+    /**
+     * Runs a selection if the interval has passed since the last one. Only one of any threads calling at once runs it.
+     *
+     * @return true if a selection was run and false otherwise
+     */
+    public boolean selectIfDue() {
+        long now = System.nanoTime();
+        long due = nextSelection.get();
+        if (now - due >= 0 && nextSelection.compareAndSet(due, now + intervalNanos)) {
+            select();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Ranks the publishers by smoothed loudness and assigns the slots.
+     *
+     * @return publisher ids by slot, null for an empty slot
+     */
+    public synchronized String[] select() {
+        Speaker[] ranked = speakers.values().toArray(new Speaker[0]);
+        for (Speaker speaker : ranked) {
+            // publishers gone quiet, or no longer sending, fade out
+            if (!speaker.updated) {
+                speaker.loudness -= smoothing * speaker.loudness;
+            }
+            speaker.updated = false;
+            speaker.rank = speaker.loudness;
+        }
+        Arrays.sort(ranked, (a, b) -> Double.compare(b.rank, a.rank));
+        // drop those who left or fell silent
+        for (int i = 0; i < slots.length; i++) {
+            Speaker speaker = slots[i];
+            if (speaker != null && (speakers.get(speaker.id) != speaker || speaker.rank < activeLoudness)) {
+                release(i);
+            }
+        }
+        for (Speaker candidate : ranked) {
+            if (candidate.rank < activeLoudness) {
+                break;
+            }
+            if (candidate.slot >= 0) {
+                continue;
+            }
+            int index = freeSlot();
+            if (index < 0) {
+                // take the slot of the quietest selected, if clearly louder
+                index = quietestSlot();
+                if (candidate.rank < slots[index].rank + switchMargin) {
+                    break;
+                }
+                release(index);
+            }
+            slots[index] = candidate;
+            candidate.slot = index;
+        }
+        String[] ids = new String[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            ids[i] = slots[i] != null ? slots[i].id : null;
+        }
+        return ids;
+    }
+
+    private int freeSlot() {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int quietestSlot() {
+        int quietest = 0;
+        for (int i = 1; i < slots.length; i++) {
+            if (slots[i].rank < slots[quietest].rank) {
+                quietest = i;
+            }
+        }
+        return quietest;
+    }
+
+    private void release(int index) {
+        slots[index].slot = -1;
+        slots[index] = null;
+    }
+
+    /**
+     * Returns the slot of a publisher, which is the index of the track it's routed to.
+     *
+     * @param id
+     *            publisher's participant id
+     * @return slot or -1 if not selected
+     */
+    public int getSlot(String id) {
+        Speaker speaker = speakers.get(id);
+        return speaker != null ? speaker.slot : -1;
+    }
+
+    public boolean isSelected(String id) {
+        return getSlot(id) >= 0;
+    }
+
+    /**
+     * Returns the smoothed loudness of a publisher.
+     *
+     * @param id
+     *            publisher's participant id
+     * @return loudness from 0 (silent) to 127 (0 dBov)
+     */
+    public double getLoudness(String id) {
+        Speaker speaker = speakers.get(id);
+        return speaker != null ? speaker.loudness : 0d;
+    }
+
+    public int getSlotCount() {
+        return slots.length;
+    }
+
+    public int getAudioLevelId() {
+        return audioLevelId;
+    }
+
+    /**
+     * Sets the header extension id negotiated for ssrc-audio-level.
+     *
+     * @param audioLevelId
+     */
+    public void setAudioLevelId(int audioLevelId) {
+        this.audioLevelId = audioLevelId;
+    }
+
+    /**
+     * Returns the level of 16 bit PCM in -dBov, as RFC 6464 defines it, from 0 for a full scale square wave to 127 for
+     * silence.
+     *
+     * @param pcm
+     * @param offset
+     * @param length
+     * @return level in -dBov
+     */
+    public static int levelOf(short[] pcm, int offset, int length) {
+        if (length <= 0) {
+            return SILENCE;
+        }
+        long squares = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            squares += pcm[i] * pcm[i];
+        }
+        double rms = Math.sqrt((double) squares / length) / 32768d;
+        if (rms <= 0d) {
+            return SILENCE;
+        }
+        return (int) Math.max(0, Math.min(SILENCE, Math.round(-20d * Math.log10(rms))));
+    }
+
+    private static final class Speaker {
+
+        final String id;
+
+        // smoothed loudness, written by the publisher's thread and faded by selections
+        volatile double loudness;
+
+        // whether a level arrived since the last selection
+        volatile boolean updated;
+
+        // loudness as of the last selection, so the ranking holds still while sorting
+        double rank;
+
+        volatile int slot = -1;
+
+        Speaker(String id) {
+            this.id = id;
+        }
+
+    }
+
+}
@@ -0,0 +1,408 @@
+package com.red5pro.group.expressions;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.group.IParticipant;
+import com.red5pro.group.LatencyHistogram;
+import com.red5pro.media.FourCC;
+import com.red5pro.media.IMediaSample;
+import com.red5pro.media.MediaSample;
+import com.red5pro.media.MediaType;
+
+/**
+ * Mixes the decoded PCM audio of a group's participants on a fixed frame clock. Each participant's samples go into a
+ * jitter buffer of its own, which starts feeding the mix once it holds the prefill and stops again on running dry, so
+ * samples arriving unevenly still line up on the frame boundaries. Every tick sums one frame from each fed participant,
+ * then hands each subscriber the sum without its own contribution (N-1) and the mix consumer the whole sum, clipped to
+ * 16 bits. The mixing loops are plain counted loops over arrays, which the JIT vectorizes, and nothing is allocated per
+ * tick: the frames, sums and output samples are all reused, so the output samples must be consumed, or copied, before
+ * returning. Given an active speaker selector, the mixer feeds it the level of every participant's frame and only sums
+ * the frames of the selected speakers, so the mix stays bounded by the selector's slots however large the group.
+ *
+ * @author Paul Gregoire
+ */
+public class AudioMixer {
+
+    private static Logger log = LoggerFactory.getLogger(AudioMixer.class);
+
+    public static final int DEFAULT_SAMPLE_RATE = Integer.getInteger("group.mixer.sampleRate", 48000);
+
+    public static final int DEFAULT_CHANNELS = Integer.getInteger("group.mixer.channels", 1);
+
+    // duration of a mixed frame, 10 or 20 milliseconds
+    public static final int DEFAULT_FRAME_MILLIS = Integer.getInteger("group.mixer.frameMillis", 20);
+
+    // frames a participant's jitter buffer fills to before it feeds the mix
+    public static final int DEFAULT_PREFILL_FRAMES = Integer.getInteger("group.mixer.prefillFrames", 2);
+
+    private static final Channel[] NO_CHANNELS = new Channel[0];
+
+    private final int frameMillis;
+
+    // samples per frame, across all channels
+    private final int frameSize;
+
+    private final int prefillFrames;
+
+    // receives the whole mix each tick
+    private final Consumer<IMediaSample> mixConsumer;
+
+    private final ConcurrentHashMap<String, Channel> channels = new ConcurrentHashMap<>();
+
+    private volatile Channel[] snapshot = NO_CHANNELS;
+
+    // mixer thread state
+    private final int[] sum;
+
+    private final short[] mix;
+
+    private final MediaSample mixSample;
+
+    private long tick;
+
+    // limits the mix to the active speakers when set
+    private volatile ActiveSpeakerSelector selector;
+
+    private volatile ScheduledExecutorService executor;
+
+    private final LongAdder ticks = new LongAdder();
+
+    // frames missing from a fed jitter buffer, which then refills to the prefill
+    private final LongAdder underruns = new LongAdder();
+
+    // samples discarded from full jitter buffers
+    private final LongAdder overruns = new LongAdder();
+
+    private final LatencyHistogram mixTime = new LatencyHistogram();
+
+    /**
+     * Creates a mixer.
+     *
+     * @param sampleRate
+     *            samples per second of the decoded audio
+     * @param channelCount
+     *            interleaved channels of the decoded audio
+     * @param frameMillis
+     *            milliseconds mixed per tick, holding a whole number of samples
+     * @param prefillFrames
+     *            frames a jitter buffer holds before feeding the mix
+     * @param mixConsumer
+     *            receives the whole mix each tick, may be null
+     */
+    public AudioMixer(int sampleRate, int channelCount, int frameMillis, int prefillFrames, Consumer<IMediaSample> mixConsumer) {
+        if (sampleRate < 1000 || channelCount < 1 || frameMillis < 1 || prefillFrames < 1) {
+            throw new IllegalArgumentException("Invalid mixer format: " + sampleRate + "Hz " + channelCount + "ch " + frameMillis + "ms prefill " + prefillFrames);
+        }
+        // a frame must hold a whole number of samples, or the clock drifts from the input
+        if ((long) sampleRate * frameMillis % 1000 != 0) {
+            throw new IllegalArgumentException("Frames of " + frameMillis + "ms don't hold whole samples at " + sampleRate + "Hz");
+        }
+        this.frameMillis = frameMillis;
+        this.frameSize = (int) ((long) sampleRate * frameMillis / 1000) * channelCount;
+        this.prefillFrames = prefillFrames;
+        this.mixConsumer = mixConsumer;
+        this.sum = new int[frameSize];
+        this.mix = new short[frameSize];
+        this.mixSample = newSample(mix);
+    }
+
+    public AudioMixer(Consumer<IMediaSample> mixConsumer) {
+        this(DEFAULT_SAMPLE_RATE, DEFAULT_CHANNELS, DEFAULT_FRAME_MILLIS, DEFAULT_PREFILL_FRAMES, mixConsumer);
+    }
+
+    /**
+     * Adds a participant to the mix. Its audio is mixed once offered, and it's handed its N-1 mix each tick while it's a
+     * subscriber.
+     *
+     * @param participant
+     */
+    public void add(IParticipant participant) {
+        synchronized (channels) {
+            if (channels.putIfAbsent(participant.getId(), new Channel(participant)) == null) {
+                snapshot = channels.values().toArray(NO_CHANNELS);
+            }
+        }
+    }
+
+    /**
+     * Removes a participant from the mix.
+     *
+     * @param id
+     *            participant id
+     */
+    public void remove(String id) {
+        synchronized (channels) {
+            if (channels.remove(id) != null) {
+                snapshot = channels.values().toArray(NO_CHANNELS);
+            }
+        }
+        ActiveSpeakerSelector selector = this.selector;
+        if (selector != null) {
+            selector.remove(id);
+        }
+    }
+
+    /**
+     * Queues decoded PCM from a participant for mixing. Samples from participants not in the mix are ignored.
+     *
+     * @param id
+     *            participant id
+     * @param sample
+     *            16 bit little-endian PCM in the mixer's format
+     */
+    public void offer(String id, IMediaSample sample) {
+        Channel channel = channels.get(id);
+        if (channel != null) {
+            channel.write(sample);
+        }
+    }
+
+    /**
+     * Mixes one frame; called by the mixer clock on each tick.
+     */
+    public void mix() {
+        long start = System.nanoTime();
+        Channel[] channels = snapshot;
+        int[] sum = this.sum;
+        int frameSize = this.frameSize;
+        ActiveSpeakerSelector selector = this.selector;
+        if (selector != null) {
+            selector.selectIfDue();
+        }
+        Arrays.fill(sum, 0);
+        for (Channel channel : channels) {
+            channel.fed = channel.read();
+            if (channel.fed && selector != null) {
+                String id = channel.participant.getId();
+                selector.updatePcm(id, channel.frame, 0, frameSize);
+                channel.fed = selector.isSelected(id);
+            }
+            if (channel.fed) {
+                short[] frame = channel.frame;
+                for (int i = 0; i < frameSize; i++) {
+                    sum[i] += frame[i];
+                }
+            }
+        }
+        long timestamp = tick++ * frameMillis;
+        if (mixConsumer != null) {
+            short[] mix = this.mix;
+            for (int i = 0; i < frameSize; i++) {
+                mix[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum[i]));
+            }
+            prepare(mixSample, mix, timestamp);
+            try {
+                mixConsumer.accept(mixSample);
+            } catch (Throwable t) {
+                log.warn("Exception consuming mixed audio", t);
+            }
+        }
+        for (Channel channel : channels) {
+            IParticipant participant = channel.participant;
+            if (participant.isSubscriber()) {
+                short[] out = channel.out;
+                if (channel.fed) {
+                    short[] frame = channel.frame;
+                    for (int i = 0; i < frameSize; i++) {
+                        out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum[i] - frame[i]));
+                    }
+                } else {
+                    for (int i = 0; i < frameSize; i++) {
+                        out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum[i]));
+                    }
+                }
+                prepare(channel.sample, out, timestamp);
+                try {
+                    participant.consumeMediaSample(channel.sample);
+                } catch (Throwable t) {
+                    log.warn("Exception consuming mixed audio in participant {}", participant.getId(), t);
+                }
+            }
+        }
+        ticks.increment();
+        mixTime.record(System.nanoTime() - start);
+    }
+
+    private static void prepare(MediaSample sample, short[] pcm, long timestamp) {
+        // resetting the buffer drops any conversion cached from the last frame
+        sample.setBuffer(pcm);
+        sample.setTimestamp(timestamp);
+    }
+
+    /**
+     * Starts the mixer clock.
+     */
+    public synchronized void start() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "AudioMixer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleAtFixedRate(this::tickSafely, frameMillis, frameMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the mixer clock.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void tickSafely() {
+        try {
+            mix();
+        } catch (Throwable t) {
+            log.warn("Exception mixing audio", t);
+        }
+    }
+
+    public ActiveSpeakerSelector getSpeakerSelector() {
+        return selector;
+    }
+
+    /**
+     * Sets the selector limiting the mix to the active speakers, or null to mix everyone.
+     *
+     * @param selector
+     */
+    public void setSpeakerSelector(ActiveSpeakerSelector selector) {
+        this.selector = selector;
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public int getFrameMillis() {
+        return frameMillis;
+    }
+
+    public int getParticipantCount() {
+        return snapshot.length;
+    }
+
+    public long getTickCount() {
+        return ticks.sum();
+    }
+
+    public long getUnderrunCount() {
+        return underruns.sum();
+    }
+
+    public long getOverrunCount() {
+        return overruns.sum();
+    }
+
+    /**
+     * Returns the histogram of time spent mixing each tick, which must stay well under the frame duration.
+     *
+     * @return mix time histogram
+     */
+    public LatencyHistogram getMixTimeHistogram() {
+        return mixTime;
+    }
+
+    private static MediaSample newSample(short[] pcm) {
+        MediaSample sample = MediaSample.build(0L, (byte[]) null, MediaType.AUDIO);
+        sample.setBuffer(pcm);
+        sample.setFourCC(FourCC.PCM);
+        sample.setDecoded(true);
+        return sample;
+    }
+
+    /**
+     * A participant's jitter buffer and mixing state.
+     */
+    private final class Channel {
+
+        private final IParticipant participant;
+
+        // jitter buffer holding a few frames more than the prefill, guarded by this
+        private final short[] ring = new short[frameSize * (prefillFrames + 3)];
+
+        private int head, count;
+
+        // whether the jitter buffer is feeding the mix, guarded by this
+        private boolean primed;
+
+        // samples being offered, grown to the largest offered, guarded by this
+        private short[] staging = new short[frameSize];
+
+        // mixer thread state
+        private final short[] frame = new short[frameSize];
+
+        private final short[] out = new short[frameSize];
+
+        private final MediaSample sample = newSample(out);
+
+        // whether the frame read this tick is in the mix
+        private boolean fed;
+
+        Channel(IParticipant participant) {
+            this.participant = participant;
+        }
+
+        synchronized void write(IMediaSample pcm) {
+            int length = pcm.getBufferSize() / 2;
+            if (length > staging.length) {
+                staging = new short[length];
+            }
+            length = pcm.bufferAsShorts(staging, 0);
+            int from = 0;
+            if (length > ring.length) {
+                // only the newest samples fit
+                from = length - ring.length;
+                overruns.add(from);
+                length = ring.length;
+            }
+            int excess = count + length - ring.length;
+            if (excess > 0) {
+                // the participant is running ahead of the clock, drop its oldest samples
+                head = (head + excess) % ring.length;
+                count -= excess;
+                overruns.add(excess);
+            }
+            int tail = (head + count) % ring.length;
+            int first = Math.min(length, ring.length - tail);
+            System.arraycopy(staging, from, ring, tail, first);
+            System.arraycopy(staging, from + first, ring, 0, length - first);
+            count += length;
+        }
+
+        synchronized boolean read() {
+            if (!primed) {
+                if (count < frameSize * prefillFrames) {
+                    return false;
+                }
+                primed = true;
+            }
+            if (count < frameSize) {
+                primed = false;
+                underruns.increment();
+                return false;
+            }
+            int first = Math.min(frameSize, ring.length - head);
+            System.arraycopy(ring, head, frame, 0, first);
+            System.arraycopy(ring, 0, frame, first, frameSize - first);
+            head = (head + frameSize) % ring.length;
+            count -= frameSize;
+            return true;
+        }
+
+    }
+
+}
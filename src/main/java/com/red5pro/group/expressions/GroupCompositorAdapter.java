@@ -5,6 +5,8 @@ import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.media.Buffer;
+
 import org.slf4j.Logger;
 
 import com.red5pro.cluster.streams.Provision;
@@ -13,6 +15,8 @@ import com.red5pro.group.ICompositorRegistry;
 import com.red5pro.group.IGroupCore;
 import com.red5pro.group.IParticipant;
 import com.red5pro.media.FourCC;
+import com.red5pro.media.IMediaSample;
+import com.red5pro.media.MediaSample;
 import com.red5pro.media.MediaTrack;
 import com.red5pro.media.MediaType;
 import com.red5pro.override.IProStream;
@@ -67,6 +71,17 @@ public class GroupCompositorAdapter implements ExpressionCompositor {
      */
     protected MediaTrack[] tracks = new MediaTrack[trackCount];
 
+    /**
+     * Mixes participant audio onto the first audio track, when enabled by the provision.
+     */
+    protected AudioMixer mixer;
+
+    /**
+     * Ranks publishers by audio level, when enabled by the provision. With the mixer, only the selected speakers are
+     * mixed; without it, each selected speaker's audio is forwarded to the audio track of its slot.
+     */
+    protected ActiveSpeakerSelector speakers;
+
     /**
      * Stream named after Provision stream name is live.
      */
@@ -120,6 +135,16 @@ public class GroupCompositorAdapter implements ExpressionCompositor {
         for (int i = 0; i < videoTrackCount; i++) {
             tracks[i + audioTrackCount] = new MediaTrack(MediaType.VIDEO, FourCC.H264, String.format("video%d", i));
         }
+        if (audioTrackCount > 0 && Boolean.parseBoolean(String.valueOf(params.get(IGroupCore.PARAMS_ACTIVE_SPEAKERS)))) {
+            speakers = new ActiveSpeakerSelector(audioTrackCount);
+        }
+        if (audioTrackCount > 0 && Boolean.parseBoolean(String.valueOf(params.get(IGroupCore.PARAMS_AUDIO_MIXER)))) {
+            MediaTrack mixTrack = tracks[0];
+            mixer = new AudioMixer(sample -> publishMix(mixTrack, sample));
+            mixer.setSpeakerSelector(speakers);
+            participants.values().forEach(mixer::add);
+            mixer.start();
+        }
         log.info("Setting group parameters type: {} Tracks A: {} V: {}", groupType, audioTrackCount, videoTrackCount);
     }
 
@@ -133,6 +158,53 @@ public class GroupCompositorAdapter implements ExpressionCompositor {
         if (isTrace) {
             log.trace("Event pushed in from id: {} fourCC: {}", event.getSource(), event.getFourCC());
         }
+        // decoded participant audio goes to the mixer
+        if (mixer != null && event.getFourCC() == FourCC.PCM && event.getObject() instanceof IMediaSample && event.getSource() instanceof IParticipant) {
+            mixer.offer(((IParticipant) event.getSource()).getId(), (IMediaSample) event.getObject());
+        } else if (mixer == null && speakers != null && FourCC.isAudio(event.getFourCC()) && event.getSource() instanceof IParticipant) {
+            forwardSpeaker(((IParticipant) event.getSource()).getId(), event);
+        }
+    }
+
+    /**
+     * Forwards a publisher's encoded audio to the audio track of its slot, if it's among the active speakers. Levels
+     * are read from the RFC 6464 header extension of the audio, so publishers not sending it are never selected.
+     *
+     * @param id
+     *            participant id
+     * @param event
+     */
+    protected void forwardSpeaker(String id, GroupEvent event) {
+        Object object = event.getObject();
+        if (object instanceof IMediaSample) {
+            object = ((IMediaSample) object).getBuffer();
+        }
+        if (object instanceof Buffer) {
+            speakers.updateExtension(id, ((Buffer) object).getHeaderExtension());
+        }
+        speakers.selectIfDue();
+        int slot = speakers.getSlot(id);
+        if (slot >= 0 && slot < audioTrackCount) {
+            MediaTrack track = tracks[slot];
+            track.push(event);
+            track.dispatch(event);
+        }
+    }
+
+    /**
+     * Publishes a copy of the mix onto a track, since the mixer reuses its sample each tick. The mix is PCM, to be
+     * encoded by the track's consumers.
+     *
+     * @param track
+     * @param mix
+     */
+    protected void publishMix(MediaTrack track, IMediaSample mix) {
+        MediaSample sample = MediaSample.build(mix.getTimestamp(), mix.bufferAsBytes(), MediaType.AUDIO);
+        sample.setFourCC(FourCC.PCM);
+        sample.setDecoded(true);
+        GroupEvent event = GroupEvent.build(sample, FourCC.PCM, mix.getTimestamp(), track.getId());
+        track.push(event);
+        track.dispatch(event);
     }
 
     @Override
@@ -179,11 +251,20 @@ public class GroupCompositorAdapter implements ExpressionCompositor {
     @Override
     public boolean addParticipant(IParticipant participant) {
         participants.put(participant.getId(), participant);
+        if (mixer != null) {
+            mixer.add(participant);
+        }
         return true;
     }
 
     @Override
     public boolean removeParticipant(String id) {
+        if (mixer != null) {
+            mixer.remove(id);
+        }
+        if (speakers != null) {
+            speakers.remove(id);
+        }
         return participants.remove(id) != null;
     }
 
@@ -220,6 +301,9 @@ public class GroupCompositorAdapter implements ExpressionCompositor {
     @Override
     public void stop() {
         if (!hasReferenceCount()) {
+            if (mixer != null) {
+                mixer.stop();
+            }
             for (ICompositorRegistry regist : IGroupCore.registry) {
                 regist.release(provisionRef.get().getGuid());
             }
@@ -0,0 +1,261 @@
+package com.red5pro.media;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+import javax.media.Buffer;
+
+/**
+ * MediaSample whose bytes are held in a ByteBuffer, heap or direct. The typed accessors of IByteBufferMediaSample never
+ * copy, while the MediaSample accessors keep returning arrays for callers which expect them; those share the backing
+ * array of a heap buffer when it holds exactly the sample, and copy otherwise.
+ *
+ * @author Paul Gregoire
+ */
+public class ByteBufferMediaSample extends MediaSample implements IByteBufferMediaSample {
+
+    // sample bytes from position zero to the limit, null once replaced with a buffer of another type
+    private ByteBuffer data;
+
+    private ByteBufferMediaSample(long timestamp, ByteBuffer data, MediaType type) {
+        this.type = type;
+        this.data = data;
+        setTimestamp(timestamp);
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+        return data != null ? data.duplicate() : asByteBuffer(this);
+    }
+
+    @Override
+    public ShortBuffer getShortBuffer() {
+        return getByteBuffer().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
+
+    @Override
+    public boolean isDirect() {
+        return data != null && data.isDirect();
+    }
+
+    /**
+     * Returns the sample bytes, exactly sized; use getByteBuffer() to avoid a copy.
+     */
+    @Override
+    public Object getBuffer() {
+        return data != null ? bufferAsBytes() : super.getBuffer();
+    }
+
+    /**
+     * Replaces the sample bytes; a ByteBuffer is held from its position to its limit without being copied.
+     */
+    @Override
+    public void setBuffer(Object buffer) {
+        if (buffer instanceof ByteBuffer) {
+            data = ((ByteBuffer) buffer).slice();
+            super.setBuffer(null);
+        } else {
+            data = null;
+            super.setBuffer(buffer);
+        }
+    }
+
+    @Override
+    public boolean hasBuffer() {
+        return data != null ? data.hasRemaining() : super.hasBuffer();
+    }
+
+    @Override
+    public int getBufferSize() {
+        return data != null ? data.remaining() : super.getBufferSize();
+    }
+
+    @Override
+    public byte[] bufferAsBytes() {
+        if (data != null) {
+            if (data.hasArray() && data.arrayOffset() == 0 && data.array().length == data.remaining()) {
+                return data.array();
+            }
+            byte[] array = new byte[data.remaining()];
+            data.duplicate().get(array);
+            return array;
+        }
+        return super.bufferAsBytes();
+    }
+
+    @Override
+    public int bufferAsBytes(byte[] dst, int offset) {
+        if (data != null) {
+            int length = data.remaining();
+            data.duplicate().get(dst, offset, length);
+            return length;
+        }
+        return super.bufferAsBytes(dst, offset);
+    }
+
+    @Override
+    public short[] bufferAsShorts() {
+        if (data != null) {
+            ShortBuffer shorts = getShortBuffer();
+            short[] array = new short[shorts.remaining()];
+            shorts.get(array);
+            return array;
+        }
+        return super.bufferAsShorts();
+    }
+
+    @Override
+    public int bufferAsShorts(short[] dst, int offset) {
+        if (data != null) {
+            ShortBuffer shorts = getShortBuffer();
+            int count = shorts.remaining();
+            shorts.get(dst, offset, count);
+            return count;
+        }
+        return super.bufferAsShorts(dst, offset);
+    }
+
+    /**
+     * Returns an FMJ/JMF Buffer sharing the backing array of a heap buffer, or holding a copy of a direct one.
+     */
+    @Override
+    public Buffer toBuffer() {
+        Buffer buf = super.toBuffer();
+        if (data != null) {
+            setData(buf, 0);
+        }
+        return buf;
+    }
+
+    @Override
+    public Buffer toBufferView(boolean stripRtmp) {
+        if (data != null) {
+            Buffer buf = initStrippableBuffer(new Buffer());
+            // strip the prefix byte, or the prefix and avc type for video
+            setData(buf, stripRtmp ? Math.min(isAudio() ? 1 : 2, data.remaining()) : 0);
+            return buf;
+        }
+        return super.toBufferView(stripRtmp);
+    }
+
+    /**
+     * Returns a copy of this sample, held in the same kind of buffer.
+     */
+    @Override
+    public MediaSample deepCopy() {
+        if (data == null) {
+            return super.deepCopy();
+        }
+        ByteBuffer copy = data.isDirect() ? ByteBuffer.allocateDirect(data.remaining()) : ByteBuffer.allocate(data.remaining());
+        copy.put(data.duplicate()).flip();
+        ByteBufferMediaSample ms = new ByteBufferMediaSample(getTimestamp(), copy, type);
+        ms.privateData = privateData;
+        ms.setSourceName(getSourceName());
+        ms.setSequenceNumber(getSequenceNumber());
+        ms.setDecoded(isDecoded());
+        ms.setEncoding(getEncoding());
+        ms.setFlags(getFlags());
+        ms.setFourCC(getFourCC());
+        return ms;
+    }
+
+    @Override
+    public String toString() {
+        return "ByteBufferMediaSample [type=" + (isAudio() ? "audio" : "video") + ", sourceName=" + getSourceName() + ", encoding=" + getEncoding() + ", privateData=" + privateData + ", startTime=" + getTimestamp() + ", sequenceNumber=" + getSequenceNumber() + ", data=" + data + "]";
+    }
+
+    private void setData(Buffer buf, int skip) {
+        if (data.hasArray()) {
+            buf.setData(data.array());
+            buf.setOffset(data.arrayOffset() + skip);
+        } else {
+            byte[] array = new byte[data.remaining()];
+            data.duplicate().get(array);
+            buf.setData(array);
+            buf.setOffset(skip);
+        }
+        buf.setLength(data.remaining() - skip);
+    }
+
+    /**
+     * Builds a sample holding the given buffer from its position to its limit, without copying it.
+     *
+     * @param timestamp
+     * @param buffer
+     * @param type
+     * @return sample
+     */
+    public static ByteBufferMediaSample build(long timestamp, ByteBuffer buffer, MediaType type) {
+        return new ByteBufferMediaSample(timestamp, buffer.slice(), type);
+    }
+
+    /**
+     * Builds a sample holding a new direct buffer of the given length, to be filled in through getByteBuffer().
+     *
+     * @param timestamp
+     * @param length
+     * @param type
+     * @return sample
+     */
+    public static ByteBufferMediaSample allocateDirect(long timestamp, int length, MediaType type) {
+        return new ByteBufferMediaSample(timestamp, ByteBuffer.allocateDirect(length), type);
+    }
+
+    /**
+     * Builds a sample holding the bytes of another, along with its timing, flags and identity. The bytes are shared
+     * whenever the other sample holds them as bytes, so a pooled sample must be retained for as long as the new one is
+     * in use; a ByteBufferMediaSample is returned as is.
+     *
+     * @param sample
+     * @return sample
+     */
+    public static ByteBufferMediaSample from(MediaSample sample) {
+        if (sample instanceof ByteBufferMediaSample) {
+            return (ByteBufferMediaSample) sample;
+        }
+        ByteBufferMediaSample ms = new ByteBufferMediaSample(sample.getTimestamp(), asByteBuffer(sample), sample.getType());
+        ms.privateData = sample.isCritical();
+        ms.setSourceName(sample.getSourceName());
+        ms.setSequenceNumber(sample.getSequenceNumber());
+        ms.setDecoded(sample.isDecoded());
+        ms.setEncoding(sample.getEncoding());
+        ms.setFlags(sample.getFlags());
+        ms.setFourCC(sample.getFourCC());
+        return ms;
+    }
+
+    /**
+     * Returns the bytes of a sample as a ByteBuffer from position zero to the sample length. Byte arrays, Buffers over
+     * byte arrays, pooled arrays and ByteBuffers are shared without copying; only short[] PCM is converted.
+     *
+     * @param sample
+     * @return sample bytes
+     */
+    public static ByteBuffer asByteBuffer(IMediaSample sample) {
+        if (sample instanceof ByteBufferMediaSample) {
+            ByteBuffer data = ((ByteBufferMediaSample) sample).data;
+            if (data != null) {
+                return data.duplicate();
+            }
+        } else if (sample instanceof IByteBufferMediaSample) {
+            return ((IByteBufferMediaSample) sample).getByteBuffer();
+        } else if (sample instanceof IPooledMediaSample) {
+            IPooledMediaSample pooled = (IPooledMediaSample) sample;
+            return ByteBuffer.wrap(pooled.getData(), 0, pooled.getLength()).slice();
+        }
+        Object buffer = sample.getBuffer();
+        if (buffer instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) buffer);
+        } else if (buffer instanceof Buffer && ((Buffer) buffer).getData() instanceof byte[]) {
+            Buffer buf = (Buffer) buffer;
+            return ByteBuffer.wrap((byte[]) buf.getData(), buf.getOffset(), buf.getLength()).slice();
+        } else if (buffer instanceof ByteBuffer) {
+            return ((ByteBuffer) buffer).slice();
+        } else if (buffer == null) {
+            return ByteBuffer.allocate(0);
+        }
+        return ByteBuffer.wrap(sample.bufferAsBytes());
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.red5pro.media;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * A MediaSample whose bytes are held in a ByteBuffer, on or off heap, so they can be passed between native code and
+ * channels without being copied into arrays.
+ *
+ * @author Paul Gregoire
+ *
+ */
+public interface IByteBufferMediaSample extends IMediaSample {
+
+    /**
+     * Returns a view of the sample bytes, from position zero to the sample length. The view shares its content with the
+     * sample, but its position and limit are its own.
+     *
+     * @return sample bytes
+     */
+    ByteBuffer getByteBuffer();
+
+    /**
+     * Returns a view of the sample bytes as little-endian 16 bit PCM, sharing its content with the sample.
+     *
+     * @return sample shorts
+     */
+    ShortBuffer getShortBuffer();
+
+    /**
+     * Returns whether or not the bytes are held off heap.
+     *
+     * @return true if direct and false otherwise
+     */
+    boolean isDirect();
+
+}
@@ -148,19 +148,51 @@ public interface IMediaSample {
     Buffer toBuffer(boolean stripRtmp);
 
     /**
-     * Returns the buffer as a byte array.
+     * Returns an FMJ/JMF Buffer sharing this MediaSample's bytes, with its offset and length adjusted to skip the AMF
+     * bytes rather than copying the rest.
+     *
+     * @param stripRtmp
+     *            whether or not to skip AMF bytes
+     * @return Buffer
+     */
+    Buffer toBufferView(boolean stripRtmp);
+
+    /**
+     * Returns the buffer as a byte array. The array may be shared with the sample and must not be modified.
      *
      * @return byte[]
      */
     byte[] bufferAsBytes();
 
     /**
-     * Returns the buffer as a short array.
+     * Copies the buffer as bytes into the given array.
+     *
+     * @param dst
+     *            destination
+     * @param offset
+     *            offset into the destination
+     * @return number of bytes written
+     */
+    int bufferAsBytes(byte[] dst, int offset);
+
+    /**
+     * Returns the buffer as a short array. The array may be shared with the sample and must not be modified.
      *
      * @return short[]
      */
     short[] bufferAsShorts();
 
+    /**
+     * Copies the buffer as little-endian PCM shorts into the given array.
+     *
+     * @param dst
+     *            destination
+     * @param offset
+     *            offset into the destination
+     * @return number of shorts written
+     */
+    int bufferAsShorts(short[] dst, int offset);
+
     /**
      *
      * @return track id
@@ -0,0 +1,53 @@
+package com.red5pro.media;
+
+/**
+ * A MediaSample whose buffer is borrowed from a pool and returned to it once the last holder releases the sample. A
+ * sample starts with a reference count of one, owned by its creator; each additional holder, such as a participant the
+ * sample is fanned out to, calls retain() before taking it and release() when done with it.
+ *
+ * @author Paul Gregoire
+ *
+ */
+public interface IPooledMediaSample extends IMediaSample {
+
+    /**
+     * Adds a reference to the sample.
+     *
+     * @return this sample
+     * @throws IllegalStateException
+     *             if the sample has already been released
+     */
+    IPooledMediaSample retain();
+
+    /**
+     * Removes a reference from the sample, returning its buffer to the pool when it was the last one. The sample must not
+     * be used after its last reference is released.
+     *
+     * @return true if this released the last reference and false otherwise
+     * @throws IllegalStateException
+     *             if the sample has already been released
+     */
+    boolean release();
+
+    /**
+     * Returns the number of references held on the sample.
+     *
+     * @return reference count, zero once released
+     */
+    int refCnt();
+
+    /**
+     * Returns the backing array, which may be longer than the sample; only the first getLength() bytes belong to it.
+     *
+     * @return backing array
+     */
+    byte[] getData();
+
+    /**
+     * Returns the number of bytes in the sample.
+     *
+     * @return length
+     */
+    int getLength();
+
+}
@@ -3,6 +3,7 @@ package com.red5pro.media;
 import java.util.Arrays;
 
 import javax.media.Buffer;
+import javax.media.BufferPool;
 
 import org.red5.codec.AudioCodec;
 import org.red5.codec.VideoCodec;
@@ -31,6 +32,9 @@ public class MediaSample implements IMediaSample {
     // Buffered content can be modified
     private Object buffer;
 
+    // buffer converted by bufferAsBytes or bufferAsShorts, kept until the buffer is replaced
+    private volatile Object converted;
+
     private int flags;
 
     // whether or not the buffer has been decoded
@@ -143,34 +147,112 @@ public class MediaSample implements IMediaSample {
         return privateData;
     }
 
+    /**
+     * Returns the buffer as a byte array. A conversion is cached on the sample, so the array returned may be shared and
+     * must not be modified.
+     *
+     * @return byte[]
+     */
     public byte[] bufferAsBytes() {
-        if (buffer instanceof short[]) {
-            short[] buf = (short[]) buffer;
-            byte[] array = new byte[buf.length * 2];
-            for (int i = 0, o = 0; i < buf.length; i++) {
-                short s = buf[i];
-                array[o++] = (byte) (s & 0x00ff);
-                array[o++] = (byte) ((s & 0xff00) >>> 8);
+        if (buffer instanceof short[] || buffer instanceof Buffer) {
+            Object cached = converted;
+            if (cached instanceof byte[]) {
+                return (byte[]) cached;
             }
+            byte[] array;
+            if (buffer instanceof short[]) {
+                short[] buf = (short[]) buffer;
+                array = PCMUtils.toBytes(buf, 0, buf.length);
+            } else {
+                Buffer buf = (Buffer) buffer;
+                byte[] data = (byte[]) buf.getData();
+                int offset = buf.getOffset();
+                int length = buf.getLength();
+                // only a slice of the array has to be copied
+                if (offset == 0 && length == data.length) {
+                    return data;
+                }
+                array = Arrays.copyOfRange(data, offset, offset + length);
+            }
+            converted = array;
             return array;
         }
         return (byte[]) buffer;
     }
 
+    /**
+     * Copies the buffer as bytes into a caller supplied array.
+     *
+     * @param dst
+     * @param offset
+     * @return number of bytes written
+     */
+    public int bufferAsBytes(byte[] dst, int offset) {
+        if (buffer instanceof short[]) {
+            short[] buf = (short[]) buffer;
+            return PCMUtils.toBytes(buf, 0, buf.length, dst, offset);
+        }
+        byte[] buf = bufferAsBytes();
+        System.arraycopy(buf, 0, dst, offset, buf.length);
+        return buf.length;
+    }
+
+    /**
+     * Returns the buffer as a short array of little-endian PCM. A conversion is cached on the sample, so the array
+     * returned may be shared and must not be modified.
+     *
+     * @return short[]
+     */
     public short[] bufferAsShorts() {
         if (buffer instanceof short[]) {
             return (short[]) buffer;
         }
-        byte[] buf = (byte[]) buffer;
-        short[] array = new short[buf.length / 2];
-        for (int i = 0, o = 0; o < array.length; o++) {
-            array[o] = (short) (((buf[i++] & 0xff) | (buf[i++] & 0xff) << 8));
+        Object cached = converted;
+        if (cached instanceof short[]) {
+            return (short[]) cached;
         }
+        short[] array;
+        if (buffer instanceof Buffer) {
+            Buffer buf = (Buffer) buffer;
+            array = PCMUtils.toShorts((byte[]) buf.getData(), buf.getOffset(), buf.getLength());
+        } else {
+            byte[] buf = (byte[]) buffer;
+            array = PCMUtils.toShorts(buf, 0, buf.length);
+        }
+        converted = array;
         return array;
     }
 
+    /**
+     * Copies the buffer as little-endian PCM shorts into a caller supplied array.
+     *
+     * @param dst
+     * @param offset
+     * @return number of shorts written
+     */
+    public int bufferAsShorts(short[] dst, int offset) {
+        if (buffer instanceof short[]) {
+            short[] buf = (short[]) buffer;
+            System.arraycopy(buf, 0, dst, offset, buf.length);
+            return buf.length;
+        } else if (buffer instanceof Buffer) {
+            Buffer buf = (Buffer) buffer;
+            return PCMUtils.toShorts((byte[]) buf.getData(), buf.getOffset(), buf.getLength(), dst, offset);
+        }
+        byte[] buf = (byte[]) buffer;
+        return PCMUtils.toShorts(buf, 0, buf.length, dst, offset);
+    }
+
     public int getBufferSize() {
-        return bufferAsBytes().length;
+        // sized from the buffer as it is, since converting it just for its length allocates
+        if (buffer instanceof byte[]) {
+            return ((byte[]) buffer).length;
+        } else if (buffer instanceof short[]) {
+            return ((short[]) buffer).length * 2;
+        } else if (buffer instanceof Buffer) {
+            return ((Buffer) buffer).getLength();
+        }
+        return 0;
     }
 
     public void setTimestamp(long timestamp) {
@@ -187,6 +269,7 @@ public class MediaSample implements IMediaSample {
 
     public void setBuffer(Object buffer) {
         this.buffer = null;
+        this.converted = null;
         this.buffer = buffer;
     }
 
@@ -409,19 +492,7 @@ public class MediaSample implements IMediaSample {
         if (buffer instanceof Buffer) {
             return (Buffer) buffer;
         }
-
-        Buffer buf = new Buffer();
-        buf.setFlags(flags);
-        if (privateData) {
-            buf.setConfig();
-        }
-        buf.setTimeStamp(timestamp);
-        buf.setMilliseconds(timestamp);
-        if (isVideo()) {
-            buf.setRtpTimeStamp(timestamp * 90);
-        } else {
-            buf.setRtpTimeStamp(timestamp * 48);
-        }
+        Buffer buf = initStrippableBuffer(new Buffer());
         if (stripRtmp) {
             byte[] data = bufferAsBytes();
             if (isAudio()) {
@@ -441,6 +512,81 @@ public class MediaSample implements IMediaSample {
         return buf;
     }
 
+    /**
+     * Returns an FMJ/JMF Buffer sharing this MediaSample's bytes. When stripping, the offset and length are moved past
+     * the RTMP prefix bytes instead of copying the rest of the frame, so the Buffer's offset must be honored and its
+     * data not modified. A short[] buffer is converted, since it can't be shared as bytes.
+     *
+     * @param stripRtmp
+     * @return Buffer
+     */
+    public Buffer toBufferView(boolean stripRtmp) {
+        if (buffer instanceof Buffer) {
+            return (Buffer) buffer;
+        }
+        Buffer buf = initStrippableBuffer(new Buffer());
+        byte[] data = buffer instanceof byte[] ? (byte[]) buffer : bufferAsBytes();
+        // pooled samples may be shorter than their array
+        int length = buffer instanceof byte[] ? getBufferSize() : data.length;
+        // strip the prefix byte, or the prefix and avc type for video
+        int offset = stripRtmp ? Math.min(isAudio() ? 1 : 2, length) : 0;
+        buf.setData(data);
+        buf.setOffset(offset);
+        buf.setLength(length - offset);
+        return buf;
+    }
+
+    /**
+     * Returns an FMJ/JMF Buffer acquired from the given pool, to be released to it once consumed. When stripping, the
+     * rest of the frame is copied into the Buffer's pooled data array, which may be longer than its length; otherwise
+     * the Buffer shares this MediaSample's bytes.
+     *
+     * @param stripRtmp
+     * @param pool
+     * @return Buffer
+     */
+    public Buffer toBuffer(boolean stripRtmp, BufferPool pool) {
+        if (buffer instanceof Buffer) {
+            return (Buffer) buffer;
+        }
+        Buffer buf;
+        if (stripRtmp) {
+            byte[] data = bufferAsBytes();
+            // strip the prefix byte, or the prefix and avc type for video
+            int offset = Math.min(isAudio() ? 1 : 2, data.length);
+            buf = pool.acquire(data.length - offset);
+            System.arraycopy(data, offset, buf.getData(), 0, data.length - offset);
+        } else {
+            byte[] data = buffer instanceof byte[] ? (byte[]) buffer : bufferAsBytes();
+            buf = pool.acquire();
+            buf.setData(data);
+            // pooled samples may be shorter than their array
+            buf.setLength(buffer instanceof byte[] ? getBufferSize() : data.length);
+        }
+        return initStrippableBuffer(buf);
+    }
+
+    /**
+     * Sets the flags and timestamps of a Buffer being built from this MediaSample, leaving its data to the caller.
+     *
+     * @param buf
+     * @return buf
+     */
+    protected Buffer initStrippableBuffer(Buffer buf) {
+        buf.setFlags(flags);
+        if (privateData) {
+            buf.setConfig();
+        }
+        buf.setTimeStamp(timestamp);
+        buf.setMilliseconds(timestamp);
+        if (isVideo()) {
+            buf.setRtpTimeStamp(timestamp * 90);
+        } else {
+            buf.setRtpTimeStamp(timestamp * 48);
+        }
+        return buf;
+    }
+
     /**
      * Returns a deep-copy of this MediaSample.
      *
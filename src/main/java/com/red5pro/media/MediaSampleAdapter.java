@@ -90,16 +90,31 @@ public class MediaSampleAdapter implements IMediaSample {
         return null;
     }
 
+    @Override
+    public Buffer toBufferView(boolean stripRtmp) {
+        return null;
+    }
+
     @Override
     public byte[] bufferAsBytes() {
         return null;
     }
 
+    @Override
+    public int bufferAsBytes(byte[] dst, int offset) {
+        return 0;
+    }
+
     @Override
     public short[] bufferAsShorts() {
         return null;
     }
 
+    @Override
+    public int bufferAsShorts(short[] dst, int offset) {
+        return 0;
+    }
+
     @Override
     public void setTimestamp(long startTime) {
 
@@ -0,0 +1,200 @@
+package com.red5pro.media;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of byte arrays for media samples, in power of two size classes from 64 bytes to 1 MiB. An array is handed out
+ * from the smallest class which fits the requested length, so it may be longer than asked for; larger requests are
+ * allocated to size and never pooled. Each class keeps up to a fixed number of bytes worth of arrays, anything released
+ * beyond that is left to the garbage collector.
+ *
+ * @author Paul Gregoire
+ */
+public class MediaSamplePool {
+
+    // smallest size class, 64 bytes
+    private static final int MIN_SHIFT = 6;
+
+    // largest size class, 1 MiB
+    private static final int MAX_SHIFT = 20;
+
+    // shared pool, keeping up to 4 MiB per size class
+    private static final MediaSamplePool DEFAULT = new MediaSamplePool(4 * 1024 * 1024);
+
+    private final SizeClass[] classes = new SizeClass[MAX_SHIFT - MIN_SHIFT + 1];
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    // arrays not kept on recycle, since they were unpooled sizes or their class was full
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Creates a pool keeping up to the given number of bytes of arrays per size class, and at least one array of each.
+     *
+     * @param maxBytesPerClass
+     */
+    public MediaSamplePool(int maxBytesPerClass) {
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new SizeClass(Math.max(1, maxBytesPerClass >> (MIN_SHIFT + i)));
+        }
+    }
+
+    /**
+     * Returns the shared pool.
+     *
+     * @return pool
+     */
+    public static MediaSamplePool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns an array at least the given length. Its contents are undefined.
+     *
+     * @param length
+     * @return array
+     */
+    public byte[] acquire(int length) {
+        byte[] array = poll(length);
+        return array != null ? array : allocate(length);
+    }
+
+    /**
+     * Returns a pooled array at least the given length, or null if there's none. Its contents are undefined.
+     *
+     * @param length
+     * @return array or null
+     */
+    public byte[] poll(int length) {
+        int index = sizeClass(length);
+        byte[] array = index < 0 ? null : classes[index].poll();
+        if (array != null) {
+            hits.increment();
+        }
+        return array;
+    }
+
+    /**
+     * Allocates an array of the size class holding the given length, or of exactly the length when it's larger than
+     * the largest class, counting it as a miss.
+     *
+     * @param length
+     * @return array
+     */
+    public byte[] allocate(int length) {
+        misses.increment();
+        int index = sizeClass(length);
+        return new byte[index < 0 ? length : 1 << (MIN_SHIFT + index)];
+    }
+
+    /**
+     * Returns an array to the pool. The array must not be used afterward.
+     *
+     * @param array
+     */
+    public void recycle(byte[] array) {
+        int index = sizeClass(array.length);
+        // only arrays of exactly a class size are ours to keep
+        if (index < 0 || array.length != 1 << (MIN_SHIFT + index) || !classes[index].offer(array)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Empties the pool.
+     */
+    public void clear() {
+        for (SizeClass sizeClass : classes) {
+            sizeClass.clear();
+        }
+    }
+
+    /**
+     * Returns the number of arrays held by the pool.
+     *
+     * @return pooled arrays
+     */
+    public int size() {
+        int size = 0;
+        for (SizeClass sizeClass : classes) {
+            size += sizeClass.size();
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "MediaSamplePool [size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", dropped=" + getDroppedCount() + "]";
+    }
+
+    /**
+     * Returns the index of the smallest size class holding the given length, or -1 if it's larger than the largest.
+     *
+     * @param length
+     * @return size class index
+     */
+    static int sizeClass(int length) {
+        if (length <= 1 << MIN_SHIFT) {
+            return 0;
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(length - 1);
+        return shift > MAX_SHIFT ? -1 : shift - MIN_SHIFT;
+    }
+
+    /**
+     * Stack of arrays of one size.
+     */
+    private static final class SizeClass {
+
+        private final byte[][] arrays;
+
+        private int count;
+
+        SizeClass(int capacity) {
+            arrays = new byte[capacity][];
+        }
+
+        synchronized byte[] poll() {
+            if (count == 0) {
+                return null;
+            }
+            byte[] array = arrays[--count];
+            arrays[count] = null;
+            return array;
+        }
+
+        synchronized boolean offer(byte[] array) {
+            if (count == arrays.length) {
+                return false;
+            }
+            arrays[count++] = array;
+            return true;
+        }
+
+        synchronized void clear() {
+            while (count > 0) {
+                arrays[--count] = null;
+            }
+        }
+
+        synchronized int size() {
+            return count;
+        }
+
+    }
+
+}
@@ -1,6 +1,5 @@
 package com.red5pro.media;
 
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.function.Predicate;
 
@@ -8,7 +7,7 @@ import org.red5.server.api.event.IEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.red5pro.group.GroupEvent;
+import com.red5pro.media.MediaTrackQueue.OverflowPolicy;
 import com.red5pro.util.IdGenerator;
 
 /**
@@ -21,6 +20,12 @@ public class MediaTrack {
 
     private static Logger log = LoggerFactory.getLogger(MediaTrack.class);
 
+    // default number of events a track holds
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("media.track.capacity", 1024);
+
+    // default handling of events pushed onto a full track
+    public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.valueOf(System.getProperty("media.track.overflow", OverflowPolicy.DROP_OLDEST.name()));
+
     // type of media in this track
     protected final MediaType type;
 
@@ -33,8 +38,11 @@ public class MediaTrack {
     // track listeners
     protected final CopyOnWriteArraySet<MediaTrackListener> listeners = new CopyOnWriteArraySet<>();
 
-    // track events in order of addition to the deque
-    protected final ConcurrentLinkedDeque<IEvent> events = new ConcurrentLinkedDeque<>();
+    // track events in order of addition to the queue
+    protected final MediaTrackQueue events;
+
+    // delivers events to the listeners, each in order on its own lane
+    protected final MediaTrackDispatcher dispatcher = new MediaTrackDispatcher(this);
 
     // clock rate for audio, video, or other
     protected int clockRate;
@@ -44,9 +52,25 @@ public class MediaTrack {
     }
 
     public MediaTrack(MediaType type, FourCC fourCC, String id) {
+        this(type, fourCC, id, DEFAULT_CAPACITY, DEFAULT_OVERFLOW_POLICY);
+    }
+
+    /**
+     * Creates a track holding up to the given number of events.
+     *
+     * @param type
+     * @param fourCC
+     * @param id
+     * @param capacity
+     *            events held before the overflow policy applies
+     * @param policy
+     *            handling of events pushed onto a full track
+     */
+    public MediaTrack(MediaType type, FourCC fourCC, String id, int capacity, OverflowPolicy policy) {
         this.type = type;
         this.fourCC = fourCC;
         this.id = id;
+        this.events = new MediaTrackQueue(capacity, policy);
         if (type.equals(MediaType.AUDIO)) {
             // most likely value for any audio pushed in
             this.clockRate = 48000;
@@ -57,13 +81,18 @@ public class MediaTrack {
     }
 
     /**
-     * Pushes an event to the tail of the track.
+     * Pushes an event to the tail of the track. When the track is full, the overflow policy either drops the oldest
+     * event, drops this one or waits for room.
      *
      * @param event
-     * @return true if successfully pushed and false otherwise
+     * @return true if successfully pushed and false if it was dropped
      */
     public boolean push(IEvent event) {
-        return events.add(event);
+        if (events.offer(event)) {
+            return true;
+        }
+        log.debug("Dropped event on full track: {}", id);
+        return false;
     }
 
     /**
@@ -72,7 +101,7 @@ public class MediaTrack {
      * @return event at the head of the track or null if empty
      */
     public IEvent pop() {
-        return events.pop();
+        return events.poll();
     }
 
     /**
@@ -83,15 +112,44 @@ public class MediaTrack {
      * @return IEvent or null if no match is found
      */
     public IEvent pop(FourCC fourCC) {
-        for (IEvent event : events) {
-            if (fourCC.equals(((GroupEvent) event).getFourCC())) {
-                log.debug("Found target event: {}", fourCC);
-                if (events.remove(event)) {
-                    return event;
-                }
-            }
-        }
-        return null;
+        return events.poll(fourCC);
+    }
+
+    /**
+     * Returns the number of events held by the track.
+     *
+     * @return depth
+     */
+    public int getDepth() {
+        return events.size();
+    }
+
+    /**
+     * Returns the number of events dropped by the overflow policy.
+     *
+     * @return drops
+     */
+    public long getDropCount() {
+        return events.getDropCount();
+    }
+
+    /**
+     * Returns the largest number of events the track has held at once.
+     *
+     * @return high-water mark
+     */
+    public int getHighWaterMark() {
+        return events.getHighWaterMark();
+    }
+
+    /**
+     * Delivers an event to the track listeners. Each listener receives its events in order on a lane of its own, so the
+     * caller and the other listeners don't wait on a slow one.
+     *
+     * @param event
+     */
+    public void dispatch(IEvent event) {
+        dispatcher.dispatch(event);
     }
 
     /**
@@ -101,6 +159,8 @@ public class MediaTrack {
      * @return true if added and false otherwise
      */
     public boolean addListener(MediaTrackListener listener) {
+        // the lane comes first, so the listener has one as soon as dispatches see it
+        dispatcher.add(listener);
         return listeners.add(listener);
     }
 
@@ -111,7 +171,10 @@ public class MediaTrack {
      * @return true if removed and false otherwise
      */
     public boolean removeListener(MediaTrackListener listener) {
-        return listeners.remove(listener);
+        // the listener goes first, so dispatches don't see it once its lane is gone
+        boolean removed = listeners.remove(listener);
+        dispatcher.remove(listener);
+        return removed;
     }
 
     public MediaType getType() {
@@ -130,6 +193,10 @@ public class MediaTrack {
         return listeners;
     }
 
+    public MediaTrackDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
     public int getClockRate() {
         return clockRate;
     }
@@ -168,7 +235,7 @@ public class MediaTrack {
 
     @Override
     public String toString() {
-        return "MediaTrack [id=" + id + ", type=" + type + ", fourCC=" + fourCC + ", listeners=" + listeners.size() + "]";
+        return "MediaTrack [id=" + id + ", type=" + type + ", fourCC=" + fourCC + ", listeners=" + listeners.size() + ", events=" + events + "]";
     }
 
     // predicate for audio tracks
@@ -0,0 +1,287 @@
+package com.red5pro.media;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.red5.server.api.event.IEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers MediaTrack events to its listeners, each on a serial lane of its own. A lane queues the events for one
+ * listener and drains them in order on an executor thread, so a slow listener only falls behind itself rather than
+ * stalling the thread dispatching or the other listeners. A listener whose oldest undelivered event is older than the
+ * eviction threshold is removed from the track. Lanes are only created as listeners are added to the track, so a
+ * dispatch racing with a removal can't bring back the lane of a removed listener. The shared executor has a fixed number
+ * of threads, one per processor by default and at least four, which the lanes of every track take turns on; a listener
+ * blocking for good holds one of them until it's evicted.
+ *
+ * @author Paul Gregoire
+ */
+public class MediaTrackDispatcher {
+
+    private static Logger log = LoggerFactory.getLogger(MediaTrackDispatcher.class);
+
+    // default age in milliseconds of an undelivered event at which its listener is evicted, zero to never evict
+    public static final long DEFAULT_EVICTION_MILLIS = Long.getLong("media.track.listener.evictionMillis", 10000L);
+
+    // threads of the shared executor; one per processor, but enough that a blocked listener or two don't stall the rest
+    public static final int DEFAULT_THREADS = Integer.getInteger("media.track.dispatcher.threads", Math.max(4, Runtime.getRuntime().availableProcessors()));
+
+    // events drained by a lane before handing its thread back, so busy lanes don't starve idle ones
+    private static final int DRAIN_BATCH = 64;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    // shared by every track, bounded so that the number of lanes doesn't set the number of threads; idle threads are
+    // reclaimed
+    private static final ThreadPoolExecutor SHARED_EXECUTOR = new ThreadPoolExecutor(Math.max(1, DEFAULT_THREADS), Math.max(1, DEFAULT_THREADS), 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+        Thread thread = new Thread(r, "MediaTrackDispatcher-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        SHARED_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private final MediaTrack track;
+
+    private final Executor executor;
+
+    private final ConcurrentHashMap<MediaTrackListener, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final LongAdder evicted = new LongAdder();
+
+    private volatile long evictionNanos;
+
+    public MediaTrackDispatcher(MediaTrack track) {
+        this(track, SHARED_EXECUTOR, DEFAULT_EVICTION_MILLIS);
+    }
+
+    /**
+     * Creates a dispatcher draining its lanes on the given executor.
+     *
+     * @param track
+     * @param executor
+     * @param evictionMillis
+     *            age of an undelivered event at which its listener is evicted, zero to never evict
+     */
+    public MediaTrackDispatcher(MediaTrack track, Executor executor, long evictionMillis) {
+        this.track = track;
+        this.executor = executor;
+        setEvictionMillis(evictionMillis);
+    }
+
+    /**
+     * Queues an event for each of the track's listeners.
+     *
+     * @param event
+     */
+    public void dispatch(IEvent event) {
+        long now = System.nanoTime();
+        for (MediaTrackListener listener : track.getListeners()) {
+            Lane lane = lanes.get(listener);
+            if (lane == null) {
+                // added without a lane, or being removed
+                continue;
+            }
+            if (evictionNanos > 0 && lane.lagNanos(now) > evictionNanos) {
+                evict(lane);
+            } else {
+                lane.submit(event, now);
+            }
+        }
+    }
+
+    /**
+     * Gives a listener its lane. Events dispatched to listeners without one are skipped.
+     *
+     * @param listener
+     */
+    public void add(MediaTrackListener listener) {
+        lanes.computeIfAbsent(listener, Lane::new);
+    }
+
+    /**
+     * Discards the lane of a listener, along with its undelivered events.
+     *
+     * @param listener
+     */
+    public void remove(MediaTrackListener listener) {
+        Lane lane = lanes.remove(listener);
+        if (lane != null) {
+            lane.close();
+        }
+    }
+
+    /**
+     * Returns the number of events queued for a listener.
+     *
+     * @param listener
+     * @return undelivered events
+     */
+    public int getBacklog(MediaTrackListener listener) {
+        Lane lane = lanes.get(listener);
+        return lane != null ? lane.backlog.get() : 0;
+    }
+
+    /**
+     * Returns how far behind a listener is, as the age of its oldest undelivered event.
+     *
+     * @param listener
+     * @return lag in milliseconds
+     */
+    public long getLagMillis(MediaTrackListener listener) {
+        Lane lane = lanes.get(listener);
+        return lane != null ? TimeUnit.NANOSECONDS.toMillis(lane.lagNanos(System.nanoTime())) : 0L;
+    }
+
+    /**
+     * Returns the longest a listener has waited on an event.
+     *
+     * @param listener
+     * @return lag in milliseconds
+     */
+    public long getMaxLagMillis(MediaTrackListener listener) {
+        Lane lane = lanes.get(listener);
+        return lane != null ? TimeUnit.NANOSECONDS.toMillis(lane.maxLagNanos) : 0L;
+    }
+
+    /**
+     * Returns the number of events delivered to a listener.
+     *
+     * @param listener
+     * @return delivered events
+     */
+    public long getDeliveredCount(MediaTrackListener listener) {
+        Lane lane = lanes.get(listener);
+        return lane != null ? lane.delivered.sum() : 0L;
+    }
+
+    /**
+     * Returns the number of listeners evicted for falling behind.
+     *
+     * @return evictions
+     */
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    public long getEvictionMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(evictionNanos);
+    }
+
+    public void setEvictionMillis(long evictionMillis) {
+        this.evictionNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, evictionMillis));
+    }
+
+    private void evict(Lane lane) {
+        if (lanes.remove(lane.listener, lane)) {
+            int backlog = lane.backlog.get();
+            lane.close();
+            track.removeListener(lane.listener);
+            evicted.increment();
+            log.warn("Evicted listener {} from track {} with {} events undelivered for over {}ms", lane.listener, track.getId(), backlog, getEvictionMillis());
+        }
+    }
+
+    /**
+     * Serial lane of events for one listener. At most one drain runs at a time, which keeps the listener's events in
+     * order and its calls from overlapping.
+     */
+    private final class Lane implements Runnable {
+
+        private final MediaTrackListener listener;
+
+        private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger backlog = new AtomicInteger();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final LongAdder delivered = new LongAdder();
+
+        private volatile long maxLagNanos;
+
+        private volatile boolean closed;
+
+        Lane(MediaTrackListener listener) {
+            this.listener = listener;
+        }
+
+        void submit(IEvent event, long now) {
+            if (!closed) {
+                queue.offer(new Pending(event, now));
+                backlog.incrementAndGet();
+                schedule();
+            }
+        }
+
+        long lagNanos(long now) {
+            Pending head = queue.peek();
+            return head != null ? now - head.queued : 0L;
+        }
+
+        void close() {
+            closed = true;
+            queue.clear();
+            backlog.set(0);
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Pending pending;
+                for (int i = 0; i < DRAIN_BATCH && !closed && (pending = queue.poll()) != null; i++) {
+                    backlog.decrementAndGet();
+                    long lag = System.nanoTime() - pending.queued;
+                    if (lag > maxLagNanos) {
+                        maxLagNanos = lag;
+                    }
+                    try {
+                        listener.onEvent(track, pending.event);
+                    } catch (Throwable t) {
+                        log.warn("Exception in listener {} on track {}", listener, track.getId(), t);
+                    }
+                    delivered.increment();
+                }
+            } finally {
+                scheduled.set(false);
+                // pick up events queued after the last poll, or left by the batch limit
+                if (!closed && !queue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+    }
+
+    private static final class Pending {
+
+        final IEvent event;
+
+        final long queued;
+
+        Pending(IEvent event, long queued) {
+            this.event = event;
+            this.queued = queued;
+        }
+
+    }
+
+}
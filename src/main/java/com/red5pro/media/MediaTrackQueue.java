@@ -0,0 +1,332 @@
+package com.red5pro.media;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.red5.server.api.event.IEvent;
+
+import com.red5pro.group.GroupEvent;
+
+/**
+ * Bounded queue of MediaTrack events, written by the track's producer and read by any number of consumers. Events are
+ * kept in a lock-free ring per FourCC, so popping the next event for a FourCC is constant time, while events are stamped
+ * in order of arrival so an unkeyed pop takes the oldest across the rings. Once the queue holds its capacity, further
+ * events are handled by its overflow policy.
+ *
+ * @author Paul Gregoire
+ */
+public class MediaTrackQueue {
+
+    /**
+     * What to do with an event pushed onto a full queue.
+     */
+    public enum OverflowPolicy {
+        // discard the oldest queued event to make room
+        DROP_OLDEST,
+        // discard the event being pushed
+        DROP_NEWEST,
+        // wait for a consumer to make room
+        BLOCK;
+    }
+
+    // how long a blocked producer parks between checks for room
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final Ring[] NO_RINGS = new Ring[0];
+
+    private final int capacity;
+
+    private final OverflowPolicy policy;
+
+    // rings indexed by FourCC ordinal, created on the first event of each
+    private final AtomicReferenceArray<Ring> rings = new AtomicReferenceArray<>(FourCC.values().length);
+
+    // rings created so far, scanned by unkeyed pops
+    private volatile Ring[] active = NO_RINGS;
+
+    // arrival order stamped on each event
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private final AtomicInteger highWater = new AtomicInteger();
+
+    private final LongAdder dropped = new LongAdder();
+
+    public MediaTrackQueue(int capacity, OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.policy = Objects.requireNonNull(policy);
+    }
+
+    /**
+     * Adds an event to the tail of the queue, applying the overflow policy when it's full.
+     *
+     * @param event
+     * @return true if queued and false if the event was dropped
+     */
+    public boolean offer(IEvent event) {
+        Objects.requireNonNull(event);
+        Ring ring = ring(keyOf(event));
+        int size = depth.incrementAndGet();
+        if (size > capacity) {
+            switch (policy) {
+                case DROP_NEWEST:
+                    depth.decrementAndGet();
+                    dropped.increment();
+                    return false;
+                case DROP_OLDEST:
+                    depth.decrementAndGet();
+                    // consumers may beat us to the oldest, which makes room just the same
+                    while (depth.get() >= capacity && poll() != null) {
+                        dropped.increment();
+                    }
+                    size = depth.incrementAndGet();
+                    break;
+                case BLOCK:
+                    depth.decrementAndGet();
+                    while (depth.get() >= capacity) {
+                        LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                        if (Thread.currentThread().isInterrupted()) {
+                            dropped.increment();
+                            return false;
+                        }
+                    }
+                    size = depth.incrementAndGet();
+                    break;
+            }
+        }
+        if (!ring.offer(event, sequence.getAndIncrement())) {
+            // only reachable with concurrent producers racing past the capacity check
+            depth.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+        if (size > highWater.get()) {
+            highWater.accumulateAndGet(size, Math::max);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the oldest event in the queue.
+     *
+     * @return event or null if empty
+     */
+    public IEvent poll() {
+        for (;;) {
+            Ring oldest = null;
+            long min = Long.MAX_VALUE;
+            for (Ring ring : active) {
+                long stamp = ring.peekStamp();
+                if (stamp < min) {
+                    min = stamp;
+                    oldest = ring;
+                }
+            }
+            if (oldest == null) {
+                return null;
+            }
+            IEvent event = oldest.poll();
+            if (event != null) {
+                depth.decrementAndGet();
+                return event;
+            }
+            // another consumer took it, look again
+        }
+    }
+
+    /**
+     * Removes the oldest event in the queue with the given FourCC.
+     *
+     * @param fourCC
+     * @return event or null if none is queued
+     */
+    public IEvent poll(FourCC fourCC) {
+        Ring ring = rings.get(fourCC.ordinal());
+        if (ring != null) {
+            IEvent event = ring.poll();
+            if (event != null) {
+                depth.decrementAndGet();
+                return event;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes all queued events.
+     */
+    public void clear() {
+        while (poll() != null)
+            ;
+    }
+
+    /**
+     * Returns the number of queued events.
+     *
+     * @return depth
+     */
+    public int size() {
+        return Math.max(0, depth.get());
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns the number of events dropped by the overflow policy.
+     *
+     * @return drops
+     */
+    public long getDropCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the largest depth the queue has reached.
+     *
+     * @return high-water mark
+     */
+    public int getHighWaterMark() {
+        return highWater.get();
+    }
+
+    @Override
+    public String toString() {
+        return "MediaTrackQueue [depth=" + size() + ", capacity=" + capacity + ", policy=" + policy + ", dropped=" + getDropCount() + ", highWater=" + getHighWaterMark() + "]";
+    }
+
+    private Ring ring(FourCC fourCC) {
+        Ring ring = rings.get(fourCC.ordinal());
+        if (ring == null) {
+            synchronized (rings) {
+                ring = rings.get(fourCC.ordinal());
+                if (ring == null) {
+                    // each ring can hold the whole capacity, since one FourCC may have every queued event
+                    ring = new Ring(capacity);
+                    Ring[] grown = Arrays.copyOf(active, active.length + 1);
+                    grown[active.length] = ring;
+                    active = grown;
+                    rings.set(fourCC.ordinal(), ring);
+                }
+            }
+        }
+        return ring;
+    }
+
+    private static FourCC keyOf(IEvent event) {
+        if (event instanceof GroupEvent) {
+            FourCC fourCC = ((GroupEvent) event).getFourCC();
+            if (fourCC != null) {
+                return fourCC;
+            }
+        }
+        return FourCC.UNDEFINED;
+    }
+
+    /**
+     * Bounded lock-free ring, after Vyukov's bounded MPMC queue; each slot's sequence tells whether it's ready to be
+     * written or read at a given position, so producers and consumers only contend on their own position counters.
+     */
+    private static final class Ring {
+
+        private final int mask;
+
+        private final IEvent[] slots;
+
+        // arrival stamps, written with the slot before its sequence is published
+        private final long[] stamps;
+
+        private final AtomicLongArray sequences;
+
+        private final AtomicLong tail = new AtomicLong();
+
+        private final AtomicLong head = new AtomicLong();
+
+        Ring(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+            mask = size - 1;
+            slots = new IEvent[size];
+            stamps = new long[size];
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        boolean offer(IEvent event, long stamp) {
+            long pos = tail.get();
+            for (;;) {
+                int index = (int) pos & mask;
+                long diff = sequences.get(index) - pos;
+                if (diff == 0) {
+                    if (tail.compareAndSet(pos, pos + 1)) {
+                        slots[index] = event;
+                        stamps[index] = stamp;
+                        sequences.set(index, pos + 1);
+                        return true;
+                    }
+                    pos = tail.get();
+                } else if (diff < 0) {
+                    // full
+                    return false;
+                } else {
+                    pos = tail.get();
+                }
+            }
+        }
+
+        IEvent poll() {
+            long pos = head.get();
+            for (;;) {
+                int index = (int) pos & mask;
+                long diff = sequences.get(index) - (pos + 1);
+                if (diff == 0) {
+                    if (head.compareAndSet(pos, pos + 1)) {
+                        IEvent event = slots[index];
+                        slots[index] = null;
+                        sequences.set(index, pos + mask + 1);
+                        return event;
+                    }
+                    pos = head.get();
+                } else if (diff < 0) {
+                    // empty
+                    return null;
+                } else {
+                    pos = head.get();
+                }
+            }
+        }
+
+        /**
+         * Returns the stamp of the event at the head, or Long.MAX_VALUE if empty. Racing consumers may make it stale,
+         * which only affects the choice of ring.
+         */
+        long peekStamp() {
+            long pos = head.get();
+            int index = (int) pos & mask;
+            return sequences.get(index) == pos + 1 ? stamps[index] : Long.MAX_VALUE;
+        }
+
+    }
+
+}
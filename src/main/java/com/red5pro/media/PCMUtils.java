@@ -0,0 +1,80 @@
+package com.red5pro.media;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Conversions between 16 bit little-endian PCM bytes and shorts. They go through bulk ByteBuffer views rather than a loop
+ * over each sample, which lets the JIT copy and swap in blocks.
+ *
+ * @author Paul Gregoire
+ */
+public class PCMUtils {
+
+    private PCMUtils() {
+    }
+
+    /**
+     * Converts PCM bytes into a caller supplied array of shorts; an odd trailing byte is ignored.
+     *
+     * @param src
+     * @param offset
+     * @param length
+     *            number of bytes to convert
+     * @param dst
+     * @param dstOffset
+     * @return number of shorts written
+     */
+    public static int toShorts(byte[] src, int offset, int length, short[] dst, int dstOffset) {
+        int count = length / 2;
+        ByteBuffer.wrap(src, offset, count * 2).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(dst, dstOffset, count);
+        return count;
+    }
+
+    /**
+     * Converts PCM bytes into a new array of shorts.
+     *
+     * @param src
+     * @param offset
+     * @param length
+     *            number of bytes to convert
+     * @return shorts
+     */
+    public static short[] toShorts(byte[] src, int offset, int length) {
+        short[] dst = new short[length / 2];
+        toShorts(src, offset, length, dst, 0);
+        return dst;
+    }
+
+    /**
+     * Converts PCM shorts into a caller supplied array of bytes.
+     *
+     * @param src
+     * @param offset
+     * @param count
+     *            number of shorts to convert
+     * @param dst
+     * @param dstOffset
+     * @return number of bytes written
+     */
+    public static int toBytes(short[] src, int offset, int count, byte[] dst, int dstOffset) {
+        ByteBuffer.wrap(dst, dstOffset, count * 2).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(src, offset, count);
+        return count * 2;
+    }
+
+    /**
+     * Converts PCM shorts into a new array of bytes.
+     *
+     * @param src
+     * @param offset
+     * @param count
+     *            number of shorts to convert
+     * @return bytes
+     */
+    public static byte[] toBytes(short[] src, int offset, int count) {
+        byte[] dst = new byte[count * 2];
+        toBytes(src, offset, count, dst, 0);
+        return dst;
+    }
+
+}
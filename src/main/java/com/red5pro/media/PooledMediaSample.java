@@ -0,0 +1,308 @@
+package com.red5pro.media;
+
+import java.lang.ref.Cleaner;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.media.Buffer;
+import javax.media.BufferPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MediaSample whose bytes are held in an array borrowed from a MediaSamplePool, which is returned to the pool when the
+ * last reference is released. The array comes from a size class, so it's usually longer than the sample; getData() and
+ * getLength() expose it without copying, while the MediaSample accessors keep returning exactly sized content for
+ * callers which aren't pool aware, copying only when the lengths differ.
+ * <br>
+ * Leak detection reports samples which are garbage collected without having been released, along with where they were
+ * built. It's enabled with <code>-Dmedia.pool.leakDetection=true</code> or debug logging for this class.
+ *
+ * @author Paul Gregoire
+ */
+public class PooledMediaSample extends MediaSample implements IPooledMediaSample {
+
+    private static Logger log = LoggerFactory.getLogger(PooledMediaSample.class);
+
+    private static final boolean LEAK_DETECTION = Boolean.getBoolean("media.pool.leakDetection") || log.isDebugEnabled();
+
+    private static final Cleaner CLEANER = LEAK_DETECTION ? Cleaner.create() : null;
+
+    private final MediaSamplePool pool;
+
+    private final AtomicInteger refCnt = new AtomicInteger(1);
+
+    // runs the leak check when released or collected, only with leak detection
+    private final Cleaner.Cleanable cleanable;
+
+    // pooled array, null once released or replaced
+    private byte[] data;
+
+    private int length;
+
+    private PooledMediaSample(MediaSamplePool pool, long timestamp, int length, MediaType type) {
+        this.pool = pool;
+        this.type = type;
+        this.data = pool.acquire(length);
+        this.length = length;
+        setTimestamp(timestamp);
+        super.setBuffer(data);
+        cleanable = LEAK_DETECTION ? CLEANER.register(this, new LeakCheck(refCnt, type, length)) : null;
+    }
+
+    @Override
+    public IPooledMediaSample retain() {
+        int count;
+        do {
+            count = refCnt.get();
+            if (count <= 0) {
+                throw new IllegalStateException("Sample has been released");
+            }
+        } while (!refCnt.compareAndSet(count, count + 1));
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        int count = refCnt.decrementAndGet();
+        if (count == 0) {
+            recycle();
+            super.setBuffer(null);
+            if (cleanable != null) {
+                cleanable.clean();
+            }
+            return true;
+        } else if (count < 0) {
+            refCnt.incrementAndGet();
+            throw new IllegalStateException("Sample has been released");
+        }
+        return false;
+    }
+
+    @Override
+    public int refCnt() {
+        return refCnt.get();
+    }
+
+    @Override
+    public byte[] getData() {
+        ensureAccessible();
+        return data != null ? data : super.bufferAsBytes();
+    }
+
+    @Override
+    public int getLength() {
+        ensureAccessible();
+        return data != null ? length : super.getBufferSize();
+    }
+
+    /**
+     * Returns the sample bytes, exactly sized; use getData() and getLength() to avoid a copy.
+     */
+    @Override
+    public Object getBuffer() {
+        ensureAccessible();
+        return data != null ? bufferAsBytes() : super.getBuffer();
+    }
+
+    /**
+     * Replaces the pooled bytes, which are returned to the pool, with a buffer of the callers own.
+     */
+    @Override
+    public void setBuffer(Object buffer) {
+        ensureAccessible();
+        recycle();
+        super.setBuffer(buffer);
+    }
+
+    @Override
+    public boolean hasBuffer() {
+        return refCnt.get() > 0 && (data != null ? length > 0 : super.hasBuffer());
+    }
+
+    @Override
+    public int getBufferSize() {
+        ensureAccessible();
+        return data != null ? length : super.getBufferSize();
+    }
+
+    @Override
+    public byte[] bufferAsBytes() {
+        ensureAccessible();
+        if (data != null) {
+            return data.length == length ? data : Arrays.copyOf(data, length);
+        }
+        return super.bufferAsBytes();
+    }
+
+    @Override
+    public int bufferAsBytes(byte[] dst, int offset) {
+        ensureAccessible();
+        if (data != null) {
+            System.arraycopy(data, 0, dst, offset, length);
+            return length;
+        }
+        return super.bufferAsBytes(dst, offset);
+    }
+
+    /**
+     * Returns the sample bytes as PCM shorts, converted on each call since the pooled array outlives the sample; use
+     * bufferAsShorts(short[], int) to convert into an array of the callers own.
+     */
+    @Override
+    public short[] bufferAsShorts() {
+        ensureAccessible();
+        if (data != null) {
+            return PCMUtils.toShorts(data, 0, length);
+        }
+        return super.bufferAsShorts();
+    }
+
+    @Override
+    public int bufferAsShorts(short[] dst, int offset) {
+        ensureAccessible();
+        if (data != null) {
+            return PCMUtils.toShorts(data, 0, length, dst, offset);
+        }
+        return super.bufferAsShorts(dst, offset);
+    }
+
+    /**
+     * Returns an FMJ/JMF Buffer sharing the pooled bytes, so the sample must be retained for as long as the Buffer is in
+     * use.
+     */
+    @Override
+    public Buffer toBuffer() {
+        ensureAccessible();
+        return super.toBuffer();
+    }
+
+    @Deprecated
+    @Override
+    public Buffer toBuffer(boolean stripRtmp) {
+        ensureAccessible();
+        return super.toBuffer(stripRtmp);
+    }
+
+    @Override
+    public Buffer toBuffer(boolean stripRtmp, BufferPool pool) {
+        ensureAccessible();
+        return super.toBuffer(stripRtmp, pool);
+    }
+
+    @Override
+    public Buffer toBufferView(boolean stripRtmp) {
+        ensureAccessible();
+        return super.toBufferView(stripRtmp);
+    }
+
+    /**
+     * Returns a copy of this sample in a new array from the same pool, with a reference count of one.
+     */
+    @Override
+    public PooledMediaSample deepCopy() {
+        ensureAccessible();
+        int size = getBufferSize();
+        PooledMediaSample copy = new PooledMediaSample(pool, getTimestamp(), size, type);
+        System.arraycopy(getData(), 0, copy.data, 0, size);
+        copy.privateData = privateData;
+        copy.setSourceName(getSourceName());
+        copy.setSequenceNumber(getSequenceNumber());
+        copy.setDecoded(isDecoded());
+        copy.setEncoding(getEncoding());
+        copy.setFlags(getFlags());
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "PooledMediaSample [type=" + (isAudio() ? "audio" : "video") + ", sourceName=" + getSourceName() + ", encoding=" + getEncoding() + ", privateData=" + privateData + ", startTime=" + getTimestamp() + ", sequenceNumber=" + getSequenceNumber() + ", length=" + length + ", refCnt=" + refCnt.get() + "]";
+    }
+
+    private void recycle() {
+        if (data != null) {
+            pool.recycle(data);
+            data = null;
+        }
+    }
+
+    private void ensureAccessible() {
+        if (refCnt.get() <= 0) {
+            throw new IllegalStateException("Sample has been released");
+        }
+    }
+
+    /**
+     * Builds a sample with room for the given number of bytes from the pool, to be filled in through getData().
+     *
+     * @param pool
+     * @param timestamp
+     * @param length
+     * @param type
+     * @return sample with a reference count of one
+     */
+    public static PooledMediaSample build(MediaSamplePool pool, long timestamp, int length, MediaType type) {
+        return new PooledMediaSample(pool, timestamp, length, type);
+    }
+
+    /**
+     * Builds a sample holding a copy of the given bytes in an array from the pool.
+     *
+     * @param pool
+     * @param timestamp
+     * @param buf
+     * @param offset
+     * @param length
+     * @param type
+     * @return sample with a reference count of one
+     */
+    public static PooledMediaSample build(MediaSamplePool pool, long timestamp, byte[] buf, int offset, int length, MediaType type) {
+        PooledMediaSample sample = new PooledMediaSample(pool, timestamp, length, type);
+        System.arraycopy(buf, offset, sample.data, 0, length);
+        return sample;
+    }
+
+    /**
+     * Builds a sample holding a copy of the given bytes in an array from the shared pool.
+     *
+     * @param timestamp
+     * @param buf
+     * @param type
+     * @return sample with a reference count of one
+     */
+    public static PooledMediaSample build(long timestamp, byte[] buf, MediaType type) {
+        return build(MediaSamplePool.getDefault(), timestamp, buf, 0, buf.length, type);
+    }
+
+    /**
+     * Reports a sample which became unreachable while still referenced. Holds only what it reports, since holding the
+     * sample would keep it reachable.
+     */
+    private static final class LeakCheck implements Runnable {
+
+        private final AtomicInteger refCnt;
+
+        private final MediaType type;
+
+        private final int length;
+
+        private final Throwable built = new Throwable("Built here");
+
+        LeakCheck(AtomicInteger refCnt, MediaType type, int length) {
+            this.refCnt = refCnt;
+            this.type = type;
+            this.length = length;
+        }
+
+        @Override
+        public void run() {
+            int count = refCnt.get();
+            if (count > 0) {
+                log.warn("Pooled {} sample of {} bytes was collected with {} unreleased reference(s)", type, length, count, built);
+            }
+        }
+
+    }
+
+}
@@ -59,12 +59,11 @@ public enum RTPCodecEnum {
 
     public final int channels;
 
+    // rtpmap value, built once since it never changes; null for the wildcard and no-op entries
+    private final String rtpMap;
+
     RTPCodecEnum(int payloadType, String encodingName, String description, int clockRate) {
-        this.payloadType = payloadType;
-        this.encodingName = encodingName;
-        this.description = description;
-        this.clockRate = clockRate;
-        this.channels = 0;
+        this(payloadType, encodingName, description, clockRate, 0);
     }
 
     RTPCodecEnum(int payloadType, String encodingName, String description, int clockRate, int channels) {
@@ -73,6 +72,13 @@ public enum RTPCodecEnum {
         this.description = description;
         this.clockRate = clockRate;
         this.channels = channels;
+        if (payloadType < 0) {
+            rtpMap = null;
+        } else if (channels == 0) {
+            rtpMap = payloadType + " " + encodingName + '/' + clockRate;
+        } else {
+            rtpMap = payloadType + " " + encodingName + '/' + clockRate + '/' + channels;
+        }
     }
 
     /**
@@ -83,19 +89,8 @@ public enum RTPCodecEnum {
      * @return rtpmap string
      */
     public static String getRTPMapString(RTPCodecEnum codec) {
-        switch (codec) {
-            case ANY_AUDIO:
-            case ANY_VIDEO:
-            case NONE:
-                // no-op
-                return null;
-            default:
-                if (codec.channels == 0) {
-                    return String.format("%d %s/%d", codec.payloadType, codec.encodingName, codec.clockRate);
-                } else {
-                    return String.format("%d %s/%d/%d", codec.payloadType, codec.encodingName, codec.clockRate, codec.channels);
-                }
-        }
+        // ANY_AUDIO, ANY_VIDEO and NONE have no rtpmap
+        return codec.rtpMap;
     }
 
     public static int getPayloadType(RTPCodecEnum codec) {
@@ -0,0 +1,312 @@
+package com.red5pro.media.sdp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.media.sdp.model.AttributeKey;
+
+/**
+ * Caches negotiated answers by offer, so that the near identical offers sent by the many subscribers of a stream from
+ * the same browser build are parsed and negotiated once. Offers are normalized by dropping their per-session content;
+ * the origin, ICE credentials and candidates, fingerprints, crypto keys and the ssrc, msid and msid-semantic stream
+ * identifiers. The normalized form is hashed in a single pass over the raw offer, without building it, and a hit is
+ * verified against the normalized form of the offer which built the template, so a colliding offer is never answered
+ * with another offers template. Templates are evicted least recently used first once the cache is full.
+ * <br>
+ * The negotiator given on a miss must only depend on the content left in the normalized offer, since its answer is
+ * reused for every offer which normalizes to the same form.
+ *
+ * @author Paul Gregoire
+ */
+public class SDPAnswerCache {
+
+    private static Logger log = LoggerFactory.getLogger(SDPAnswerCache.class);
+
+    // per-session offer attributes which are left out of the normalized form
+    private static final AttributeKey[] STRIPPED = { AttributeKey.iceufrag, AttributeKey.icepwd, AttributeKey.fingerprint, AttributeKey.crypto, AttributeKey.candidate, AttributeKey.endofcandidates, AttributeKey.ssrc, AttributeKey.ssrcgroup, AttributeKey.msid };
+
+    private static final String MSID_SEMANTIC = AttributeKey.msidsemantic.toString();
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int maxEntries;
+
+    // templates by offer hash, in access order
+    private final LinkedHashMap<Long, SDPAnswerTemplate> templates;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    // lookups whose hash matched a template built from a different normalized offer
+    private final LongAdder collisions = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache holding up to the given number of answer templates.
+     *
+     * @param maxEntries
+     */
+    public SDPAnswerCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache must hold at least one template");
+        }
+        this.maxEntries = maxEntries;
+        this.templates = new LinkedHashMap<>(Math.min(maxEntries, 1024) * 4 / 3 + 1, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SDPAnswerTemplate> eldest) {
+                if (size() > SDPAnswerCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+
+        };
+    }
+
+    /**
+     * Returns the answer template for an offer, parsing the offer and negotiating the answer only when no template
+     * exists for offers normalizing to the same form.
+     *
+     * @param userAgent
+     *            user agent of the offer
+     * @param rawOffer
+     *            offer sdp
+     * @param negotiator
+     *            creates an answer for a parsed offer; may return null when the offer can't be answered, which isn't
+     *            cached
+     * @param stripped
+     *            if not null, receives the first value of each per-session attribute dropped from the offer, such as the
+     *            remote ice-ufrag, ice-pwd and fingerprint
+     * @return answer template or null if the negotiator didn't produce an answer
+     */
+    public SDPAnswerTemplate getTemplate(SDPUserAgent userAgent, String rawOffer, Function<SessionDescription, SessionDescription> negotiator, Map<AttributeKey, String> stripped) {
+        long hash = hash(userAgent, rawOffer, stripped);
+        Long key = hash;
+        SDPAnswerTemplate template;
+        synchronized (templates) {
+            template = templates.get(key);
+        }
+        if (template != null) {
+            if (template.getUserAgent() == userAgent && matches(rawOffer, template.getNormalizedOffer())) {
+                hits.increment();
+                return template;
+            }
+            collisions.increment();
+            log.debug("Offer hash {} collides with a cached template", hash);
+        }
+        misses.increment();
+        SessionDescription answer = negotiator.apply(SDPFactory.createSessionDescription(userAgent, rawOffer));
+        if (answer == null) {
+            return null;
+        }
+        template = new SDPAnswerTemplate(userAgent, normalize(rawOffer), answer);
+        synchronized (templates) {
+            templates.put(key, template);
+        }
+        return template;
+    }
+
+    /**
+     * Removes all templates, such as when the negotiation settings change.
+     */
+    public void clear() {
+        synchronized (templates) {
+            templates.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (templates) {
+            return templates.size();
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getCollisionCount() {
+        return collisions.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups answered from the cache.
+     *
+     * @return hit ratio, zero before the first lookup
+     */
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0d : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SDPAnswerCache [size=%d, maxEntries=%d, hits=%d, misses=%d, hitRatio=%.2f, collisions=%d, evictions=%d]", size(), maxEntries, getHitCount(), getMissCount(), getHitRatio(), getCollisionCount(), getEvictionCount());
+    }
+
+    /**
+     * Hashes the normalized form of an offer.
+     *
+     * @param userAgent
+     * @param offer
+     * @param stripped
+     *            if not null, receives the first value of each per-session attribute dropped from the offer
+     * @return hash
+     */
+    static long hash(SDPUserAgent userAgent, CharSequence offer, Map<AttributeKey, String> stripped) {
+        long hash = (FNV_OFFSET ^ userAgent.ordinal()) * FNV_PRIME;
+        int length = offer.length();
+        int start = 0;
+        while (start < length) {
+            int end = lineEnd(offer, start);
+            int keep = keptLength(offer, start, end, stripped);
+            for (int i = start, to = start + keep; i < to; i++) {
+                hash = (hash ^ offer.charAt(i)) * FNV_PRIME;
+            }
+            if (keep > 0) {
+                hash = (hash ^ '\n') * FNV_PRIME;
+            }
+            start = end + 1;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the normalized form of an offer; its kept lines, trimmed and ending in a line feed.
+     *
+     * @param offer
+     * @return normalized offer
+     */
+    static String normalize(CharSequence offer) {
+        StringBuilder sb = new StringBuilder(offer.length());
+        int length = offer.length();
+        int start = 0;
+        while (start < length) {
+            int end = lineEnd(offer, start);
+            int keep = keptLength(offer, start, end, null);
+            if (keep > 0) {
+                sb.append(offer, start, start + keep).append('\n');
+            }
+            start = end + 1;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns whether or not an offer normalizes to the given form, without building it.
+     *
+     * @param offer
+     * @param normalized
+     * @return true if it does and false otherwise
+     */
+    static boolean matches(CharSequence offer, String normalized) {
+        int length = offer.length();
+        int pos = 0;
+        int start = 0;
+        while (start < length) {
+            int end = lineEnd(offer, start);
+            int keep = keptLength(offer, start, end, null);
+            if (keep > 0) {
+                if (pos + keep >= normalized.length()) {
+                    return false;
+                }
+                for (int i = 0; i < keep; i++) {
+                    if (offer.charAt(start + i) != normalized.charAt(pos++)) {
+                        return false;
+                    }
+                }
+                if (normalized.charAt(pos++) != '\n') {
+                    return false;
+                }
+            }
+            start = end + 1;
+        }
+        return pos == normalized.length();
+    }
+
+    private static int lineEnd(CharSequence s, int start) {
+        int length = s.length();
+        int end = start;
+        while (end < length && s.charAt(end) != '\n' && s.charAt(end) != '\r') {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Returns how much of the line at start is kept in the normalized offer; zero for blank and per-session lines.
+     */
+    private static int keptLength(CharSequence s, int start, int end, Map<AttributeKey, String> stripped) {
+        // trim trailing whitespace
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start < 2 || s.charAt(start + 1) != '=') {
+            return end - start;
+        }
+        char type = s.charAt(start);
+        if (type == 'o') {
+            return 0;
+        }
+        if (type == 'a') {
+            int nameStart = start + 2;
+            int nameEnd = nameStart;
+            while (nameEnd < end && s.charAt(nameEnd) != ':') {
+                nameEnd++;
+            }
+            for (AttributeKey key : STRIPPED) {
+                if (nameEquals(s, nameStart, nameEnd, key.toString())) {
+                    if (stripped != null && !stripped.containsKey(key)) {
+                        int valueStart = Math.min(nameEnd + 1, end);
+                        stripped.put(key, s.subSequence(valueStart, end).toString());
+                    }
+                    return 0;
+                }
+            }
+            // the stream id is per-session, but whether there's a msid-semantic isn't
+            if (nameEquals(s, nameStart, nameEnd, MSID_SEMANTIC)) {
+                return nameEnd - start;
+            }
+        }
+        return end - start;
+    }
+
+    private static boolean nameEquals(CharSequence s, int start, int end, String name) {
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (s.charAt(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,311 @@
+package com.red5pro.media.sdp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.red5pro.media.sdp.model.AttributeField;
+import com.red5pro.media.sdp.model.AttributeKey;
+import com.red5pro.media.sdp.model.ConnectionField;
+import com.red5pro.media.sdp.model.OriginField;
+
+/**
+ * A negotiated answer with its per-session fields cut out, from which answers for any offer normalizing to the same
+ * form are created by filling in only those fields. The per-session fields are the origin and the ice-ufrag, ice-pwd,
+ * fingerprint and crypto attributes, at whichever level the negotiated answer had them, and within each media
+ * description the candidate, ssrc, ssrc-group and msid attributes along with the port and connection address, unless
+ * the port is the placeholder 9 (or 0 for rejected media) and the address 0.0.0.0. Since these come from allocations
+ * made for each session, they're filled in from a {@link MediaSession} per media description rather than replayed from
+ * the negotiated answer. Everything else in the negotiated answer is kept as written.
+ *
+ * @author Paul Gregoire
+ */
+public final class SDPAnswerTemplate {
+
+    // attributes which are filled in per answer
+    private static final AttributeKey[] SESSION_KEYS = { AttributeKey.iceufrag, AttributeKey.icepwd, AttributeKey.fingerprint, AttributeKey.crypto };
+
+    // media level attributes which are filled in per answer from the media session
+    private static final AttributeKey[] MEDIA_KEYS = { AttributeKey.candidate, AttributeKey.ssrc, AttributeKey.ssrcgroup, AttributeKey.msid };
+
+    // kinds of slot
+    private static final int ORIGIN = 0, ATTRIBUTE = 1, PORT = 2, CONNECTION = 3, MEDIA_ATTRIBUTES = 4;
+
+    private static final String PLACEHOLDER_ADDRESS = "0.0.0.0";
+
+    private final SDPUserAgent userAgent;
+
+    private final String normalizedOffer;
+
+    // answer content around the per-session fields; there is one more segment than there are slots
+    private final String[] segments;
+
+    // per-session field following each segment
+    private final Slot[] slots;
+
+    private final int mediaCount;
+
+    private final String lineEnding;
+
+    // approximate answer length, for sizing builders
+    private final int length;
+
+    /**
+     * Creates a template from a negotiated answer.
+     *
+     * @param userAgent
+     * @param normalizedOffer
+     * @param answer
+     * @throws IllegalArgumentException
+     *             if the answer has per-session media attributes at the session level
+     */
+    SDPAnswerTemplate(SDPUserAgent userAgent, String normalizedOffer, SessionDescription answer) {
+        this.userAgent = userAgent;
+        this.normalizedOffer = normalizedOffer;
+        String content = SDPWriter.write(answer);
+        lineEnding = answer.isRed5ProSDK() ? "\r\n" : "\n";
+        List<String> segmentList = new ArrayList<>();
+        List<Slot> slotList = new ArrayList<>();
+        StringBuilder segment = new StringBuilder(content.length());
+        // index of the current media description, -1 at the session level
+        int media = -1;
+        boolean mediaAttributes = false;
+        int start = 0;
+        while (start < content.length()) {
+            int end = content.indexOf('\n', start);
+            end = end == -1 ? content.length() : end + 1;
+            if (content.startsWith("m=", start)) {
+                media++;
+                mediaAttributes = false;
+                // the port follows the media type
+                int portStart = content.indexOf(' ', start) + 1;
+                int portEnd = content.indexOf(' ', portStart);
+                if (portStart > 0 && portEnd > portStart && !isPlaceholderPort(content, portStart, portEnd)) {
+                    segment.append(content, start, portStart);
+                    cut(segmentList, slotList, segment, new Slot(PORT, null, media));
+                    segment.append(content, portEnd, end);
+                } else {
+                    segment.append(content, start, end);
+                }
+            } else if (content.startsWith("c=", start) && media >= 0 && !content.startsWith(PLACEHOLDER_ADDRESS, lineContentEnd(content, start, end) - PLACEHOLDER_ADDRESS.length())) {
+                cut(segmentList, slotList, segment, new Slot(CONNECTION, null, media));
+            } else if (content.startsWith("o=", start)) {
+                cut(segmentList, slotList, segment, new Slot(ORIGIN, null, media));
+            } else if (attributeKey(content, start, SESSION_KEYS) != null) {
+                cut(segmentList, slotList, segment, new Slot(ATTRIBUTE, attributeKey(content, start, SESSION_KEYS), media));
+            } else if (attributeKey(content, start, MEDIA_KEYS) != null) {
+                if (media < 0) {
+                    throw new IllegalArgumentException("Media attribute at session level: " + content.substring(start, end).trim());
+                }
+                // the media session's attributes go where the first of these was, the rest are dropped
+                if (!mediaAttributes) {
+                    mediaAttributes = true;
+                    cut(segmentList, slotList, segment, new Slot(MEDIA_ATTRIBUTES, null, media));
+                }
+            } else {
+                segment.append(content, start, end);
+            }
+            start = end;
+        }
+        segmentList.add(segment.toString());
+        segments = segmentList.toArray(new String[0]);
+        slots = slotList.toArray(new Slot[0]);
+        mediaCount = media + 1;
+        length = content.length();
+    }
+
+    private static void cut(List<String> segmentList, List<Slot> slotList, StringBuilder segment, Slot slot) {
+        segmentList.add(segment.toString());
+        segment.setLength(0);
+        slotList.add(slot);
+    }
+
+    /**
+     * Creates the content of an answer whose media descriptions have no per-session content of their own, using the
+     * placeholder port and address and leaving out any per-session media attributes.
+     *
+     * @param origin
+     *            origin of the answer
+     * @param values
+     *            values of the per-session attributes; any the answer needs which are missing are left out
+     * @return answer sdp
+     */
+    public String newAnswer(OriginField origin, Map<AttributeKey, String> values) {
+        return newAnswer(origin, values, null);
+    }
+
+    /**
+     * Creates the content of an answer.
+     *
+     * @param origin
+     *            origin of the answer
+     * @param values
+     *            values of the per-session attributes; any the answer needs which are missing are left out
+     * @param media
+     *            per-session content of each media description, in order; missing entries get the placeholder port and
+     *            address and no per-session attributes
+     * @return answer sdp
+     */
+    public String newAnswer(OriginField origin, Map<AttributeKey, String> values, MediaSession[] media) {
+        StringBuilder sb = new StringBuilder(length + 256);
+        for (int i = 0; i < slots.length; i++) {
+            sb.append(segments[i]);
+            Slot slot = slots[i];
+            MediaSession session = media != null && slot.media >= 0 && slot.media < media.length ? media[slot.media] : null;
+            switch (slot.kind) {
+                case ORIGIN:
+                    endLine(SDPWriter.append(sb, origin));
+                    break;
+                case ATTRIBUTE:
+                    String value = values.get(slot.key);
+                    if (value != null) {
+                        sb.append("a=").append(slot.key).append(':').append(value).append(lineEnding);
+                    }
+                    break;
+                case PORT:
+                    sb.append(session != null ? session.port : 9);
+                    break;
+                case CONNECTION:
+                    if (session != null && session.connection != null) {
+                        endLine(SDPWriter.append(sb, session.connection));
+                    } else {
+                        sb.append("c=IN IP4 ").append(PLACEHOLDER_ADDRESS).append(lineEnding);
+                    }
+                    break;
+                case MEDIA_ATTRIBUTES:
+                    if (session != null && session.attributes != null) {
+                        for (AttributeField attribute : session.attributes) {
+                            endLine(SDPWriter.append(sb, attribute));
+                        }
+                    }
+                    break;
+            }
+        }
+        return sb.append(segments[slots.length]).toString();
+    }
+
+    private void endLine(StringBuilder sb) {
+        sb.setLength(sb.length() - 1);
+        sb.append(lineEnding);
+    }
+
+    /**
+     * Creates an answer.
+     *
+     * @param origin
+     *            origin of the answer
+     * @param values
+     *            values of the per-session attributes; any the answer needs which are missing are left out
+     * @return answer
+     */
+    public SessionDescription newSessionDescription(OriginField origin, Map<AttributeKey, String> values) {
+        return SDPFactory.createSessionDescription(userAgent, newAnswer(origin, values));
+    }
+
+    /**
+     * Creates an answer.
+     *
+     * @param origin
+     *            origin of the answer
+     * @param values
+     *            values of the per-session attributes; any the answer needs which are missing are left out
+     * @param media
+     *            per-session content of each media description, in order
+     * @return answer
+     */
+    public SessionDescription newSessionDescription(OriginField origin, Map<AttributeKey, String> values, MediaSession[] media) {
+        return SDPFactory.createSessionDescription(userAgent, newAnswer(origin, values, media));
+    }
+
+    public SDPUserAgent getUserAgent() {
+        return userAgent;
+    }
+
+    /**
+     * Returns the number of media descriptions in the answer, which is how many media sessions it takes.
+     *
+     * @return media descriptions
+     */
+    public int getMediaCount() {
+        return mediaCount;
+    }
+
+    String getNormalizedOffer() {
+        return normalizedOffer;
+    }
+
+    private static AttributeKey attributeKey(String content, int start, AttributeKey[] keys) {
+        if (content.startsWith("a=", start)) {
+            for (AttributeKey key : keys) {
+                String name = key.toString();
+                int nameEnd = start + 2 + name.length();
+                if (content.startsWith(name, start + 2) && content.length() > nameEnd && (content.charAt(nameEnd) == ':' || content.charAt(nameEnd) == '\r' || content.charAt(nameEnd) == '\n')) {
+                    return key;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isPlaceholderPort(String content, int start, int end) {
+        return (end - start == 1) && (content.charAt(start) == '9' || content.charAt(start) == '0');
+    }
+
+    // end of a line without its line ending
+    private static int lineContentEnd(String content, int start, int end) {
+        while (end > start && (content.charAt(end - 1) == '\n' || content.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Per-session content of one media description of an answer: the port and connection address allocated for the
+     * session and its candidate, ssrc, ssrc-group and msid attributes.
+     */
+    public static final class MediaSession {
+
+        private final int port;
+
+        // null for the placeholder address
+        private final ConnectionField connection;
+
+        private final List<AttributeField> attributes;
+
+        /**
+         * Creates a media session.
+         *
+         * @param port
+         *            port for the m= line, used where the negotiated answer had a real port
+         * @param connection
+         *            connection for the c= line, used where the negotiated answer had a real address; may be null
+         * @param attributes
+         *            candidate, ssrc, ssrc-group and msid attributes; may be null
+         */
+        public MediaSession(int port, ConnectionField connection, List<AttributeField> attributes) {
+            this.port = port;
+            this.connection = connection;
+            this.attributes = attributes;
+        }
+
+    }
+
+    private static final class Slot {
+
+        final int kind;
+
+        // attribute filled in, for attribute slots
+        final AttributeKey key;
+
+        // media description index, -1 at the session level
+        final int media;
+
+        Slot(int kind, AttributeKey key, int media) {
+            this.kind = kind;
+            this.key = key;
+            this.media = media;
+        }
+
+    }
+
+}
@@ -0,0 +1,782 @@
+package com.red5pro.media.sdp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.media.VideoConstants;
+import com.red5pro.media.sdp.model.AttributeField;
+import com.red5pro.media.sdp.model.AttributeKey;
+import com.red5pro.media.sdp.model.BandwidthField;
+import com.red5pro.media.sdp.model.ConnectionField;
+import com.red5pro.media.sdp.model.MediaField;
+import com.red5pro.media.sdp.model.OriginField;
+import com.red5pro.media.sdp.model.SDPMediaType;
+import com.red5pro.media.sdp.model.SessionField;
+import com.red5pro.server.util.NetworkManager;
+
+/**
+ * Single pass SDP parser. The raw content is walked once by index; lines and the parts of each field are located by
+ * their offsets, so neither regular expressions nor intermediate arrays are used and only the values which end up in
+ * the model are copied out. Fields are accepted exactly as the patterns on the model classes would accept them.
+ *
+ * @author Paul Gregoire
+ */
+final class SDPParser {
+
+    private static Logger log = LoggerFactory.getLogger(SDPParser.class);
+
+    // attribute keys by the first character of their enum name
+    private static final AttributeKey[][] KEYS_BY_INITIAL = new AttributeKey[128][];
+
+    // media types, in declaration order
+    private static final SDPMediaType[] MEDIA_TYPES = SDPMediaType.values();
+
+    // protocols seen in nearly every m= line, reused instead of copied
+    private static final String[] PROTOCOLS = { MediaField.PROTOCOL_UDP, MediaField.PROTOCOL_ANY, MediaField.PROTOCOL_TCP, MediaField.PROTOCOL_AVP, MediaField.PROTOCOL_SCTP, MediaField.PROTOCOL_UDP_SCTP, MediaField.PROTOCOL_TCP_SCTP };
+
+    private static final String DATACHANNEL = "webrtc-datachannel";
+
+    static {
+        for (AttributeKey key : AttributeKey.values()) {
+            int initial = key.name().charAt(0);
+            AttributeKey[] keys = KEYS_BY_INITIAL[initial];
+            if (keys == null) {
+                keys = new AttributeKey[] { key };
+            } else {
+                AttributeKey[] temp = new AttributeKey[keys.length + 1];
+                System.arraycopy(keys, 0, temp, 0, keys.length);
+                temp[keys.length] = key;
+                keys = temp;
+            }
+            KEYS_BY_INITIAL[initial] = keys;
+        }
+    }
+
+    private final SessionDescription sdp;
+
+    // holder for current media field / media description
+    private MediaField mediaField;
+
+    // set when the current m= line could not be parsed, so that its fields are dropped
+    private boolean skipMedia;
+
+    SDPParser(SessionDescription sdp) {
+        this.sdp = sdp;
+    }
+
+    /**
+     * Parse raw sdp content into the supplied SessionDescription instance. Lines may be terminated by lf, cr, or crlf.
+     *
+     * @param sdp
+     * @param rawSdp
+     */
+    static void parse(SessionDescription sdp, CharSequence rawSdp) {
+        SDPParser parser = new SDPParser(sdp);
+        int length = rawSdp.length();
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            char ch;
+            while (end < length && (ch = rawSdp.charAt(end)) != '\n' && ch != '\r') {
+                end++;
+            }
+            if (end > start) {
+                parser.readLine(rawSdp, start, end);
+            }
+            start = end + 1;
+        }
+        parser.finish();
+    }
+
+    /**
+     * Parses a single line, without its line terminator.
+     *
+     * @param line
+     * @param start offset of the type character
+     * @param end offset following the last character
+     */
+    void readLine(CharSequence line, int start, int end) {
+        if (log.isDebugEnabled()) {
+            log.debug("{}", line.subSequence(start, end));
+        }
+        int eq = indexOf(line, '=', start, end);
+        if (eq <= start) {
+            log.warn("Malformed line: {}", line.subSequence(start, end));
+            return;
+        }
+        char entry = line.charAt(start);
+        // trim surrounding spaces to prevent parser issues
+        int vs = eq + 1, ve = end;
+        while (vs < ve && line.charAt(vs) <= ' ') {
+            vs++;
+        }
+        while (ve > vs && line.charAt(ve - 1) <= ' ') {
+            ve--;
+        }
+        if (skipMedia && entry != 'm') {
+            return;
+        }
+        switch (entry) {
+            case 'a':
+                AttributeField attr = parseAttribute(line, vs, ve);
+                if (attr != null) {
+                    if (mediaField == null) {
+                        addSessionAttribute(attr);
+                    } else {
+                        addMediaAttribute(attr);
+                    }
+                }
+                break;
+            case 'm':
+                mediaField = parseMedia(line, vs, ve);
+                skipMedia = (mediaField == null);
+                if (skipMedia) {
+                    log.warn("Unsupported media line: {}", line.subSequence(vs, ve));
+                } else {
+                    sdp.addMediaDescription(mediaField);
+                }
+                break;
+            case 'c':
+                ConnectionField cn = parseConnection(line, vs, ve);
+                if (cn == null) {
+                    log.warn("Unsupported connection line: {}", line.subSequence(vs, ve));
+                } else if (mediaField != null) {
+                    // media level attribute
+                    mediaField.setConnection(cn);
+                }
+                break;
+            case 'b':
+                BandwidthField bw = parseBandwidth(line, vs, ve);
+                if (mediaField == null) {
+                    // we're at session level
+                    sdp.setBandwidth(bw);
+                } else {
+                    // media level attribute
+                    mediaField.setBandwidth(bw);
+                }
+                break;
+            case 's': // session
+                sdp.setSession(parseSession(line, vs, ve));
+                break;
+            case 'o': // origin
+                if (containsIgnoreCase(line, "mozilla", vs, ve)) {
+                    sdp.setUA(SDPUserAgent.mozilla);
+                    sdp.setUnified(true);
+                } else if (indexOf(line, "ortc", vs, ve) != -1) {
+                    sdp.setUA(SDPUserAgent.edge);
+                    // XXX edge doesnt signal plan-b, but wants it
+                }
+                sdp.setOrigin(parseOrigin(line, vs, ve));
+                break;
+            case 't':
+                // time offsets
+                // create the timing field since it may not be 0 0 at some point
+                break;
+            case 'v':
+                // version is always 0 for the foreseeable future
+                break;
+            default:
+                log.warn("Unhandled line type: {}", entry);
+                if (log.isDebugEnabled()) {
+                    log.debug("Unhandled line: {}", line.subSequence(start, end));
+                }
+        }
+    }
+
+    private void addSessionAttribute(AttributeField attr) {
+        AttributeKey key = attr.getAttribute();
+        // check for plan-b, but make sure we're not FireFox
+        if (AttributeKey.msidsemantic == key) {
+            // ff uses unified / plan-a
+            if (sdp.isFirefox()) {
+                log.debug("Plan-B indicated, but ignoring due to our being firefox");
+            } else {
+                log.debug("Plan-B indicated"); // default
+            }
+        } else if (AttributeKey.group == key) {
+            log.debug("Group / bundle indicated");
+            sdp.setBundle(true);
+        } else if (AttributeKey.crypto == key) {
+            // parses and adds the crypto param to the sdp instance but doesnt add an 'a' field
+            sdp.addCrypto(attr.getValue(), false);
+        }
+        // we're at session level
+        sdp.addAttributeField(attr);
+    }
+
+    private void addMediaAttribute(AttributeField attr) {
+        mediaField.addAttributeField(attr);
+        // red5 pro sdk requries special handling that webrtc does not
+        if (sdp.isRed5ProSDK()) {
+            AttributeKey key = attr.getAttribute();
+            if (AttributeKey.control == key || AttributeKey.fmtp == key || AttributeKey.rtpmap == key) {
+                // look up the track matching our media field, creating one with the first payload id if needed
+                SDPTrack track = SDPMediaType.audio == mediaField.getMediaType() ? sdp.getAudioTrack() : sdp.getVideoTrack();
+                if (track == null) {
+                    track = new SDPTrack(sdp, mediaField.getMediaType(), mediaField.getFormats()[0]);
+                }
+                if (AttributeKey.control == key) {
+                    track.setControl(attr.getValue());
+                    log.debug("Created new track for control: {}", track);
+                } else if (AttributeKey.fmtp == key) {
+                    // a=fmtp:96 packetization-mode=1;sprop-parameter-sets=Z0LAINkAoD2hAAADAAEAAAMAMA8YMkg=,aMuDyyA=;profile-level-id=42C020
+                    parseFormatParameters(track, attr.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Completes the parse once all lines have been read.
+     */
+    void finish() {
+        // handle firefox not including rtpmap for opus
+        if (sdp.isFirefox()) {
+            // look for audio media line
+            MediaField audio = sdp.getMediaDescription(SDPMediaType.audio);
+            if (audio != null) {
+                // get default audio codec, it comes first 109, 111, etc; will not be 0, 8, 9
+                int audioCodecId = audio.getFormats()[0];
+                boolean hasOpus = false;
+                AttributeField[] audioAttrs = audio.getAttributes(AttributeKey.rtpmap);
+                for (AttributeField audioAttr : audioAttrs) {
+                    if (audioAttr.getValue().contains("opus")) {
+                        hasOpus = true;
+                        break;
+                    }
+                }
+                // no rtpmap attributes at all or none for opus
+                if (!hasOpus) {
+                    audio.addAttributeField(new AttributeField(AttributeKey.rtpmap, audioCodecId + " opus/48000/2"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the parameters of an fmtp value to a track. Parameters are separated by whitespace or semi-colons and a
+     * parameter without a value is the payload id.
+     *
+     * <pre>
+     * 97 profile-level-id=1;mode=AAC-hbr;sizelength=13;indexlength=3;indexdeltalength=3;config=119056E500
+     * </pre>
+     *
+     * @param track
+     * @param value
+     */
+    static void parseFormatParameters(SDPTrack track, String value) {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            char ch;
+            while (end < length && (ch = value.charAt(end)) != ';' && !isWhitespace(ch)) {
+                end++;
+            }
+            if (end > start) {
+                int eq = value.indexOf('=', start);
+                if (eq != -1 && eq < end) {
+                    // sprop-parameter-sets may and usually does have multiple `=` chars
+                    if (value.startsWith(VideoConstants.H264_SPROP_PARAMETER_SETS_FMTP, start)) {
+                        track.addParameter(VideoConstants.H264_SPROP_PARAMETER_SETS_FMTP, value.substring(eq + 1, end));
+                    } else {
+                        int valueEnd = value.indexOf('=', eq + 1);
+                        track.addParameter(value.substring(start, eq), value.substring(eq + 1, (valueEnd != -1 && valueEnd < end) ? valueEnd : end));
+                    }
+                } else {
+                    boolean negative = value.charAt(start) == '-';
+                    int payloadId = parseInt(value, (negative || value.charAt(start) == '+') ? start + 1 : start, end);
+                    if (payloadId != -1) {
+                        track.setPayloadId(negative ? -payloadId : payloadId);
+                    }
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Parses an attribute field; the first run of word characters or dashes is the key and anything following a colon
+     * directly after it is the value.
+     *
+     * <pre>
+     * a=&lt;attribute&gt;
+     * a=&lt;attribute&gt;:&lt;value&gt;
+     * </pre>
+     *
+     * @param s
+     * @param start
+     * @param end
+     * @return AttributeField or null if the key is missing or unsupported
+     */
+    static AttributeField parseAttribute(CharSequence s, int start, int end) {
+        int ks = start;
+        while (ks < end && !isKeyChar(s.charAt(ks))) {
+            ks++;
+        }
+        int ke = ks;
+        while (ke < end && isKeyChar(s.charAt(ke))) {
+            ke++;
+        }
+        if (ke == ks) {
+            return null;
+        }
+        AttributeKey key = lookupKey(s, ks, ke);
+        if (key == null) {
+            log.info("Unsupported attribute type: {}", s.subSequence(ks, ke));
+            return null;
+        }
+        String value = null;
+        if (ke < end && s.charAt(ke) == ':') {
+            value = s.subSequence(ke + 1, end).toString();
+        }
+        // construct the field
+        AttributeField field = new AttributeField(key, value);
+        log.debug("Created attribute: {}", field);
+        return field;
+    }
+
+    /**
+     * Parses a media field.
+     *
+     * <pre>
+     * m=&lt;media&gt; &lt;port&gt; &lt;proto&gt; &lt;fmt&gt; ...
+     * </pre>
+     *
+     * @param s
+     * @param start
+     * @param end
+     * @return MediaField or null if the line is not a valid media line
+     */
+    static MediaField parseMedia(CharSequence s, int start, int end) {
+        // media type of 4 to 11 word chars
+        int i = start;
+        while (i < end && isWordChar(s.charAt(i))) {
+            i++;
+        }
+        int typeEnd = i;
+        if (typeEnd - start < 4 || typeEnd - start > 11 || i >= end || s.charAt(i++) != ' ') {
+            return null;
+        }
+        // port of 1 to 5 digits
+        int portStart = i;
+        while (i < end && isDigit(s.charAt(i))) {
+            i++;
+        }
+        int portEnd = i;
+        if (portEnd == portStart || portEnd - portStart > 5 || i >= end || s.charAt(i++) != ' ') {
+            return null;
+        }
+        // protocol
+        int protoStart = i;
+        char ch;
+        while (i < end && (isWordChar(ch = s.charAt(i)) || ch == '/' || ch == '|')) {
+            i++;
+        }
+        int protoEnd = i;
+        // formats, each 1 to 4 digits, or the datachannel marker
+        int formatCount = 0;
+        boolean datachannel = false;
+        if (i < end && isWhitespace(s.charAt(i)) && regionMatches(s, i + 1, end, DATACHANNEL) && i + 1 + DATACHANNEL.length() == end) {
+            datachannel = true;
+        } else {
+            while (i < end) {
+                if (!isWhitespace(s.charAt(i++))) {
+                    return null;
+                }
+                int fs = i;
+                while (i < end && isDigit(s.charAt(i))) {
+                    i++;
+                }
+                if (i == fs || i - fs > 4) {
+                    return null;
+                }
+                formatCount++;
+            }
+            if (formatCount == 0) {
+                return null;
+            }
+        }
+        SDPMediaType type = lookupMediaType(s, start, typeEnd);
+        if (type == null) {
+            log.debug("Unknown media type: {}", s.subSequence(start, typeEnd));
+            return null;
+        }
+        String protocol = lookupProtocol(s, protoStart, protoEnd);
+        MediaField field;
+        switch (type) {
+            case application:
+                // have to handle the case of newer datachannel sdp entries
+                // normal "chrome" style: m=application 9 DTLS/SCTP 5000
+                // newer style: m=application 9 UDP/DTLS/SCTP webrtc-datachannel
+                // seen from Firefox: m=application 5000 UDP/DTLS/SCTP 5000
+                // IPCam metadata: m=application 0 RTP/AVP 107
+                if (protocol.contains("SCTP")) {
+                    // handle webrtc datachannel
+                    field = new MediaField(SDPMediaType.application, 9, protocol, new int[] { 5000 });
+                    // older style DC config uses port (5000) instead of webrtc-datachannel string
+                    if (!datachannel) {
+                        // add attributes for older type request
+                        field.addAttributeField(new AttributeField(AttributeKey.sctpport, "5000"));
+                        field.addAttributeField(new AttributeField(AttributeKey.maxmessagesize, "262144"));
+                    }
+                } else if (datachannel) {
+                    return null;
+                } else {
+                    // handle non-datachannel, keeping the first format
+                    int fe = protoEnd + 1;
+                    while (fe < end && isDigit(s.charAt(fe))) {
+                        fe++;
+                    }
+                    field = new MediaField(SDPMediaType.application, parseInt(s, portStart, portEnd), protocol, new int[] { parseInt(s, protoEnd + 1, fe) });
+                }
+                break;
+            case audio:
+            case video:
+            default:
+                if (datachannel) {
+                    return null;
+                }
+                // next up are the individual codec format / payload ids
+                int[] formats = new int[formatCount];
+                for (int f = 0, fs = protoEnd + 1; f < formatCount; f++) {
+                    int fe = fs;
+                    while (fe < end && isDigit(s.charAt(fe))) {
+                        fe++;
+                    }
+                    formats[f] = parseInt(s, fs, fe);
+                    fs = fe + 1;
+                }
+                field = new MediaField(type, parseInt(s, portStart, portEnd), protocol, formats);
+                break;
+        }
+        log.debug("Created media: {}", field);
+        return field;
+    }
+
+    /**
+     * Parses a connection field.
+     *
+     * <pre>
+     * c=&lt;nettype&gt; &lt;addrtype&gt; &lt;connection-address&gt;
+     * </pre>
+     *
+     * @param s
+     * @param start
+     * @param end
+     * @return ConnectionField or null if there are not exactly three parts or the types are unknown
+     */
+    static ConnectionField parseConnection(CharSequence s, int start, int end) {
+        int first = indexOfWhitespace(s, start, end);
+        if (first == -1) {
+            return null;
+        }
+        int second = indexOfWhitespace(s, first + 1, end);
+        if (second == -1 || indexOfWhitespace(s, second + 1, end) != -1 || second + 1 == end) {
+            return null;
+        }
+        if (first - start != 2 || !regionMatches(s, start, first, "IN")) {
+            log.debug("Unknown network type: {}", s.subSequence(start, first));
+            return null;
+        }
+        NetworkManager.NetworkType networkType = NetworkManager.NetworkType.IN;
+        NetworkManager.AddressType addressType;
+        if (second - first == 4 && regionMatches(s, first + 1, second, "IP4")) {
+            addressType = NetworkManager.AddressType.IP4;
+        } else if (second - first == 4 && regionMatches(s, first + 1, second, "IP6")) {
+            addressType = NetworkManager.AddressType.IP6;
+        } else {
+            log.debug("Unknown address type: {}", s.subSequence(first + 1, second));
+            return null;
+        }
+        ConnectionField field = new ConnectionField(s.subSequence(second + 1, end).toString(), networkType, addressType);
+        log.debug("Created connection: {}", field);
+        return field;
+    }
+
+    /**
+     * Parses a bandwidth field; the first two upper-case letter type followed by a colon and up to six digits is used.
+     *
+     * <pre>
+     * b=&lt;bwtype&gt;:&lt;bandwidth&gt;
+     * </pre>
+     *
+     * @param s
+     * @param start
+     * @param end
+     * @return BandwidthField or null if none was found
+     */
+    static BandwidthField parseBandwidth(CharSequence s, int start, int end) {
+        for (int i = start; i + 3 < end; i++) {
+            if (isUpper(s.charAt(i)) && isUpper(s.charAt(i + 1)) && s.charAt(i + 2) == ':' && isDigit(s.charAt(i + 3))) {
+                int ve = i + 3;
+                while (ve < end && ve < i + 9 && isDigit(s.charAt(ve))) {
+                    ve++;
+                }
+                String type = (s.charAt(i) == 'A' && s.charAt(i + 1) == 'S') ? "AS" : s.subSequence(i, i + 2).toString();
+                BandwidthField field = new BandwidthField(type, parseInt(s, i + 3, ve));
+                log.debug("Created bandwidth: {}", field);
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses a session field; the first run of word characters, whitespace or dashes is the name.
+     *
+     * <pre>
+     * s=&lt;session name&gt;
+     * </pre>
+     *
+     * @param s
+     * @param start
+     * @param end
+     * @return SessionField or null if no name was found
+     */
+    static SessionField parseSession(CharSequence s, int start, int end) {
+        int ns = start;
+        while (ns < end && !isSessionChar(s.charAt(ns))) {
+            ns++;
+        }
+        int ne = ns;
+        while (ne < end && isSessionChar(s.charAt(ne))) {
+            ne++;
+        }
+        if (ne == ns) {
+            return null;
+        }
+        SessionField field = new SessionField((ne - ns == 1 && s.charAt(ns) == '-') ? "-" : s.subSequence(ns, ne).toString());
+        log.debug("Created session: {}", field);
+        return field;
+    }
+
+    /**
+     * Parses an origin field. As with a pattern search, the user name is the last run of word characters or dashes
+     * which is followed by the remainder of a valid IPv4 origin.
+     *
+     * <pre>
+     * o=&lt;username&gt; &lt;sess-id&gt; &lt;sess-version&gt; IN IP4 &lt;unicast-address&gt;
+     * </pre>
+     *
+     * @param s
+     * @param start
+     * @param end
+     * @return OriginField or null if none was found
+     */
+    static OriginField parseOrigin(CharSequence s, int start, int end) {
+        int us = start;
+        while (us < end) {
+            // find the start of the next candidate user name
+            while (us < end && !isKeyChar(s.charAt(us))) {
+                us++;
+            }
+            int ue = us;
+            while (ue < end && isKeyChar(s.charAt(ue))) {
+                ue++;
+            }
+            if (ue == us) {
+                break;
+            }
+            // session id
+            int i = ue;
+            if (i < end && s.charAt(i) == ' ') {
+                int ids = ++i;
+                while (i < end && isDigit(s.charAt(i))) {
+                    i++;
+                }
+                int ide = i;
+                // session version
+                if (ide > ids && i < end && s.charAt(i) == ' ') {
+                    int vs = ++i;
+                    while (i < end && isDigit(s.charAt(i))) {
+                        i++;
+                    }
+                    int ve = i;
+                    if (ve > vs && regionMatches(s, i, end, " IN IP4 ")) {
+                        // dotted quad
+                        int as = i + 8;
+                        i = as;
+                        int octets = 0;
+                        while (octets < 4) {
+                            int os = i;
+                            while (i < end && i - os < 3 && isDigit(s.charAt(i))) {
+                                i++;
+                            }
+                            if (i == os || (++octets < 4 && (i >= end || s.charAt(i++) != '.'))) {
+                                break;
+                            }
+                        }
+                        if (octets == 4 && i > as && isDigit(s.charAt(i - 1))) {
+                            OriginField field = new OriginField(s.subSequence(us, ue).toString(), s.subSequence(ids, ide).toString(), Long.parseLong(s.subSequence(vs, ve).toString()), s.subSequence(as, i).toString());
+                            log.debug("Created origin: {}", field);
+                            return field;
+                        }
+                    }
+                }
+            }
+            // a later start within the same run cannot match any differently
+            us = ue;
+        }
+        return null;
+    }
+
+    /**
+     * Looks up an attribute key, ignoring any dashes in the name.
+     */
+    private static AttributeKey lookupKey(CharSequence s, int start, int end) {
+        int first = start;
+        while (first < end && s.charAt(first) == '-') {
+            first++;
+        }
+        if (first == end || s.charAt(first) >= 128) {
+            return null;
+        }
+        AttributeKey[] keys = KEYS_BY_INITIAL[s.charAt(first)];
+        if (keys != null) {
+            for (AttributeKey key : keys) {
+                String name = key.name();
+                int n = 0, length = name.length();
+                int i = first;
+                for (; i < end; i++) {
+                    char ch = s.charAt(i);
+                    if (ch == '-') {
+                        continue;
+                    }
+                    if (n == length || name.charAt(n) != ch) {
+                        break;
+                    }
+                    n++;
+                }
+                if (i == end && n == length) {
+                    return key;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static SDPMediaType lookupMediaType(CharSequence s, int start, int end) {
+        for (SDPMediaType type : MEDIA_TYPES) {
+            String name = type.name();
+            if (name.length() == end - start && regionMatches(s, start, end, name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static String lookupProtocol(CharSequence s, int start, int end) {
+        for (String protocol : PROTOCOLS) {
+            if (protocol.length() == end - start && regionMatches(s, start, end, protocol)) {
+                return protocol;
+            }
+        }
+        return s.subSequence(start, end).toString();
+    }
+
+    /**
+     * Parses a non-negative decimal number.
+     *
+     * @return number or -1 if the range is empty or contains anything other than digits
+     */
+    private static int parseInt(CharSequence s, int start, int end) {
+        if (start >= end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char ch = s.charAt(i);
+            if (!isDigit(ch)) {
+                return -1;
+            }
+            value = value * 10 + (ch - '0');
+        }
+        return value;
+    }
+
+    private static boolean regionMatches(CharSequence s, int offset, int end, String str) {
+        int length = str.length();
+        if (offset + length > end) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(offset + i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean containsIgnoreCase(CharSequence s, String str, int start, int end) {
+        for (int i = start, last = end - str.length(); i <= last; i++) {
+            int n = 0;
+            while (n < str.length() && Character.toLowerCase(s.charAt(i + n)) == str.charAt(n)) {
+                n++;
+            }
+            if (n == str.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static int indexOf(CharSequence s, String str, int start, int end) {
+        for (int i = start, last = end - str.length(); i <= last; i++) {
+            if (regionMatches(s, i, end, str)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int indexOf(CharSequence s, char ch, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfWhitespace(CharSequence s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (isWhitespace(s.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    private static boolean isUpper(char ch) {
+        return ch >= 'A' && ch <= 'Z';
+    }
+
+    // matches the regex \w class
+    private static boolean isWordChar(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || isDigit(ch) || ch == '_';
+    }
+
+    // matches the regex \s class
+    private static boolean isWhitespace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r' || ch == '\f' || ch == 0x0B;
+    }
+
+    // matches [\w|-] as used by the attribute and origin patterns
+    private static boolean isKeyChar(char ch) {
+        return isWordChar(ch) || ch == '-' || ch == '|';
+    }
+
+    // matches [\w|\d|\s|-] as used by the session pattern
+    private static boolean isSessionChar(char ch) {
+        return isKeyChar(ch) || isWhitespace(ch);
+    }
+
+}
@@ -1,12 +1,11 @@
 package com.red5pro.media.sdp;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.red5pro.media.VideoConstants;
 import com.red5pro.media.sdp.model.AttributeField;
 import com.red5pro.media.sdp.model.AttributeKey;
 import com.red5pro.media.sdp.model.BandwidthField;
@@ -15,7 +14,10 @@ import com.red5pro.media.sdp.model.MediaField;
 import com.red5pro.media.sdp.model.SDPMediaType;
 
 /**
- * Decoder for handling an SDP one line at a time. Call doFinal() when all the lines have be added.
+ * Decoder for handling an SDP one line at a time, as it arrives over the wire. Lines may be given as strings, character
+ * sequences or byte slices, with or without their line terminators, and a chunk holding several lines is split up.
+ * Fields are located by index with the SDPParser field parsers, so decoding doesn't allocate beyond the model objects.
+ * Call doFinal() when all the lines have be added.
  *
  * @author Paul Gregoire
  */
@@ -29,134 +31,269 @@ public class SDPSingleLineDecoder {
     // holder for current or last media field / media description
     private MediaField mediaField;
 
+    // track of the current media field, once it has been looked up or created
+    private SDPTrack track;
+
+    // set when the current m= line could not be parsed, so that its fields are dropped
+    private boolean skipMedia;
+
+    // view of the byte slice being decoded
+    private final AsciiSequence ascii = new AsciiSequence();
+
     public void readLine(String in) {
-        if (log.isDebugEnabled()) {
-            log.debug("{}", in);
+        if (in != null) {
+            readLine(in, 0, in.length());
         }
-        if (StringUtils.isNotEmpty(in)) {
-            // strip the crlf and spilt on equals
-            String[] line = in.replaceAll("[\n|\r\n]", "").split("=", 2);
-            if (log.isDebugEnabled()) {
-                log.debug("Line - {}", Arrays.toString(line));
+    }
+
+    public void readLine(CharSequence in) {
+        if (in != null) {
+            readLine(in, 0, in.length());
+        }
+    }
+
+    /**
+     * Reads the line or lines within the given range.
+     *
+     * @param in
+     * @param start
+     * @param end
+     */
+    public void readLine(CharSequence in, int start, int end) {
+        while (start < end) {
+            int lineEnd = start;
+            char ch;
+            while (lineEnd < end && (ch = in.charAt(lineEnd)) != '\n' && ch != '\r') {
+                lineEnd++;
             }
-            char entry = line[0].charAt(0);
-            switch (entry) {
-                case 'a':
-                    AttributeField attr = SDPFactory.createAttributeField(line[1]);
-                    if (attr != null) {
-                        AttributeKey key = attr.getAttribute();
-                        if (mediaField == null) {
-                            // check for plan-b, but make sure we're not FireFox
-                            if (AttributeKey.msidsemantic.equals(key)) {
-                                // ff uses unified / plan-a
-                                if (sdp.isFirefox()) {
-                                    log.debug("Plan-B indicated, but ignoring due to our being firefox");
-                                } else {
-                                    log.debug("Plan-B indicated"); // default
-                                }
-                            } else if (AttributeKey.group.equals(key)) {
-                                log.debug("Group / bundle indicated");
-                                sdp.setBundle(true);
-                            }
-                            // we're at session level
-                            sdp.addAttributeField(attr);
-                        } else {
-                            // media level attribute
-                            log.debug("Media attribute: {}", attr);
-                            mediaField.addAttributeField(attr);
-                            // look up the track matching our media field
-                            SDPMediaType mtype = mediaField.getMediaType();
-                            SDPTrack track = SDPMediaType.audio.equals(mtype) ? sdp.getAudioTrack() : (SDPMediaType.video.equals(mtype) ? sdp.getVideoTrack() : sdp.getApplicationTrack());
-                            // if the attribute is control, create a track with the first payload id
-                            if (AttributeKey.control.equals(key)) {
-                                if (track == null) {
-                                    track = new SDPTrack(sdp, mediaField.getMediaType(), mediaField.getFormats()[0]);
-                                }
-                                track.setControl(attr.getValue());
-                                log.debug("Created new track for control: {}", track);
-                            } else if (AttributeKey.fmtp.equals(key)) {
-                                // if the user agent is red5 pro sdk get the track and apply these incoming parameters
-                                // if the track is null, control doesnt exist in the parse yet or fmtp came before it
-                                if (track == null) {
-                                    track = new SDPTrack(sdp, mediaField.getMediaType(), mediaField.getFormats()[0]);
-                                }
-                                // a=fmtp:96 packetization-mode=1;sprop-parameter-sets=Z0LAINkAoD2hAAADAAEAAAMAMA8YMkg=,aMuDyyA=;profile-level-id=42C020
-                                // a=fmtp:97 profile-level-id=1;mode=AAC-hbr;sizelength=13;indexlength=3;indexdeltalength=3;config=119056E500
-                                String[] fmtParams = attr.getValue().split("\\s|;");
-                                log.debug("Format params array: {}", Arrays.toString(fmtParams));
-                                for (String fmtParam : fmtParams) {
-                                    if (StringUtils.isNotBlank(fmtParam)) {
-                                        if (fmtParam.contains("=")) {
-                                            // sprop-parameter-sets may and usually does have multiple `=` chars
-                                            if (fmtParam.startsWith(VideoConstants.H264_SPROP_PARAMETER_SETS_FMTP)) {
-                                                track.addParameter(VideoConstants.H264_SPROP_PARAMETER_SETS_FMTP, fmtParam.substring(fmtParam.indexOf('=') + 1));
-                                            } else {
-                                                String[] param = fmtParam.split("=");
-                                                track.addParameter(param[0], param[1]);
-                                            }
-                                        } else {
-                                            track.setPayloadId(Integer.valueOf(fmtParam));
-                                        }
-                                    }
-                                }
-                            }
+            if (lineEnd > start) {
+                decode(in, start, lineEnd);
+            }
+            start = lineEnd + 1;
+        }
+    }
 
-                        }
-                    }
-                    break;
-                case 'm':
-                    mediaField = SDPFactory.createMediaField(line[1]);
-                    // log.debug("Media: {}", mediaField);
-                    sdp.addMediaDescription(mediaField);
-                    break;
-                case 'c':
-                    ConnectionField cn = SDPFactory.createConnectionField(line[1]);
-                    if (mediaField != null) {
-                        // media level attribute
-                        mediaField.setConnection(cn);
-                    }
-                    break;
-                case 'b':
-                    BandwidthField bw = SDPFactory.createBandwidthField(line[1]);
+    /**
+     * Reads the UTF-8 encoded line or lines within the given slice.
+     *
+     * @param buf
+     * @param offset
+     * @param length
+     */
+    public void readLine(byte[] buf, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (buf[i] < 0) {
+                // not ascii, which is rare enough to not be worth decoding in place
+                readLine(new String(buf, offset, length, StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        ascii.wrap(buf, offset, length);
+        try {
+            readLine(ascii, 0, length);
+        } finally {
+            ascii.wrap(null, 0, 0);
+        }
+    }
+
+    /**
+     * Reads the UTF-8 encoded line or lines between the position and limit of the given buffer, without consuming
+     * them.
+     *
+     * @param buf
+     */
+    public void readLine(ByteBuffer buf) {
+        if (buf.hasArray()) {
+            readLine(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+        } else {
+            byte[] bytes = new byte[buf.remaining()];
+            buf.duplicate().get(bytes);
+            readLine(bytes, 0, bytes.length);
+        }
+    }
+
+    private void decode(CharSequence line, int start, int end) {
+        if (log.isDebugEnabled()) {
+            log.debug("{}", line.subSequence(start, end));
+        }
+        int eq = SDPParser.indexOf(line, '=', start, end);
+        if (eq <= start) {
+            log.warn("Malformed line: {}", line.subSequence(start, end));
+            return;
+        }
+        char entry = line.charAt(start);
+        // trim surrounding spaces to prevent parser issues
+        int vs = eq + 1, ve = end;
+        while (vs < ve && line.charAt(vs) <= ' ') {
+            vs++;
+        }
+        while (ve > vs && line.charAt(ve - 1) <= ' ') {
+            ve--;
+        }
+        if (skipMedia && entry != 'm') {
+            return;
+        }
+        switch (entry) {
+            case 'a':
+                AttributeField attr = SDPParser.parseAttribute(line, vs, ve);
+                if (attr != null) {
+                    AttributeKey key = attr.getAttribute();
                     if (mediaField == null) {
+                        // check for plan-b, but make sure we're not FireFox
+                        if (AttributeKey.msidsemantic == key) {
+                            // ff uses unified / plan-a
+                            if (sdp.isFirefox()) {
+                                log.debug("Plan-B indicated, but ignoring due to our being firefox");
+                            } else {
+                                log.debug("Plan-B indicated"); // default
+                            }
+                        } else if (AttributeKey.group == key) {
+                            log.debug("Group / bundle indicated");
+                            sdp.setBundle(true);
+                        }
                         // we're at session level
-                        sdp.setBandwidth(bw);
+                        sdp.addAttributeField(attr);
                     } else {
                         // media level attribute
-                        mediaField.setBandwidth(bw);
-                    }
-                    break;
-                case 's': // session
-                    sdp.setSession(SDPFactory.createSessionField(line[1]));
-                    break;
-                case 'o': // origin
-                    if (line[1].toLowerCase().contains("mozilla")) {
-                        sdp.setUA(SDPUserAgent.mozilla);
-                        sdp.setUnified(true);
-                    } else if (line[1].contains("ortc")) {
-                        sdp.setUA(SDPUserAgent.edge);
-                        // XXX edge doesnt signal plan-b, but wants it
-                    }
-                    sdp.setOrigin(SDPFactory.createOriginField(line[1]));
-                    break;
-                case 't':
-                    // time offsets
-                    // create the timing field since it may not be 0 0 at some point
-                    break;
-                case 'v':
-                    // version is always 0 for the foreseeable future
-                    break;
-                default:
-                    log.warn("Unhandled line type: {}", entry);
-                    if (log.isDebugEnabled()) {
-                        log.debug("Unhandled line: {}", Arrays.toString(line));
+                        log.debug("Media attribute: {}", attr);
+                        mediaField.addAttributeField(attr);
+                        // if the attribute is control, create a track with the first payload id
+                        if (AttributeKey.control == key) {
+                            track().setControl(attr.getValue());
+                            log.debug("Created new track for control: {}", track);
+                        } else if (AttributeKey.fmtp == key) {
+                            // if the track is null, control doesnt exist in the parse yet or fmtp came before it
+                            // a=fmtp:96 packetization-mode=1;sprop-parameter-sets=Z0LAINkAoD2hAAADAAEAAAMAMA8YMkg=,aMuDyyA=;profile-level-id=42C020
+                            // a=fmtp:97 profile-level-id=1;mode=AAC-hbr;sizelength=13;indexlength=3;indexdeltalength=3;config=119056E500
+                            SDPParser.parseFormatParameters(track(), attr.getValue());
+                        }
                     }
+                }
+                break;
+            case 'm':
+                mediaField = SDPParser.parseMedia(line, vs, ve);
+                track = null;
+                skipMedia = (mediaField == null);
+                if (skipMedia) {
+                    log.warn("Unsupported media line: {}", line.subSequence(vs, ve));
+                } else {
+                    sdp.addMediaDescription(mediaField);
+                }
+                break;
+            case 'c':
+                ConnectionField cn = SDPParser.parseConnection(line, vs, ve);
+                if (cn == null) {
+                    log.warn("Unsupported connection line: {}", line.subSequence(vs, ve));
+                } else if (mediaField != null) {
+                    // media level attribute
+                    mediaField.setConnection(cn);
+                }
+                break;
+            case 'b':
+                BandwidthField bw = SDPParser.parseBandwidth(line, vs, ve);
+                if (mediaField == null) {
+                    // we're at session level
+                    sdp.setBandwidth(bw);
+                } else {
+                    // media level attribute
+                    mediaField.setBandwidth(bw);
+                }
+                break;
+            case 's': // session
+                sdp.setSession(SDPParser.parseSession(line, vs, ve));
+                break;
+            case 'o': // origin
+                if (SDPParser.containsIgnoreCase(line, "mozilla", vs, ve)) {
+                    sdp.setUA(SDPUserAgent.mozilla);
+                    sdp.setUnified(true);
+                } else if (SDPParser.indexOf(line, "ortc", vs, ve) != -1) {
+                    sdp.setUA(SDPUserAgent.edge);
+                    // XXX edge doesnt signal plan-b, but wants it
+                }
+                sdp.setOrigin(SDPParser.parseOrigin(line, vs, ve));
+                break;
+            case 't':
+                // time offsets
+                // create the timing field since it may not be 0 0 at some point
+                break;
+            case 'v':
+                // version is always 0 for the foreseeable future
+                break;
+            default:
+                log.warn("Unhandled line type: {}", entry);
+                if (log.isDebugEnabled()) {
+                    log.debug("Unhandled line: {}", line.subSequence(start, end));
+                }
+        }
+    }
+
+    /**
+     * Returns the track matching the current media field, creating one with its first payload id if there is none.
+     *
+     * @return track
+     */
+    private SDPTrack track() {
+        if (track == null) {
+            SDPMediaType mtype = mediaField.getMediaType();
+            track = SDPMediaType.audio == mtype ? sdp.getAudioTrack() : (SDPMediaType.video == mtype ? sdp.getVideoTrack() : sdp.getApplicationTrack());
+            if (track == null) {
+                track = new SDPTrack(sdp, mtype, mediaField.getFormats()[0]);
             }
         }
+        return track;
     }
 
     public SessionDescription doFinal() {
         return sdp;
     }
 
+    /**
+     * Discards the decoded session description so the decoder may be used for another.
+     */
+    public void reset() {
+        sdp = new SessionDescription();
+        mediaField = null;
+        track = null;
+        skipMedia = false;
+    }
+
+    /**
+     * Read-only view of ascii bytes as characters.
+     */
+    private static final class AsciiSequence implements CharSequence {
+
+        private byte[] buf;
+
+        private int offset;
+
+        private int length;
+
+        void wrap(byte[] buf, int offset, int length) {
+            this.buf = buf;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) buf[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(buf, offset + start, end - start, StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buf, offset, length, StandardCharsets.US_ASCII);
+        }
+
+    }
+
 }
@@ -133,7 +133,7 @@ public class SDPTrack {
                         }
                     }
                 } else {
-                    mediaField.addAttributeField(SDPFactory.createAttributeField(AttributeKey.control, String.format("trackID=%d", controlChannelId)));
+                    mediaField.addAttributeField(SDPFactory.createAttributeField(AttributeKey.control, "trackID=" + controlChannelId));
                 }
             } else if (controlAttr == null) {
                 mediaField.addAttributeField(SDPFactory.createAttributeField(AttributeKey.control, control));
@@ -0,0 +1,416 @@
+package com.red5pro.media.sdp;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.red5pro.media.sdp.model.AttributeField;
+import com.red5pro.media.sdp.model.AttributeKey;
+import com.red5pro.media.sdp.model.BandwidthField;
+import com.red5pro.media.sdp.model.ConnectionField;
+import com.red5pro.media.sdp.model.MediaField;
+import com.red5pro.media.sdp.model.OriginField;
+import com.red5pro.media.sdp.model.SDPMediaType;
+import com.red5pro.media.sdp.model.SessionField;
+import com.red5pro.media.sdp.model.TimingField;
+import com.red5pro.util.IdGenerator;
+
+/**
+ * Serializes session descriptions and their fields without String.format or intermediate strings. Each thread reuses a
+ * pre-sized builder, so writing an answer only allocates the resulting String; writing to a caller supplied
+ * StringBuilder or ByteBuffer allocates nothing beyond the origin created for a session description without one. The
+ * toString methods of the SDP model delegate here, so the output is the same whichever is used.
+ *
+ * @author Paul Gregoire
+ */
+public final class SDPWriter {
+
+    // initial capacity of the per-thread builder, large enough for a typical browser offer or answer
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    // per-thread builders are dropped after writing something larger than this, rather than being held onto
+    private static final int MAX_RETAINED_CAPACITY = 65536;
+
+    // returned for attributes whose value doesn't start with a payload id
+    private static final int NO_PAYLOAD = Integer.MIN_VALUE;
+
+    private static final ThreadLocal<SDPWriter> WRITERS = ThreadLocal.withInitial(SDPWriter::new);
+
+    private StringBuilder sb = new StringBuilder(DEFAULT_CAPACITY);
+
+    // scratch array for ordering media descriptions
+    private MediaField[] ordered = new MediaField[4];
+
+    // guards the per-thread state should a model toString end up writing while a write is in progress
+    private boolean busy;
+
+    private SDPWriter() {
+    }
+
+    /**
+     * Serializes a session description.
+     *
+     * @param sdp
+     * @return sdp content
+     */
+    public static String write(SessionDescription sdp) {
+        SDPWriter writer = acquire();
+        try {
+            StringBuilder out = writer.writeSession(sdp);
+            if (sdp.isRed5ProSDK()) {
+                // swap lf for crlf for the pro sdk
+                StringBuilder crlf = new StringBuilder(out.length() + countLineFeeds(out));
+                appendCrlf(crlf, out);
+                return crlf.toString();
+            }
+            return out.toString();
+        } finally {
+            writer.release();
+        }
+    }
+
+    /**
+     * Serializes a session description onto the end of the given builder.
+     *
+     * @param sdp
+     * @param out
+     * @return the given builder
+     */
+    public static StringBuilder write(SessionDescription sdp, StringBuilder out) {
+        SDPWriter writer = acquire();
+        try {
+            StringBuilder content = writer.writeSession(sdp);
+            if (sdp.isRed5ProSDK()) {
+                out.ensureCapacity(out.length() + content.length() + countLineFeeds(content));
+                appendCrlf(out, content);
+            } else {
+                out.append(content);
+            }
+            return out;
+        } finally {
+            writer.release();
+        }
+    }
+
+    /**
+     * Serializes a session description as UTF-8 into the given buffer, starting at its position. On return the position
+     * is just past the content.
+     *
+     * @param sdp
+     * @param buf
+     * @return number of bytes written
+     * @throws BufferOverflowException
+     *             if the buffer does not have enough space remaining; its position is unchanged
+     */
+    public static int write(SessionDescription sdp, ByteBuffer buf) {
+        SDPWriter writer = acquire();
+        try {
+            StringBuilder content = writer.writeSession(sdp);
+            boolean crlf = sdp.isRed5ProSDK();
+            int start = buf.position();
+            try {
+                for (int i = 0, length = content.length(); i < length; i++) {
+                    char ch = content.charAt(i);
+                    if (ch < 0x80) {
+                        if (ch == '\n' && crlf) {
+                            buf.put((byte) '\r');
+                        }
+                        buf.put((byte) ch);
+                    } else if (ch < 0x800) {
+                        buf.put((byte) (0xc0 | (ch >> 6)));
+                        buf.put((byte) (0x80 | (ch & 0x3f)));
+                    } else if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(content.charAt(i + 1))) {
+                        int cp = Character.toCodePoint(ch, content.charAt(++i));
+                        buf.put((byte) (0xf0 | (cp >> 18)));
+                        buf.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+                        buf.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+                        buf.put((byte) (0x80 | (cp & 0x3f)));
+                    } else if (Character.isSurrogate(ch)) {
+                        // unpaired surrogate, same replacement as String.getBytes
+                        buf.put((byte) '?');
+                    } else {
+                        buf.put((byte) (0xe0 | (ch >> 12)));
+                        buf.put((byte) (0x80 | ((ch >> 6) & 0x3f)));
+                        buf.put((byte) (0x80 | (ch & 0x3f)));
+                    }
+                }
+            } catch (BufferOverflowException e) {
+                buf.position(start);
+                throw e;
+            }
+            return buf.position() - start;
+        } finally {
+            writer.release();
+        }
+    }
+
+    /**
+     * Appends a media description and its attributes. Codec attributes (rtpmap, fmtp and rtcp-fb) for payloads which
+     * are not among the media formats are left out.
+     *
+     * @param sb
+     * @param media
+     * @return the given builder
+     */
+    public static StringBuilder append(StringBuilder sb, MediaField media) {
+        SDPMediaType mediaType = media.getMediaType();
+        int[] formats = media.getFormats();
+        sb.append("m=").append(mediaType).append(' ').append(media.getPort()).append(' ');
+        // if its application (datachannel) type, we'll have special handling
+        if (mediaType == SDPMediaType.application) {
+            if (media.hasAttribute(AttributeKey.sctpport)) {
+                // XXX UDP vs TCP may matter one day...
+                sb.append(MediaField.PROTOCOL_UDP_SCTP).append(" webrtc-datachannel"); // newer draft uses this style + sctpport
+            } else {
+                sb.append(media.getProtocol()).append(' ').append(formats[0]);
+            }
+        } else {
+            sb.append(media.getProtocol());
+            if (formats != null) {
+                for (int format : formats) {
+                    sb.append(' ').append(format);
+                }
+            }
+        }
+        sb.append('\n');
+        // next line, connection
+        ConnectionField connection = media.getConnection();
+        if (connection != null) {
+            append(sb, connection);
+        }
+        // next line, bandwidth
+        BandwidthField bandwidth = media.getBandwidth();
+        if (bandwidth != null) {
+            append(sb, bandwidth);
+        }
+        // next line(s) attributes
+        AttributeField[] attributes = media.getAttributes();
+        if (attributes != null) {
+            for (AttributeField attribute : attributes) {
+                switch (attribute.getAttribute()) {
+                    case fmtp:
+                    case rtpmap:
+                    case rtcpfb:
+                        int payloadId = payloadId(attribute.getValue());
+                        if (payloadId != NO_PAYLOAD && Arrays.binarySearch(formats, payloadId) == -1) {
+                            break;
+                        }
+                    default:
+                        append(sb, attribute);
+                }
+            }
+        }
+        return sb;
+    }
+
+    public static StringBuilder append(StringBuilder sb, AttributeField attribute) {
+        sb.append("a=").append(attribute.getAttribute());
+        if (!attribute.isBinary()) {
+            sb.append(':').append(attribute.getValue());
+        }
+        return sb.append('\n');
+    }
+
+    public static StringBuilder append(StringBuilder sb, OriginField origin) {
+        sb.append("o=").append(origin.getUserName()).append(' ').append(origin.getSessionId()).append(' ').append(origin.getSessionVersion()).append(' ');
+        return sb.append(origin.getNetworkType()).append(' ').append(origin.getAddressType()).append(' ').append(origin.getAddress()).append('\n');
+    }
+
+    public static StringBuilder append(StringBuilder sb, SessionField session) {
+        return sb.append("s=").append(session.getName()).append('\n');
+    }
+
+    public static StringBuilder append(StringBuilder sb, TimingField timing) {
+        return sb.append("t=").append(timing.getStart()).append(' ').append(timing.getStop()).append('\n');
+    }
+
+    public static StringBuilder append(StringBuilder sb, ConnectionField connection) {
+        return sb.append("c=").append(connection.getNetworkType()).append(' ').append(connection.getAddressType()).append(' ').append(connection.getAddress()).append('\n');
+    }
+
+    public static StringBuilder append(StringBuilder sb, BandwidthField bandwidth) {
+        return sb.append("b=").append(bandwidth.getType()).append(':').append(bandwidth.getBandwidth()).append('\n');
+    }
+
+    private static SDPWriter acquire() {
+        SDPWriter writer = WRITERS.get();
+        if (writer.busy) {
+            // nested write on this thread, use a throw-away writer instead
+            return new SDPWriter();
+        }
+        writer.busy = true;
+        return writer;
+    }
+
+    private void release() {
+        busy = false;
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            sb = new StringBuilder(DEFAULT_CAPACITY);
+        } else {
+            sb.setLength(0);
+        }
+        Arrays.fill(ordered, null);
+    }
+
+    /**
+     * Writes the session description, with lf line endings, into this writers builder.
+     *
+     * @param sdp
+     * @return builder holding the content
+     */
+    private StringBuilder writeSession(SessionDescription sdp) {
+        StringBuilder sb = this.sb;
+        sb.setLength(0);
+        sb.append(SessionDescription.getVersion());
+        // ensure there's no "null" origin
+        OriginField origin = sdp.getOrigin();
+        if (origin == null) {
+            // use the "name" from the session, default to unknown / undefined == r5p
+            SessionField session = sdp.getSession();
+            String name = session != null ? session.getName() : "r5p";
+            // ensure there's an origin
+            origin = new OriginField(name, IdGenerator.generateNumericStringId(13), 1L, "0.0.0.0");
+            sdp.setOrigin(origin);
+        }
+        append(sb, origin);
+        SessionField session = sdp.getSession();
+        if (session != null) {
+            append(sb, session);
+        } else {
+            sb.append("null");
+        }
+        TimingField timing = sdp.getTiming();
+        if (timing != null) {
+            append(sb, timing);
+        } else {
+            sb.append("null");
+        }
+        // skip webrtc stuff for pro sdk UA
+        if (!sdp.isRed5ProSDK()) {
+            // unified or plan-b support signaling is via attribute as well and also not stored in the collection
+            if (!sdp.isUnified()) {
+                // signaling plan-b
+                String msid = sdp.getMsid();
+                if (msid == null) {
+                    // mslabel value can be supplied instead of '*' but asterisk seems most common
+                    sb.append("a=msid-semantic:");
+                    if (sdp.isChrome()) {
+                        // chrome has a freaking space before the WMS
+                        sb.append(' ');
+                    }
+                    sb.append("WMS *\n");
+                } else if ("-".equals(msid)) {
+                    sb.append("a=msid-semantic: WMS\n");
+                } else {
+                    sb.append("a=msid-semantic:WMS ").append(msid).append('\n');
+                }
+            }
+        }
+        // order the media descriptions by mid if it uses digits
+        int count = 0;
+        MediaField[] mediaDescriptions = sdp.getMediaDescriptions();
+        if (mediaDescriptions != null) {
+            if (ordered.length < mediaDescriptions.length) {
+                ordered = new MediaField[mediaDescriptions.length];
+            }
+            for (MediaField media : mediaDescriptions) {
+                // if its video and the format is 0 skip it
+                if (SDPMediaType.video == media.getMediaType() && media.getFormats()[0] == 0) {
+                    continue;
+                }
+                ordered[count++] = media;
+            }
+            // stable, like the list sort it replaces, and allocation free for the handful of media a session has
+            Arrays.sort(ordered, 0, count);
+        }
+        // bundle is a group attribute, but we don't store it in the attr collection
+        if (sdp.isBundle() && count > 0) {
+            sb.append("a=group:BUNDLE");
+            for (int i = 0; i < count; i++) {
+                sb.append(' ').append(ordered[i].getMediaId());
+            }
+            sb.append('\n');
+        }
+        AttributeField[] attributes = sdp.getAttributes();
+        if (attributes != null) {
+            for (AttributeField attribute : attributes) {
+                AttributeKey key = attribute.getAttribute();
+                // prevent adding these attributes twice to the string
+                if (key != AttributeKey.msidsemantic && key != AttributeKey.group) {
+                    append(sb, attribute);
+                }
+            }
+        }
+        // next line, bandwidth
+        BandwidthField bandwidth = sdp.getBandwidth();
+        if (bandwidth != null) {
+            append(sb, bandwidth);
+        }
+        for (int i = 0; i < count; i++) {
+            append(sb, ordered[i]);
+        }
+        return sb;
+    }
+
+    /**
+     * Returns the payload id a codec attribute value starts with, such as 111 for <code>111 opus/48000/2</code>.
+     *
+     * @param value
+     * @return payload id or NO_PAYLOAD if the first token is not a number, such as the wildcard in
+     *         <code>rtcp-fb:* nack</code>
+     */
+    private static int payloadId(String value) {
+        if (value == null) {
+            return NO_PAYLOAD;
+        }
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            i++;
+        }
+        int start = i;
+        long payloadId = 0L;
+        for (; i < length; i++) {
+            char ch = value.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                payloadId = payloadId * 10L + (ch - '0');
+                if (payloadId > Integer.MAX_VALUE + 1L) {
+                    return NO_PAYLOAD;
+                }
+            } else if (ch == ' ' || (ch >= '\t' && ch <= '\r')) {
+                break;
+            } else {
+                return NO_PAYLOAD;
+            }
+        }
+        if (i == start) {
+            return NO_PAYLOAD;
+        }
+        payloadId = negative ? -payloadId : payloadId;
+        return payloadId >= Integer.MIN_VALUE && payloadId <= Integer.MAX_VALUE ? (int) payloadId : NO_PAYLOAD;
+    }
+
+    private static int countLineFeeds(CharSequence content) {
+        int count = 0;
+        for (int i = 0, length = content.length(); i < length; i++) {
+            if (content.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void appendCrlf(StringBuilder out, CharSequence content) {
+        int from = 0;
+        for (int i = 0, length = content.length(); i < length; i++) {
+            if (content.charAt(i) == '\n') {
+                out.append(content, from, i).append("\r\n");
+                from = i + 1;
+            }
+        }
+        out.append(content, from, content.length());
+    }
+
+}
@@ -10,6 +10,7 @@ import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import com.red5pro.media.sdp.model.AttributeField;
+import com.red5pro.media.sdp.model.AttributeIndex;
 import com.red5pro.media.sdp.model.AttributeKey;
 import com.red5pro.media.sdp.model.BandwidthField;
 import com.red5pro.media.sdp.model.MediaField;
@@ -17,7 +18,6 @@ import com.red5pro.media.sdp.model.OriginField;
 import com.red5pro.media.sdp.model.SDPMediaType;
 import com.red5pro.media.sdp.model.SessionField;
 import com.red5pro.media.sdp.model.TimingField;
-import com.red5pro.util.IdGenerator;
 
 /**
  * A session description, based on RFC4566 {@link https://tools.ietf.org/html/rfc4566}.
@@ -44,7 +44,7 @@ public class SessionDescription {
     private TimingField timing = new TimingField();
 
     // session level attributes
-    private AttributeField[] attributes;
+    private final AttributeIndex attributes = new AttributeIndex();
 
     // session level bandwidth
     private BandwidthField bandwidth;
@@ -88,7 +88,7 @@ public class SessionDescription {
     }
 
     public void free() {
-        attributes = null;
+        attributes.clear();
         bandwidth = null;
         mediaDescriptions = null;
         if (metadata != null) {
@@ -199,15 +199,7 @@ public class SessionDescription {
     }
 
     public void addAttributeField(AttributeField attr) {
-        if (attributes == null) {
-            attributes = new AttributeField[1];
-            attributes[0] = attr;
-        } else {
-            int index = attributes.length;
-            AttributeField[] temp = Arrays.copyOf(attributes, attributes.length + 1);
-            temp[index] = attr;
-            setAttributes(temp);
-        }
+        attributes.add(attr);
     }
 
     /**
@@ -217,14 +209,7 @@ public class SessionDescription {
      * @return attribute if found and null otherwise
      */
     public AttributeField getAttribute(AttributeKey key) {
-        if (attributes != null && attributes.length > 0) {
-            for (AttributeField attr : attributes) {
-                if (attr.getAttribute().equals(key)) {
-                    return attr;
-                }
-            }
-        }
-        return null;
+        return attributes.get(key);
     }
 
     /**
@@ -232,44 +217,28 @@ public class SessionDescription {
      * matching the given key.
      */
     public void remove(AttributeKey key) {
-        if (attributes != null && attributes.length > 0) {
-            // what will become the new array
-            AttributeField[] temp = new AttributeField[attributes.length - 1];
-            int t = 0;
-            for (int a = 0; a < attributes.length; a++) {
-                if (!attributes[a].getAttribute().equals(key)) {
-                    // move it to the new array
-                    temp[t++] = attributes[a];
-                }
-            }
-            setAttributes(temp);
-        }
+        attributes.remove(key);
     }
 
     /**
      * Remove an attribute.
      */
     public void remove(AttributeField attr) {
-        if (attributes != null && attributes.length > 0) {
-            // what will become the new array
-            AttributeField[] temp = new AttributeField[attributes.length - 1];
-            int t = 0;
-            for (int a = 0; a < attributes.length; a++) {
-                if (!attributes[a].equals(attr)) {
-                    // move it to the new array
-                    temp[t++] = attributes[a];
-                }
-            }
-            setAttributes(temp);
-        }
+        attributes.remove(attr);
     }
 
+    /**
+     * Returns all the session level attributes in the order they were added. The returned array is shared and must not
+     * be modified.
+     *
+     * @return attributes or null if there are none
+     */
     public AttributeField[] getAttributes() {
-        return attributes;
+        return attributes.isEmpty() ? null : attributes.toArray();
     }
 
     public void setAttributes(AttributeField[] attributes) {
-        this.attributes = attributes;
+        this.attributes.set(attributes);
     }
 
     public BandwidthField getBandwidth() {
@@ -352,7 +321,7 @@ public class SessionDescription {
         // create attributes for the metadata entries
         StringBuilder metaSb = new StringBuilder();
         metadata.forEach((key, value) -> {
-            metaSb.append(String.format("%s=%s;", key.toString(), value.toString()));
+            metaSb.append(key.toString()).append('=').append(value.toString()).append(';');
         });
         addAttributeField(new AttributeField(AttributeKey.metadata, metaSb.toString()));
     }
@@ -517,6 +486,10 @@ public class SessionDescription {
         this.userAgent = userAgent;
     }
 
+    public SDPUserAgent getUA() {
+        return userAgent;
+    }
+
     public boolean isAndroid() {
         return userAgent == SDPUserAgent.android_chrome || userAgent == SDPUserAgent.android_firefox;
     }
@@ -547,88 +520,7 @@ public class SessionDescription {
 
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder(version);
-        // ensure there's no "null" origin
-        if (origin == null) {
-            // use the "name" from the session, default to unknown / undefined == r5p
-            String name = session != null ? session.getName() : "r5p";
-            // ensure there's an origin
-            origin = new OriginField(name, IdGenerator.generateNumericStringId(13), 1L, "0.0.0.0");
-        }
-        sb.append(origin);
-        sb.append(session);
-        sb.append(timing);
-        // skip webrtc stuff for pro sdk UA
-        if (!isRed5ProSDK()) {
-            // unified or plan-b support signaling is via attribute as well and also not
-            // stored in the collection
-            if (!unified) {
-                // signaling plan-b
-                if (msid == null) {
-                    // mslabel value can be supplied instead of '*' but asterisk seems most common
-                    sb.append("a=msid-semantic:");
-                    if (isChrome()) {
-                        // chrome has a freaking space before the WMS
-                        sb.append(' ');
-                    }
-                    sb.append("WMS *\n");
-                } else if ("-".equals(msid)) {
-                    sb.append("a=msid-semantic: WMS\n");
-                } else {
-                    sb.append("a=msid-semantic:WMS ");
-                    sb.append(msid);
-                    sb.append('\n');
-                }
-            }
-        }
-        // create a list ordered by mid if it uses digits
-        final List<MediaField> ordered = new ArrayList<>();
-        for (MediaField media : mediaDescriptions) {
-            // if its video and the format is 0 skip it
-            if (SDPMediaType.video == media.getMediaType() && media.getFormats()[0] == 0) {
-                continue;
-            }
-            ordered.add(media);
-        }
-        // sort by mid
-        Collections.sort(ordered);
-        // bundle is a group attribute, but we don't store it in the attr collection
-        if (bundle) {
-            if (ordered.size() > 0) {
-                sb.append("a=group:BUNDLE ");
-                ordered.forEach(media -> {
-                    sb.append(media.getMediaId());
-                    sb.append(' ');
-                });
-                // trim-off trailing space
-                sb.deleteCharAt(sb.lastIndexOf(" "));
-                sb.append('\n');
-            }
-        }
-        if (attributes != null) {
-            for (AttributeField attribute : attributes) {
-                AttributeKey key = attribute.getAttribute();
-                // prevent adding these attributes twice to the string
-                if (!AttributeKey.msidsemantic.equals(key) && !AttributeKey.group.equals(key)) {
-                    sb.append(attribute);
-                }
-            }
-        }
-        // next line, bandwidth
-        if (bandwidth != null) {
-            sb.append(bandwidth);
-        }
-        ordered.forEach(media -> {
-            sb.append(media);
-        });
-        // finalize the sdp content
-        String sdp = sb.toString();
-        // if the UA is red5pro sdk, swap lf for crlf (XXX not sure if this is required)
-        // by our mobile sdk or not, doing for safety)
-        if (userAgent.equals(SDPUserAgent.red5pro)) {
-            return sdp.replaceAll("\n", "\r\n");
-        }
-        return sdp;
+        return SDPWriter.write(this);
     }
 
 }
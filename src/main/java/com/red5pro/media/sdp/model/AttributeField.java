@@ -2,6 +2,8 @@ package com.red5pro.media.sdp.model;
 
 import java.util.regex.Pattern;
 
+import com.red5pro.media.sdp.SDPWriter;
+
 /**
  * The attributes "a=" are the primary means for extending SDP. Attributes may
  * be defined to be used as "session-level" attributes, "media-level"
@@ -67,10 +69,7 @@ public class AttributeField {
 
     @Override
     public String toString() {
-        if (!binary) {
-            return String.format("a=%s:%s\n", attribute, value);
-        }
-        return String.format("a=%s\n", attribute);
+        return SDPWriter.append(new StringBuilder(64), this).toString();
     }
 
 }
@@ -0,0 +1,269 @@
+package com.red5pro.media.sdp.model;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+
+/**
+ * Attribute storage for session and media descriptions. Attributes are kept in insertion order, for serialization, in a
+ * growable array and are also indexed by key; attributes whose value starts with a payload id (rtpmap, fmtp and rtcp-fb)
+ * are further indexed by that id. Adds are amortized O(1) and lookups by key or by key and payload id are O(1) and do
+ * not allocate. Arrays returned by this class are shared snapshots and must not be modified.
+ *
+ * @author Paul Gregoire
+ */
+public final class AttributeIndex {
+
+    private static final AttributeField[] EMPTY = new AttributeField[0];
+
+    // highest payload id which is indexed; dynamic payload ids end at 127
+    private static final int MAX_PAYLOAD_ID = 127;
+
+    // all attributes in insertion order
+    private AttributeField[] fields = EMPTY;
+
+    private int size;
+
+    // trimmed copy of the fields, created on demand and dropped on modification
+    private AttributeField[] snapshot;
+
+    // attributes by key
+    private final EnumMap<AttributeKey, Bucket> buckets = new EnumMap<>(AttributeKey.class);
+
+    /**
+     * Adds an attribute after any existing attributes.
+     *
+     * @param attr
+     */
+    public void add(AttributeField attr) {
+        if (size == fields.length) {
+            fields = Arrays.copyOf(fields, Math.max(8, size << 1));
+        }
+        fields[size++] = attr;
+        snapshot = null;
+        index(attr);
+    }
+
+    private void index(AttributeField attr) {
+        AttributeKey key = attr.getAttribute();
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new Bucket(isPayloadKey(key));
+            buckets.put(key, bucket);
+        }
+        bucket.add(attr);
+    }
+
+    /**
+     * Replaces all attributes; null entries are ignored.
+     *
+     * @param attrs attributes or null to clear
+     */
+    public void set(AttributeField[] attrs) {
+        clear();
+        if (attrs != null) {
+            for (AttributeField attr : attrs) {
+                if (attr != null) {
+                    add(attr);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all attributes with the given key.
+     *
+     * @param key
+     * @return true if any were removed
+     */
+    public boolean remove(AttributeKey key) {
+        if (buckets.remove(key) == null) {
+            return false;
+        }
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (fields[i].getAttribute() != key) {
+                fields[n++] = fields[i];
+            }
+        }
+        Arrays.fill(fields, n, size, null);
+        size = n;
+        snapshot = null;
+        return true;
+    }
+
+    /**
+     * Removes all attributes equal to the given one.
+     *
+     * @param attr
+     * @return true if any were removed
+     */
+    public boolean remove(AttributeField attr) {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (!fields[i].equals(attr)) {
+                fields[n++] = fields[i];
+            }
+        }
+        if (n == size) {
+            return false;
+        }
+        Arrays.fill(fields, n, size, null);
+        size = n;
+        snapshot = null;
+        // rebuild the bucket for the key, since its payload index may refer to a removed attribute
+        AttributeKey key = attr.getAttribute();
+        buckets.remove(key);
+        for (int i = 0; i < size; i++) {
+            if (fields[i].getAttribute() == key) {
+                index(fields[i]);
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(fields, 0, size, null);
+        size = 0;
+        snapshot = null;
+        buckets.clear();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(AttributeKey key) {
+        return buckets.containsKey(key);
+    }
+
+    /**
+     * Returns the first attribute with the given key.
+     *
+     * @param key
+     * @return attribute if found and null otherwise
+     */
+    public AttributeField get(AttributeKey key) {
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? bucket.items[0] : null;
+    }
+
+    /**
+     * Returns the first attribute with the given key whose value starts with the given payload id, such as
+     * <code>fmtp:96 apt=100</code> for 96. Only rtpmap, fmtp and rtcp-fb attributes are indexed by payload id; for other
+     * keys this returns null.
+     *
+     * @param key
+     * @param payloadId
+     * @return attribute if found and null otherwise
+     */
+    public AttributeField get(AttributeKey key, int payloadId) {
+        Bucket bucket = buckets.get(key);
+        if (bucket != null && bucket.byPayload != null && payloadId >= 0 && payloadId <= MAX_PAYLOAD_ID) {
+            return bucket.byPayload[payloadId];
+        }
+        return null;
+    }
+
+    /**
+     * Returns all attributes with the given key, in insertion order.
+     *
+     * @param key
+     * @return attributes, which is empty if there are none
+     */
+    public AttributeField[] getAll(AttributeKey key) {
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? bucket.toArray() : EMPTY;
+    }
+
+    /**
+     * Returns all attributes, in insertion order.
+     *
+     * @return attributes, which is empty if there are none
+     */
+    public AttributeField[] toArray() {
+        if (snapshot == null) {
+            snapshot = size == 0 ? EMPTY : Arrays.copyOf(fields, size);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns whether or not attributes with the given key are indexed by payload id.
+     *
+     * @param key
+     * @return true for rtpmap, fmtp and rtcp-fb
+     */
+    public static boolean isPayloadKey(AttributeKey key) {
+        return key == AttributeKey.rtpmap || key == AttributeKey.fmtp || key == AttributeKey.rtcpfb;
+    }
+
+    /**
+     * Parses the number at the start of an attribute value, such as the payload id of an rtpmap or the ssrc of an ssrc
+     * attribute.
+     *
+     * @param value
+     * @return number or -1 if the value does not start with a digit or the number does not fit in a long
+     */
+    public static long leadingNumber(String value) {
+        long number = -1L;
+        if (value != null) {
+            for (int i = 0, length = value.length(); i < length; i++) {
+                char ch = value.charAt(i);
+                if (ch < '0' || ch > '9') {
+                    break;
+                }
+                if (number == -1L) {
+                    number = 0L;
+                }
+                if (number > (Long.MAX_VALUE - (ch - '0')) / 10L) {
+                    return -1L;
+                }
+                number = number * 10L + (ch - '0');
+            }
+        }
+        return number;
+    }
+
+    private static final class Bucket {
+
+        AttributeField[] items = new AttributeField[2];
+
+        int size;
+
+        AttributeField[] snapshot;
+
+        // first attribute for each payload id, for payload keyed attributes only
+        final AttributeField[] byPayload;
+
+        Bucket(boolean payloadKeyed) {
+            byPayload = payloadKeyed ? new AttributeField[MAX_PAYLOAD_ID + 1] : null;
+        }
+
+        void add(AttributeField attr) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size << 1);
+            }
+            items[size++] = attr;
+            snapshot = null;
+            if (byPayload != null) {
+                long payloadId = leadingNumber(attr.getValue());
+                if (payloadId >= 0L && payloadId <= MAX_PAYLOAD_ID && byPayload[(int) payloadId] == null) {
+                    byPayload[(int) payloadId] = attr;
+                }
+            }
+        }
+
+        AttributeField[] toArray() {
+            if (snapshot == null) {
+                snapshot = Arrays.copyOf(items, size);
+            }
+            return snapshot;
+        }
+
+    }
+
+}
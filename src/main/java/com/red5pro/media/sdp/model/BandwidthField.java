@@ -2,6 +2,8 @@ package com.red5pro.media.sdp.model;
 
 import java.util.regex.Pattern;
 
+import com.red5pro.media.sdp.SDPWriter;
+
 /**
  * The bandwidth "b=" field. This OPTIONAL field denotes the proposed bandwidth
  * to be used by the session or media. The <bwtype> is an alphanumeric modifier
@@ -51,7 +53,7 @@ public class BandwidthField {
 
     @Override
     public String toString() {
-        return String.format("b=%s:%d\n", type, bandwidth);
+        return SDPWriter.append(new StringBuilder(16), this).toString();
     }
 
 }
@@ -1,5 +1,6 @@
 package com.red5pro.media.sdp.model;
 
+import com.red5pro.media.sdp.SDPWriter;
 import com.red5pro.server.util.NetworkManager;
 
 /**
@@ -64,7 +65,7 @@ public class ConnectionField {
 
     @Override
     public String toString() {
-        return String.format("c=%s %s %s\n", networkType, addressType, address);
+        return SDPWriter.append(new StringBuilder(32), this).toString();
     }
 
 }
@@ -4,12 +4,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 
 import com.red5pro.media.rtp.RTPCodecEnum;
+import com.red5pro.media.sdp.SDPWriter;
 
 /**
  * The media descriptions "m=" field. A session description may contain a number
@@ -60,7 +60,7 @@ public class MediaField implements Comparable<MediaField> {
     private ConnectionField connection;
 
     // media level attributes
-    private AttributeField[] attributes;
+    private final AttributeIndex attributes = new AttributeIndex();
 
     private BandwidthField bandwidth;
 
@@ -102,14 +102,7 @@ public class MediaField implements Comparable<MediaField> {
      * @return true if found and false otherwise
      */
     public boolean hasAttribute(AttributeKey key) {
-        if (attributes != null && attributes.length > 0) {
-            for (AttributeField attr : attributes) {
-                if (attr != null && attr.getAttribute().equals(key)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return attributes.contains(key);
     }
 
     /**
@@ -120,14 +113,7 @@ public class MediaField implements Comparable<MediaField> {
      * @return true if found and false otherwise
      */
     public boolean hasAttributeWithValue(AttributeKey key, String value) {
-        if (attributes != null && attributes.length > 0) {
-            for (AttributeField attr : attributes) {
-                if (attr != null && attr.getAttribute().equals(key) && attr.getValue().indexOf(value) > -1) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return getAttribute(key, value) != null;
     }
 
     /**
@@ -137,32 +123,24 @@ public class MediaField implements Comparable<MediaField> {
      * @return attribute if found and null otherwise
      */
     public AttributeField getAttribute(AttributeKey key) {
-        if (attributes != null && attributes.length > 0) {
-            for (AttributeField attr : attributes) {
-                if (attr.getAttribute().equals(key)) {
-                    return attr;
-                }
-            }
-        }
-        return null;
+        return attributes.get(key);
     }
 
     /**
-     * Lookup attribute by a given key and with a matching identifier.
+     * Lookup attribute by a given key and with a matching identifier. An attribute whose value starts with the
+     * identifier, such as the payload id of an rtpmap, fmtp or rtcp-fb, is preferred and is found without a scan;
+     * otherwise the first attribute whose value contains the identifier is returned.
      *
      * @param key
      * @param withId
      * @return attribute if found and null otherwise
      */
     public AttributeField getAttribute(AttributeKey key, int withId) {
-        if (attributes != null && attributes.length > 0) {
-            for (AttributeField attr : attributes) {
-                if (attr != null && attr.getAttribute().equals(key) && attr.getValue().indexOf(String.valueOf(withId)) > -1) {
-                    return attr;
-                }
-            }
+        AttributeField attr = attributes.get(key, withId);
+        if (attr == null && attributes.contains(key)) {
+            attr = getAttribute(key, String.valueOf(withId));
         }
-        return null;
+        return attr;
     }
 
     /**
@@ -173,11 +151,9 @@ public class MediaField implements Comparable<MediaField> {
      * @return attribute if found and null otherwise
      */
     public AttributeField getAttribute(AttributeKey key, String withString) {
-        if (attributes != null && attributes.length > 0) {
-            for (AttributeField attr : attributes) {
-                if (attr != null && attr.getAttribute().equals(key) && attr.getValue().indexOf(withString) > -1) {
-                    return attr;
-                }
+        for (AttributeField attr : attributes.getAll(key)) {
+            if (attr.getValue().indexOf(withString) > -1) {
+                return attr;
             }
         }
         return null;
@@ -193,18 +169,13 @@ public class MediaField implements Comparable<MediaField> {
      * @return attribute if found and null otherwise
      */
     public AttributeField getAttribute(AttributeKey key, EnumSet<RTPCodecEnum> codecs) {
-        for (RTPCodecEnum codec : codecs) {
-            if (attributes != null && attributes.length > 0) {
-                for (AttributeField attr : attributes) {
+        AttributeField[] attrs = attributes.getAll(key);
+        if (attrs.length > 0) {
+            for (RTPCodecEnum codec : codecs) {
+                for (AttributeField attr : attrs) {
                     // skip binary attributes as they are not codec related
-                    if (attr != null && attr.getAttribute().equals(key) && !attr.isBinary()) {
-                        String[] vals = attr.getValue().split("[\\s|/]");
-                        if (vals.length >= 2) {
-                            String codecName = vals[1];
-                            if (codecName.equals(codec.encodingName)) {
-                                return attr;
-                            }
-                        }
+                    if (!attr.isBinary() && isEncoding(attr.getValue(), codec.encodingName, false)) {
+                        return attr;
                     }
                 }
             }
@@ -219,14 +190,7 @@ public class MediaField implements Comparable<MediaField> {
      * @return number if found and -1 otherwise
      */
     public int getAttributeInt(AttributeField attr) {
-        int ret = -1;
-        if (attr != null) {
-            Matcher matcher = PATTERN_GET_FIRST_NUMBER.matcher(attr.getValue());
-            if (matcher.find()) {
-                ret = Integer.valueOf(matcher.group());
-            }
-        }
-        return ret;
+        return attr != null ? toInt(AttributeIndex.leadingNumber(attr.getValue())) : -1;
     }
 
     /**
@@ -236,19 +200,7 @@ public class MediaField implements Comparable<MediaField> {
      * @return number if found and -1 otherwise
      */
     public int getAttributeInt(AttributeKey key) {
-        int ret = -1;
-        if (attributes != null && attributes.length > 0) {
-            for (AttributeField attr : attributes) {
-                if (attr != null && attr.getAttribute().equals(key)) {
-                    Matcher matcher = PATTERN_GET_FIRST_NUMBER.matcher(attr.getValue());
-                    if (matcher.find()) {
-                        ret = Integer.valueOf(matcher.group());
-                        break;
-                    }
-                }
-            }
-        }
-        return ret;
+        return toInt(getAttributeLong(key));
     }
 
     /**
@@ -258,14 +210,7 @@ public class MediaField implements Comparable<MediaField> {
      * @return number if found and -1 otherwise
      */
     public long getAttributeLong(AttributeField attr) {
-        long ret = -1;
-        if (attr != null) {
-            Matcher matcher = PATTERN_GET_FIRST_NUMBER.matcher(attr.getValue());
-            if (matcher.find()) {
-                ret = Long.valueOf(matcher.group());
-            }
-        }
-        return ret;
+        return attr != null ? AttributeIndex.leadingNumber(attr.getValue()) : -1L;
     }
 
     /**
@@ -275,37 +220,24 @@ public class MediaField implements Comparable<MediaField> {
      * @return number if found and -1 otherwise
      */
     public long getAttributeLong(AttributeKey key) {
-        long ret = -1;
-        if (attributes != null && attributes.length > 0) {
-            for (AttributeField attr : attributes) {
-                if (attr != null && attr.getAttribute().equals(key)) {
-                    Matcher matcher = PATTERN_GET_FIRST_NUMBER.matcher(attr.getValue());
-                    if (matcher.find()) {
-                        ret = Long.valueOf(matcher.group());
-                        break;
-                    }
-                }
+        for (AttributeField attr : attributes.getAll(key)) {
+            long ret = AttributeIndex.leadingNumber(attr.getValue());
+            if (ret != -1L) {
+                return ret;
             }
         }
-        return ret;
+        return -1L;
     }
 
     public List<AttributeField> getAttributeSelections(AttributeKey key, EnumSet<RTPCodecEnum> codecs) {
         List<AttributeField> ret = new ArrayList<>();
-        for (RTPCodecEnum codec : codecs) {
-            if (attributes != null && attributes.length > 0) {
-                for (AttributeField attr : attributes) {
-                    // skip binary attributes as they are not codec related
-                    if (attr != null && attr.getAttribute().equals(key) && !attr.isBinary()) {
-                        String[] vals = attr.getValue().split("[\\s|/]");
-                        if (vals.length >= 2) {
-                            // ensure its trimmed
-                            String codecName = vals[1].trim();
-                            // allow any casing
-                            if (codec.encodingName.equalsIgnoreCase(codecName)) {
-                                ret.add(attr);
-                            }
-                        }
+        AttributeField[] attrs = attributes.getAll(key);
+        if (attrs.length > 0) {
+            for (RTPCodecEnum codec : codecs) {
+                for (AttributeField attr : attrs) {
+                    // skip binary attributes as they are not codec related; allow any casing
+                    if (!attr.isBinary() && isEncoding(attr.getValue(), codec.encodingName, true)) {
+                        ret.add(attr);
                     }
                 }
             }
@@ -370,35 +302,31 @@ public class MediaField implements Comparable<MediaField> {
         if (AttributeKey.mid.equals(attr.getAttribute())) {
             mediaId = attr.getValue();
         }
-        if (attributes == null) {
-            attributes = new AttributeField[1];
-            attributes[0] = attr;
-        } else {
-            int index = attributes.length;
-            AttributeField[] temp = Arrays.copyOf(attributes, attributes.length + 1);
-            temp[index] = attr;
-            setAttributes(temp);
-        }
+        attributes.add(attr);
     }
 
+    /**
+     * Returns the attributes with the given key in the order they were added. The returned array is shared and must not
+     * be modified.
+     *
+     * @param key
+     * @return attributes, which is empty if there are none
+     */
     public AttributeField[] getAttributes(AttributeKey key) {
-        List<AttributeField> subset = new ArrayList<>(1);
-        if (attributes != null && attributes.length > 0) {
-            for (AttributeField attr : attributes) {
-                if (attr != null && attr.getAttribute().equals(key)) {
-                    subset.add(attr);
-                }
-            }
-        }
-        return subset.toArray(new AttributeField[0]);
+        return attributes.getAll(key);
     }
 
+    /**
+     * Returns all the attributes in the order they were added. The returned array is shared and must not be modified.
+     *
+     * @return attributes or null if there are none
+     */
     public AttributeField[] getAttributes() {
-        return attributes;
+        return attributes.isEmpty() ? null : attributes.toArray();
     }
 
     public void setAttributes(AttributeField[] attributes) {
-        this.attributes = attributes;
+        this.attributes.set(attributes);
     }
 
     public BandwidthField getBandwidth() {
@@ -458,57 +386,40 @@ public class MediaField implements Comparable<MediaField> {
     // order of sections m, i, c, b, k, a
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder("m=");
-        sb.append(mediaType);
-        sb.append(' ');
-        sb.append(port);
-        sb.append(' ');
-        // if its application (datachannel) type, we'll have special handling
-        if (mediaType == SDPMediaType.application) {
-            if (hasAttribute(AttributeKey.sctpport)) {
-                // XXX UDP vs TCP may matter one day...
-                sb.append(PROTOCOL_UDP_SCTP);
-                sb.append(' ');
-                sb.append("webrtc-datachannel"); // newer draft uses this style + sctpport
-            } else {
-                sb.append(protocol);
-                sb.append(' ');
-                sb.append(formats[0]);
-            }
-        } else {
-            sb.append(protocol);
-            if (formats != null) {
-                for (int format : formats) {
-                    sb.append(' ');
-                    sb.append(format);
-                }
-            }
-        }
-        sb.append('\n');
-        // next line, connection
-        if (connection != null) {
-            sb.append(connection);
+        return SDPWriter.append(new StringBuilder(1024), this).toString();
+    }
+
+    private static int toInt(long number) {
+        return number <= Integer.MAX_VALUE ? (int) number : -1;
+    }
+
+    /**
+     * Returns whether or not the encoding name in an rtpmap style value, the token following the payload id such as
+     * opus in <code>111 opus/48000/2</code>, matches the given name.
+     *
+     * @param value
+     * @param name
+     * @param ignoreCase
+     * @return true if it matches and false otherwise
+     */
+    private static boolean isEncoding(String value, String name, boolean ignoreCase) {
+        int length = value.length();
+        int start = 0;
+        while (start < length && !isSeparator(value.charAt(start))) {
+            start++;
         }
-        // next line, bandwidth
-        if (bandwidth != null) {
-            sb.append(bandwidth);
+        if (++start > length) {
+            return false;
         }
-        // next line(s) attributes
-        if (attributes != null) {
-            for (AttributeField attribute : attributes) {
-                switch (attribute.getAttribute()) {
-                    case fmtp:
-                    case rtpmap:
-                    case rtcpfb:
-                        if (Arrays.binarySearch(formats, Integer.valueOf(attribute.getValue().split("\\s")[0])) == -1) {
-                            break;
-                        }
-                    default:
-                        sb.append(attribute);
-                }
-            }
+        int end = start;
+        while (end < length && !isSeparator(value.charAt(end))) {
+            end++;
         }
-        return sb.toString();
+        return end - start == name.length() && value.regionMatches(ignoreCase, start, name, 0, end - start);
+    }
+
+    private static boolean isSeparator(char ch) {
+        return ch == ' ' || ch == '/' || ch == '|' || (ch >= '\t' && ch <= '\r');
     }
 
     @Override
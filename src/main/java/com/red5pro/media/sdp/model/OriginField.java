@@ -2,6 +2,7 @@ package com.red5pro.media.sdp.model;
 
 import java.util.regex.Pattern;
 
+import com.red5pro.media.sdp.SDPWriter;
 import com.red5pro.server.util.NetworkManager;
 
 /**
@@ -90,7 +91,7 @@ public class OriginField {
 
     @Override
     public String toString() {
-        return String.format("o=%s %s %d %s %s %s\n", userName, sessionId, sessionVersion, networkType, addressType, address);
+        return SDPWriter.append(new StringBuilder(64), this).toString();
     }
 
 }
@@ -2,6 +2,8 @@ package com.red5pro.media.sdp.model;
 
 import java.util.regex.Pattern;
 
+import com.red5pro.media.sdp.SDPWriter;
+
 /**
  * The session name "s=" field is the textual session name. There MUST be one
  * and only one "s=" field per session description.
@@ -35,7 +37,7 @@ public class SessionField {
 
     @Override
     public String toString() {
-        return String.format("s=%s\n", name);
+        return SDPWriter.append(new StringBuilder(32), this).toString();
     }
 
 }
@@ -1,5 +1,7 @@
 package com.red5pro.media.sdp.model;
 
+import com.red5pro.media.sdp.SDPWriter;
+
 /**
  * The timing "t=" lines specify the start and stop times for a session.
  * Multiple "t=" lines MAY be used if a session is active at multiple
@@ -39,7 +41,7 @@ public class TimingField {
 
     @Override
     public String toString() {
-        return String.format("t=%d %d\n", start, stop);
+        return SDPWriter.append(new StringBuilder(16), this).toString();
     }
 
 }
@@ -5,7 +5,9 @@ import java.util.List;
 import javax.media.Buffer;
 
 /**
- * Interface for streams that will handle audio and video buffers.
+ * Interface for streams that will handle audio and video buffers. Buffers may be
+ * acquired from a BufferPool and released back to it once the call returns, so
+ * handlers keeping one around must copy it.
  *
  * @author Paul Gregoire
  */
@@ -285,10 +285,11 @@ public class NetworkManager {
             // configure port range
             PortManager.setRtpPortBase(Integer.valueOf(props.getProperty("port.min", "49152")));
             PortManager.setRtpPortCeiling(Integer.valueOf(props.getProperty("port.max", "65535")));
+            PortManager.setPortStripes(Integer.valueOf(props.getProperty("port.stripes", "1")));
             PortManager.setAllowSystemPorts(Boolean.valueOf(props.getProperty("allow.sys.ports", "false")));
             // timeout to use when checking port availability
             PortManager.setSoTimeout(Integer.valueOf(props.getProperty("check.port.availability.timeout", "5")));
-            log.debug("Port range: {}", PortManager.getRange());
+            log.debug("Port range: {} stripes: {}", PortManager.getRange(), PortManager.getStripeCount());
             // set local properties
             defaultTransport = props.getProperty("ice.default.transport", "udp");
             defaultStunAddress = props.getProperty("stun.address", "stun.l.google.com:19302");
@@ -0,0 +1,521 @@
+package com.red5pro.server.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Lock-free port allocator backed by bitmaps. Each port in the configured range is represented by a single bit in an
+ * allocated bitmap and a second bitmap tracks ports which were found to be bound by something other than this
+ * allocator. Claims and releases are performed with CAS on the 64 bit word holding the port, so no locks are taken and
+ * no boxing occurs. The bitmap origin is aligned on a 64 port boundary so that a ports bit position is always
+ * <code>port &amp; 63</code>, which also keeps an even port and its odd neighbour within the same word.
+ * <br>
+ * The words may be split into stripes, each with its own search cursor and counters. A thread claims from its own stripe
+ * first and only moves on to the neighbouring stripes once its stripe is exhausted, so that bursts of allocations from
+ * many threads do not all contend on the same words and counters.
+ *
+ * @author Paul Gregoire
+ */
+public class PortAllocator {
+
+    // bits per word
+    private static final int WORD_BITS = 64;
+
+    // bits representing even ports within a word
+    private static final long EVEN_BITS = 0x5555555555555555L;
+
+    // ints between the counters of adjacent stripes, keeping each stripe on its own cache line
+    private static final int STRIDE = 16;
+
+    // offsets of the counters within a stripe
+    private static final int CURSOR = 0, ALLOCATED = 1, BOUND_ELSEWHERE = 2;
+
+    // lowest port inclusive
+    private final int base;
+
+    // highest port exclusive
+    private final int ceiling;
+
+    // port represented by bit 0 of word 0
+    private final int origin;
+
+    // number of ports in the range
+    private final int size;
+
+    // mask of the bits in each word that fall within the range
+    private final long[] validMasks;
+
+    // ports allocated here
+    private final AtomicLongArray allocated;
+
+    // ports bound elsewhere, that we're aware of
+    private final AtomicLongArray boundElsewhere;
+
+    // words per stripe; the last stripe may hold fewer
+    private final int stripeWords;
+
+    // number of stripes
+    private final int stripeCount;
+
+    // number of ports in each stripe
+    private final int[] stripeSizes;
+
+    // per stripe search cursor and set bit counts
+    private final AtomicIntegerArray stripeCounters;
+
+    /**
+     * Creates an allocator for ports from base (inclusive) to ceiling (exclusive).
+     *
+     * @param base lowest port
+     * @param ceiling highest port, exclusive
+     */
+    public PortAllocator(int base, int ceiling) {
+        this(base, ceiling, 1);
+    }
+
+    /**
+     * Creates an allocator for ports from base (inclusive) to ceiling (exclusive), split into stripes.
+     *
+     * @param base lowest port
+     * @param ceiling highest port, exclusive
+     * @param stripes requested number of stripes; limited to the number of words in the range
+     */
+    public PortAllocator(int base, int ceiling, int stripes) {
+        if (ceiling <= base) {
+            throw new IllegalArgumentException(String.format("Invalid port range %d..%d", base, ceiling));
+        }
+        this.base = base;
+        this.ceiling = ceiling;
+        this.origin = base & ~(WORD_BITS - 1);
+        this.size = ceiling - base;
+        int words = ((ceiling - 1 - origin) / WORD_BITS) + 1;
+        validMasks = new long[words];
+        for (int w = 0; w < words; w++) {
+            int first = origin + (w * WORD_BITS);
+            long mask = -1L;
+            if (first < base) {
+                // clear bits below base
+                mask &= -1L << (base - first);
+            }
+            int last = first + WORD_BITS;
+            if (last > ceiling) {
+                // clear bits at or above ceiling
+                mask &= -1L >>> (last - ceiling);
+            }
+            validMasks[w] = mask;
+        }
+        allocated = new AtomicLongArray(words);
+        boundElsewhere = new AtomicLongArray(words);
+        stripes = Math.max(1, Math.min(stripes, words));
+        stripeWords = (words + stripes - 1) / stripes;
+        stripeCount = (words + stripeWords - 1) / stripeWords;
+        stripeSizes = new int[stripeCount];
+        for (int w = 0; w < words; w++) {
+            stripeSizes[w / stripeWords] += Long.bitCount(validMasks[w]);
+        }
+        stripeCounters = new AtomicIntegerArray(stripeCount * STRIDE);
+        for (int i = 0; i < stripeCount; i++) {
+            stripeCounters.set((i * STRIDE) + CURSOR, i * stripeWords);
+        }
+    }
+
+    /**
+     * Claims the next free port, starting after the most recently claimed port of the calling threads stripe and
+     * wrapping around the stripe once before moving to the next stripe. The probe is invoked while the port is held; if
+     * it rejects the port, the port is moved to the bound elsewhere bitmap and the search continues.
+     *
+     * @param probe availability check for a claimed port or null to skip checking
+     * @return claimed port or -1 if no free port exists
+     */
+    public int claim(IntPredicate probe) {
+        int home = homeStripe();
+        for (int i = 0; i < stripeCount; i++) {
+            int stripe = (home + i) % stripeCount;
+            int port = claimInStripe(stripe, stripeCounters.get((stripe * STRIDE) + CURSOR), 0, probe);
+            if (port != -1) {
+                return port;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Claims a free port starting at the given port, wrapping around its stripe once before moving to the next stripe.
+     *
+     * @param startPort port to start searching from
+     * @param probe availability check for a claimed port or null to skip checking
+     * @return claimed port or -1 if no free port exists
+     */
+    public int claim(int startPort, IntPredicate probe) {
+        if (startPort < base || startPort >= ceiling) {
+            startPort = base;
+        }
+        int startWord = (startPort - origin) / WORD_BITS;
+        int home = startWord / stripeWords;
+        int port = claimInStripe(home, startWord, (startPort - origin) % WORD_BITS, probe);
+        for (int i = 1; port == -1 && i < stripeCount; i++) {
+            int stripe = (home + i) % stripeCount;
+            port = claimInStripe(stripe, stripeCounters.get((stripe * STRIDE) + CURSOR), 0, probe);
+        }
+        return port;
+    }
+
+    private int claimInStripe(int stripe, int startWord, int startBit, IntPredicate probe) {
+        final int firstWord = stripe * stripeWords;
+        final int words = Math.min(stripeWords, validMasks.length - firstWord);
+        int offset = startWord - firstWord;
+        if (offset < 0 || offset >= words) {
+            offset = 0;
+        }
+        // visit the starting word twice so the bits below startBit are checked after wrapping
+        for (int i = 0; i <= words && !isStripeExhausted(stripe); i++) {
+            int w = firstWord + ((offset + i) % words);
+            long skip = (i == 0 && startBit > 0) ? ~(-1L << startBit) : 0L;
+            while (true) {
+                long current = allocated.get(w);
+                long free = validMasks[w] & ~current & ~boundElsewhere.get(w) & ~skip;
+                if (free == 0L) {
+                    break;
+                }
+                long bit = Long.lowestOneBit(free);
+                if (allocated.compareAndSet(w, current, current | bit)) {
+                    stripeCounters.incrementAndGet((stripe * STRIDE) + ALLOCATED);
+                    int port = origin + (w * WORD_BITS) + Long.numberOfTrailingZeros(bit);
+                    if (probe == null || probe.test(port)) {
+                        // next search starts where this one ended
+                        stripeCounters.lazySet((stripe * STRIDE) + CURSOR, w);
+                        return port;
+                    }
+                    // transfer to bound elsewhere, since its allocated from elsewhere
+                    markBoundElsewhere(port);
+                    release(port);
+                }
+                // lost the race or the port was bound, look at this word again
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Claims the next free even port along with its odd neighbour, both bits being set with a single CAS so that a
+     * half-allocated pair is never visible. The probe is invoked for the even port and then the odd port while both are
+     * held; if either is rejected, the rejected port is moved to the bound elsewhere bitmap, the pair is released and
+     * the search continues.
+     *
+     * @param probe availability check for each claimed port or null to skip checking
+     * @return claimed even port or -1 if no free pair exists
+     */
+    public int claimPair(IntPredicate probe) {
+        int home = homeStripe();
+        for (int i = 0; i < stripeCount; i++) {
+            int port = claimPairInStripe((home + i) % stripeCount, probe);
+            if (port != -1) {
+                return port;
+            }
+        }
+        return -1;
+    }
+
+    private int claimPairInStripe(int stripe, IntPredicate probe) {
+        final int firstWord = stripe * stripeWords;
+        final int words = Math.min(stripeWords, validMasks.length - firstWord);
+        final int offset = stripeCounters.get((stripe * STRIDE) + CURSOR) - firstWord;
+        for (int i = 0; i < words && !isStripeExhausted(stripe); i++) {
+            int w = firstWord + ((offset + i) % words);
+            while (true) {
+                long current = allocated.get(w);
+                long free = validMasks[w] & ~current & ~boundElsewhere.get(w);
+                // even bits whose odd neighbour is also free
+                long pairs = free & (free >>> 1) & EVEN_BITS;
+                if (pairs == 0L) {
+                    break;
+                }
+                long bit = Long.lowestOneBit(pairs);
+                long mask = bit | (bit << 1);
+                if (allocated.compareAndSet(w, current, current | mask)) {
+                    stripeCounters.addAndGet((stripe * STRIDE) + ALLOCATED, 2);
+                    int port = origin + (w * WORD_BITS) + Long.numberOfTrailingZeros(bit);
+                    if (probe == null) {
+                        stripeCounters.lazySet((stripe * STRIDE) + CURSOR, w);
+                        return port;
+                    }
+                    if (probe.test(port)) {
+                        if (probe.test(port + 1)) {
+                            stripeCounters.lazySet((stripe * STRIDE) + CURSOR, w);
+                            return port;
+                        }
+                        markBoundElsewhere(port + 1);
+                    } else {
+                        markBoundElsewhere(port);
+                    }
+                    releasePair(port);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Releases a pair claimed with {@link #claimPair(IntPredicate)}; both bits are cleared with a single CAS.
+     *
+     * @param port even port of the pair
+     * @return true if both ports of the pair were allocated and false otherwise
+     */
+    public boolean releasePair(int port) {
+        if ((port & 1) != 0 || !inRange(port) || !inRange(port + 1)) {
+            return false;
+        }
+        int w = wordIndex(port);
+        long mask = bitMask(port) | bitMask(port + 1);
+        while (true) {
+            long current = allocated.get(w);
+            if ((current & mask) != mask) {
+                return false;
+            }
+            if (allocated.compareAndSet(w, current, current & ~mask)) {
+                stripeCounters.addAndGet(counterIndex(w, ALLOCATED), -2);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Claims a specific port if it is within range and free.
+     *
+     * @param port port to claim
+     * @return true if claimed and false otherwise
+     */
+    public boolean claimPort(int port) {
+        if (!inRange(port)) {
+            return false;
+        }
+        int w = wordIndex(port);
+        long bit = bitMask(port);
+        while (true) {
+            long current = allocated.get(w);
+            if ((current & bit) != 0L || (boundElsewhere.get(w) & bit) != 0L) {
+                return false;
+            }
+            if (allocated.compareAndSet(w, current, current | bit)) {
+                stripeCounters.incrementAndGet(counterIndex(w, ALLOCATED));
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases an allocated port.
+     *
+     * @param port port to release
+     * @return true if the port was allocated and false otherwise
+     */
+    public boolean release(int port) {
+        if (!inRange(port)) {
+            return false;
+        }
+        int w = wordIndex(port);
+        long bit = bitMask(port);
+        while (true) {
+            long current = allocated.get(w);
+            if ((current & bit) == 0L) {
+                return false;
+            }
+            if (allocated.compareAndSet(w, current, current & ~bit)) {
+                stripeCounters.decrementAndGet(counterIndex(w, ALLOCATED));
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Marks a port as bound by something other than this allocator.
+     *
+     * @param port port to mark
+     * @return true if the port was not already marked
+     */
+    public boolean markBoundElsewhere(int port) {
+        if (!inRange(port)) {
+            return false;
+        }
+        int w = wordIndex(port);
+        long bit = bitMask(port);
+        long previous = boundElsewhere.getAndUpdate(w, current -> current | bit);
+        if ((previous & bit) == 0L) {
+            stripeCounters.incrementAndGet(counterIndex(w, BOUND_ELSEWHERE));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Clears the bound elsewhere mark for a port.
+     *
+     * @param port port to clear
+     * @return true if the port was marked
+     */
+    public boolean clearBoundElsewhere(int port) {
+        if (!inRange(port)) {
+            return false;
+        }
+        int w = wordIndex(port);
+        long bit = bitMask(port);
+        long previous = boundElsewhere.getAndUpdate(w, current -> current & ~bit);
+        if ((previous & bit) != 0L) {
+            stripeCounters.decrementAndGet(counterIndex(w, BOUND_ELSEWHERE));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether or not the port is allocated here.
+     *
+     * @param port port to check
+     * @return true if allocated and false otherwise
+     */
+    public boolean isAllocated(int port) {
+        return inRange(port) && (allocated.get(wordIndex(port)) & bitMask(port)) != 0L;
+    }
+
+    /**
+     * Returns whether or not the port is known to be bound elsewhere.
+     *
+     * @param port port to check
+     * @return true if bound elsewhere and false otherwise
+     */
+    public boolean isBoundElsewhere(int port) {
+        return inRange(port) && (boundElsewhere.get(wordIndex(port)) & bitMask(port)) != 0L;
+    }
+
+    /**
+     * Invokes the consumer for each allocated port.
+     *
+     * @param consumer port consumer
+     */
+    public void forEachAllocated(IntConsumer consumer) {
+        forEachWord(allocated, (firstPort, bits) -> forEachBit(firstPort, bits, consumer));
+    }
+
+    /**
+     * Invokes the consumer for each port bound elsewhere.
+     *
+     * @param consumer port consumer
+     */
+    public void forEachBoundElsewhere(IntConsumer consumer) {
+        forEachWord(boundElsewhere, (firstPort, bits) -> forEachBit(firstPort, bits, consumer));
+    }
+
+    /**
+     * Invokes the consumer for each word of the allocated bitmap having at least one port allocated.
+     *
+     * @param consumer word consumer
+     */
+    public void forEachAllocatedWord(WordConsumer consumer) {
+        forEachWord(allocated, consumer);
+    }
+
+    /**
+     * Invokes the consumer for each word of the bound elsewhere bitmap having at least one port marked.
+     *
+     * @param consumer word consumer
+     */
+    public void forEachBoundElsewhereWord(WordConsumer consumer) {
+        forEachWord(boundElsewhere, consumer);
+    }
+
+    private void forEachWord(AtomicLongArray bitmap, WordConsumer consumer) {
+        for (int w = 0; w < validMasks.length; w++) {
+            long bits = bitmap.get(w);
+            if (bits != 0L) {
+                consumer.accept(origin + (w * WORD_BITS), bits);
+            }
+        }
+    }
+
+    private static void forEachBit(int firstPort, long bits, IntConsumer consumer) {
+        while (bits != 0L) {
+            consumer.accept(firstPort + Long.numberOfTrailingZeros(bits));
+            bits &= bits - 1;
+        }
+    }
+
+    /**
+     * Returns whether or not every port in the range is allocated or bound elsewhere.
+     *
+     * @return true if exhausted and false otherwise
+     */
+    public boolean isExhausted() {
+        return (getAllocatedCount() + getBoundElsewhereCount()) >= size;
+    }
+
+    private boolean isStripeExhausted(int stripe) {
+        int index = stripe * STRIDE;
+        return (stripeCounters.get(index + ALLOCATED) + stripeCounters.get(index + BOUND_ELSEWHERE)) >= stripeSizes[stripe];
+    }
+
+    // stripe the calling thread claims from first
+    private int homeStripe() {
+        return stripeCount == 1 ? 0 : (int) (Thread.currentThread().getId() % stripeCount);
+    }
+
+    private int counterIndex(int word, int counter) {
+        return ((word / stripeWords) * STRIDE) + counter;
+    }
+
+    private int sumCounters(int counter) {
+        int sum = 0;
+        for (int i = 0; i < stripeCount; i++) {
+            sum += stripeCounters.get((i * STRIDE) + counter);
+        }
+        return sum;
+    }
+
+    public boolean inRange(int port) {
+        return port >= base && port < ceiling;
+    }
+
+    public int getAllocatedCount() {
+        return sumCounters(ALLOCATED);
+    }
+
+    public int getBoundElsewhereCount() {
+        return sumCounters(BOUND_ELSEWHERE);
+    }
+
+    public int getStripeCount() {
+        return stripeCount;
+    }
+
+    public int getBase() {
+        return base;
+    }
+
+    public int getCeiling() {
+        return ceiling;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    private int wordIndex(int port) {
+        return (port - origin) / WORD_BITS;
+    }
+
+    private static long bitMask(int port) {
+        return 1L << (port & (WORD_BITS - 1));
+    }
+
+    /**
+     * Consumer of a bitmap word, where bit <i>n</i> represents <code>firstPort + n</code>.
+     */
+    @FunctionalInterface
+    public interface WordConsumer {
+
+        void accept(int firstPort, long bits);
+
+    }
+
+}
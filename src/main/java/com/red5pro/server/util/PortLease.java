@@ -0,0 +1,125 @@
+package com.red5pro.server.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Lease on a port, or an RTP/RTCP port pair, allocated by the PortManager. A lease which is neither renewed nor closed
+ * before it expires, or whose owner is no longer active, is reclaimed by the {@link PortLeaseSweeper}.
+ *
+ * @author Paul Gregoire
+ */
+public class PortLease implements AutoCloseable {
+
+    // leased port; the RTP port when a pair is leased
+    private final int port;
+
+    // whether or not the lease covers port and port + 1
+    private final boolean pair;
+
+    // identifies the owner for diagnostics
+    private final String ownerId;
+
+    // reports whether or not the owner is still active; may be null
+    private final BooleanSupplier ownerActive;
+
+    // lease duration in nanoseconds
+    private final long leaseNanos;
+
+    // nano time at which the lease expires
+    private volatile long expiry;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    PortLease(int port, boolean pair, String ownerId, long leaseMs, BooleanSupplier ownerActive) {
+        this.port = port;
+        this.pair = pair;
+        this.ownerId = ownerId;
+        this.ownerActive = ownerActive;
+        this.leaseNanos = TimeUnit.MILLISECONDS.toNanos(leaseMs);
+        this.expiry = System.nanoTime() + leaseNanos;
+    }
+
+    /**
+     * Extends the lease by its original duration from now.
+     *
+     * @return true if renewed and false if the lease has already been released or reclaimed
+     */
+    public boolean renew() {
+        if (released.get()) {
+            return false;
+        }
+        expiry = System.nanoTime() + leaseNanos;
+        return true;
+    }
+
+    /**
+     * Releases the leased port(s) back to the PortManager.
+     */
+    @Override
+    public void close() {
+        PortManager.releaseLease(this);
+    }
+
+    /**
+     * Marks the lease released, which only succeeds once.
+     *
+     * @return true if this call released the lease
+     */
+    boolean markReleased() {
+        return released.compareAndSet(false, true);
+    }
+
+    public boolean isReleased() {
+        return released.get();
+    }
+
+    public boolean isExpired() {
+        return (System.nanoTime() - expiry) >= 0L;
+    }
+
+    /**
+     * Returns whether or not the owner is still active; owners without a liveness check are always active.
+     *
+     * @return true if active and false otherwise
+     */
+    public boolean isOwnerActive() {
+        return ownerActive == null || ownerActive.getAsBoolean();
+    }
+
+    boolean hasOwnerCheck() {
+        return ownerActive != null;
+    }
+
+    long getExpiry() {
+        return expiry;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Returns the RTCP port of a leased pair.
+     *
+     * @return RTCP port or -1 if this lease is not for a pair
+     */
+    public int getRtcpPort() {
+        return pair ? port + 1 : -1;
+    }
+
+    public boolean isPair() {
+        return pair;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    @Override
+    public String toString() {
+        return "PortLease [port=" + port + ", pair=" + pair + ", ownerId=" + ownerId + ", released=" + released.get() + "]";
+    }
+
+}
@@ -0,0 +1,228 @@
+package com.red5pro.server.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks port leases and reclaims those that expire or whose owner is no longer active. Leases are held in a hashed
+ * timing wheel driven by a single scheduled thread; each tick only visits the leases in the current slot. Leases whose
+ * expiry lies beyond the span of the wheel, or that were renewed, are simply placed into a later slot when visited.
+ * Pair leases are indexed under both of their ports, so that clearing either port finds the lease of the whole pair.
+ *
+ * @author Paul Gregoire
+ */
+public class PortLeaseSweeper {
+
+    private static Logger log = LoggerFactory.getLogger(PortLeaseSweeper.class);
+
+    // number of ports in the system port space
+    private static final int PORT_COUNT = 65536;
+
+    // number of slots in the wheel; power of two
+    private static final int SLOTS = 512;
+
+    // most ticks between owner liveness checks
+    private static final int OWNER_CHECK_TICKS = 10;
+
+    // leases by port; pair leases under both ports
+    private final AtomicReferenceArray<PortLease> leases = new AtomicReferenceArray<>(PORT_COUNT);
+
+    // wheel slots
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private final Queue<PortLease>[] wheel = new Queue[SLOTS];
+
+    // returns reclaimed ports to the allocator
+    private final Consumer<PortLease> reclaimer;
+
+    // wheel resolution in nanoseconds
+    private final long tickNanos;
+
+    // ticks processed; only advanced by the sweeper thread
+    private volatile long currentTick;
+
+    private volatile ScheduledExecutorService executor;
+
+    // leases neither released nor reclaimed
+    private final AtomicInteger live = new AtomicInteger();
+
+    // leases reclaimed because they expired
+    private final LongAdder leaked = new LongAdder();
+
+    // leases reclaimed for any reason
+    private final LongAdder reclaimed = new LongAdder();
+
+    /**
+     * Creates a sweeper.
+     *
+     * @param tickMs wheel resolution in milliseconds
+     * @param reclaimer returns the ports of a reclaimed lease to the allocator
+     */
+    public PortLeaseSweeper(long tickMs, Consumer<PortLease> reclaimer) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, tickMs));
+        this.reclaimer = reclaimer;
+        for (int i = 0; i < SLOTS; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Starts tracking a lease, starting the sweeper thread if needed.
+     *
+     * @param lease new lease
+     */
+    public void register(PortLease lease) {
+        index(lease.getPort(), lease);
+        if (lease.isPair()) {
+            index(lease.getRtcpPort(), lease);
+        }
+        live.incrementAndGet();
+        schedule(lease);
+        if (executor == null) {
+            start();
+        }
+    }
+
+    /**
+     * Stops tracking a lease that is being released by its owner.
+     *
+     * @param lease lease to release
+     * @return true if this call released the lease and its ports should be returned
+     */
+    public boolean release(PortLease lease) {
+        if (lease.markReleased()) {
+            leases.compareAndSet(lease.getPort(), lease, null);
+            if (lease.isPair()) {
+                leases.compareAndSet(lease.getRtcpPort(), lease, null);
+            }
+            live.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stops tracking any lease on the port, since the port is being returned directly. For a pair lease, the whole
+     * pair stops being tracked and the caller is expected to return both of its ports.
+     *
+     * @param port released port
+     * @return the lease released by this call, or null if the port had no live lease
+     */
+    public PortLease forget(int port) {
+        if (port >= 0 && port < PORT_COUNT) {
+            PortLease lease = leases.get(port);
+            if (lease != null && release(lease)) {
+                return lease;
+            }
+        }
+        return null;
+    }
+
+    private void index(int port, PortLease lease) {
+        PortLease previous = leases.getAndSet(port, lease);
+        if (previous != null && previous != lease && release(previous)) {
+            // the port was cleared without going through its lease
+            log.debug("Replaced untracked lease: {}", previous);
+        }
+    }
+
+    private void schedule(PortLease lease) {
+        long ticks = Math.max(1L, (lease.getExpiry() - System.nanoTime() + tickNanos - 1) / tickNanos);
+        if (lease.hasOwnerCheck()) {
+            ticks = Math.min(ticks, OWNER_CHECK_TICKS);
+        }
+        ticks = Math.min(ticks, SLOTS - 1);
+        wheel[(int) ((currentTick + ticks) & (SLOTS - 1))].offer(lease);
+    }
+
+    private void tick() {
+        try {
+            // advance first so that leases scheduled while sweeping land in a later slot
+            long tick = currentTick + 1;
+            currentTick = tick;
+            Queue<PortLease> slot = wheel[(int) (tick & (SLOTS - 1))];
+            PortLease lease;
+            while ((lease = slot.poll()) != null) {
+                if (lease.isReleased()) {
+                    continue;
+                }
+                boolean ownerActive;
+                try {
+                    ownerActive = lease.isOwnerActive();
+                } catch (Throwable t) {
+                    log.warn("Exception checking lease owner {}", lease.getOwnerId(), t);
+                    ownerActive = false;
+                }
+                if (!ownerActive) {
+                    log.debug("Reclaiming lease of closed owner: {}", lease);
+                    reclaim(lease);
+                } else if (lease.isExpired()) {
+                    log.info("Reclaiming expired lease: {}", lease);
+                    if (reclaim(lease)) {
+                        leaked.increment();
+                    }
+                } else {
+                    // not yet due, place it further along
+                    schedule(lease);
+                }
+            }
+        } catch (Throwable t) {
+            log.warn("Exception sweeping leases", t);
+        }
+    }
+
+    private boolean reclaim(PortLease lease) {
+        if (release(lease)) {
+            reclaimed.increment();
+            reclaimer.accept(lease);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Starts the sweeper thread.
+     */
+    public synchronized void start() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "PortLeaseSweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops the sweeper thread; leases remain tracked and are swept again once restarted.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public int getLiveCount() {
+        return live.get();
+    }
+
+    public long getLeakedCount() {
+        return leaked.sum();
+    }
+
+    public long getReclaimedCount() {
+        return reclaimed.sum();
+    }
+
+}
@@ -3,8 +3,8 @@ package com.red5pro.server.util;
 import java.net.DatagramSocket;
 import java.net.ServerSocket;
 import java.util.Collection;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntPredicate;
 
 import org.apache.commons.lang3.RandomUtils;
 import org.slf4j.Logger;
@@ -37,29 +37,31 @@ public class PortManager {
     // allow system port allocations (may be outside configured port range)
     private static boolean allowSystemPorts;
 
-    // holds ports that have been allocated and only those that are allocated
-    private static CopyOnWriteArraySet<Integer> allocatedPorts = new CopyOnWriteArraySet<>();
+    // number of allocator stripes; zero for one per available processor
+    private static int portStripes = 1;
 
-    // holds ports that were not allocated from here, that we're aware of
-    private static CopyOnWriteArraySet<Integer> otherAllocatedPorts = new CopyOnWriteArraySet<>();
+    // bitmap allocator for the configured port range
+    private static volatile PortAllocator allocator = new PortAllocator(rtpPortBase, rtpPortCeiling);
 
-    // port selection base
-    @SuppressWarnings("unused")
-    private volatile int port = Math.max(1024, (rtpPortBase - 1)); // use 1024 as base max to avoid root issue on unix
+    // availability probe shared by all allocations
+    private static final PortProbe probe = new PortProbe();
 
-    // atomic updater for the port
-    private static AtomicIntegerFieldUpdater<PortManager> portUpdater = AtomicIntegerFieldUpdater.newUpdater(PortManager.class, "port");
+    // resolution of the lease sweeper wheel in milliseconds
+    private static final long LEASE_SWEEP_TICK_MS = 100L;
 
-    // single static instance of this port manager for use with the atomic updater
-    private static final PortManager instance = new PortManager();
+    // reclaims expired leases and those of closed owners
+    private static final PortLeaseSweeper leaseSweeper = new PortLeaseSweeper(LEASE_SWEEP_TICK_MS, PortManager::returnLeasedPorts);
 
     /**
-     * Clear an allocated port entry.
+     * Clear an allocated port entry. Clearing either port of a leased pair releases the whole pair.
      *
      * @param rtpPort the port to clear
      */
     public static void clearRTPServerPort(int rtpPort) {
-        if (allocatedPorts.remove(rtpPort)) {
+        PortLease lease = leaseSweeper.forget(rtpPort);
+        if (lease != null && lease.isPair()) {
+            returnLeasedPorts(lease);
+        } else if (allocator.release(rtpPort)) {
             if (isDebug) {
                 log.debug("Removing server port {}", rtpPort);
             }
@@ -110,60 +112,51 @@ public class PortManager {
                 log.warn("Configured port range has been exhausted, no ports available");
             }
         } else {
-            serverPort = portUpdater.incrementAndGet(instance);
-            for (; serverPort < rtpPortCeiling; serverPort = portUpdater.incrementAndGet(instance)) {
-                // check the other list first
-                if (otherAllocatedPorts.contains(serverPort)) {
-                    // port is not available
-                    log.info("Port is bound elsewhere {}", serverPort);
-                    continue;
-                }
-                // add only works if its not already allocated
-                if (allocatedPorts.add(serverPort)) {
-                    // if the port isn't allocated, allocate it and check availability
-                    if (udp) {
-                        // check UDP port
-                        if (!checkAvailable(serverPort)) {
-                            // port is not available
-                            log.warn("Unallocated port is already bound {}", serverPort);
-                            // XXX remove it from allocated and transfer to otherAllocated, since its allocated from elsewhere
-                            if (allocatedPorts.remove(serverPort)) {
-                                otherAllocatedPorts.add(serverPort);
-                            }
-                            continue;
-                        }
-                    } else {
-                        // check TCP port
-                        if (!checkAvailable(serverPort, true)) {
-                            // port is not available
-                            log.warn("Unallocated port is already bound {}", serverPort);
-                            // XXX remove it from allocated and transfer to otherAllocated, since its allocated from elsewhere
-                            if (allocatedPorts.remove(serverPort)) {
-                                otherAllocatedPorts.add(serverPort);
-                            }
-                            continue;
-                        }
-                    }
-                    // break out with currently available port
-                    break;
-                }
-            }
-            // reset the port incrementer if we've exceeded the bounds (minus 1 since we always use incrementAndGet)
-            if (serverPort > rtpPortCeiling) {
-                // if the first port exceeded the bounds reset
-                portUpdater.set(instance, (rtpPortBase - 1));
-                log.info("Port range reset at {} due to exceeding bounds {}..{}", serverPort, rtpPortBase, rtpPortCeiling);
-                // get a new port post reset
-                //serverPort = portUpdater.incrementAndGet(instance);
-                // XXX seems that we need to hit ourself again to get the next available and not assume the first one, post
-                // reset is good to go
-                serverPort = getRTPServerPort(udp);
+            int[] probes = new int[1];
+            serverPort = allocator.claim(countingProbe(!udp, probes));
+            probe.recordAllocation(probes[0]);
+            if (serverPort == -1) {
+                // every port was claimed or found bound while we searched
+                log.warn("Configured port range has been exhausted, no ports available");
+                serverPort = allowSystemPorts ? (udp ? findFreeUdpPort() : findFreeTcpPort()) : 0;
+            } else if (isDebug) {
+                log.debug("Port allocated {} after {} probes", serverPort, probes[0]);
             }
         }
-        log.debug("Port allocated {}", serverPort);
         return serverPort;
     }
 
+    /**
+     * Get a leased UDP port, which is reclaimed if the lease expires before being closed.
+     *
+     * @param ownerId identifies the owner of the lease
+     * @param leaseMs lease duration in milliseconds
+     * @return lease or null if no port is available
+     */
+    public static PortLease getRTPServerPort(String ownerId, long leaseMs) {
+        return getRTPServerPort(ownerId, leaseMs, null, true);
+    }
+
+    /**
+     * Get a leased port, which is reclaimed if the lease expires before being closed or renewed, or once the owner is no
+     * longer active.
+     *
+     * @param ownerId identifies the owner of the lease
+     * @param leaseMs lease duration in milliseconds
+     * @param ownerActive reports whether or not the owner is still active; may be null
+     * @param udp true to use DatagramSocket and false to use ServerSocket
+     * @return lease or null if no port is available
+     */
+    public static PortLease getRTPServerPort(String ownerId, long leaseMs, BooleanSupplier ownerActive, boolean udp) {
+        int serverPort = getRTPServerPort(udp);
+        if (serverPort == 0) {
+            return null;
+        }
+        PortLease lease = new PortLease(serverPort, false, ownerId, leaseMs, ownerActive);
+        leaseSweeper.register(lease);
+        return lease;
+    }
+
     /**
      * Get an available port using randomizer.
      *
@@ -172,85 +165,147 @@ public class PortManager {
     public static int getRTPServerPortRandom() {
         //log.debug("Get port");
         // start a random port within range
-        int serverPort = RandomUtils.nextInt(rtpPortBase, rtpPortCeiling);
-        for (; serverPort < rtpPortCeiling; serverPort++) {
-            // add only works if its not already allocated
-            if (allocatedPorts.add(serverPort)) {
-                // flag to check availability
-                if (!checkAvailable(serverPort)) {
-                    // port is not available
-                    log.warn("Unallocated port is already bound {}", serverPort);
-                    continue;
-                }
-                // break out with currently available port
-                break;
+        int[] probes = new int[1];
+        int serverPort = allocator.claim(RandomUtils.nextInt(rtpPortBase, rtpPortCeiling), countingProbe(false, probes));
+        probe.recordAllocation(probes[0]);
+        if (serverPort == -1) {
+            log.warn("Configured port range has been exhausted, no ports available");
+            serverPort = 0;
+        } else if (isDebug) {
+            log.debug("Port allocated {} after {} probes", serverPort, probes[0]);
+        }
+        return serverPort;
+    }
+
+    /**
+     * Reserve an even RTP port and its odd RTCP neighbour; defaults to UDP.
+     *
+     * @return RTP port, with the RTCP port being RTP + 1, or 0 if no pair is available
+     */
+    public static int reservePortPair() {
+        return reservePortPair(true);
+    }
+
+    /**
+     * Reserve an even RTP port and its odd RTCP neighbour. Both ports are claimed in one step and either both are
+     * returned as allocated or neither is.
+     *
+     * @param udp true to use DatagramSocket and false to use ServerSocket
+     * @return RTP port, with the RTCP port being RTP + 1, or 0 if no pair is available
+     */
+    public static int reservePortPair(boolean udp) {
+        int[] probes = new int[1];
+        int rtpPort = allocator.claimPair(countingProbe(!udp, probes));
+        probe.recordAllocation(probes[0]);
+        if (rtpPort == -1) {
+            log.warn("Configured port range has no free port pairs");
+            return 0;
+        }
+        if (isDebug) {
+            log.debug("Port pair allocated {}-{} after {} probes", rtpPort, (rtpPort + 1), probes[0]);
+        }
+        return rtpPort;
+    }
+
+    /**
+     * Reserve a leased RTP/RTCP port pair, which is reclaimed if the lease expires before being closed or renewed, or
+     * once the owner is no longer active.
+     *
+     * @param ownerId identifies the owner of the lease
+     * @param leaseMs lease duration in milliseconds
+     * @param ownerActive reports whether or not the owner is still active; may be null
+     * @param udp true to use DatagramSocket and false to use ServerSocket
+     * @return lease or null if no pair is available
+     */
+    public static PortLease reservePortPair(String ownerId, long leaseMs, BooleanSupplier ownerActive, boolean udp) {
+        int rtpPort = reservePortPair(udp);
+        if (rtpPort == 0) {
+            return null;
+        }
+        PortLease lease = new PortLease(rtpPort, true, ownerId, leaseMs, ownerActive);
+        leaseSweeper.register(lease);
+        return lease;
+    }
+
+    /**
+     * Release a port pair reserved with {@link #reservePortPair()}.
+     *
+     * @param rtpPort even RTP port of the pair
+     */
+    public static void releasePortPair(int rtpPort) {
+        PortLease lease = leaseSweeper.forget(rtpPort);
+        if (lease != null && lease.getPort() != rtpPort) {
+            // the port belongs to another leased pair, which is released as a whole
+            returnLeasedPorts(lease);
+        } else if (allocator.releasePair(rtpPort)) {
+            if (isDebug) {
+                log.debug("Removing server port pair {}-{}", rtpPort, (rtpPort + 1));
             }
+        } else {
+            if (isDebug) {
+                log.debug("Port pair {}-{} was not allocated or has already been cleared", rtpPort, (rtpPort + 1));
+            }
+        }
+    }
+
+    /**
+     * Releases a lease and returns its port(s).
+     *
+     * @param lease lease to release
+     */
+    static void releaseLease(PortLease lease) {
+        if (leaseSweeper.release(lease)) {
+            returnLeasedPorts(lease);
         }
+    }
+
+    private static void returnLeasedPorts(PortLease lease) {
+        boolean released = lease.isPair() ? allocator.releasePair(lease.getPort()) : allocator.release(lease.getPort());
         if (isDebug) {
-            log.debug("Port allocated {}", serverPort);
+            log.debug("Lease released: {} returned: {}", lease, released);
         }
-        return serverPort;
     }
 
     /**
-     * Checks a port for availability using DatagramSocket; this may or may not be useful for TCP as well.
+     * Returns an availability check for ports claimed by the allocator, which counts the probes it performs. Ports
+     * failing the check are marked bound elsewhere by the allocator, which skips them until cleaned.
+     *
+     * @param tcp true to check with a ServerSocketChannel and false to use a DatagramChannel
+     * @param probes single element counter incremented per probe
+     * @return availability check
+     */
+    private static IntPredicate countingProbe(boolean tcp, int[] probes) {
+        return port -> {
+            probes[0]++;
+            if (probe.bind(port, tcp)) {
+                return true;
+            }
+            if (isDebug) {
+                log.debug("Unallocated port is already bound {}", port);
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Checks a port for availability using a DatagramChannel; this may or may not be useful for TCP as well.
      *
      * @param port to check
      * @return true if port is available and false otherwise
      */
     public static boolean checkAvailable(int port) {
-        try (DatagramSocket socket = new DatagramSocket(port)) {
-            socket.setReuseAddress(true);
-            socket.setSoTimeout(soTimeoutMs);
-            int retPort = socket.getLocalPort();
-            if (port == retPort) {
-                if (isDebug) {
-                    log.debug("Port: {} is available", port);
-                }
-            } else {
-                if (isDebug) {
-                    log.debug("Port didnt match: {}", retPort);
-                }
-            }
-            socket.close();
-            return true;
-        } catch (Throwable t) {
-            log.warn("Exception checking port: {}", port, t);
-        }
-        return false;
+        return probe.bind(port, false);
     }
 
     /**
-     * Checks a port for availability using ServerSocket primarily for TCP.
+     * Checks a port for availability using a ServerSocketChannel primarily for TCP.
      *
      * @param port to check
-     * @param tcp true to use ServerSocket and false to use DatagramSocket
+     * @param tcp true to use ServerSocketChannel and false to use DatagramChannel
      * @return true if port is available and false otherwise
      */
     public static boolean checkAvailable(int port, boolean tcp) {
-        if (tcp) {
-            try (ServerSocket socket = new ServerSocket(port)) {
-                socket.setReuseAddress(true);
-                socket.setSoTimeout(1); // 1ms
-                int retPort = socket.getLocalPort();
-                if (port == retPort) {
-                    if (isDebug) {
-                        log.debug("Port: {} is available", port);
-                    }
-                } else {
-                    if (isDebug) {
-                        log.debug("Port didnt match: {}", retPort);
-                    }
-                }
-                socket.close();
-                return true;
-            } catch (Throwable t) {
-                log.warn("Exception checking port: {}", port, t);
-            }
-            return false;
-        } else {
-            return checkAvailable(port);
-        }
+        return probe.bind(port, tcp);
     }
 
     /**
@@ -307,8 +362,8 @@ public class PortManager {
             rtpPortBase = 1024;
         }
         PortManager.rtpPortBase = rtpPortBase;
-        // set the port base on this change (minus 1 since we always use incrementAndGet)
-        portUpdater.set(instance, (rtpPortBase - 1));
+        // rebuild the allocator on this change
+        resetAllocator();
     }
 
     public static void setRtpPortCeiling(int rtpPortCeiling) {
@@ -317,10 +372,46 @@ public class PortManager {
             rtpPortCeiling = MAX_PORT;
         }
         PortManager.rtpPortCeiling = rtpPortCeiling;
+        // rebuild the allocator on this change
+        resetAllocator();
+    }
+
+    /**
+     * Sets the number of stripes the port range is split into. Each thread allocates from its own stripe first and only
+     * takes ports from the neighbouring stripes when its stripe is exhausted.
+     *
+     * @param portStripes stripe count; 1 disables striping and 0 uses one stripe per available processor
+     */
+    public static void setPortStripes(int portStripes) {
+        if (portStripes < 0) {
+            log.warn("Invalid port stripe count: {}; defaulting to 1", portStripes);
+            portStripes = 1;
+        }
+        PortManager.portStripes = portStripes;
+        // rebuild the allocator on this change
+        resetAllocator();
+    }
+
+    /**
+     * Replaces the allocator with one matching the configured range, carrying over allocations which still fall within
+     * the range.
+     */
+    private static synchronized void resetAllocator() {
+        if (rtpPortCeiling <= rtpPortBase) {
+            // the other bound is likely about to be updated, so keep the current allocator until then
+            log.warn("Invalid port range {}..{}, allocator not updated", rtpPortBase, rtpPortCeiling);
+            return;
+        }
+        PortAllocator previous = allocator;
+        int stripes = portStripes > 0 ? portStripes : Runtime.getRuntime().availableProcessors();
+        PortAllocator next = new PortAllocator(rtpPortBase, rtpPortCeiling, stripes);
+        previous.forEachAllocated(next::claimPort);
+        previous.forEachBoundElsewhere(next::markBoundElsewhere);
+        allocator = next;
     }
 
     /**
-     * Set the socket timeout for availability checks.
+     * Set the socket timeout for system port searches.
      *
      * @param soTimeoutMs
      */
@@ -328,6 +419,15 @@ public class PortManager {
         PortManager.soTimeoutMs = soTimeoutMs;
     }
 
+    /**
+     * Returns the availability probe, which holds the probe statistics.
+     *
+     * @return probe
+     */
+    public static PortProbe getProbe() {
+        return probe;
+    }
+
     /**
      * Sets whether or not to test a port for availability before returning it.
      *
@@ -353,8 +453,43 @@ public class PortManager {
      * @return allocated port count
      */
     public static int getCount() {
-        // may not be accurate
-        return allocatedPorts.size();
+        return allocator.getAllocatedCount();
+    }
+
+    /**
+     * Returns the number of leases neither released nor reclaimed.
+     *
+     * @return live lease count
+     */
+    public static int getLiveLeaseCount() {
+        return leaseSweeper.getLiveCount();
+    }
+
+    /**
+     * Returns the number of leases reclaimed because they expired without being released.
+     *
+     * @return leaked lease count
+     */
+    public static long getLeakedLeaseCount() {
+        return leaseSweeper.getLeakedCount();
+    }
+
+    /**
+     * Returns the number of leases reclaimed by the sweeper, whether expired or belonging to a closed owner.
+     *
+     * @return reclaimed lease count
+     */
+    public static long getReclaimedLeaseCount() {
+        return leaseSweeper.getReclaimedCount();
+    }
+
+    /**
+     * Returns the number of stripes the port range is split into.
+     *
+     * @return stripe count
+     */
+    public static int getStripeCount() {
+        return allocator.getStripeCount();
     }
 
     /**
@@ -372,18 +507,32 @@ public class PortManager {
      * @return true if ports in configured range are exhausted and false if not exhausted
      */
     public static boolean isRangeExhausted() {
-        log.trace("isRangeExhausted - {} == {}", (rtpPortCeiling - rtpPortBase), getCount());
-        return (rtpPortCeiling - rtpPortBase) == getCount();
+        PortAllocator ports = allocator;
+        if (log.isTraceEnabled()) {
+            log.trace("isRangeExhausted - {} == {} + {}", ports.getSize(), ports.getAllocatedCount(), ports.getBoundElsewhereCount());
+        }
+        return ports.isExhausted();
     }
 
     /**
-     * Clear out ports that have closed without having been deallocated.
+     * Clear out ports that have closed without having been deallocated, along with ports that are no longer bound
+     * elsewhere.
      */
     public static void cleanAllocations() {
-        allocatedPorts.forEach(port -> {
-            // XXX be aware that checking the port incurs a blocking penalty on receive, up to soTimeoutMs
-            if (checkAvailable(port)) {
-                clearRTPServerPort(port);
+        PortAllocator ports = allocator;
+        // probe each word worth of ports in one call
+        ports.forEachAllocatedWord((firstPort, bits) -> {
+            long available = probe.probeWindow(firstPort, bits, false);
+            while (available != 0L) {
+                clearRTPServerPort(firstPort + Long.numberOfTrailingZeros(available));
+                available &= available - 1;
+            }
+        });
+        ports.forEachBoundElsewhereWord((firstPort, bits) -> {
+            long available = probe.probeWindow(firstPort, bits, false);
+            while (available != 0L) {
+                ports.clearBoundElsewhere(firstPort + Long.numberOfTrailingZeros(available));
+                available &= available - 1;
             }
         });
     }
@@ -0,0 +1,127 @@
+package com.red5pro.server.util;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Port availability probe using NIO channel binds, which tracks the number of probes used per allocation. Ports found
+ * bound by other processes aren't remembered here; the allocator marks them bound elsewhere so that they're skipped
+ * until a clean finds them free again.
+ *
+ * @author Paul Gregoire
+ */
+public class PortProbe {
+
+    private static Logger log = LoggerFactory.getLogger(PortProbe.class);
+
+    // channel binds performed
+    private final LongAdder binds = new LongAdder();
+
+    // allocations recorded
+    private final LongAdder allocations = new LongAdder();
+
+    // probes used across all recorded allocations
+    private final LongAdder allocationProbes = new LongAdder();
+
+    // most probes used by a single allocation
+    private final AtomicInteger maxAllocationProbes = new AtomicInteger();
+
+    /**
+     * Probes a window of up to 64 candidate ports in one call. Bit <i>n</i> of the candidates represents
+     * <code>firstPort + n</code>.
+     *
+     * @param firstPort port represented by bit zero
+     * @param candidates ports to probe
+     * @param tcp true to bind ServerSocketChannels and false to bind DatagramChannels
+     * @return bits of the candidates which are available
+     */
+    public long probeWindow(int firstPort, long candidates, boolean tcp) {
+        long available = 0L;
+        long remaining = candidates;
+        while (remaining != 0L) {
+            long bit = Long.lowestOneBit(remaining);
+            int port = firstPort + Long.numberOfTrailingZeros(bit);
+            if (bind(port, tcp)) {
+                available |= bit;
+            }
+            remaining &= ~bit;
+        }
+        return available;
+    }
+
+    /**
+     * Binds a channel to the port to check its availability.
+     *
+     * @param port port to check
+     * @param tcp true to bind a ServerSocketChannel and false to bind a DatagramChannel
+     * @return true if available and false otherwise
+     */
+    public boolean bind(int port, boolean tcp) {
+        binds.increment();
+        InetSocketAddress address = new InetSocketAddress(port);
+        try {
+            if (tcp) {
+                try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+                    channel.bind(address);
+                }
+            } else {
+                try (DatagramChannel channel = DatagramChannel.open()) {
+                    channel.bind(address);
+                }
+            }
+            return true;
+        } catch (BindException e) {
+            log.debug("Port: {} is bound", port);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Exception checking port: {} {}", port, e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Records the number of probes a single allocation used.
+     *
+     * @param probes probe count
+     */
+    public void recordAllocation(int probes) {
+        allocations.increment();
+        allocationProbes.add(probes);
+        maxAllocationProbes.accumulateAndGet(probes, Math::max);
+    }
+
+    public long getBindCount() {
+        return binds.sum();
+    }
+
+    public long getAllocationCount() {
+        return allocations.sum();
+    }
+
+    /**
+     * Returns the average number of probes used per allocation.
+     *
+     * @return average probes per allocation
+     */
+    public double getAverageProbesPerAllocation() {
+        long count = allocations.sum();
+        return count > 0L ? (double) allocationProbes.sum() / count : 0d;
+    }
+
+    public int getMaxProbesPerAllocation() {
+        return maxAllocationProbes.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PortProbe [binds=%d, allocations=%d, avgProbes=%.2f, maxProbes=%d]", getBindCount(), getAllocationCount(), getAverageProbesPerAllocation(), getMaxProbesPerAllocation());
+    }
+
+}
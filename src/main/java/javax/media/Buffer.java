@@ -254,11 +254,21 @@ public class Buffer {
 
     private long rtcpBaseAge;
 
+    // pool this buffer was acquired from, if any
+    BufferPool pool;
+
+    // whether data is an array drawn from the pool, returned to it along with this buffer
+    boolean pooledData;
+
+    // whether this buffer was released to its pool
+    boolean released;
+
     /**
      * Reset all instance properties / fields for re-use, except FORMAT.
      */
     public void reset() {
         data = null;
+        pooledData = false;
         header = null;
         length = 0;
         offset = 0;
@@ -274,6 +284,17 @@ public class Buffer {
         exception = null;
     }
 
+    /**
+     * Reset everything, including the format, for re-use from a <pre>BufferPool</pre>.
+     */
+    void recycle() {
+        reset();
+        format = null;
+        codec = RTPCodecEnum.NONE;
+        criticalFrame = false;
+        rtcpBaseAge = 0;
+    }
+
     /**
      * Clone a buffer.
      */
@@ -301,7 +322,7 @@ public class Buffer {
             else
                 buf.header = header;
         }
-        setFormat(format);
+        buf.setFormat(FormatRegistry.intern(format));
         buf.length = length;
         buf.offset = offset;
         buf.timeStamp = timeStamp;
@@ -327,7 +348,10 @@ public class Buffer {
     /**
      * Copy the attributes from the specified <pre>Buffer</pre> into this
      * <pre>Buffer</pre>. If swapData is true, the data values are swapped between the
-     * buffers, otherwise the data value is copied.
+     * buffers, otherwise the data value is copied. When this buffer came from a
+     * <pre>BufferPool</pre>, a copied value goes into its pooled data array,
+     * which is reused if long enough, and a swapped one takes its pool ownership
+     * along with it.
      *
      * @param buffer
      *            the input <pre>Buffer</pre> the copy the attributes from
@@ -339,14 +363,22 @@ public class Buffer {
             Object temp = data;
             data = buffer.data;
             buffer.data = temp;
+            boolean tempPooled = pooledData;
+            pooledData = buffer.pooledData;
+            buffer.pooledData = tempPooled;
         } else {
             byte[] g = (byte[]) buffer.data;
-            data = new byte[g.length];
-            System.arraycopy(buffer.data, 0, data, 0, g.length);
+            if (pool != null) {
+                data = pool.ensureData(this, g.length);
+            } else {
+                data = new byte[g.length];
+                pooledData = false;
+            }
+            System.arraycopy(g, 0, data, 0, g.length);
         }
         header = buffer.header;
-        // clone the format to prevent changes made on the original buffer carrying over
-        format = (Format) buffer.format.clone();
+        // share the canonical format, which can't change, instead of cloning it for every copy
+        format = FormatRegistry.intern(buffer.format);
         if (format != null) {
             String enc = format.getEncoding();
             if (enc.contains("/rtp")) {
@@ -615,6 +647,7 @@ public class Buffer {
      */
     public void setData(Object data) {
         this.data = data;
+        pooledData = false;
     }
 
     /**
@@ -892,7 +925,7 @@ public class Buffer {
             if (other.format != null) {
                 return false;
             }
-        } else if (!format.matches(other.format)) {
+        } else if (!FormatRegistry.matches(format, other.format)) {
             return false;
         }
         if (timeStamp != other.timeStamp) {
@@ -0,0 +1,241 @@
+package javax.media;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.red5pro.media.MediaSamplePool;
+
+/**
+ * Pool of <pre>Buffer</pre> instances for the per-frame media path. Each thread
+ * keeps a few released buffers of its own, backed by a bounded stack shared by
+ * all threads, so a buffer acquired and released on the same thread never
+ * contends. Data arrays are drawn from the size classes of a
+ * <pre>MediaSamplePool</pre> and go back to it when their buffer is released;
+ * a pooled buffer copied into without swapping reuses its array whenever it's
+ * long enough. Since arrays come in size classes, the data of a pooled buffer
+ * may be longer than its length.
+ * <br>
+ * A released buffer must not be used afterward, nor may its data array when
+ * that was drawn from the pool, so consumers keeping a buffer past a call must
+ * copy it.
+ */
+public final class BufferPool {
+
+    // released buffers kept by each thread before falling back to the shared stack
+    private static final int LOCAL_CAPACITY = Integer.getInteger("media.buffer.pool.local", 16);
+
+    // released buffers kept in the shared stack, beyond which they're left to the garbage collector
+    private static final int SHARED_CAPACITY = Integer.getInteger("media.buffer.pool.shared", 1024);
+
+    // approximate heap footprint of a buffer instance, for the allocation metrics
+    static final int BUFFER_BYTES = 128;
+
+    private static final BufferPool DEFAULT = new BufferPool(MediaSamplePool.getDefault(), LOCAL_CAPACITY, SHARED_CAPACITY);
+
+    private final MediaSamplePool arrays;
+
+    private final int localCapacity;
+
+    private final ThreadLocal<ArrayDeque<Buffer>> local;
+
+    private final Buffer[] shared;
+
+    private int sharedCount;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    // buffers not kept on release, since both the local and shared stacks were full
+    private final LongAdder dropped = new LongAdder();
+
+    // bytes of buffers and data arrays handed out again instead of allocated
+    private final LongAdder reusedBytes = new LongAdder();
+
+    // bytes of buffers and data arrays allocated, since none were pooled
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    /**
+     * Creates a pool drawing data arrays from the given array pool.
+     *
+     * @param arrays
+     *            pool of data arrays
+     * @param localCapacity
+     *            buffers kept per thread
+     * @param sharedCapacity
+     *            buffers kept in the shared stack
+     */
+    public BufferPool(MediaSamplePool arrays, int localCapacity, int sharedCapacity) {
+        this.arrays = arrays;
+        this.localCapacity = Math.max(0, localCapacity);
+        this.local = ThreadLocal.withInitial(() -> new ArrayDeque<>(this.localCapacity));
+        this.shared = new Buffer[Math.max(0, sharedCapacity)];
+    }
+
+    /**
+     * Returns the shared pool.
+     *
+     * @return pool
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns a reset buffer without data.
+     *
+     * @return buffer
+     */
+    public Buffer acquire() {
+        Buffer buf = local.get().pollFirst();
+        if (buf == null) {
+            buf = pollShared();
+        }
+        if (buf != null) {
+            hits.increment();
+            reusedBytes.add(BUFFER_BYTES);
+        } else {
+            misses.increment();
+            allocatedBytes.add(BUFFER_BYTES);
+            buf = new Buffer();
+        }
+        buf.pool = this;
+        buf.released = false;
+        return buf;
+    }
+
+    /**
+     * Returns a reset buffer with a pooled data array of at least the given length.
+     * The buffer's length is set to the given length and the contents of its data
+     * are undefined.
+     *
+     * @param length
+     *            data length
+     * @return buffer
+     */
+    public Buffer acquire(int length) {
+        Buffer buf = acquire();
+        buf.data = ensureData(buf, length);
+        buf.length = length;
+        return buf;
+    }
+
+    /**
+     * Returns a buffer to the pool, along with its data array if that was drawn
+     * from the pool. Neither must be used afterward. Buffers released twice are
+     * ignored.
+     *
+     * @param buf
+     *            buffer to release
+     */
+    public void release(Buffer buf) {
+        if (buf == null || buf.released) {
+            return;
+        }
+        buf.released = true;
+        if (buf.pooledData && buf.data instanceof byte[]) {
+            arrays.recycle((byte[]) buf.data);
+        }
+        buf.recycle();
+        ArrayDeque<Buffer> stack = local.get();
+        if (stack.size() < localCapacity) {
+            stack.offerFirst(buf);
+        } else if (!offerShared(buf)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Returns the pooled data array of a buffer when it's at least the given
+     * length, otherwise swaps it for one drawn from the pool.
+     *
+     * @param buf
+     *            buffer
+     * @param length
+     *            data length
+     * @return data array
+     */
+    byte[] ensureData(Buffer buf, int length) {
+        if (buf.pooledData && buf.data instanceof byte[]) {
+            byte[] current = (byte[]) buf.data;
+            if (current.length >= length) {
+                reusedBytes.add(current.length);
+                return current;
+            }
+            arrays.recycle(current);
+        }
+        byte[] array = arrays.poll(length);
+        if (array != null) {
+            reusedBytes.add(array.length);
+        } else {
+            array = arrays.allocate(length);
+            allocatedBytes.add(array.length);
+        }
+        buf.pooledData = true;
+        return array;
+    }
+
+    /**
+     * Returns the number of buffers held by the shared stack.
+     *
+     * @return pooled buffers
+     */
+    public synchronized int getSharedSize() {
+        return sharedCount;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the bytes of buffers and data arrays reused rather than allocated.
+     * Sampled periodically, the difference is the allocation rate saved.
+     *
+     * @return bytes reused
+     */
+    public long getReusedBytes() {
+        return reusedBytes.sum();
+    }
+
+    /**
+     * Returns the bytes of buffers and data arrays allocated for lack of pooled
+     * ones.
+     *
+     * @return bytes allocated
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool [shared=" + getSharedSize() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", dropped=" + getDroppedCount() + ", reusedBytes=" + getReusedBytes() + ", allocatedBytes=" + getAllocatedBytes() + "]";
+    }
+
+    private synchronized Buffer pollShared() {
+        if (sharedCount == 0) {
+            return null;
+        }
+        Buffer buf = shared[--sharedCount];
+        shared[sharedCount] = null;
+        return buf;
+    }
+
+    private synchronized boolean offerShared(Buffer buf) {
+        if (sharedCount == shared.length) {
+            return false;
+        }
+        shared[sharedCount++] = buf;
+        return true;
+    }
+
+}
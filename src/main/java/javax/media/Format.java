@@ -1,6 +1,7 @@
 package javax.media;
 
 import java.io.Serializable;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,6 +62,17 @@ public class Format implements Cloneable, Serializable {
 
     private long encodingCode = 0;
 
+    // set once canonicalized by FormatRegistry, after which the format must not change
+    transient volatile boolean interned;
+
+    // hash code, cached once interned
+    private transient int hash;
+
+    // results of matches and intersects against other interned formats, kept by FormatRegistry
+    transient volatile Map<Format, Boolean> matchMemo;
+
+    transient volatile Map<Format, Format> intersectMemo;
+
     /**
      * Constructs a <pre>Format</pre> that has the specified encoding type.
      *
@@ -107,8 +119,11 @@ public class Format implements Cloneable, Serializable {
      *
      * @param f
      *            The <pre>Format</pre> to copy the attributes from.
+     * @throws UnsupportedOperationException
+     *             if this format is interned
      */
     protected void copy(Format f) {
+        checkMutable();
         dataType = f.dataType;
     }
 
@@ -133,6 +148,64 @@ public class Format implements Cloneable, Serializable {
         return (dataType == otherType) && (encoding == otherEncoding || ((encoding != null && otherEncoding != null) && isSameEncoding((Format) format)));
     }
 
+    /**
+     * Returns a hash code consistent with <pre>equals</pre>; it's computed once for
+     * interned formats. Subclasses contribute their attributes by overriding
+     * <pre>hashFields</pre>.
+     *
+     * @return hash code
+     */
+    @Override
+    public int hashCode() {
+        if (interned) {
+            int h = hash;
+            if (h == 0) {
+                h = hash = hashFields();
+            }
+            return h;
+        }
+        return hashFields();
+    }
+
+    /**
+     * Computes the hash code from the attributes compared by <pre>equals</pre>.
+     *
+     * @return hash code
+     */
+    protected int hashFields() {
+        int result = clz.hashCode();
+        result = 31 * result + (dataType == null ? 0 : dataType.hashCode());
+        if (encoding != null) {
+            // encodings compare ignoring case
+            for (int i = 0; i < encoding.length(); i++) {
+                result = 31 * result + Character.toLowerCase(encoding.charAt(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether or not this is the canonical instance held by
+     * <pre>FormatRegistry</pre>, which must not be modified.
+     *
+     * @return true if interned
+     */
+    public boolean isInterned() {
+        return interned;
+    }
+
+    /**
+     * Guards setters against modifying an interned format.
+     *
+     * @throws UnsupportedOperationException
+     *             if the format is interned
+     */
+    protected void checkMutable() {
+        if (interned) {
+            throw new UnsupportedOperationException("Interned format is immutable: " + this);
+        }
+    }
+
     /**
      * Gets the type of the data that this <pre>Format</pre> requires. For example,
      * for byte array it returns "<pre>byte[].class</pre>".
@@ -0,0 +1,144 @@
+package javax.media;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns <pre>Format</pre> instances, so that equal formats share one immutable,
+ * canonical instance. Interned formats cache their hash codes, and the results
+ * of <pre>matches</pre> and <pre>intersects</pre> between two interned formats
+ * are memoized, which saves re-comparing the same pair of formats for every
+ * buffer or negotiation. Setters on an interned format throw
+ * <pre>UnsupportedOperationException</pre>; clone it to get a modifiable copy.
+ */
+public final class FormatRegistry {
+
+    // most formats interned, beyond which formats are copied instead
+    private static final int MAX_FORMATS = Integer.getInteger("media.format.maxInterned", 4096);
+
+    // stands in for a null intersection in the memo
+    private static final Format NO_INTERSECTION = new Format(null);
+
+    private static final ConcurrentHashMap<Format, Format> formats = new ConcurrentHashMap<>();
+
+    private FormatRegistry() {
+    }
+
+    /**
+     * Returns the canonical instance equal to the given format, registering an
+     * immutable copy of it if there's none yet. Once the registry is full, or for
+     * a format whose <pre>clone</pre> doesn't preserve its class, a private copy is
+     * returned instead.
+     *
+     * @param format
+     *            format to intern
+     * @param <T>
+     *            type of format
+     * @return canonical format or null if the given format is null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Format> T intern(T format) {
+        if (format == null || format.interned) {
+            return format;
+        }
+        Format canonical = formats.get(format);
+        if (canonical == null) {
+            Format copy = (Format) format.clone();
+            if (copy.getClass() != format.getClass() || formats.size() >= MAX_FORMATS) {
+                return (T) copy;
+            }
+            copy.interned = true;
+            canonical = formats.putIfAbsent(copy, copy);
+            if (canonical == null) {
+                canonical = copy;
+            }
+        }
+        return (T) canonical;
+    }
+
+    /**
+     * Returns whether or not the given formats match, memoizing the result when
+     * both are interned.
+     *
+     * @param format
+     *            format to match against
+     * @param other
+     *            format to match
+     * @return true if they match and false otherwise
+     */
+    public static boolean matches(Format format, Format other) {
+        if (format == null) {
+            return false;
+        }
+        if (!format.interned || other == null || !other.interned) {
+            return format.matches(other);
+        }
+        Map<Format, Boolean> memo = format.matchMemo;
+        if (memo == null) {
+            synchronized (format) {
+                if ((memo = format.matchMemo) == null) {
+                    memo = format.matchMemo = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        Boolean matches = memo.get(other);
+        if (matches == null) {
+            matches = format.matches(other);
+            memo.put(other, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the intersection of the given formats. When both are interned, the
+     * result is memoized and is itself interned.
+     *
+     * @param format
+     *            format to intersect with
+     * @param other
+     *            format to intersect
+     * @return intersection or null if the formats are unrelated
+     */
+    public static Format intersects(Format format, Format other) {
+        if (!format.interned || other == null || !other.interned) {
+            return format.intersects(other);
+        }
+        Map<Format, Format> memo = format.intersectMemo;
+        if (memo == null) {
+            synchronized (format) {
+                if ((memo = format.intersectMemo) == null) {
+                    memo = format.intersectMemo = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        Format intersection = memo.get(other);
+        if (intersection == null) {
+            intersection = format.intersects(other);
+            if (intersection == null) {
+                intersection = NO_INTERSECTION;
+            } else if (!(intersection = intern(intersection)).interned) {
+                // a private copy, since the registry is full
+                return intersection;
+            }
+            memo.put(other, intersection);
+        }
+        return intersection != NO_INTERSECTION ? intersection : null;
+    }
+
+    /**
+     * Returns the number of interned formats.
+     *
+     * @return interned formats
+     */
+    public static int size() {
+        return formats.size();
+    }
+
+    /**
+     * Forgets the interned formats. Those already handed out stay immutable.
+     */
+    public static void clear() {
+        formats.clear();
+    }
+
+}
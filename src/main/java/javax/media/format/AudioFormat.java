@@ -232,6 +232,19 @@ public class AudioFormat extends Format {
         return false;
     }
 
+    @Override
+    protected int hashFields() {
+        int result = super.hashFields();
+        result = 31 * result + Double.hashCode(sampleRate);
+        result = 31 * result + sampleSizeInBits;
+        result = 31 * result + channels;
+        result = 31 * result + endian;
+        result = 31 * result + signed;
+        result = 31 * result + frameSizeInBits;
+        result = 31 * result + Double.hashCode(frameRate);
+        return result;
+    }
+
     /**
      * Gets the number of channels.
      *
@@ -248,6 +261,7 @@ public class AudioFormat extends Format {
      *            The number of channels as an integer
      */
     public void setChannels(int channels) {
+        checkMutable();
         this.channels = channels;
     }
 
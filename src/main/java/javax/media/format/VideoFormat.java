@@ -124,6 +124,15 @@ public class VideoFormat extends Format {
         return false;
     }
 
+    @Override
+    protected int hashFields() {
+        int result = super.hashFields();
+        result = 31 * result + (size == null ? 0 : size.hashCode());
+        result = 31 * result + maxDataLength;
+        result = 31 * result + Float.hashCode(frameRate);
+        return result;
+    }
+
     /**
      * Gets the frame rate associated with this <pre>VideoFormat</pre>.
      *
@@ -144,11 +153,15 @@ public class VideoFormat extends Format {
     }
 
     /**
-     * Gets the dimensions of a video frame in this <pre>VideoFormat</pre>.
+     * Gets the dimensions of a video frame in this <pre>VideoFormat</pre>. For an
+     * interned format a copy is returned, since the format must not change.
      *
      * @return A <pre>Dimension</pre> that specifies the frame size
      */
     public Dimension getSize() {
+        if (size != null && isInterned()) {
+            return new Dimension(size);
+        }
         return size;
     }
 
@@ -0,0 +1,137 @@
+package com.red5pro.group;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.red5.server.api.event.IEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.media.FourCC;
+import com.red5pro.media.IMediaSample;
+import com.red5pro.media.MediaTrackQueue.OverflowPolicy;
+
+public class ConferenceDispatcherTest {
+
+    private static Logger log = LoggerFactory.getLogger(ConferenceDispatcherTest.class);
+
+    @Test
+    public void testOrderAndIsolation() throws InterruptedException {
+        log.info("\n testOrderAndIsolation");
+        ConferenceDispatcher dispatcher = new ConferenceDispatcher("test", 4, 10_000, OverflowPolicy.DROP_OLDEST);
+        try {
+            int total = 1000;
+            CountDownLatch release = new CountDownLatch(1);
+            TestParticipant slow = new TestParticipant(release);
+            // others on a lane of their own, away from the slow one
+            TestParticipant[] fast = new TestParticipant[3];
+            for (int i = 0; i < fast.length; i++) {
+                do {
+                    fast[i] = new TestParticipant(null);
+                } while (dispatcher.getLane(fast[i]) == dispatcher.getLane(slow));
+                dispatcher.add(fast[i]);
+            }
+            dispatcher.add(slow);
+            IParticipant[] participants = { slow, fast[0], fast[1], fast[2] };
+            for (int i = 0; i < total; i++) {
+                dispatcher.dispatch(GroupEvent.build(null, FourCC.OPUS, i, "a"), participants);
+            }
+            for (TestParticipant participant : fast) {
+                assertTrue(participant.done.await(10, TimeUnit.SECONDS));
+                for (int i = 0; i < total; i++) {
+                    assertEquals(i, participant.received.get(i).longValue());
+                }
+            }
+            assertTrue(dispatcher.getBacklog(slow) >= total - 1);
+            int lane = dispatcher.getLane(slow);
+            assertTrue(dispatcher.getQueueDepth(lane) >= total - 1);
+            int fastLane = dispatcher.getLane(fast[0]);
+            assertTrue(dispatcher.getLatencyHistogram(fastLane).getCount() > 0);
+            release.countDown();
+            for (int i = 0; i < 500 && dispatcher.getBacklog(slow) > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, dispatcher.getQueueDepth(lane));
+            assertEquals(total, slow.received.size());
+            assertEquals(0, dispatcher.getDroppedCount());
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testMediaOverflow() throws InterruptedException {
+        log.info("\n testMediaOverflow");
+        ConferenceDispatcher dispatcher = new ConferenceDispatcher("test", 1, 2, OverflowPolicy.DROP_OLDEST);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            TestParticipant stuck = new TestParticipant(release);
+            dispatcher.add(stuck);
+            IParticipant[] participants = { stuck };
+            dispatcher.dispatch(GroupEvent.build(null, FourCC.OPUS, 0L, "a"), participants);
+            for (int i = 0; i < 100 && stuck.received.isEmpty(); i++) {
+                Thread.sleep(10);
+            }
+            // the first is being delivered, leaving room for two more media events, while control events always fit
+            dispatcher.dispatch(GroupEvent.build(IEvent.Type.STREAM_ACTION, null, 1L, FourCC.UNDEFINED, 1L), participants);
+            for (long i = 2; i < 6; i++) {
+                dispatcher.dispatch(GroupEvent.build(null, FourCC.OPUS, i, "a"), participants);
+            }
+            assertEquals(3, dispatcher.getBacklog(stuck));
+            assertEquals(2, dispatcher.getDroppedCount());
+            release.countDown();
+            for (int i = 0; i < 100 && stuck.received.size() < 4; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(List.of(0L, 1L, 4L, 5L), stuck.received);
+            // a participant no longer in the group gets nothing
+            dispatcher.remove(stuck);
+            dispatcher.dispatch(GroupEvent.build(null, FourCC.OPUS, 6L, "a"), participants);
+            assertEquals(0, dispatcher.getBacklog(stuck));
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    private static class TestParticipant extends ConferenceParticipant {
+
+        final List<Long> received = new CopyOnWriteArrayList<>();
+
+        final CountDownLatch done = new CountDownLatch(1000);
+
+        private final CountDownLatch release;
+
+        TestParticipant(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public String getContextPath() {
+            return "/live";
+        }
+
+        @Override
+        public void consumeMediaSample(IMediaSample sample) {
+        }
+
+        @Override
+        public void doExpressionEvent(GroupEvent event) {
+            received.add(event.getTimestamp());
+            done.countDown();
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        }
+
+    }
+
+}
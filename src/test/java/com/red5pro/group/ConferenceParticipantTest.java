@@ -0,0 +1,103 @@
+package com.red5pro.group;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+import org.red5.server.api.scope.ScopeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.media.FourCC;
+import com.red5pro.media.IMediaSample;
+
+public class ConferenceParticipantTest {
+
+    private static Logger log = LoggerFactory.getLogger(ConferenceParticipantTest.class);
+
+    @Test
+    public void testExcludes() {
+        log.info("\n testExcludes");
+        ConferenceScope scope = new ConferenceScope(null, ScopeType.ROOM, "conference", false);
+        scope.setDispatcher(null);
+        TestParticipant viewer = new TestParticipant();
+        TestParticipant alice = new TestParticipant();
+        TestParticipant bob = new TestParticipant();
+        alice.setPublisherId("alice");
+        // excluded before alice joins, and bob after
+        viewer.addExclude("alice");
+        scope.addParticipant(viewer);
+        scope.addParticipant(alice);
+        scope.addParticipant(bob);
+        bob.setPublisherId("bob");
+        viewer.addExclude("bob");
+        PublisherIndex index = scope.getPublisherIndex();
+        assertEquals(2, index.size());
+        assertTrue(viewer.isExcluded(alice));
+        assertTrue(viewer.isExcluded(bob));
+        assertEquals(2, viewer.excludeSet.size());
+        String[] excludes = viewer.getExcludes();
+        assertSame(excludes, viewer.getExcludes());
+        assertArrayEquals(new String[] { "alice", "bob" }, excludes);
+        // the id set is read-only, changes go through addExclude and removeExclude
+        assertTrue(viewer.getExcludedIds().contains("bob"));
+        try {
+            viewer.getExcludedIds().remove("bob");
+            fail("Expected excludes to be read-only");
+        } catch (UnsupportedOperationException e) {
+        }
+        viewer.notifyEvent(GroupEvent.build(alice, "a", FourCC.OPUS));
+        assertEquals(0, viewer.received.size());
+        viewer.removeExclude("bob");
+        assertFalse(viewer.isExcluded(bob));
+        viewer.notifyEvent(GroupEvent.build(bob, "b", FourCC.OPUS));
+        assertEquals(1, viewer.received.size());
+        // alice leaves, and carol gets her number without her exclusion
+        int number = index.numberOf("alice");
+        scope.removeParticipant(alice.getId());
+        TestParticipant carol = new TestParticipant();
+        carol.setPublisherId("carol");
+        scope.addParticipant(carol);
+        assertEquals(number, index.numberOf("carol"));
+        assertFalse(viewer.isExcluded(carol));
+        // alice still excluded if she rejoins, and on republishing under another name she isn't
+        scope.addParticipant(alice);
+        assertTrue(viewer.isExcluded(alice));
+        alice.setPublisherId("alice2");
+        assertFalse(viewer.isExcluded(alice));
+        assertEquals(-1, index.numberOf("alice"));
+        // participants outside a group fall back to the publisher ids
+        TestParticipant loner = new TestParticipant();
+        loner.addExclude("alice2");
+        assertTrue(loner.isExcluded(alice));
+        assertFalse(loner.isExcluded(carol));
+    }
+
+    private static class TestParticipant extends ConferenceParticipant {
+
+        final List<GroupEvent> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String getContextPath() {
+            return "/live";
+        }
+
+        @Override
+        public void consumeMediaSample(IMediaSample sample) {
+        }
+
+        @Override
+        public void doExpressionEvent(GroupEvent event) {
+            received.add(event);
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.red5pro.group;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+import org.red5.server.api.scope.ScopeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.cluster.streams.Provision;
+import com.red5pro.media.FourCC;
+import com.red5pro.media.IMediaSample;
+
+public class ConferenceScopeTest {
+
+    private static Logger log = LoggerFactory.getLogger(ConferenceScopeTest.class);
+
+    @Test
+    public void testParticipantIndexes() {
+        log.info("\n testParticipantIndexes");
+        ConferenceScope scope = new ConferenceScope(null, ScopeType.ROOM, "conference", false);
+        // notify on this thread, to check the order
+        scope.setDispatcher(null);
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        TestParticipant[] members = new TestParticipant[5];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = new TestParticipant("member" + i, delivered);
+            assertTrue(scope.addParticipant(members[i]));
+        }
+        assertFalse(scope.addParticipant(members[0]));
+        assertEquals(members.length, scope.getParticipantCount());
+        assertSame(members[2], scope.getParticipant(members[2].getId()));
+        assertNull(scope.getParticipant("missing"));
+        // publisher ids set on join, and afterward
+        members[1].setPublisherId("stream1");
+        assertTrue(scope.addParticipant(new TestParticipant("late", delivered)));
+        members[3].setPublisherId("stream3");
+        assertSame(members[1], scope.getParticipantByPublisherId("stream1"));
+        assertSame(members[3], scope.getParticipantByPublisherId("stream3"));
+        assertNull(scope.getParticipantByPublisherId("stream4"));
+        // a republish under another name
+        members[3].setPublisherId("stream3b");
+        assertNull(scope.getParticipantByPublisherId("stream3"));
+        assertSame(members[3], scope.getParticipantByPublisherId("stream3b"));
+        // leaving drops both indexes and keeps the join order of the rest
+        assertTrue(scope.removeParticipant(members[1].getId()));
+        assertFalse(scope.removeParticipant(members[1].getId()));
+        assertNull(scope.getParticipant(members[1].getId()));
+        assertNull(scope.getParticipantByPublisherId("stream1"));
+        assertEquals(members.length, scope.getParticipants().length);
+        scope.dispatchEvent(GroupEvent.build(null, FourCC.OPUS, 1L, "a"));
+        assertEquals(List.of("member0", "member2", "member3", "member4", "late"), delivered);
+    }
+
+    @Test
+    public void testSynchronousByDefault() {
+        log.info("\n testSynchronousByDefault");
+        ConferenceScope scope = new ConferenceScope(null, ScopeType.ROOM, "conference", false);
+        assertNull(scope.getDispatcher());
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        scope.addParticipant(new TestParticipant("member", delivered));
+        // seen before dispatchEvent returns
+        scope.dispatchEvent(GroupEvent.build(null, FourCC.OPUS, 1L, "a"));
+        assertEquals(List.of("member"), delivered);
+        // lanes are opted into by the provision
+        ConferenceScope laned = new ConferenceScope(null, ScopeType.ROOM, "laned", false);
+        laned.setProvision(Provision.build("/live", "laned", 0, null, Map.of(IGroupCore.PARAMS_DISPATCH_LANES, true)));
+        assertSame(ConferenceDispatcher.getShared(), laned.getDispatcher());
+    }
+
+    private static class TestParticipant extends ConferenceParticipant {
+
+        private final String name;
+
+        private final List<String> delivered;
+
+        TestParticipant(String name, List<String> delivered) {
+            this.name = name;
+            this.delivered = delivered;
+        }
+
+        @Override
+        public String getContextPath() {
+            return "/live";
+        }
+
+        @Override
+        public void consumeMediaSample(IMediaSample sample) {
+        }
+
+        @Override
+        public void doExpressionEvent(GroupEvent event) {
+            delivered.add(name);
+        }
+
+    }
+
+}
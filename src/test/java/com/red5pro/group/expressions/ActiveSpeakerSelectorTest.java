@@ -0,0 +1,96 @@
+package com.red5pro.group.expressions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import javax.media.Buffer;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ActiveSpeakerSelectorTest {
+
+    private static Logger log = LoggerFactory.getLogger(ActiveSpeakerSelectorTest.class);
+
+    @Test
+    public void testLevelOf() {
+        log.info("\n testLevelOf");
+        short[] pcm = new short[160];
+        assertEquals(ActiveSpeakerSelector.SILENCE, ActiveSpeakerSelector.levelOf(pcm, 0, pcm.length));
+        Arrays.fill(pcm, Short.MIN_VALUE);
+        assertEquals(0, ActiveSpeakerSelector.levelOf(pcm, 0, pcm.length));
+        // half scale is 6 dB down
+        Arrays.fill(pcm, (short) 16384);
+        assertEquals(6, ActiveSpeakerSelector.levelOf(pcm, 0, pcm.length));
+        assertEquals(ActiveSpeakerSelector.SILENCE, ActiveSpeakerSelector.levelOf(pcm, 0, 0));
+    }
+
+    @Test
+    public void testTopSpeakers() {
+        log.info("\n testTopSpeakers");
+        ActiveSpeakerSelector selector = new ActiveSpeakerSelector(2, 0L, 1d, 6, 60);
+        selector.updateLevel("alice", 30);
+        selector.updateLevel("bob", 10);
+        selector.updateLevel("carol", 20);
+        // too quiet to count as speaking
+        selector.updateLevel("dave", 90);
+        assertArrayEquals(new String[] { "bob", "carol" }, selector.select());
+        assertFalse(selector.isSelected("alice"));
+        assertFalse(selector.isSelected("dave"));
+        // a slot freed by a leaving speaker goes to the next loudest, without moving the others
+        selector.remove("bob");
+        selector.updateLevel("alice", 30);
+        selector.updateLevel("carol", 20);
+        assertArrayEquals(new String[] { "alice", "carol" }, selector.select());
+        assertEquals(-1, selector.getSlot("bob"));
+    }
+
+    @Test
+    public void testHysteresis() {
+        log.info("\n testHysteresis");
+        ActiveSpeakerSelector selector = new ActiveSpeakerSelector(1, 0L, 1d, 6, 60);
+        selector.updateLevel("alice", 30);
+        selector.select();
+        assertEquals(0, selector.getSlot("alice"));
+        // slightly louder isn't enough to switch
+        selector.updateLevel("alice", 30);
+        selector.updateLevel("bob", 27);
+        selector.select();
+        assertTrue(selector.isSelected("alice"));
+        assertFalse(selector.isSelected("bob"));
+        // clearly louder is
+        selector.updateLevel("alice", 30);
+        selector.updateLevel("bob", 20);
+        selector.select();
+        assertEquals(0, selector.getSlot("bob"));
+        assertFalse(selector.isSelected("alice"));
+        // a speaker who stops sending fades out of the selection
+        for (int i = 0; i < 5; i++) {
+            selector.select();
+        }
+        assertFalse(selector.isSelected("bob"));
+    }
+
+    @Test
+    public void testExtension() {
+        log.info("\n testExtension");
+        ActiveSpeakerSelector selector = new ActiveSpeakerSelector(1, 0L, 1d, 6, 60);
+        selector.setAudioLevelId(3);
+        assertFalse(selector.updateExtension("alice", new Buffer.RTPHeaderExtension((byte) 1, new byte[] { 10 })));
+        assertFalse(selector.updateExtension("alice", null));
+        // the voice activity bit doesn't affect the level
+        assertTrue(selector.updateExtension("alice", new Buffer.RTPHeaderExtension((byte) 3, new byte[] { (byte) (0x80 | 25) })));
+        assertEquals(127 - 25, selector.getLoudness("alice"), 0.001d);
+        // smoothed toward new levels
+        ActiveSpeakerSelector smoothed = new ActiveSpeakerSelector(1, 0L, 0.5d, 6, 60);
+        smoothed.updateLevel("alice", 27);
+        smoothed.updateLevel("alice", 127);
+        assertEquals(25d, smoothed.getLoudness("alice"), 0.001d);
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.red5pro.group.expressions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.group.ConferenceParticipant;
+import com.red5pro.group.GroupEvent;
+import com.red5pro.media.IMediaSample;
+import com.red5pro.media.MediaSample;
+import com.red5pro.media.MediaType;
+import com.red5pro.media.PCMUtils;
+
+public class AudioMixerTest {
+
+    private static Logger log = LoggerFactory.getLogger(AudioMixerTest.class);
+
+    @Test
+    public void testMixMinusOne() {
+        log.info("\n testMixMinusOne");
+        List<Short> mixes = new ArrayList<>();
+        // 8 kHz mono in 10 ms frames of 80 samples, fed after two frames
+        AudioMixer mixer = new AudioMixer(8000, 1, 10, 2, mix -> mixes.add(mix.bufferAsShorts()[0]));
+        assertEquals(80, mixer.getFrameSize());
+        TestParticipant alice = new TestParticipant();
+        TestParticipant bob = new TestParticipant();
+        TestParticipant carol = new TestParticipant();
+        mixer.add(alice);
+        mixer.add(bob);
+        mixer.add(carol);
+        // a frame and a half each, which isn't enough to feed the mix
+        mixer.offer(alice.getId(), pcm(120, (short) 100));
+        mixer.offer(bob.getId(), pcm(120, (short) 200));
+        mixer.offer(carol.getId(), pcm(120, (short) 32700));
+        mixer.mix();
+        assertEquals(0, alice.last);
+        assertEquals(0, (short) mixes.get(0));
+        // the rest arriving late still lines up on the frame boundaries
+        mixer.offer(alice.getId(), pcm(40, (short) 100));
+        mixer.offer(bob.getId(), pcm(40, (short) 200));
+        mixer.offer(carol.getId(), pcm(40, (short) 32700));
+        mixer.mix();
+        // each hears the others, clipped to 16 bits
+        assertEquals(Short.MAX_VALUE, alice.last);
+        assertEquals(Short.MAX_VALUE, bob.last);
+        assertEquals(300, carol.last);
+        assertEquals(Short.MAX_VALUE, (short) mixes.get(1));
+        assertEquals(80, alice.lastLength);
+        // bob goes quiet, so alice hears just carol from the second frame on
+        mixer.offer(alice.getId(), pcm(80, (short) -100));
+        mixer.offer(carol.getId(), pcm(80, (short) -32700));
+        mixer.mix();
+        mixer.mix();
+        assertEquals(-32700, alice.last);
+        assertEquals(Short.MIN_VALUE, bob.last);
+        assertEquals(-100, carol.last);
+        assertEquals(1, mixer.getUnderrunCount());
+        assertEquals(4, mixer.getTickCount());
+        assertEquals(4, mixer.getMixTimeHistogram().getCount());
+        // leaving the mix
+        mixer.remove(carol.getId());
+        mixer.mix();
+        assertEquals(2, mixer.getParticipantCount());
+        assertEquals(40, alice.timestamp);
+    }
+
+    @Test
+    public void testOverrun() {
+        log.info("\n testOverrun");
+        AudioMixer mixer = new AudioMixer(8000, 1, 10, 1, null);
+        TestParticipant alice = new TestParticipant();
+        TestParticipant bob = new TestParticipant();
+        mixer.add(alice);
+        mixer.add(bob);
+        // holds four frames, so the oldest two are dropped
+        for (short i = 1; i <= 6; i++) {
+            mixer.offer(alice.getId(), pcm(80, i));
+        }
+        assertEquals(160, mixer.getOverrunCount());
+        mixer.mix();
+        assertEquals(3, bob.last);
+    }
+
+    @Test
+    public void testFrameSize() {
+        log.info("\n testFrameSize");
+        assertEquals(882, new AudioMixer(44100, 1, 20, 2, null).getFrameSize());
+        assertEquals(882, new AudioMixer(22050, 2, 20, 2, null).getFrameSize());
+        assertEquals(1920, new AudioMixer(48000, 2, 20, 2, null).getFrameSize());
+        try {
+            new AudioMixer(11025, 1, 10, 2, null);
+            fail("Frames of 110.25 samples should be rejected");
+        } catch (IllegalArgumentException e) {
+            log.debug("Rejected: {}", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testActiveSpeakers() {
+        log.info("\n testActiveSpeakers");
+        AudioMixer mixer = new AudioMixer(8000, 1, 10, 1, null);
+        mixer.setSpeakerSelector(new ActiveSpeakerSelector(1, 0L, 1d, 6, 60));
+        TestParticipant alice = new TestParticipant();
+        TestParticipant bob = new TestParticipant();
+        TestParticipant carol = new TestParticipant();
+        mixer.add(alice);
+        mixer.add(bob);
+        mixer.add(carol);
+        // nobody is selected until levels have been seen
+        mixer.offer(alice.getId(), pcm(80, (short) 1000));
+        mixer.offer(bob.getId(), pcm(80, (short) 100));
+        mixer.mix();
+        assertEquals(0, carol.last);
+        // only the loudest is mixed
+        mixer.offer(alice.getId(), pcm(80, (short) 1000));
+        mixer.offer(bob.getId(), pcm(80, (short) 100));
+        mixer.mix();
+        assertEquals(1000, carol.last);
+        assertEquals(1000, bob.last);
+        assertEquals(0, alice.last);
+        assertEquals(0, mixer.getSpeakerSelector().getSlot(alice.getId()));
+        // leaving the mix frees the slot
+        mixer.remove(alice.getId());
+        mixer.offer(bob.getId(), pcm(80, (short) 100));
+        mixer.mix();
+        assertEquals(100, carol.last);
+    }
+
+    private static IMediaSample pcm(int count, short value) {
+        short[] shorts = new short[count];
+        Arrays.fill(shorts, value);
+        return MediaSample.build(0L, PCMUtils.toBytes(shorts, 0, count), MediaType.AUDIO);
+    }
+
+    private static class TestParticipant extends ConferenceParticipant {
+
+        short last;
+
+        int lastLength;
+
+        long timestamp;
+
+        TestParticipant() {
+            subscriber = true;
+        }
+
+        @Override
+        public String getContextPath() {
+            return "/live";
+        }
+
+        @Override
+        public void consumeMediaSample(IMediaSample sample) {
+            short[] pcm = sample.bufferAsShorts();
+            last = pcm[pcm.length - 1];
+            lastLength = pcm.length;
+            timestamp = sample.getTimestamp();
+        }
+
+        @Override
+        public void doExpressionEvent(GroupEvent event) {
+        }
+
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.red5pro.media;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import javax.media.Buffer;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ByteBufferMediaSampleTest {
+
+    private static Logger log = LoggerFactory.getLogger(ByteBufferMediaSampleTest.class);
+
+    @Test
+    public void testHeapAndDirect() {
+        log.info("\n testHeapAndDirect");
+        byte[] pcm = { 1, 0, 2, 0, 3, 0, -1, -1 };
+        ByteBufferMediaSample heap = ByteBufferMediaSample.build(20L, ByteBuffer.wrap(pcm), MediaType.AUDIO);
+        assertFalse(heap.isDirect());
+        assertEquals(pcm.length, heap.getBufferSize());
+        // an array holding exactly the sample is handed out as is
+        assertSame(pcm, heap.bufferAsBytes());
+        assertArrayEquals(new short[] { 1, 2, 3, -1 }, heap.bufferAsShorts());
+        assertEquals(3, heap.getShortBuffer().get(2));
+        ByteBufferMediaSample direct = ByteBufferMediaSample.allocateDirect(20L, pcm.length, MediaType.AUDIO);
+        direct.getByteBuffer().put(pcm);
+        assertTrue(direct.isDirect());
+        assertArrayEquals(pcm, direct.bufferAsBytes());
+        assertArrayEquals(new short[] { 1, 2, 3, -1 }, direct.bufferAsShorts());
+        // copies keep to the kind of buffer
+        ByteBufferMediaSample copy = (ByteBufferMediaSample) direct.deepCopy();
+        assertTrue(copy.isDirect());
+        direct.getByteBuffer().put(0, (byte) 9);
+        assertEquals(1, copy.getByteBuffer().get(0));
+        // a slice of a larger buffer is held from its position to its limit
+        ByteBuffer packet = ByteBuffer.wrap(new byte[] { 0x7f, 0x7f, (byte) 0xaf, 1, 0x21, 0x10 });
+        packet.position(2);
+        ByteBufferMediaSample aac = ByteBufferMediaSample.build(40L, packet, MediaType.AUDIO);
+        assertEquals(4, aac.getBufferSize());
+        Buffer view = aac.toBufferView(true);
+        assertSame(packet.array(), view.getData());
+        assertEquals(3, view.getOffset());
+        assertEquals(3, view.getLength());
+        assertArrayEquals(new byte[] { (byte) 0xaf, 1, 0x21, 0x10 }, aac.bufferAsBytes());
+    }
+
+    @Test
+    public void testConversions() {
+        log.info("\n testConversions");
+        byte[] frame = { 0x17, 0x01, 0, 0, 0, 1, 0x65 };
+        MediaSample sample = MediaSample.build(33L, frame, MediaType.VIDEO, true, 7L);
+        ByteBufferMediaSample converted = ByteBufferMediaSample.from(sample);
+        assertSame(frame, converted.getByteBuffer().array());
+        assertTrue(converted.isCritical());
+        assertEquals(7L, converted.getSequenceNumber());
+        assertSame(converted, ByteBufferMediaSample.from(converted));
+        // buffers over arrays are shared from their offset
+        Buffer buffer = new Buffer();
+        buffer.setData(frame);
+        buffer.setOffset(2);
+        buffer.setLength(5);
+        ByteBuffer bytes = ByteBufferMediaSample.asByteBuffer(MediaSample.build(buffer, MediaType.VIDEO));
+        assertSame(frame, bytes.array());
+        assertEquals(5, bytes.remaining());
+        assertEquals(0x65, bytes.get(4));
+        // pooled arrays are shared up to the sample length
+        MediaSamplePool pool = new MediaSamplePool(1024 * 1024);
+        PooledMediaSample pooled = PooledMediaSample.build(pool, 33L, frame, 0, frame.length, MediaType.VIDEO);
+        bytes = ByteBufferMediaSample.asByteBuffer(pooled);
+        assertSame(pooled.getData(), bytes.array());
+        assertEquals(frame.length, bytes.remaining());
+        pooled.release();
+        // only short pcm has to be converted
+        MediaSample pcm = MediaSample.build(20L, new byte[0], MediaType.AUDIO);
+        pcm.setBuffer(new short[] { 1, -1 });
+        assertArrayEquals(new byte[] { 1, 0, -1, -1 }, ByteBufferMediaSample.from(pcm).bufferAsBytes());
+    }
+
+}
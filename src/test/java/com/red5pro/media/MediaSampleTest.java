@@ -0,0 +1,99 @@
+package com.red5pro.media;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+
+import javax.media.Buffer;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class MediaSampleTest {
+
+    private static Logger log = LoggerFactory.getLogger(MediaSampleTest.class);
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testToBufferView() {
+        log.info("\n testToBufferView");
+        byte[] frame = { 0x27, 0x01, 0, 0, 0, 1, 0x41, 0x42 };
+        MediaSample video = MediaSample.build(33L, frame, MediaType.VIDEO);
+        Buffer copy = video.toBuffer(true);
+        Buffer view = video.toBufferView(true);
+        // the view shares the frame past the prefix and avc type
+        assertSame(frame, view.getData());
+        assertEquals(2, view.getOffset());
+        assertEquals(copy.getLength(), view.getLength());
+        assertEquals(copy.getRtpTimeStamp(), view.getRtpTimeStamp());
+        byte[] copied = (byte[]) copy.getData();
+        for (int i = 0; i < copy.getLength(); i++) {
+            assertEquals(copied[i], frame[view.getOffset() + i]);
+        }
+        byte[] aac = { (byte) 0xaf, 1, 0x21, 0x10 };
+        MediaSample audio = MediaSample.build(20L, aac, MediaType.AUDIO);
+        view = audio.toBufferView(true);
+        assertEquals(1, view.getOffset());
+        assertEquals(3, view.getLength());
+        // a pooled sample is viewed up to its length, not its array
+        MediaSamplePool pool = new MediaSamplePool(1024 * 1024);
+        PooledMediaSample pooled = PooledMediaSample.build(pool, 33L, frame, 0, frame.length, MediaType.VIDEO);
+        view = pooled.toBufferView(true);
+        assertSame(pooled.getData(), view.getData());
+        assertEquals(frame.length - 2, view.getLength());
+        pooled.release();
+    }
+
+    @Test
+    public void testBufferSize() {
+        log.info("\n testBufferSize");
+        MediaSample sample = MediaSample.build(0L, new byte[] { 1, 2, 3 }, MediaType.AUDIO);
+        assertEquals(3, sample.getBufferSize());
+        sample.setBuffer(new short[] { 1, 2, -1 });
+        assertEquals(6, sample.getBufferSize());
+        Buffer buffer = new Buffer();
+        buffer.setData(new byte[] { 9, 1, 2, 3, 9 });
+        buffer.setOffset(1);
+        buffer.setLength(3);
+        sample.setBuffer(buffer);
+        assertEquals(3, sample.getBufferSize());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, sample.bufferAsBytes());
+        sample.setBuffer(null);
+        assertEquals(0, sample.getBufferSize());
+    }
+
+    @Test
+    public void testPcmConversion() {
+        log.info("\n testPcmConversion");
+        byte[] bytes = { 1, 0, 2, 0, 3, 0, -1, -1, 0, -128 };
+        short[] shorts = { 1, 2, 3, -1, Short.MIN_VALUE };
+        MediaSample sample = MediaSample.build(0L, bytes, MediaType.AUDIO);
+        short[] converted = sample.bufferAsShorts();
+        assertArrayEquals(shorts, converted);
+        // repeated calls reuse the conversion until the buffer is replaced
+        assertSame(converted, sample.bufferAsShorts());
+        short[] dst = new short[7];
+        assertEquals(5, sample.bufferAsShorts(dst, 2));
+        assertArrayEquals(new short[] { 0, 0, 1, 2, 3, -1, Short.MIN_VALUE }, dst);
+        sample.setBuffer(shorts);
+        byte[] back = sample.bufferAsBytes();
+        assertArrayEquals(bytes, back);
+        assertSame(back, sample.bufferAsBytes());
+        byte[] out = new byte[11];
+        assertEquals(10, sample.bufferAsBytes(out, 1));
+        assertEquals(-128, out[10]);
+        sample.setBuffer(bytes.clone());
+        assertNotSame(converted, sample.bufferAsShorts());
+        // pooled and byte buffer samples convert the same
+        MediaSamplePool pool = new MediaSamplePool(1024 * 1024);
+        PooledMediaSample pooled = PooledMediaSample.build(pool, 0L, bytes, 0, bytes.length, MediaType.AUDIO);
+        assertArrayEquals(shorts, pooled.bufferAsShorts());
+        pooled.release();
+        assertArrayEquals(shorts, ByteBufferMediaSample.build(0L, ByteBuffer.wrap(bytes), MediaType.AUDIO).bufferAsShorts());
+    }
+
+}
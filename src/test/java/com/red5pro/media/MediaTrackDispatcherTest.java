@@ -0,0 +1,126 @@
+package com.red5pro.media;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.red5.server.api.event.IEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.group.GroupEvent;
+
+public class MediaTrackDispatcherTest {
+
+    private static Logger log = LoggerFactory.getLogger(MediaTrackDispatcherTest.class);
+
+    @Test
+    public void testOrderAndIsolation() throws InterruptedException {
+        log.info("\n testOrderAndIsolation");
+        MediaTrack track = new MediaTrack(MediaType.AUDIO, FourCC.OPUS, "audio0");
+        int total = 1000;
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(total);
+        List<Long> received = new CopyOnWriteArrayList<>();
+        // a listener stuck on its first event
+        MediaTrackListener slow = new MediaTrackListener() {
+            @Override
+            public void onEvent(MediaTrack track, IEvent event) {
+                slowStarted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        MediaTrackListener fast = new MediaTrackListener() {
+            @Override
+            public void onEvent(MediaTrack track, IEvent event) {
+                received.add(((GroupEvent) event).getTimestamp());
+                fastDone.countDown();
+            }
+        };
+        track.addListener(slow);
+        track.addListener(fast);
+        for (int i = 0; i < total; i++) {
+            track.dispatch(GroupEvent.build(null, FourCC.OPUS, i, "a"));
+        }
+        // the fast listener gets everything, in order, while the slow one is stuck
+        assertTrue(fastDone.await(10, TimeUnit.SECONDS));
+        assertTrue(slowStarted.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < total; i++) {
+            assertEquals(i, received.get(i).longValue());
+        }
+        MediaTrackDispatcher dispatcher = track.getDispatcher();
+        // counted once the listener returns
+        for (int i = 0; i < 100 && dispatcher.getDeliveredCount(fast) < total; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(total, dispatcher.getDeliveredCount(fast));
+        assertEquals(total - 1, dispatcher.getBacklog(slow));
+        release.countDown();
+    }
+
+    @Test
+    public void testEviction() throws InterruptedException {
+        log.info("\n testEviction");
+        MediaTrack track = new MediaTrack(MediaType.VIDEO, FourCC.H264, "video0");
+        track.getDispatcher().setEvictionMillis(50);
+        CountDownLatch release = new CountDownLatch(1);
+        MediaTrackListener stuck = new MediaTrackListener() {
+            @Override
+            public void onEvent(MediaTrack track, IEvent event) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        track.addListener(stuck);
+        track.dispatch(GroupEvent.build(null, FourCC.H264, 0L, "a"));
+        track.dispatch(GroupEvent.build(null, FourCC.H264, 1L, "a"));
+        Thread.sleep(100);
+        assertTrue(track.getDispatcher().getLagMillis(stuck) >= 50);
+        // the next dispatch finds it too far behind
+        track.dispatch(GroupEvent.build(null, FourCC.H264, 2L, "a"));
+        assertFalse(track.getListeners().contains(stuck));
+        assertEquals(1, track.getDispatcher().getEvictedCount());
+        assertEquals(0, track.getDispatcher().getBacklog(stuck));
+        release.countDown();
+    }
+
+    @Test
+    public void testLanesFollowListeners() throws InterruptedException {
+        log.info("\n testLanesFollowListeners");
+        MediaTrack track = new MediaTrack(MediaType.AUDIO, FourCC.OPUS, "audio1");
+        CountDownLatch delivered = new CountDownLatch(1);
+        MediaTrackListener listener = new MediaTrackListener() {
+            @Override
+            public void onEvent(MediaTrack track, IEvent event) {
+                delivered.countDown();
+            }
+        };
+        // a dispatch seeing a listener without a lane, as when racing its removal, skips it rather than making one
+        track.getListeners().add(listener);
+        track.dispatch(GroupEvent.build(null, FourCC.OPUS, 0L, "a"));
+        assertEquals(0, track.getDispatcher().getBacklog(listener));
+        assertFalse(delivered.await(100, TimeUnit.MILLISECONDS));
+        track.getListeners().remove(listener);
+        // listeners added through the track get their lane up front
+        track.addListener(listener);
+        track.dispatch(GroupEvent.build(null, FourCC.OPUS, 1L, "a"));
+        assertTrue(delivered.await(10, TimeUnit.SECONDS));
+        assertTrue(track.removeListener(listener));
+        track.dispatch(GroupEvent.build(null, FourCC.OPUS, 2L, "a"));
+        assertEquals(0, track.getDispatcher().getBacklog(listener));
+        assertEquals(0, track.getDispatcher().getDeliveredCount(listener));
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.red5pro.media;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.red5.server.api.event.IEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.group.GroupEvent;
+import com.red5pro.media.MediaTrackQueue.OverflowPolicy;
+
+public class MediaTrackQueueTest {
+
+    private static Logger log = LoggerFactory.getLogger(MediaTrackQueueTest.class);
+
+    @Test
+    public void testOrdering() {
+        log.info("\n testOrdering");
+        MediaTrackQueue queue = new MediaTrackQueue(16, OverflowPolicy.DROP_NEWEST);
+        GroupEvent opus1 = GroupEvent.build(null, FourCC.OPUS, 1L, "a");
+        GroupEvent pcm1 = GroupEvent.build(null, FourCC.PCM, 2L, "a");
+        GroupEvent opus2 = GroupEvent.build(null, FourCC.OPUS, 3L, "a");
+        GroupEvent pcm2 = GroupEvent.build(null, FourCC.PCM, 4L, "a");
+        queue.offer(opus1);
+        queue.offer(pcm1);
+        queue.offer(opus2);
+        queue.offer(pcm2);
+        assertEquals(4, queue.size());
+        // keyed pops take the oldest of their fourcc
+        assertSame(pcm1, queue.poll(FourCC.PCM));
+        assertNull(queue.poll(FourCC.H264));
+        // unkeyed pops take the oldest overall
+        assertSame(opus1, queue.poll());
+        assertSame(opus2, queue.poll());
+        assertSame(pcm2, queue.poll());
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+        assertEquals(4, queue.getHighWaterMark());
+    }
+
+    @Test
+    public void testOverflowPolicies() throws InterruptedException {
+        log.info("\n testOverflowPolicies");
+        IEvent[] events = new IEvent[5];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = GroupEvent.build(null, i % 2 == 0 ? FourCC.OPUS : FourCC.PCM, i, "a");
+        }
+        MediaTrackQueue newest = new MediaTrackQueue(3, OverflowPolicy.DROP_NEWEST);
+        MediaTrackQueue oldest = new MediaTrackQueue(3, OverflowPolicy.DROP_OLDEST);
+        for (IEvent event : events) {
+            newest.offer(event);
+            oldest.offer(event);
+        }
+        assertEquals(3, newest.size());
+        assertEquals(2, newest.getDropCount());
+        assertSame(events[0], newest.poll());
+        assertEquals(3, oldest.size());
+        assertEquals(2, oldest.getDropCount());
+        assertSame(events[2], oldest.poll());
+        assertEquals(3, oldest.getHighWaterMark());
+        // a blocked producer waits for a consumer to make room
+        MediaTrackQueue blocking = new MediaTrackQueue(1, OverflowPolicy.BLOCK);
+        blocking.offer(events[0]);
+        CountDownLatch pushed = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            blocking.offer(events[1]);
+            pushed.countDown();
+        });
+        producer.start();
+        assertFalse(pushed.await(50, TimeUnit.MILLISECONDS));
+        assertSame(events[0], blocking.poll());
+        assertTrue(pushed.await(5, TimeUnit.SECONDS));
+        assertSame(events[1], blocking.poll());
+        assertEquals(0, blocking.getDropCount());
+    }
+
+    @Test
+    public void testConcurrentConsumers() throws Exception {
+        log.info("\n testConcurrentConsumers");
+        int total = 200_000;
+        int consumers = 3;
+        MediaTrackQueue queue = new MediaTrackQueue(64, OverflowPolicy.BLOCK);
+        IEvent[] events = new IEvent[total];
+        FourCC[] fourCCs = { FourCC.OPUS, FourCC.PCM, FourCC.H264 };
+        for (int i = 0; i < total; i++) {
+            events[i] = GroupEvent.build(null, fourCCs[i % fourCCs.length], i, "a");
+        }
+        ConcurrentHashMap<IEvent, Boolean> seen = new ConcurrentHashMap<>();
+        AtomicInteger received = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(consumers);
+        for (int c = 0; c < consumers; c++) {
+            FourCC key = c == 0 ? FourCC.PCM : null;
+            executor.submit(() -> {
+                while (received.get() < total) {
+                    IEvent event = key != null ? queue.poll(key) : queue.poll();
+                    if (event != null) {
+                        assertNull("Event delivered twice", seen.put(event, Boolean.TRUE));
+                        received.incrementAndGet();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        for (IEvent event : events) {
+            assertTrue(queue.offer(event));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(total, seen.size());
+        assertEquals(0, queue.size());
+        assertTrue(queue.getHighWaterMark() <= 64);
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.red5pro.media;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import javax.media.Buffer;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class PooledMediaSampleTest {
+
+    private static Logger log = LoggerFactory.getLogger(PooledMediaSampleTest.class);
+
+    @Test
+    public void testSizeClasses() {
+        log.info("\n testSizeClasses");
+        MediaSamplePool pool = new MediaSamplePool(1024 * 1024);
+        assertEquals(64, pool.acquire(1).length);
+        assertEquals(64, pool.acquire(64).length);
+        assertEquals(128, pool.acquire(65).length);
+        assertEquals(4096, pool.acquire(3840).length);
+        assertEquals(1024 * 1024, pool.acquire(1024 * 1024).length);
+        // too large to pool
+        assertEquals(1024 * 1024 + 1, pool.acquire(1024 * 1024 + 1).length);
+        byte[] array = pool.acquire(1000);
+        pool.recycle(array);
+        assertSame(array, pool.acquire(600));
+        assertEquals(1, pool.getHitCount());
+        // arrays which aren't a class size are dropped
+        pool.recycle(new byte[100]);
+        assertEquals(0, pool.size());
+        assertEquals(1, pool.getDroppedCount());
+    }
+
+    @Test
+    public void testReferenceCounting() {
+        log.info("\n testReferenceCounting");
+        MediaSamplePool pool = new MediaSamplePool(1024 * 1024);
+        byte[] pcm = new byte[3840];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (byte) i;
+        }
+        PooledMediaSample sample = PooledMediaSample.build(pool, 20L, pcm, 0, pcm.length, MediaType.AUDIO);
+        assertEquals(1, sample.refCnt());
+        assertEquals(4096, sample.getData().length);
+        assertEquals(3840, sample.getLength());
+        sample.retain();
+        assertFalse(sample.release());
+        assertEquals(0, pool.size());
+        assertTrue(sample.release());
+        assertEquals(0, sample.refCnt());
+        assertEquals(1, pool.size());
+        try {
+            sample.getData();
+            fail("Expected released sample to be inaccessible");
+        } catch (IllegalStateException e) {
+        }
+        try {
+            sample.retain();
+            fail("Expected released sample to not be retained");
+        } catch (IllegalStateException e) {
+        }
+        try {
+            sample.release();
+            fail("Expected released sample to not be released again");
+        } catch (IllegalStateException e) {
+        }
+        assertFalse(sample.hasBuffer());
+        // the next sample of the size class reuses the array
+        PooledMediaSample next = PooledMediaSample.build(pool, 40L, 3000, MediaType.AUDIO);
+        assertEquals(0, pool.size());
+        next.release();
+    }
+
+    @Test
+    public void testMediaSampleApi() {
+        log.info("\n testMediaSampleApi");
+        MediaSamplePool pool = new MediaSamplePool(1024 * 1024);
+        byte[] bytes = { 1, 0, 2, 0, 3, 0, -1, -1 };
+        PooledMediaSample sample = PooledMediaSample.build(pool, 10L, bytes, 0, bytes.length, MediaType.AUDIO);
+        sample.setFourCC(FourCC.PCM);
+        // callers which aren't pool aware see exactly the sample
+        assertEquals(bytes.length, sample.getBufferSize());
+        assertArrayEquals(bytes, (byte[]) sample.getBuffer());
+        assertArrayEquals(bytes, sample.bufferAsBytes());
+        assertArrayEquals(new short[] { 1, 2, 3, -1 }, sample.bufferAsShorts());
+        Buffer buffer = sample.toBuffer();
+        assertSame(sample.getData(), buffer.getData());
+        assertEquals(bytes.length, buffer.getLength());
+        // copies come from the same pool and are independent
+        PooledMediaSample copy = sample.deepCopy();
+        assertNotSame(sample.getData(), copy.getData());
+        assertArrayEquals(bytes, copy.bufferAsBytes());
+        assertEquals(10L, copy.getTimestamp());
+        sample.release();
+        assertArrayEquals(bytes, copy.bufferAsBytes());
+        // replacing the buffer returns the pooled array
+        copy.setBuffer(new byte[] { 9 });
+        assertEquals(2, pool.size());
+        assertEquals(1, copy.getBufferSize());
+        assertTrue(copy.release());
+        assertEquals(2, pool.size());
+    }
+
+}
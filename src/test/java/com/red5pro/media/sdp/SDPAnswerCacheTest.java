@@ -0,0 +1,160 @@
+package com.red5pro.media.sdp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.media.sdp.model.AttributeField;
+import com.red5pro.media.sdp.model.AttributeKey;
+import com.red5pro.media.sdp.model.ConnectionField;
+import com.red5pro.media.sdp.model.OriginField;
+
+public class SDPAnswerCacheTest {
+
+    private static Logger log = LoggerFactory.getLogger(SDPAnswerCacheTest.class);
+
+    private static final String OFFER = "v=0\r\no=- 4611731400430051336 2 IN IP4 127.0.0.1\r\ns=-\r\nt=0 0\r\na=group:BUNDLE 0 1\r\na=msid-semantic: WMS stream1\r\n"
+            + "m=audio 9 UDP/TLS/RTP/SAVPF 111\r\nc=IN IP4 0.0.0.0\r\na=ice-ufrag:ufrag1\r\na=ice-pwd:pwd1\r\na=fingerprint:sha-256 AA:BB\r\na=setup:actpass\r\na=mid:0\r\na=recvonly\r\na=rtcp-mux\r\na=rtpmap:111 opus/48000/2\r\na=fmtp:111 minptime=10;useinbandfec=1\r\n"
+            + "m=video 9 UDP/TLS/RTP/SAVPF 96\r\nc=IN IP4 0.0.0.0\r\na=ice-ufrag:ufrag1\r\na=ice-pwd:pwd1\r\na=fingerprint:sha-256 AA:BB\r\na=setup:actpass\r\na=mid:1\r\na=recvonly\r\na=rtcp-mux\r\na=rtpmap:96 VP8/90000\r\na=candidate:1 1 udp 2122260223 10.0.0.2 56143 typ host\r\na=ssrc:1111 cname:abc\r\n";
+
+    private static final String ANSWER = "v=0\no=- 1 2 IN IP4 127.0.0.1\ns=-\nt=0 0\na=group:BUNDLE 0 1\nm=audio 9 UDP/TLS/RTP/SAVPF 111\nc=IN IP4 0.0.0.0\na=ice-ufrag:x\na=ice-pwd:y\na=fingerprint:sha-256 CC\na=setup:passive\na=mid:0\na=sendonly\na=rtpmap:111 opus/48000/2\n"
+            + "m=video 9 UDP/TLS/RTP/SAVPF 96\nc=IN IP4 0.0.0.0\na=ice-ufrag:x\na=ice-pwd:y\na=fingerprint:sha-256 CC\na=setup:passive\na=mid:1\na=sendonly\na=rtpmap:96 VP8/90000\n";
+
+    private static String perSession(String offer, int session) {
+        return offer.replace("4611731400430051336", "98765" + session).replace("ufrag1", "uf" + session).replace("pwd1", "pw" + session).replace("AA:BB", "0" + session + ":FF").replace("stream1", "s" + session).replace("10.0.0.2 56143", "10.0.0." + session + " 5000" + session).replace("1111", "22" + session);
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        log.info("\n testHitsAndMisses");
+        SDPAnswerCache cache = new SDPAnswerCache(8);
+        AtomicInteger negotiations = new AtomicInteger();
+        Function<SessionDescription, SessionDescription> negotiator = offer -> {
+            negotiations.incrementAndGet();
+            assertEquals(2, offer.getMediaDescriptions().length);
+            return SDPFactory.createSessionDescription(ANSWER);
+        };
+        Map<AttributeKey, String> remote = new EnumMap<>(AttributeKey.class);
+        SDPAnswerTemplate template = cache.getTemplate(SDPUserAgent.chrome, OFFER, negotiator, remote);
+        assertEquals("ufrag1", remote.get(AttributeKey.iceufrag));
+        assertEquals("sha-256 AA:BB", remote.get(AttributeKey.fingerprint));
+        for (int session = 2; session < 6; session++) {
+            remote.clear();
+            assertSame(template, cache.getTemplate(SDPUserAgent.chrome, perSession(OFFER, session), negotiator, remote));
+            assertEquals("uf" + session, remote.get(AttributeKey.iceufrag));
+        }
+        // line endings don't matter, but the user agent and anything negotiated does
+        assertSame(template, cache.getTemplate(SDPUserAgent.chrome, OFFER.replace("\r\n", "\n"), negotiator, null));
+        assertNotEquals(template, cache.getTemplate(SDPUserAgent.firefox, OFFER, negotiator, null));
+        assertNotEquals(template, cache.getTemplate(SDPUserAgent.chrome, OFFER.replace("a=recvonly", "a=sendrecv"), negotiator, null));
+        assertEquals(3, negotiations.get());
+        assertEquals(5, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.size());
+        // unanswerable offers aren't cached
+        assertNull(cache.getTemplate(SDPUserAgent.edge, OFFER, offer -> null, null));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testEviction() {
+        log.info("\n testEviction");
+        SDPAnswerCache cache = new SDPAnswerCache(2);
+        Function<SessionDescription, SessionDescription> negotiator = offer -> SDPFactory.createSessionDescription(ANSWER);
+        SDPAnswerTemplate chrome = cache.getTemplate(SDPUserAgent.chrome, OFFER, negotiator, null);
+        cache.getTemplate(SDPUserAgent.firefox, OFFER, negotiator, null);
+        // touch chrome so firefox is the least recently used
+        assertSame(chrome, cache.getTemplate(SDPUserAgent.chrome, OFFER, negotiator, null));
+        cache.getTemplate(SDPUserAgent.safari, OFFER, negotiator, null);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(chrome, cache.getTemplate(SDPUserAgent.chrome, OFFER, negotiator, null));
+        long misses = cache.getMissCount();
+        cache.getTemplate(SDPUserAgent.firefox, OFFER, negotiator, null);
+        assertEquals(misses + 1, cache.getMissCount());
+    }
+
+    @Test
+    public void testNormalize() {
+        log.info("\n testNormalize");
+        String normalized = SDPAnswerCache.normalize(OFFER);
+        assertFalse(normalized.contains("ufrag1"));
+        assertFalse(normalized.contains("o="));
+        assertFalse(normalized.contains("candidate"));
+        assertFalse(normalized.contains("a=ssrc"));
+        assertTrue(normalized.contains("a=msid-semantic\n"));
+        assertTrue(normalized.contains("a=rtpmap:96 VP8/90000\n"));
+        String other = perSession(OFFER, 7);
+        assertEquals(normalized, SDPAnswerCache.normalize(other));
+        assertEquals(SDPAnswerCache.hash(SDPUserAgent.chrome, OFFER, null), SDPAnswerCache.hash(SDPUserAgent.chrome, other, null));
+        assertTrue(SDPAnswerCache.matches(other, normalized));
+        assertFalse(SDPAnswerCache.matches(other + "a=rtcp-rsize\r\n", normalized));
+        assertFalse(SDPAnswerCache.matches(other.replace("opus", "opuz"), normalized));
+        assertFalse(SDPAnswerCache.matches(other.substring(0, other.indexOf("a=rtpmap:96")), normalized));
+    }
+
+    @Test
+    public void testNewAnswer() {
+        log.info("\n testNewAnswer");
+        SDPAnswerCache cache = new SDPAnswerCache(8);
+        SDPAnswerTemplate template = cache.getTemplate(SDPUserAgent.chrome, OFFER, offer -> SDPFactory.createSessionDescription(ANSWER), null);
+        Map<AttributeKey, String> values = new EnumMap<>(AttributeKey.class);
+        values.put(AttributeKey.iceufrag, "local");
+        values.put(AttributeKey.icepwd, "secret");
+        values.put(AttributeKey.fingerprint, "sha-256 DD");
+        String answer = template.newAnswer(new OriginField("red5pro", "12345", 1L, "10.1.1.1"), values);
+        assertTrue(answer.startsWith("v=0\no=red5pro 12345 1 IN IP4 10.1.1.1\ns=-\n"));
+        assertFalse(answer.contains("a=ice-ufrag:x"));
+        assertEquals(answer.indexOf("a=ice-ufrag:local\na=ice-pwd:secret\na=fingerprint:sha-256 DD\na=setup:passive\na=mid:0\n"), answer.indexOf("a=ice-ufrag"));
+        assertTrue(answer.contains("a=ice-ufrag:local\na=ice-pwd:secret\na=fingerprint:sha-256 DD\na=setup:passive\na=mid:1\n"));
+        SessionDescription sdp = template.newSessionDescription(new OriginField("red5pro", "12345", 1L, "10.1.1.1"), values);
+        assertEquals("local", sdp.getMediaDescriptions()[1].getAttribute(AttributeKey.iceufrag).getValue());
+        assertEquals("12345", sdp.getOrigin().getSessionId());
+        // missing values are left out
+        values.remove(AttributeKey.fingerprint);
+        assertFalse(template.newAnswer(new OriginField("red5pro", "12345", 1L, "10.1.1.1"), values).contains("a=fingerprint"));
+    }
+
+    @Test
+    public void testNewAnswerWithCandidates() {
+        log.info("\n testNewAnswerWithCandidates");
+        String negotiated = ANSWER.replace("m=video 9", "m=video 50000").replace("a=sendonly\na=rtpmap:96 VP8/90000\n", "a=sendonly\na=rtpmap:96 VP8/90000\na=candidate:1 1 udp 2122260223 10.0.0.5 50000 typ host\na=ssrc:3333 cname:red5pro\na=msid:stream1 video1\n");
+        negotiated = negotiated.substring(0, negotiated.indexOf("m=video")) + negotiated.substring(negotiated.indexOf("m=video")).replace("c=IN IP4 0.0.0.0", "c=IN IP4 10.0.0.5");
+        SDPAnswerCache cache = new SDPAnswerCache(8);
+        String sdp = negotiated;
+        SDPAnswerTemplate template = cache.getTemplate(SDPUserAgent.chrome, OFFER, offer -> SDPFactory.createSessionDescription(sdp), null);
+        assertEquals(2, template.getMediaCount());
+        Map<AttributeKey, String> values = new EnumMap<>(AttributeKey.class);
+        values.put(AttributeKey.iceufrag, "local");
+        SDPAnswerTemplate.MediaSession video = new SDPAnswerTemplate.MediaSession(50002, new ConnectionField("10.0.0.7"), List.of(new AttributeField(AttributeKey.candidate, "1 1 udp 2122260223 10.0.0.7 50002 typ host"), new AttributeField(AttributeKey.ssrc, "4444 cname:red5pro")));
+        String answer = template.newAnswer(new OriginField("red5pro", "12345", 1L, "10.1.1.1"), values, new SDPAnswerTemplate.MediaSession[] { null, video });
+        // nothing of the negotiated session is replayed
+        assertFalse(answer.contains("10.0.0.5"));
+        assertFalse(answer.contains("3333"));
+        assertFalse(answer.contains("a=msid:"));
+        assertTrue(answer.contains("m=audio 9 UDP/TLS/RTP/SAVPF 111\nc=IN IP4 0.0.0.0\n"));
+        assertTrue(answer.contains("m=video 50002 UDP/TLS/RTP/SAVPF 96\nc=IN IP4 10.0.0.7\n"));
+        assertTrue(answer.endsWith("a=rtpmap:96 VP8/90000\na=candidate:1 1 udp 2122260223 10.0.0.7 50002 typ host\na=ssrc:4444 cname:red5pro\n"));
+        SessionDescription parsed = SDPFactory.createSessionDescription(answer);
+        assertEquals(50002, parsed.getMediaDescriptions()[1].getPort());
+        // without media sessions the placeholders are used and the per-session attributes left out
+        answer = template.newAnswer(new OriginField("red5pro", "12345", 1L, "10.1.1.1"), values);
+        assertTrue(answer.contains("m=video 9 UDP/TLS/RTP/SAVPF 96\nc=IN IP4 0.0.0.0\n"));
+        assertFalse(answer.contains("a=candidate"));
+        assertFalse(answer.contains("a=ssrc"));
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.red5pro.media.sdp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.media.sdp.model.AttributeField;
+import com.red5pro.media.sdp.model.AttributeKey;
+import com.red5pro.media.sdp.model.BandwidthField;
+import com.red5pro.media.sdp.model.MediaField;
+import com.red5pro.media.sdp.model.OriginField;
+import com.red5pro.media.sdp.model.SDPMediaType;
+
+public class SDPParserTest {
+
+    private static Logger log = LoggerFactory.getLogger(SDPParserTest.class);
+
+    @Test
+    public void testAttributes() {
+        log.info("\n testAttributes");
+        AttributeField attr = SDPFactory.createAttributeField("msid-semantic: WMS *");
+        assertEquals(AttributeKey.msidsemantic, attr.getAttribute());
+        assertEquals(" WMS *", attr.getValue());
+        attr = SDPFactory.createAttributeField("rtcp-mux");
+        assertEquals(AttributeKey.rtcpmux, attr.getAttribute());
+        assertTrue(attr.isBinary());
+        attr = SDPFactory.createAttributeField("extmap-allow-mixed");
+        assertEquals(AttributeKey.extmapallowmixed, attr.getAttribute());
+        attr = SDPFactory.createAttributeField("bundle-only");
+        assertEquals(AttributeKey.bundleonly, attr.getAttribute());
+        attr = SDPFactory.createAttributeField("Width:integer;640");
+        assertEquals(AttributeKey.Width, attr.getAttribute());
+        assertEquals("integer;640", attr.getValue());
+        assertNull(SDPFactory.createAttributeField("identity:eyJpZHAiOnsicHJvdG9jb2wiOiJpZHAuanMi"));
+        assertNull(SDPFactory.createAttributeField(":"));
+    }
+
+    @Test
+    public void testMedia() {
+        log.info("\n testMedia");
+        MediaField media = SDPFactory.createMediaField("video 9 UDP/TLS/RTP/SAVPF 96 97 102");
+        assertEquals(SDPMediaType.video, media.getMediaType());
+        assertEquals(9, media.getPort());
+        assertEquals(MediaField.PROTOCOL_UDP, media.getProtocol());
+        assertArrayEquals(new int[] { 96, 97, 102 }, media.getFormats());
+        media = SDPFactory.createMediaField("application 9 UDP/DTLS/SCTP webrtc-datachannel");
+        assertEquals(SDPMediaType.application, media.getMediaType());
+        assertArrayEquals(new int[] { 5000 }, media.getFormats());
+        assertNull(media.getAttribute(AttributeKey.sctpport));
+        media = SDPFactory.createMediaField("application 9 DTLS/SCTP 5000");
+        assertEquals("5000", media.getAttribute(AttributeKey.sctpport).getValue());
+        media = SDPFactory.createMediaField("application 0 RTP/AVP 107");
+        assertEquals(0, media.getPort());
+        assertArrayEquals(new int[] { 107 }, media.getFormats());
+        // formats are limited to four digits and there must be at least one
+        assertNull(SDPFactory.createMediaField("audio 9 UDP/TLS/RTP/SAVPF 11111"));
+        assertNull(SDPFactory.createMediaField("audio 9 UDP/TLS/RTP/SAVPF"));
+        assertNull(SDPFactory.createMediaField("aud 9 UDP/TLS/RTP/SAVPF 111"));
+    }
+
+    @Test
+    public void testOrigin() {
+        log.info("\n testOrigin");
+        OriginField origin = SDPFactory.createOriginField("- 4611731400430051336 2 IN IP4 127.0.0.1");
+        assertEquals("-", origin.getUserName());
+        assertEquals("4611731400430051336", origin.getSessionId());
+        assertEquals(2L, origin.getSessionVersion());
+        assertEquals("127.0.0.1", origin.getAddress());
+        // the user name is the last run of name characters preceding the remainder of the origin
+        origin = SDPFactory.createOriginField("mozilla...THIS_IS_SDPARTA-45.0.2 3726311801733287589 0 IN IP4 0.0.0.0");
+        assertEquals("2", origin.getUserName());
+        assertEquals("0.0.0.0", origin.getAddress());
+        assertNull(SDPFactory.createOriginField("- 4611731400430051336 2 IN IP6 ::1"));
+    }
+
+    @Test
+    public void testBandwidthAndConnection() {
+        log.info("\n testBandwidthAndConnection");
+        BandwidthField bw = SDPFactory.createBandwidthField("AS:256");
+        assertEquals("AS", bw.getType());
+        assertEquals(256, bw.getBandwidth());
+        // only two letter types with up to six digits are recognized
+        bw = SDPFactory.createBandwidthField("TIAS:12800000");
+        assertEquals("AS", bw.getType());
+        assertEquals(128000, bw.getBandwidth());
+        assertNull(SDPFactory.createBandwidthField("as:256"));
+        assertNotNull(SDPFactory.createConnectionField("IN IP4 0.0.0.0"));
+        assertEquals("::", SDPFactory.createConnectionField("IN IP6 ::").getAddress());
+        assertNull(SDPFactory.createConnectionField("IN  IP4 0.0.0.0"));
+    }
+
+    @Test
+    public void testLineEndings() {
+        log.info("\n testLineEndings");
+        String lf = "v=0\no=- 1 2 IN IP4 127.0.0.1\ns=-\nt=0 0\nm=audio 9 UDP/TLS/RTP/SAVPF 111\nc=IN IP4 0.0.0.0\na=mid:0\na=rtpmap:111 opus/48000/2\n";
+        String expected = SDPFactory.createSessionDescription(lf).toString();
+        assertEquals(expected, SDPFactory.createSessionDescription(lf.replace("\n", "\r\n")).toString());
+        assertEquals(expected, SDPFactory.createSessionDescription(lf.replace("\n", "\r")).toString());
+        // malformed lines are skipped
+        assertEquals(expected, SDPFactory.createSessionDescription(lf.replace("t=0 0\n", "t=0 0\n   \n=x\nbogus\n")).toString());
+        // as is everything belonging to an unparseable media description
+        SessionDescription sdp = SDPFactory.createSessionDescription(lf + "m=video 9 UDP/TLS/RTP/SAVPF\na=mid:1\n");
+        assertEquals(1, sdp.getMediaDescriptions().length);
+        assertEquals("0", sdp.getMediaDescriptions()[0].getMediaId());
+    }
+
+    @Test
+    public void testUnknownTypes() {
+        log.info("\n testUnknownTypes");
+        assertNull(SDPFactory.createMediaField("image 9 RTP/AVP 98"));
+        assertNull(SDPFactory.createConnectionField("ATM NSAP 47.0091.8100.0000.0060.3e64.fd01.0060.3e64.fd01.00"));
+        assertNull(SDPFactory.createConnectionField("IN IPX 0.0.0.0"));
+        // lines of unknown types are skipped along with the media description they start
+        String lf = "v=0\no=- 1 2 IN IP4 127.0.0.1\ns=-\nt=0 0\nm=audio 9 UDP/TLS/RTP/SAVPF 111\nc=IN IP4 0.0.0.0\na=mid:0\n";
+        SessionDescription sdp = SDPFactory.createSessionDescription(lf + "m=image 9 RTP/AVP 98\nc=IN IP4 0.0.0.0\na=mid:1\nm=video 9 UDP/TLS/RTP/SAVPF 96\nc=ATM NSAP 47.00\na=mid:2\n");
+        assertEquals(2, sdp.getMediaDescriptions().length);
+        assertEquals("0", sdp.getMediaDescriptions()[0].getMediaId());
+        assertEquals("2", sdp.getMediaDescriptions()[1].getMediaId());
+        assertNull(sdp.getMediaDescriptions()[1].getConnection());
+    }
+
+    @Test
+    public void testRed5ProTracks() {
+        log.info("\n testRed5ProTracks");
+        String raw = "v=0\r\ns=Media Presentation\r\nt=0 0\r\nm=audio 0 RTP/AVP 97\r\na=rtpmap:97 MPEG4-GENERIC/44100/2\r\na=fmtp:97 profile-level-id=1;mode=AAC-hbr;sizelength=13;indexlength=3;indexdeltalength=3;config=121056E500\r\na=control:streamid=0\r\n"
+                + "m=video 0 RTP/AVP 96\r\na=rtpmap:96 H264/90000\r\na=fmtp:96 packetization-mode=1; sprop-parameter-sets=Z0LAINkAoD2hAAADAAEAAAMAMA8YMkg=,aMuDyyA=; profile-level-id=42C020\r\na=control:streamid=1\r\n";
+        SessionDescription sdp = SDPFactory.createSessionDescription(SDPUserAgent.red5pro, raw);
+        SDPTrack audio = sdp.getAudioTrack();
+        assertEquals(97, audio.getPayloadId());
+        assertEquals("AAC-hbr", audio.getParameters().get("mode"));
+        assertEquals("121056E500", audio.getParameters().get("config"));
+        SDPTrack video = sdp.getVideoTrack();
+        assertEquals(96, video.getPayloadId());
+        assertEquals("Z0LAINkAoD2hAAADAAEAAAMAMA8YMkg=,aMuDyyA=", video.getParameters().get("sprop-parameter-sets"));
+        assertEquals("42C020", video.getParameters().get("profile-level-id"));
+        assertEquals("streamid=1", video.getControl());
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.red5pro.media.sdp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.media.sdp.model.AttributeKey;
+import com.red5pro.media.sdp.model.MediaField;
+
+public class SDPSingleLineDecoderTest {
+
+    private static Logger log = LoggerFactory.getLogger(SDPSingleLineDecoderTest.class);
+
+    private static final String OFFER = "v=0\r\no=- 4611731400430051336 2 IN IP4 127.0.0.1\r\ns=-\r\nt=0 0\r\na=group:BUNDLE 0 1\r\na=msid-semantic: WMS stream1\r\n"
+            + "m=audio 9 UDP/TLS/RTP/SAVPF 111\r\nc=IN IP4 0.0.0.0\r\na=ice-ufrag:ufrag1\r\na=mid:0\r\na=recvonly\r\na=rtpmap:111 opus/48000/2\r\na=fmtp:111 minptime=10;useinbandfec=1\r\n"
+            + "m=video 9 UDP/TLS/RTP/SAVPF 96 97\r\nc=IN IP4 0.0.0.0\r\nb=AS:500\r\na=mid:1\r\na=recvonly\r\na=rtpmap:96 H264/90000\r\na=fmtp:96 packetization-mode=1;profile-level-id=42e01f\r\na=rtpmap:97 rtx/90000\r\na=fmtp:97 apt=96\r\na=control:trackID=2\r\n";
+
+    @Test
+    public void testLineByLine() {
+        log.info("\n testLineByLine");
+        SDPSingleLineDecoder decoder = new SDPSingleLineDecoder();
+        for (String line : OFFER.split("\r\n")) {
+            decoder.readLine(line);
+        }
+        SessionDescription sdp = decoder.doFinal();
+        assertEquals(SDPFactory.createSessionDescription(OFFER).toString(), sdp.toString());
+        assertEquals(2, sdp.getMediaDescriptions().length);
+        // fmtp and control lines fill in the track of their media
+        SDPTrack video = sdp.getVideoTrack();
+        assertNotNull(video);
+        assertEquals("trackID=2", video.getControl());
+        assertEquals("42e01f", video.getParameters().get("profile-level-id"));
+        assertEquals("96", video.getParameters().get("apt"));
+        assertEquals("1", sdp.getAudioTrack().getParameters().get("useinbandfec"));
+    }
+
+    @Test
+    public void testChunks() {
+        log.info("\n testChunks");
+        String expected = SDPFactory.createSessionDescription(OFFER).toString();
+        // a chunk holding several lines
+        SDPSingleLineDecoder decoder = new SDPSingleLineDecoder();
+        int split = OFFER.indexOf("m=video");
+        decoder.readLine(new StringBuilder(OFFER), 0, split);
+        decoder.readLine(OFFER.substring(split));
+        assertEquals(expected, decoder.doFinal().toString());
+        // bytes, from an array and a direct buffer
+        byte[] bytes = OFFER.getBytes(StandardCharsets.UTF_8);
+        decoder.reset();
+        decoder.readLine(bytes, 0, split);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length - split);
+        direct.put(bytes, split, bytes.length - split).flip();
+        decoder.readLine(direct);
+        assertEquals(0, direct.position());
+        assertEquals(expected, decoder.doFinal().toString());
+        // non ascii content
+        decoder.reset();
+        bytes = "a=tool:café\n".getBytes(StandardCharsets.UTF_8);
+        decoder.readLine(bytes, 0, bytes.length);
+        assertEquals("café", decoder.doFinal().getAttribute(AttributeKey.tool).getValue());
+    }
+
+    @Test
+    public void testMalformedLines() {
+        log.info("\n testMalformedLines");
+        SDPSingleLineDecoder decoder = new SDPSingleLineDecoder();
+        decoder.readLine("v=0");
+        decoder.readLine("garbage");
+        decoder.readLine("m=bogus");
+        decoder.readLine("a=mid:9");
+        decoder.readLine("m=audio 9 RTP/SAVP 0");
+        // the pipes of a crypto line are kept
+        decoder.readLine("a=crypto:1 AES_CM_128_HMAC_SHA1_80 inline:d0RmdmcmVCspeEc3QGZiNWpVLFJhQX1cfHAwJSoj|2^20|1:32\r\n");
+        MediaField[] media = decoder.doFinal().getMediaDescriptions();
+        assertEquals(1, media.length);
+        assertEquals(null, media[0].getAttribute(AttributeKey.mid));
+        assertEquals("1 AES_CM_128_HMAC_SHA1_80 inline:d0RmdmcmVCspeEc3QGZiNWpVLFJhQX1cfHAwJSoj|2^20|1:32", media[0].getAttribute(AttributeKey.crypto).getValue());
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.red5pro.media.sdp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.media.rtp.RTPCodecEnum;
+import com.red5pro.media.sdp.model.AttributeKey;
+
+public class SDPWriterTest {
+
+    private static Logger log = LoggerFactory.getLogger(SDPWriterTest.class);
+
+    private static final String OFFER = "v=0\no=- 1 2 IN IP4 127.0.0.1\ns=-\nt=0 0\na=group:BUNDLE 1 0\nm=audio 9 UDP/TLS/RTP/SAVPF 111\nc=IN IP4 0.0.0.0\na=mid:1\na=rtpmap:111 opus/48000/2\na=rtpmap:0 PCMU/8000\na=rtcp-fb:* nack\n"
+            + "m=video 9 UDP/TLS/RTP/SAVPF 96\nc=IN IP4 0.0.0.0\nb=AS:256\na=mid:0\na=rtpmap:96 VP8/90000\na=rtcp-mux\n";
+
+    @Test
+    public void testWrite() {
+        log.info("\n testWrite");
+        SessionDescription sdp = SDPFactory.createSessionDescription(OFFER);
+        String content = SDPWriter.write(sdp);
+        assertEquals(content, sdp.toString());
+        // media is ordered by mid, codec attributes for payloads not offered are dropped and wildcards kept
+        assertTrue(content.contains("a=group:BUNDLE 0 1\n"));
+        assertTrue(content.indexOf("m=video") < content.indexOf("m=audio"));
+        assertTrue(content.contains("b=AS:256\na=mid:0\na=rtpmap:96 VP8/90000\na=rtcp-mux\n"));
+        assertFalse(content.contains("PCMU"));
+        assertTrue(content.contains("a=rtcp-fb:* nack\n"));
+        // appending leaves existing content in place
+        assertEquals("x" + content, SDPWriter.write(sdp, new StringBuilder("x")).toString());
+        // pro sdk gets crlf line endings
+        sdp.setUA(SDPUserAgent.red5pro);
+        String crlf = sdp.toString();
+        assertTrue(crlf.startsWith("v=0\r\no="));
+        assertFalse(crlf.replace("\r\n", "").contains("\n"));
+    }
+
+    @Test
+    public void testWriteBuffer() {
+        log.info("\n testWriteBuffer");
+        SessionDescription sdp = SDPFactory.createSessionDescription(OFFER);
+        sdp.getSession().setName("café € 😀");
+        String content = sdp.toString();
+        byte[] expected = content.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocateDirect(expected.length + 8);
+        buf.put((byte) 'x');
+        assertEquals(expected.length, SDPWriter.write(sdp, buf));
+        assertEquals(expected.length + 1, buf.position());
+        byte[] actual = new byte[expected.length];
+        buf.flip().position(1);
+        buf.get(actual);
+        assertEquals(content, new String(actual, StandardCharsets.UTF_8));
+        // too small a buffer is left as it was
+        ByteBuffer small = ByteBuffer.allocate(expected.length - 1);
+        small.put((byte) 'x');
+        try {
+            SDPWriter.write(sdp, small);
+            fail("Expected overflow");
+        } catch (BufferOverflowException e) {
+            assertEquals(1, small.position());
+        }
+    }
+
+    @Test
+    public void testRTPMapString() {
+        log.info("\n testRTPMapString");
+        assertEquals("111 opus/48000/2", RTPCodecEnum.getRTPMapString(RTPCodecEnum.OPUS));
+        assertEquals("100 VP8/90000", RTPCodecEnum.getRTPMapString(RTPCodecEnum.VP8));
+        assertEquals(null, RTPCodecEnum.getRTPMapString(RTPCodecEnum.ANY_AUDIO));
+        assertEquals("96 H264/90000", SDPFactory.createAttributeField(AttributeKey.rtpmap, 96, "H264", 90000).getValue());
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.red5pro.media.sdp.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.media.rtp.RTPCodecEnum;
+
+public class AttributeIndexTest {
+
+    private static Logger log = LoggerFactory.getLogger(AttributeIndexTest.class);
+
+    @Test
+    public void testOrderAndLookup() {
+        log.info("\n testOrderAndLookup");
+        AttributeIndex index = new AttributeIndex();
+        AttributeField mid = new AttributeField(AttributeKey.mid, "0");
+        AttributeField rtpmap96 = new AttributeField(AttributeKey.rtpmap, "96 VP8/90000");
+        AttributeField rtpmap97 = new AttributeField(AttributeKey.rtpmap, "97 rtx/90000");
+        AttributeField fmtp97 = new AttributeField(AttributeKey.fmtp, "97 apt=96");
+        index.add(mid);
+        index.add(rtpmap96);
+        index.add(rtpmap97);
+        index.add(fmtp97);
+        for (int i = 0; i < 20; i++) {
+            index.add(new AttributeField(AttributeKey.ssrc, (1000 + i) + " cname:x"));
+        }
+        assertEquals(24, index.size());
+        assertArrayEquals(new AttributeField[] { mid, rtpmap96, rtpmap97, fmtp97 }, Arrays.copyOf(index.toArray(), 4));
+        assertSame(rtpmap96, index.get(AttributeKey.rtpmap));
+        assertSame(rtpmap97, index.get(AttributeKey.rtpmap, 97));
+        assertSame(fmtp97, index.get(AttributeKey.fmtp, 97));
+        assertNull(index.get(AttributeKey.fmtp, 96));
+        assertNull(index.get(AttributeKey.ssrc, 100));
+        assertEquals(20, index.getAll(AttributeKey.ssrc).length);
+        // snapshots are reused until the attributes change
+        assertSame(index.toArray(), index.toArray());
+        assertSame(index.getAll(AttributeKey.ssrc), index.getAll(AttributeKey.ssrc));
+        assertEquals(0, index.getAll(AttributeKey.sctpport).length);
+    }
+
+    @Test
+    public void testRemove() {
+        log.info("\n testRemove");
+        AttributeIndex index = new AttributeIndex();
+        AttributeField fmtp96 = new AttributeField(AttributeKey.fmtp, "96 x=1");
+        index.add(new AttributeField(AttributeKey.mid, "0"));
+        index.add(fmtp96);
+        index.add(new AttributeField(AttributeKey.fmtp, "97 apt=96"));
+        assertTrue(index.remove(fmtp96));
+        assertNull(index.get(AttributeKey.fmtp, 96));
+        assertEquals("97 apt=96", index.get(AttributeKey.fmtp, 97).getValue());
+        assertFalse(index.remove(AttributeKey.rtpmap));
+        assertTrue(index.remove(AttributeKey.fmtp));
+        assertFalse(index.contains(AttributeKey.fmtp));
+        assertEquals(1, index.size());
+        index.set(null);
+        assertTrue(index.isEmpty());
+    }
+
+    @Test
+    public void testMediaField() {
+        log.info("\n testMediaField");
+        MediaField media = new MediaField(SDPMediaType.video, 9, MediaField.PROTOCOL_UDP, new int[] { 96, 97, 102 });
+        assertNull(media.getAttributes());
+        media.addAttributeField(new AttributeField(AttributeKey.rtpmap, "96 VP8/90000"));
+        media.addAttributeField(new AttributeField(AttributeKey.fmtp, "97 apt=96"));
+        media.addAttributeField(new AttributeField(AttributeKey.rtpmap, "102 h264/90000"));
+        media.addAttributeField(new AttributeField(AttributeKey.fmtp, "102 profile-level-id=42e01f"));
+        // exact payload ids win, otherwise any value containing the id is returned as before
+        assertEquals("102 profile-level-id=42e01f", media.getAttribute(AttributeKey.fmtp, 102).getValue());
+        assertEquals("97 apt=96", media.getAttribute(AttributeKey.fmtp, 96).getValue());
+        assertEquals("96 VP8/90000", media.getAttribute(AttributeKey.rtpmap, EnumSet.of(RTPCodecEnum.VP8)).getValue());
+        assertNull(media.getAttribute(AttributeKey.rtpmap, EnumSet.of(RTPCodecEnum.H264_PMODE1)));
+        assertEquals(1, media.getAttributeSelections(AttributeKey.rtpmap, EnumSet.of(RTPCodecEnum.H264_PMODE1)).size());
+        assertEquals(97, media.getAttributeInt(AttributeKey.fmtp));
+        media.addAttributeField(new AttributeField(AttributeKey.ssrc, "4294967295 cname:x"));
+        assertEquals(4294967295L, media.getAttributeLong(AttributeKey.ssrc));
+        assertEquals(-1, media.getAttributeInt(AttributeKey.ssrc));
+        assertEquals(5, media.getAttributes().length);
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.red5pro.server.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class PortAllocatorTest {
+
+    private static Logger log = LoggerFactory.getLogger(PortAllocatorTest.class);
+
+    @Test
+    public void testClaimRelease() {
+        log.info("\n testClaimRelease");
+        PortAllocator allocator = new PortAllocator(49152, 65535);
+        assertEquals(49152, allocator.claim(null));
+        assertEquals(49153, allocator.claim(null));
+        assertEquals(2, allocator.getAllocatedCount());
+        assertTrue(allocator.isAllocated(49152));
+        assertTrue(allocator.release(49152));
+        assertFalse(allocator.release(49152));
+        assertFalse(allocator.isAllocated(49152));
+        assertEquals(1, allocator.getAllocatedCount());
+        // released port is the lowest free one
+        assertEquals(49152, allocator.claim(null));
+    }
+
+    @Test
+    public void testBoundElsewhere() {
+        log.info("\n testBoundElsewhere");
+        PortAllocator allocator = new PortAllocator(49152, 65535);
+        assertTrue(allocator.markBoundElsewhere(49152));
+        assertEquals(49153, allocator.claim(null));
+        // probe rejection moves the port to the bound elsewhere bitmap
+        assertEquals(49155, allocator.claim(port -> port != 49154));
+        assertTrue(allocator.isBoundElsewhere(49154));
+        assertFalse(allocator.isAllocated(49154));
+        assertEquals(2, allocator.getAllocatedCount());
+        assertEquals(2, allocator.getBoundElsewhereCount());
+        assertTrue(allocator.clearBoundElsewhere(49152));
+        assertEquals(49152, allocator.claim(49152, null));
+    }
+
+    @Test
+    public void testClaimPair() {
+        log.info("\n testClaimPair");
+        // odd base
+        PortAllocator allocator = new PortAllocator(49151, 49216);
+        assertEquals(49152, allocator.claimPair(null));
+        assertEquals(2, allocator.getAllocatedCount());
+        // single claim leaves 49154 taken, so the next pair skips it
+        assertEquals(49154, allocator.claim(null));
+        assertEquals(49151, allocator.claim(49151, null));
+        assertEquals(49156, allocator.claimPair(null));
+        // rtcp side rejected
+        assertEquals(49160, allocator.claimPair(port -> port != 49159));
+        assertTrue(allocator.isBoundElsewhere(49159));
+        assertFalse(allocator.isAllocated(49158));
+        assertFalse(allocator.releasePair(49153));
+        assertTrue(allocator.releasePair(49152));
+        assertFalse(allocator.releasePair(49152));
+        assertEquals(49152, allocator.claimPair(null));
+        // the last port in range has no neighbour
+        PortAllocator single = new PortAllocator(49152, 49153);
+        assertEquals(-1, single.claimPair(null));
+        assertFalse(single.isExhausted());
+    }
+
+    @Test
+    public void testExhaustion() {
+        log.info("\n testExhaustion");
+        // unaligned range spanning three words
+        PortAllocator allocator = new PortAllocator(1000, 1130);
+        for (int i = 0; i < 130; i++) {
+            int port = allocator.claim(null);
+            assertTrue(port >= 1000 && port < 1130);
+        }
+        assertTrue(allocator.isExhausted());
+        assertEquals(-1, allocator.claim(null));
+        assertFalse(allocator.claimPort(999));
+        assertFalse(allocator.claimPort(1130));
+        allocator.release(1129);
+        assertFalse(allocator.isExhausted());
+        assertEquals(1129, allocator.claim(1000, null));
+    }
+
+    @Test
+    public void testStripes() {
+        log.info("\n testStripes");
+        // two words split into two stripes
+        PortAllocator allocator = new PortAllocator(1024, 1152, 2);
+        assertEquals(2, allocator.getStripeCount());
+        // claiming from a single thread drains its stripe then steals from the other
+        for (int i = 0; i < 128; i++) {
+            assertTrue(allocator.claim(null) != -1);
+        }
+        assertTrue(allocator.isExhausted());
+        assertEquals(-1, allocator.claim(null));
+        assertEquals(-1, allocator.claimPair(null));
+        assertTrue(allocator.release(1030));
+        assertTrue(allocator.release(1100));
+        assertEquals(126, allocator.getAllocatedCount());
+        // a start port in the second stripe is found first
+        assertEquals(1100, allocator.claim(1090, null));
+        assertEquals(1030, allocator.claim(null));
+        // requested stripes are limited to the words in range
+        assertEquals(1, new PortAllocator(1024, 1088, 8).getStripeCount());
+    }
+
+    @Test
+    public void testConcurrentClaims() throws InterruptedException {
+        log.info("\n testConcurrentClaims");
+        runConcurrentClaims(new PortAllocator(49152, 65535));
+    }
+
+    @Test
+    public void testConcurrentStripedClaims() throws InterruptedException {
+        log.info("\n testConcurrentStripedClaims");
+        runConcurrentClaims(new PortAllocator(49152, 65535, 16));
+    }
+
+    private void runConcurrentClaims(final PortAllocator allocator) throws InterruptedException {
+        final int base = 49152, ceiling = 65535, threads = 64, allocations = 50000;
+        // tracks which thread holds each port
+        final AtomicIntegerArray holders = new AtomicIntegerArray(ceiling - base);
+        final AtomicInteger remaining = new AtomicInteger(allocations);
+        final AtomicInteger duplicates = new AtomicInteger();
+        final AtomicInteger misses = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 1; t <= threads; t++) {
+            final int id = t;
+            executor.submit(() -> {
+                // each thread holds a few ports at a time to create churn
+                int[] held = new int[8];
+                int count = 0;
+                while (remaining.getAndDecrement() > 0) {
+                    int port = allocator.claim(null);
+                    if (port < base || port >= ceiling) {
+                        misses.incrementAndGet();
+                        continue;
+                    }
+                    if (!holders.compareAndSet(port - base, 0, id)) {
+                        duplicates.incrementAndGet();
+                    }
+                    if (count == held.length) {
+                        for (int p : held) {
+                            holders.set(p - base, 0);
+                            allocator.release(p);
+                        }
+                        count = 0;
+                    }
+                    held[count++] = port;
+                }
+                for (int i = 0; i < count; i++) {
+                    holders.set(held[i] - base, 0);
+                    allocator.release(held[i]);
+                }
+                latch.countDown();
+            });
+        }
+        try {
+            assertTrue(latch.await(1L, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdown();
+        }
+        log.info("Concurrent claims - duplicates: {} misses: {} allocated: {}", duplicates.get(), misses.get(), allocator.getAllocatedCount());
+        assertEquals(0, duplicates.get());
+        assertEquals(0, misses.get());
+        assertEquals(0, allocator.getAllocatedCount());
+    }
+
+}
@@ -11,6 +11,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -88,6 +89,68 @@ public class PortManagerTest {
         assertTrue(a > 49155);
     }
 
+    @Test
+    public void testLeases() throws InterruptedException {
+        log.info("\n testLeases");
+        int intitialCount = PortManager.getCount();
+        long leaked = PortManager.getLeakedLeaseCount();
+        long reclaimed = PortManager.getReclaimedLeaseCount();
+        // closed by its owner
+        PortLease lease = PortManager.getRTPServerPort("closed", 60000L);
+        assertEquals(1, PortManager.getLiveLeaseCount());
+        assertEquals(PortManager.getCount(), (intitialCount + 1));
+        lease.close();
+        assertTrue(lease.isReleased());
+        assertFalse(lease.renew());
+        assertEquals(0, PortManager.getLiveLeaseCount());
+        assertEquals(PortManager.getCount(), intitialCount);
+        // left to expire
+        PortManager.getRTPServerPort("leaky", 200L);
+        // owner goes away
+        AtomicBoolean active = new AtomicBoolean(true);
+        PortLease pair = PortManager.reservePortPair("owned", 60000L, active::get, true);
+        assertEquals(pair.getPort() + 1, pair.getRtcpPort());
+        assertEquals(2, PortManager.getLiveLeaseCount());
+        assertEquals(PortManager.getCount(), (intitialCount + 3));
+        active.set(false);
+        for (int i = 0; i < 50 && PortManager.getLiveLeaseCount() > 0; i++) {
+            Thread.sleep(100L);
+        }
+        assertEquals(0, PortManager.getLiveLeaseCount());
+        assertEquals(leaked + 1, PortManager.getLeakedLeaseCount());
+        assertEquals(reclaimed + 2, PortManager.getReclaimedLeaseCount());
+        assertEquals(PortManager.getCount(), intitialCount);
+    }
+
+    @Test
+    public void testClearLeasedPair() throws InterruptedException {
+        log.info("\n testClearLeasedPair");
+        int intitialCount = PortManager.getCount();
+        long reclaimed = PortManager.getReclaimedLeaseCount();
+        // clearing the rtcp port releases the whole pair
+        PortLease pair = PortManager.reservePortPair("rtcp", 200L, null, true);
+        assertEquals(PortManager.getCount(), (intitialCount + 2));
+        PortManager.clearRTPServerPort(pair.getRtcpPort());
+        assertTrue(pair.isReleased());
+        assertEquals(0, PortManager.getLiveLeaseCount());
+        assertEquals(PortManager.getCount(), intitialCount);
+        // clearing the rtp port does too
+        PortLease other = PortManager.reservePortPair("rtp", 200L, null, true);
+        PortManager.clearRTPServerPort(other.getPort());
+        assertTrue(other.isReleased());
+        assertEquals(PortManager.getCount(), intitialCount);
+        // the ports go to a new owner, and aren't freed again by closing or expiry of the old leases
+        int port = PortManager.reservePortPair(true);
+        assertEquals(PortManager.getCount(), (intitialCount + 2));
+        pair.close();
+        other.close();
+        Thread.sleep(500L);
+        assertEquals(reclaimed, PortManager.getReclaimedLeaseCount());
+        assertEquals(PortManager.getCount(), (intitialCount + 2));
+        PortManager.releasePortPair(port);
+        assertEquals(PortManager.getCount(), intitialCount);
+    }
+
     @Test
     public void testPortStayingAllocated() throws SocketException {
         log.info("\n testPortStayingAllocated");
@@ -105,6 +168,40 @@ public class PortManagerTest {
         assertEquals(PortManager.getCount(), 0);
     }
 
+    @Test
+    public void testProbe() {
+        log.info("\n testProbe");
+        PortProbe probe = PortManager.getProbe();
+        long binds = probe.getBindCount();
+        assertFalse(PortManager.checkAvailable(unavailablePort));
+        // every check binds, nothing is answered from memory
+        assertFalse(probe.bind(unavailablePort, false));
+        assertEquals(binds + 2, probe.getBindCount());
+        socket.close();
+        assertTrue(PortManager.checkAvailable(unavailablePort));
+        // window of the freed port and its neighbours
+        long available = probe.probeWindow(unavailablePort - 1, 0b111L, false);
+        assertEquals(0b111L, available);
+        assertEquals(binds + 6, probe.getBindCount());
+        log.info("Probe stats: {}", probe);
+    }
+
+    @Test
+    public void testReservePortPair() {
+        log.info("\n testReservePortPair");
+        int intitialCount = PortManager.getCount();
+        assertEquals(49152, PortManager.reservePortPair());
+        assertEquals(49154, PortManager.reservePortPair());
+        // the unavailable port holds 49156 so its pair is skipped
+        int rtpPort = PortManager.reservePortPair();
+        assertEquals(0, rtpPort % 2);
+        assertTrue(rtpPort > unavailablePort);
+        assertEquals(PortManager.getCount(), (intitialCount + 6));
+        PortManager.releasePortPair(49152);
+        assertEquals(PortManager.getCount(), (intitialCount + 4));
+        assertEquals(49152, PortManager.reservePortPair());
+    }
+
     @Test
     public void testZMaxItOutLinear() throws InterruptedException {
         final int portBase = 49152, portCeiling = 65535;
@@ -0,0 +1,149 @@
+package javax.media;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.media.format.AudioFormat;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.media.MediaSample;
+import com.red5pro.media.MediaSamplePool;
+import com.red5pro.media.MediaType;
+import com.red5pro.media.PooledMediaSample;
+import com.red5pro.media.rtp.RTPCodecEnum;
+
+public class BufferPoolTest {
+
+    private static Logger log = LoggerFactory.getLogger(BufferPoolTest.class);
+
+    @Test
+    public void testRecycling() throws InterruptedException {
+        log.info("\n testRecycling");
+        MediaSamplePool arrays = new MediaSamplePool(64 * 1024);
+        BufferPool pool = new BufferPool(arrays, 2, 4);
+        Buffer buf = pool.acquire(100);
+        byte[] data = (byte[]) buf.getData();
+        assertEquals(128, data.length);
+        assertEquals(100, buf.getLength());
+        buf.setFormat(new AudioFormat("opus", 48000, 16, 2), RTPCodecEnum.OPUS);
+        buf.setTimeStamp(1234L);
+        buf.setKeyframe(true);
+        pool.release(buf);
+        // released twice by mistake
+        pool.release(buf);
+        assertEquals(1, arrays.size());
+        // the same thread gets its own buffer back, entirely reset, and the array from the size class
+        Buffer again = pool.acquire(120);
+        assertSame(buf, again);
+        assertSame(data, again.getData());
+        assertNull(again.getFormat());
+        assertEquals(RTPCodecEnum.NONE, again.getCodec());
+        assertEquals(Buffer.TIME_UNKNOWN, again.getTimeStamp());
+        assertFalse(again.isKeyframe());
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+        assertEquals(BufferPool.BUFFER_BYTES + 128, pool.getReusedBytes());
+        assertEquals(BufferPool.BUFFER_BYTES + 128, pool.getAllocatedBytes());
+        // buffers released beyond the thread's own go to the shared stack, for other threads
+        Buffer[] bufs = { again, pool.acquire(), pool.acquire(), pool.acquire() };
+        for (Buffer b : bufs) {
+            pool.release(b);
+        }
+        assertEquals(2, pool.getSharedSize());
+        AtomicReference<Buffer> other = new AtomicReference<>();
+        Thread thread = new Thread(() -> other.set(pool.acquire()));
+        thread.start();
+        thread.join();
+        assertTrue(other.get() == bufs[2] || other.get() == bufs[3]);
+        assertEquals(1, pool.getSharedSize());
+        // data of the caller's own isn't pooled
+        Buffer own = pool.acquire();
+        own.setData(new byte[256]);
+        int pooled = arrays.size();
+        pool.release(own);
+        assertEquals(pooled, arrays.size());
+    }
+
+    @Test
+    public void testCopy() {
+        log.info("\n testCopy");
+        MediaSamplePool arrays = new MediaSamplePool(64 * 1024);
+        BufferPool pool = new BufferPool(arrays, 4, 4);
+        Buffer source = new Buffer();
+        source.setData(new byte[] { 1, 2, 3, 4, 5 });
+        source.setLength(5);
+        source.setSequenceNumber(7L);
+        // copying into a pooled buffer reuses its array
+        Buffer target = pool.acquire(64);
+        byte[] data = (byte[]) target.getData();
+        target.copy(source);
+        assertSame(data, target.getData());
+        assertEquals(5, target.getLength());
+        assertEquals(7L, target.getSequenceNumber());
+        assertEquals(3, ((byte[]) target.getData())[2]);
+        // swapping moves the pooled array, along with its ownership
+        Buffer other = pool.acquire();
+        other.copy(target, true);
+        assertSame(data, other.getData());
+        assertNull(target.getData());
+        // so the caller's own array swapped into a pooled buffer isn't recycled with it
+        Buffer plain = new Buffer();
+        plain.setData(new byte[128]);
+        other.copy(plain, true);
+        assertSame(data, plain.getData());
+        int pooled = arrays.size();
+        pool.release(other);
+        assertEquals(pooled, arrays.size());
+        pool.release(target);
+        // a plain buffer still gets an exactly sized copy
+        plain.copy(source);
+        assertEquals(5, ((byte[]) plain.getData()).length);
+    }
+
+    @Test
+    public void testMediaSampleToBuffer() {
+        log.info("\n testMediaSampleToBuffer");
+        BufferPool pool = new BufferPool(new MediaSamplePool(64 * 1024), 4, 4);
+        MediaSample sample = MediaSample.build(1000L, new byte[] { (byte) 0xaf, 1, 2, 3 }, MediaType.AUDIO);
+        Buffer buf = sample.toBuffer(true, pool);
+        assertEquals(3, buf.getLength());
+        assertEquals(0, buf.getOffset());
+        assertEquals(1, ((byte[]) buf.getData())[0]);
+        assertEquals(1000L, buf.getTimeStamp());
+        pool.release(buf);
+        Buffer shared = sample.toBuffer(false, pool);
+        assertSame(buf, shared);
+        assertSame(sample.getBuffer(), shared.getData());
+        assertEquals(4, shared.getLength());
+        pool.release(shared);
+    }
+
+    @Test
+    public void testPooledMediaSampleToBuffer() {
+        log.info("\n testPooledMediaSampleToBuffer");
+        MediaSamplePool arrays = new MediaSamplePool(64 * 1024);
+        BufferPool pool = new BufferPool(arrays, 4, 4);
+        // five bytes held in a longer size class array
+        PooledMediaSample sample = PooledMediaSample.build(arrays, 1000L, new byte[] { (byte) 0xaf, 1, 2, 3, 4 }, 0, 5, MediaType.AUDIO);
+        assertTrue(sample.getData().length > 5);
+        Buffer shared = sample.toBuffer(false, pool);
+        assertSame(sample.getData(), shared.getData());
+        assertEquals(0, shared.getOffset());
+        assertEquals(5, shared.getLength());
+        pool.release(shared);
+        Buffer stripped = sample.toBuffer(true, pool);
+        assertEquals(4, stripped.getLength());
+        assertEquals(4, ((byte[]) stripped.getData())[3]);
+        pool.release(stripped);
+        sample.release();
+    }
+
+}
@@ -0,0 +1,124 @@
+package javax.media;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Dimension;
+
+import javax.media.format.AudioFormat;
+import javax.media.format.VideoFormat;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FormatRegistryTest {
+
+    private static Logger log = LoggerFactory.getLogger(FormatRegistryTest.class);
+
+    @Test
+    public void testIntern() {
+        log.info("\n testIntern");
+        AudioFormat opus = new AudioFormat("opus", 48000, 16, 2);
+        AudioFormat same = new AudioFormat("OPUS", 48000, 16, 2);
+        assertEquals(opus, same);
+        assertEquals(opus.hashCode(), same.hashCode());
+        AudioFormat canonical = FormatRegistry.intern(opus);
+        assertNotSame(opus, canonical);
+        assertTrue(canonical.isInterned());
+        assertFalse(opus.isInterned());
+        assertSame(canonical, FormatRegistry.intern(same));
+        assertSame(canonical, FormatRegistry.intern(canonical));
+        assertNotSame(canonical, FormatRegistry.intern(new AudioFormat("opus", 48000, 16, 1)));
+        assertEquals(opus.hashCode(), canonical.hashCode());
+        // the canonical instance can't change, though the original still can
+        try {
+            canonical.setChannels(1);
+            fail("Expected interned format to be immutable");
+        } catch (UnsupportedOperationException e) {
+        }
+        opus.setChannels(1);
+        assertEquals(2, canonical.getChannels());
+        assertFalse(((AudioFormat) canonical.clone()).isInterned());
+        VideoFormat h264 = new VideoFormat("H264", new Dimension(1920, 1080), Format.NOT_SPECIFIED, Format.byteArray, 60f);
+        assertSame(FormatRegistry.intern(h264), FormatRegistry.intern((VideoFormat) h264.clone()));
+        assertNull(FormatRegistry.intern(null));
+    }
+
+    @Test
+    public void testMemoizedComparisons() {
+        log.info("\n testMemoizedComparisons");
+        AudioFormat any = FormatRegistry.intern(new AudioFormat("opus"));
+        AudioFormat stereo = FormatRegistry.intern(new AudioFormat("opus", 48000, 16, 2));
+        AudioFormat pcmu = FormatRegistry.intern(new AudioFormat("pcmu", 8000, 8, 1));
+        VideoFormat vp8 = FormatRegistry.intern(new VideoFormat("VP8"));
+        for (int i = 0; i < 2; i++) {
+            assertTrue(FormatRegistry.matches(any, stereo));
+            assertFalse(FormatRegistry.matches(stereo, pcmu));
+            assertFalse(FormatRegistry.matches(stereo, null));
+            Format intersection = FormatRegistry.intersects(any, stereo);
+            assertEquals(stereo, intersection);
+            assertTrue(intersection.isInterned());
+            assertSame(intersection, FormatRegistry.intersects(any, stereo));
+            assertNull(FormatRegistry.intersects(stereo, vp8));
+        }
+    }
+
+    @Test
+    public void testBufferCopySharesFormat() {
+        log.info("\n testBufferCopySharesFormat");
+        Buffer source = new Buffer();
+        source.setData(new byte[] { 1, 2, 3 });
+        source.setLength(3);
+        source.setFormat(new AudioFormat("opus", 48000, 16, 2));
+        Buffer first = new Buffer();
+        first.copy(source);
+        Buffer second = new Buffer();
+        second.copy(first);
+        assertTrue(first.getFormat().isInterned());
+        assertSame(first.getFormat(), second.getFormat());
+        assertEquals(source.getFormat(), first.getFormat());
+        assertTrue(first.equals(second));
+        // changes to the source format don't carry over
+        ((AudioFormat) source.getFormat()).setChannels(1);
+        assertEquals(2, ((AudioFormat) first.getFormat()).getChannels());
+        Buffer clone = (Buffer) second.clone();
+        assertSame(second.getFormat(), clone.getFormat());
+        // copying a buffer without a format
+        Buffer empty = new Buffer();
+        empty.setData(new byte[0]);
+        second.copy(empty);
+        assertNull(second.getFormat());
+    }
+
+    @Test
+    public void testInternedVideoSize() {
+        log.info("\n testInternedVideoSize");
+        Buffer source = new Buffer();
+        source.setData(new byte[] { 1, 2, 3 });
+        source.setLength(3);
+        source.setFormat(new VideoFormat("H264", new Dimension(1280, 720), Format.NOT_SPECIFIED, Format.byteArray, 30f));
+        Buffer copy = new Buffer();
+        copy.copy(source);
+        VideoFormat format = (VideoFormat) copy.getFormat();
+        assertTrue(format.isInterned());
+        // mutating the size of a copied buffer's format leaves the registry intact
+        format.getSize().setSize(640, 360);
+        assertEquals(new Dimension(1280, 720), format.getSize());
+        assertSame(format, FormatRegistry.intern(new VideoFormat("H264", new Dimension(1280, 720), Format.NOT_SPECIFIED, Format.byteArray, 30f)));
+        assertNotSame(format, FormatRegistry.intern(new VideoFormat("H264", new Dimension(640, 360), Format.NOT_SPECIFIED, Format.byteArray, 30f)));
+        // nor can the interned format be copied into
+        try {
+            ((Format) format).copy(new VideoFormat("H264", new Dimension(640, 360), Format.NOT_SPECIFIED, Format.byteArray, 30f));
+            fail("Expected interned format to be immutable");
+        } catch (UnsupportedOperationException e) {
+        }
+        assertEquals(new Dimension(1280, 720), format.getSize());
+    }
+
+}